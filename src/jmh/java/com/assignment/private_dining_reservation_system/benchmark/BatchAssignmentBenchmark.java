@@ -0,0 +1,109 @@
+package com.assignment.private_dining_reservation_system.benchmark;
+
+import com.assignment.private_dining_reservation_system.entity.RoomType;
+import com.assignment.private_dining_reservation_system.service.BatchAssignmentSolver;
+import com.assignment.private_dining_reservation_system.service.BatchAssignmentSolver.CandidateRoom;
+import com.assignment.private_dining_reservation_system.service.BatchAssignmentSolver.PendingRequest;
+import com.assignment.private_dining_reservation_system.service.MinuteOfDay;
+import com.assignment.private_dining_reservation_system.service.OccupancyBitmap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batch auto assign of one restaurant day, solver against assigning each request on its own in arrival order.
+ * Run with: mvn -Pbenchmark test-compile exec:exec -Dexec.args="BatchAssignmentBenchmark -prof gc"
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchAssignmentBenchmark {
+    private static final int ROOMS = 50;
+
+    @Param({"100", "1000", "5000"})
+    private int requestCount;
+
+    private List<CandidateRoom> rooms;
+    private List<PendingRequest> requests;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        rooms = new ArrayList<>(ROOMS);
+        for (int i = 0; i < ROOMS; i++) {
+            //Rooms of every type open from noon, a third closing past midnight, some already booked in the evening
+            byte[] occupancy = i % 4 == 0 ? OccupancyBitmap.occupy(OccupancyBitmap.empty(), 19 * 60, 22 * 60) : null;
+            rooms.add(new CandidateRoom((long) i, RoomType.values()[i % RoomType.values().length], 2 + i % 5, 8 + i % 20,
+                    12 * 60, i % 3 == 0 ? 25 * 60 : 23 * 60, occupancy, null));
+        }
+        requests = new ArrayList<>(requestCount);
+        for (int i = 0; i < requestCount; i++) {
+            int start = 12 * 60 + random.nextInt(10 * 4) * 15;
+            requests.add(new PendingRequest(RoomType.values()[random.nextInt(RoomType.values().length)], 2 + random.nextInt(20),
+                    start, start + 180 + random.nextInt(5) * 30));
+        }
+    }
+
+    @Benchmark
+    public int batchSolver() {
+        int assigned = 0;
+        for (int assignment : new BatchAssignmentSolver(rooms).assign(requests)) {
+            if (assignment != BatchAssignmentSolver.UNASSIGNED) {
+                assigned++;
+            }
+        }
+        return assigned;
+    }
+
+    @Benchmark
+    public int arrivalOrderFirstFit() {
+        byte[][] occupancy = new byte[ROOMS][];
+        byte[][] nextDayOccupancy = new byte[ROOMS][];
+        for (int i = 0; i < ROOMS; i++) {
+            occupancy[i] = rooms.get(i).occupancy() == null ? OccupancyBitmap.empty() : rooms.get(i).occupancy();
+            nextDayOccupancy[i] = OccupancyBitmap.empty();
+        }
+        int assigned = 0;
+        for (PendingRequest request : requests) {
+            for (int i = 0; i < ROOMS; i++) {
+                CandidateRoom room = rooms.get(i);
+                if (request.roomTypes().contains(room.roomType())
+                        && request.groupSize() >= room.minCapacity() && request.groupSize() <= room.maxCapacity()
+                        && request.start() >= room.opensAt() && request.end() <= room.closesAt()
+                        && isFree(occupancy[i], nextDayOccupancy[i], request.start(), request.end())) {
+                    occupancy[i] = OccupancyBitmap.occupy(occupancy[i], request.start(), Math.min(request.end(), MinuteOfDay.MINUTES_PER_DAY));
+                    if (request.end() > MinuteOfDay.MINUTES_PER_DAY) {
+                        nextDayOccupancy[i] = OccupancyBitmap.occupy(nextDayOccupancy[i], 0, request.end() - MinuteOfDay.MINUTES_PER_DAY);
+                    }
+                    assigned++;
+                    break;
+                }
+            }
+        }
+        return assigned;
+    }
+
+    /**
+     * Byte bitmap check as a single auto assign does it, split at midnight.
+     * */
+    private static boolean isFree(byte[] occupancy, byte[] nextDayOccupancy, int start, int end) {
+        return OccupancyBitmap.isFree(occupancy, start, Math.min(end, MinuteOfDay.MINUTES_PER_DAY))
+                && (end <= MinuteOfDay.MINUTES_PER_DAY || OccupancyBitmap.isFree(nextDayOccupancy, 0, end - MinuteOfDay.MINUTES_PER_DAY));
+    }
+}
@@ -0,0 +1,98 @@
+package com.assignment.private_dining_reservation_system.benchmark;
+
+import com.assignment.private_dining_reservation_system.model.projection.RoomView;
+import com.assignment.private_dining_reservation_system.service.ReservationValidationService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Operating hours check of an availability search, compiled schedule against the LocalDateTime comparison it replaced.
+ * Run with: mvn -Pbenchmark test-compile exec:exec -Dexec.args="OperatingHoursBenchmark -prof gc"
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OperatingHoursBenchmark {
+    private static final int ROOMS = 64;
+
+    private RoomView[] roomViews;
+    private ReservationValidationService reservationValidationService;
+    private LocalDate reservationDate;
+    private LocalTime startTime;
+    private LocalTime endTime;
+
+    @Setup
+    public void setUp() {
+        reservationValidationService = new ReservationValidationService(null, null, null);
+        roomViews = new RoomView[ROOMS];
+        for (int i = 0; i < ROOMS; i++) {
+            //Mix of rooms closing the same day and past midnight, open on a subset of days
+            LocalTime opening = LocalTime.of(12 + i % 6, 0);
+            LocalTime closing = i % 2 == 0 ? LocalTime.of(23, 30) : LocalTime.of(1, 0);
+            Set<DayOfWeek> openDays = i % 3 == 0 ? EnumSet.allOf(DayOfWeek.class) : EnumSet.range(DayOfWeek.MONDAY, DayOfWeek.SATURDAY);
+            roomViews[i] = new RoomView((long) i, 1L, 2, 20, opening, closing, Set.copyOf(openDays));
+        }
+        reservationDate = LocalDate.now().plusDays(1);
+        startTime = LocalTime.of(18, 0);
+        endTime = LocalTime.of(22, 30);
+    }
+
+    @Benchmark
+    public int compiledSchedule() {
+        int operating = 0;
+        for (RoomView roomView : roomViews) {
+            if (reservationValidationService.validateRoomOperatingHours(roomView, reservationDate, startTime, endTime)) {
+                operating++;
+            }
+        }
+        return operating;
+    }
+
+    @Benchmark
+    public int localDateTimeComparison() {
+        int operating = 0;
+        for (RoomView roomView : roomViews) {
+            if (localDateTimeCheck(roomView, reservationDate, startTime, endTime)) {
+                operating++;
+            }
+        }
+        return operating;
+    }
+
+    /**
+     * The check as it was before schedules were compiled.
+     * */
+    private static boolean localDateTimeCheck(RoomView roomView, LocalDate reservationDate, LocalTime startTime, LocalTime endTime) {
+        if (!roomView.openDays().isEmpty() && !roomView.openDays().contains(reservationDate.getDayOfWeek())) {
+            return false;
+        }
+        LocalDateTime reservationStartTime = reservationDate.atTime(startTime);
+        LocalDateTime reservationEndTime = endDateTime(reservationDate, startTime, endTime);
+        LocalDateTime openReservationTime = reservationDate.atTime(roomView.roomOpeningTime());
+        LocalDateTime closeReservationEndTime = endDateTime(reservationDate, roomView.roomOpeningTime(), roomView.roomClosingTime());
+        return !reservationStartTime.isBefore(openReservationTime) && !reservationEndTime.isAfter(closeReservationEndTime);
+    }
+
+    private static LocalDateTime endDateTime(LocalDate date, LocalTime start, LocalTime end) {
+        return end.isAfter(start) ? date.atTime(end) : date.plusDays(1).atTime(end);
+    }
+}
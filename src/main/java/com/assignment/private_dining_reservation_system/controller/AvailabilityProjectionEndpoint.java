@@ -0,0 +1,42 @@
+package com.assignment.private_dining_reservation_system.controller;
+
+import com.assignment.private_dining_reservation_system.service.AvailabilityProjectionRebuilder;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Operational command, POST /actuator/availabilityprojection starts a rebuild of the availability projection
+ * from the topic and GET reports on it. Kept on the actuator so it is not part of the public api, and not exposed
+ * over http unless added to management.endpoints.web.exposure.include.
+ * */
+@Component
+@Endpoint(id = "availabilityprojection")
+public class AvailabilityProjectionEndpoint {
+
+    private final AvailabilityProjectionRebuilder availabilityProjectionRebuilder;
+
+    public AvailabilityProjectionEndpoint(AvailabilityProjectionRebuilder availabilityProjectionRebuilder) {
+        this.availabilityProjectionRebuilder = availabilityProjectionRebuilder;
+    }
+
+    @WriteOperation
+    public Map<String, Object> rebuild() {
+        return Map.of("started", availabilityProjectionRebuilder.startRebuild());
+    }
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("running", availabilityProjectionRebuilder.isRunning());
+        AvailabilityProjectionRebuilder.RebuildStatus lastRebuild = availabilityProjectionRebuilder.lastRebuild();
+        if (lastRebuild != null) {
+            status.put("lastRebuild", lastRebuild);
+        }
+        return status;
+    }
+}
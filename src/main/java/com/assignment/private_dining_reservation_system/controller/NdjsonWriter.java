@@ -0,0 +1,34 @@
+package com.assignment.private_dining_reservation_system.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes newline delimited json to a streamed response, each document is flushed as soon as it is written
+ * so clients can start reading before the whole result is computed.
+ * */
+final class NdjsonWriter {
+    private final ObjectMapper objectMapper;
+    private final OutputStream outputStream;
+
+    NdjsonWriter(ObjectMapper objectMapper, OutputStream outputStream) {
+        this.objectMapper = objectMapper;
+        this.outputStream = outputStream;
+    }
+
+    /**
+     * @throws UncheckedIOException when the client has gone away, so producers can stop early
+     */
+    void write(Object value) {
+        try {
+            outputStream.write(objectMapper.writeValueAsBytes(value));
+            outputStream.write('\n');
+            outputStream.flush();
+        } catch (IOException ioException) {
+            throw new UncheckedIOException(ioException);
+        }
+    }
+}
@@ -4,8 +4,12 @@ import com.assignment.private_dining_reservation_system.entity.Reservation;
 import com.assignment.private_dining_reservation_system.exception.ReservationValidationFailureException;
 import com.assignment.private_dining_reservation_system.mapper.ReservationMapper;
 import com.assignment.private_dining_reservation_system.model.request.AutoAssignReservationRequest;
+import com.assignment.private_dining_reservation_system.model.request.BatchAutoAssignReservationRequest;
+import com.assignment.private_dining_reservation_system.model.request.BatchReservationRequest;
 import com.assignment.private_dining_reservation_system.model.request.ReservationRequest;
+import com.assignment.private_dining_reservation_system.model.response.BatchReservationItemResponse;
 import com.assignment.private_dining_reservation_system.model.response.ReservationResponse;
+import com.assignment.private_dining_reservation_system.service.BatchAllocationService;
 import com.assignment.private_dining_reservation_system.service.ReservationService;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
@@ -26,10 +30,12 @@ import java.util.List;
 public class ReservationController {
 
     private final ReservationService reservationService;
+    private final BatchAllocationService batchAllocationService;
     private final ReservationMapper reservationMapper;
 
-    public ReservationController(ReservationService reservationService, ReservationMapper reservationMapper) {
+    public ReservationController(ReservationService reservationService, BatchAllocationService batchAllocationService, ReservationMapper reservationMapper) {
         this.reservationService = reservationService;
+        this.batchAllocationService = batchAllocationService;
         this.reservationMapper = reservationMapper;
     }
 
@@ -58,6 +64,40 @@ public class ReservationController {
                 .body(reservationMapper.toResponse(reservationService.autoAssignCreateReservation(autoAssignReservationRequest)));
     }
 
+    /**
+     * Endpoint to reserve many rooms at once, e.g. for event planners.
+     * Every item is created or rejected on its own, response reports the outcome in request order.
+     *
+     * @param batchReservationRequest batchReservationRequest
+     * @return
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<List<BatchReservationItemResponse>> createReservations(@Valid @RequestBody BatchReservationRequest batchReservationRequest) {
+        return ResponseEntity.ok(toBatchResponse(reservationService.createReservations(batchReservationRequest.reservations())));
+    }
+
+    /**
+     * Endpoint to auto assign rooms to requests collected for one restaurant and date, fitting as many as possible.
+     * Rooms are assigned for the whole batch together, response reports the outcome in request order.
+     *
+     * @param batchAutoAssignReservationRequest batchAutoAssignReservationRequest
+     * @return
+     */
+    @PostMapping("/batch/auto-assign")
+    public ResponseEntity<List<BatchReservationItemResponse>> autoAssignReservations(@Valid @RequestBody BatchAutoAssignReservationRequest batchAutoAssignReservationRequest) {
+        return ResponseEntity.ok(toBatchResponse(batchAllocationService.assignAll(batchAutoAssignReservationRequest.reservations())));
+    }
+
+    private List<BatchReservationItemResponse> toBatchResponse(List<ReservationService.BatchReservationResult> results) {
+        return results.stream()
+                .map(result -> new BatchReservationItemResponse(
+                        result.index(),
+                        result.reservation() != null,
+                        result.reservation() != null ? reservationMapper.toResponse(result.reservation()) : null,
+                        result.error()))
+                .toList();
+    }
+
     /**
      * Endpoint to list all reservations based on diner or restaurant or both
      *
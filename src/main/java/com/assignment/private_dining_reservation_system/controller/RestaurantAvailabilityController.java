@@ -2,33 +2,49 @@ package com.assignment.private_dining_reservation_system.controller;
 
 import com.assignment.private_dining_reservation_system.entity.Room;
 import com.assignment.private_dining_reservation_system.mapper.RoomMapper;
+import com.assignment.private_dining_reservation_system.constants.Constants;
 import com.assignment.private_dining_reservation_system.model.request.ReservationTimeFrame;
+import com.assignment.private_dining_reservation_system.model.response.AvailableSlotResponse;
+import com.assignment.private_dining_reservation_system.model.response.RoomAvailabilityCalendarResponse;
 import com.assignment.private_dining_reservation_system.model.response.RoomResponse;
+import com.assignment.private_dining_reservation_system.service.AvailabilityCalendarService;
 import com.assignment.private_dining_reservation_system.service.RestaurantAvailabilityService;
+import com.assignment.private_dining_reservation_system.service.RestaurantVersionTracker;
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.media.Schema;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api/restaurant/{restaurantId}")
 public class RestaurantAvailabilityController {
 
     private final RestaurantAvailabilityService restaurantAvailabilityService;
+    private final AvailabilityCalendarService availabilityCalendarService;
     private final RoomMapper roomMapper;
+    private final RestaurantVersionTracker restaurantVersionTracker;
+    private final ObjectMapper objectMapper;
 
-    public RestaurantAvailabilityController(RestaurantAvailabilityService restaurantAvailabilityService, RoomMapper roomMapper) {
+    public RestaurantAvailabilityController(RestaurantAvailabilityService restaurantAvailabilityService, AvailabilityCalendarService availabilityCalendarService, RoomMapper roomMapper, RestaurantVersionTracker restaurantVersionTracker, ObjectMapper objectMapper) {
         this.restaurantAvailabilityService = restaurantAvailabilityService;
+        this.availabilityCalendarService = availabilityCalendarService;
         this.roomMapper = roomMapper;
+        this.restaurantVersionTracker = restaurantVersionTracker;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -38,15 +54,97 @@ public class RestaurantAvailabilityController {
      * @param date         reservation date
      * @param startTime    reservation start time
      * @param endTime      reservation end time
-     * @return List<RoomResponse>
+     * @return List<RoomResponse>, or 304 after reading only the restaurant version when If-None-Match carries the current ETag
      */
     @GetMapping("/available-rooms")
     public ResponseEntity<List<RoomResponse>> availableRooms(@PathVariable("restaurantId") Long restaurantId,
                                                              @RequestParam(name = "date", required = false) LocalDate date,
                                                              @RequestParam(name = "startTime", required = false) @Schema(type = "string", example = "18:00") @JsonFormat(pattern = "HH:mm") LocalTime startTime,
-                                                             @RequestParam(name = "endTime", required = false) @Schema(type = "string", example = "21:00") @JsonFormat(pattern = "HH:mm") LocalTime endTime) {
-        List<Room> rooms = restaurantAvailabilityService.findAvailableRoomsByRestaurantId(restaurantId, defaultReservationTimeFrame(date, startTime, endTime));
-        return ResponseEntity.ok(rooms.stream().map(roomMapper::toResponse).toList());
+                                                             @RequestParam(name = "endTime", required = false) @Schema(type = "string", example = "21:00") @JsonFormat(pattern = "HH:mm") LocalTime endTime,
+                                                             WebRequest webRequest) {
+        ReservationTimeFrame reservationTimeFrame = defaultReservationTimeFrame(date, startTime, endTime);
+        //Defaults follow the current time, so the resolved time frame is part of the tag
+        String eTag = restaurantVersionTracker.eTag(restaurantId, "available-rooms:" + reservationTimeFrame);
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+        List<Room> rooms = restaurantAvailabilityService.findAvailableRoomsByRestaurantId(restaurantId, reservationTimeFrame);
+        return ResponseEntity.ok().eTag(eTag).body(rooms.stream().map(roomMapper::toResponse).toList());
+    }
+
+    /**
+     * Find Available Rooms streamed as NDJSON, one RoomResponse line per room written as soon as its page of rooms
+     * is loaded. Past dates are rejected before anything is streamed.
+     *
+     * @param restaurantId restaurantId
+     * @param date         reservation date
+     * @param startTime    reservation start time
+     * @param endTime      reservation end time
+     * @return StreamingResponseBody
+     */
+    @GetMapping("/available-rooms/stream")
+    public ResponseEntity<StreamingResponseBody> streamAvailableRooms(@PathVariable("restaurantId") Long restaurantId,
+                                                                      @RequestParam(name = "date", required = false) LocalDate date,
+                                                                      @RequestParam(name = "startTime", required = false) @Schema(type = "string", example = "18:00") @JsonFormat(pattern = "HH:mm") LocalTime startTime,
+                                                                      @RequestParam(name = "endTime", required = false) @Schema(type = "string", example = "21:00") @JsonFormat(pattern = "HH:mm") LocalTime endTime) {
+        Stream<Room> rooms = restaurantAvailabilityService.streamAvailableRoomsByRestaurantId(restaurantId, defaultReservationTimeFrame(date, startTime, endTime));
+        StreamingResponseBody body = outputStream -> rooms.map(roomMapper::toResponse).forEach(new NdjsonWriter(objectMapper, outputStream)::write);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * Availability Calendar, free windows of each room for every day of the range
+     *
+     * @param restaurantId restaurantId
+     * @param from         first date, defaults to today
+     * @param to           last date inclusive, defaults to last bookable date
+     * @return List<RoomAvailabilityCalendarResponse>
+     */
+    @GetMapping("/availability-calendar")
+    public ResponseEntity<List<RoomAvailabilityCalendarResponse>> availabilityCalendar(@PathVariable("restaurantId") Long restaurantId,
+                                                                                       @RequestParam(name = "from", required = false) LocalDate from,
+                                                                                       @RequestParam(name = "to", required = false) LocalDate to) {
+        return ResponseEntity.ok(availabilityCalendarService.getAvailabilityCalendar(restaurantId, from, to));
+    }
+
+    /**
+     * Availability Calendar streamed as NDJSON, one RoomAvailabilityCalendarResponse line per room written as soon
+     * as its windows are built. Invalid ranges are rejected before anything is streamed.
+     *
+     * @param restaurantId restaurantId
+     * @param from         first date, defaults to today
+     * @param to           last date inclusive, defaults to last bookable date
+     * @return StreamingResponseBody
+     */
+    @GetMapping("/availability-calendar/stream")
+    public ResponseEntity<StreamingResponseBody> streamAvailabilityCalendar(@PathVariable("restaurantId") Long restaurantId,
+                                                                            @RequestParam(name = "from", required = false) LocalDate from,
+                                                                            @RequestParam(name = "to", required = false) LocalDate to) {
+        Stream<RoomAvailabilityCalendarResponse> calendar = availabilityCalendarService.streamAvailabilityCalendar(restaurantId, from, to);
+        StreamingResponseBody body = outputStream -> calendar.forEach(new NdjsonWriter(objectMapper, outputStream)::write);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * Next Available Slots, earliest rooms and start times a group can book
+     *
+     * @param restaurantId  restaurantId
+     * @param groupSize     group size the room has to serve
+     * @param durationHours booking length, defaults to minimum booking
+     * @param limit         number of slots, defaults to 5
+     * @param from          first date searched, defaults to today
+     * @return List<AvailableSlotResponse>
+     */
+    @GetMapping("/next-available-slots")
+    public ResponseEntity<List<AvailableSlotResponse>> nextAvailableSlots(@PathVariable("restaurantId") Long restaurantId,
+                                                                          @RequestParam(name = "groupSize", required = false) Integer groupSize,
+                                                                          @RequestParam(name = "durationHours", required = false) Integer durationHours,
+                                                                          @RequestParam(name = "limit", required = false) Integer limit,
+                                                                          @RequestParam(name = "from", required = false) LocalDate from) {
+        return ResponseEntity.ok(availabilityCalendarService.findNextAvailableSlots(restaurantId, groupSize,
+                Optional.ofNullable(durationHours).orElse(Constants.minBookingHours),
+                Optional.ofNullable(limit).orElse(5),
+                from));
     }
 
     /**
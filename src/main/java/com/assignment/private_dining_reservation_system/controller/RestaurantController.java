@@ -1,15 +1,26 @@
 package com.assignment.private_dining_reservation_system.controller;
 
 import com.assignment.private_dining_reservation_system.entity.Room;
+import com.assignment.private_dining_reservation_system.entity.RoomType;
 import com.assignment.private_dining_reservation_system.mapper.RestaurantMapper;
 import com.assignment.private_dining_reservation_system.mapper.RoomMapper;
+import com.assignment.private_dining_reservation_system.model.request.ReservationTimeFrame;
 import com.assignment.private_dining_reservation_system.model.request.RestaurantRequest;
 import com.assignment.private_dining_reservation_system.model.request.RoomRequest;
+import com.assignment.private_dining_reservation_system.model.response.AvailabilitySearchResponse;
+import com.assignment.private_dining_reservation_system.model.response.AvailabilitySearchSummaryResponse;
 import com.assignment.private_dining_reservation_system.model.response.RestaurantResponse;
 import com.assignment.private_dining_reservation_system.model.response.RoomResponse;
+import com.assignment.private_dining_reservation_system.service.RestaurantAvailabilitySearchService;
+import com.assignment.private_dining_reservation_system.service.RestaurantAvailabilitySearchService.AvailabilitySearch;
 import com.assignment.private_dining_reservation_system.service.RestaurantService;
+import com.assignment.private_dining_reservation_system.service.RestaurantVersionTracker;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -18,7 +29,12 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.List;
 
 @RestController
@@ -28,11 +44,17 @@ public class RestaurantController {
     private final RestaurantService restaurantService;
     private final RestaurantMapper restaurantMapper;
     private final RoomMapper roomMapper;
+    private final RestaurantAvailabilitySearchService restaurantAvailabilitySearchService;
+    private final RestaurantVersionTracker restaurantVersionTracker;
+    private final ObjectMapper objectMapper;
 
-    public RestaurantController(RestaurantService restaurantService, RestaurantMapper restaurantMapper, RoomMapper roomMapper) {
+    public RestaurantController(RestaurantService restaurantService, RestaurantMapper restaurantMapper, RoomMapper roomMapper, RestaurantAvailabilitySearchService restaurantAvailabilitySearchService, RestaurantVersionTracker restaurantVersionTracker, ObjectMapper objectMapper) {
         this.restaurantService = restaurantService;
         this.restaurantMapper = restaurantMapper;
         this.roomMapper = roomMapper;
+        this.restaurantAvailabilitySearchService = restaurantAvailabilitySearchService;
+        this.restaurantVersionTracker = restaurantVersionTracker;
+        this.objectMapper = objectMapper;
     }
 
 
@@ -64,10 +86,61 @@ public class RestaurantController {
         return ResponseEntity.ok(roomMapper.toResponse(restaurantService.updateRoom(id, roomId, roomRequest)));
     }
 
+    /**
+     * Rooms of the restaurant, answered with 304 after reading only the restaurant version when If-None-Match carries the current ETag
+     * */
     @GetMapping("/{id}/rooms")
-    public ResponseEntity<List<RoomResponse>> getRoomsForRestaurant(@PathVariable Long id) {
+    public ResponseEntity<List<RoomResponse>> getRoomsForRestaurant(@PathVariable Long id, WebRequest webRequest) {
+        String eTag = restaurantVersionTracker.eTag(id, "rooms");
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
         List<Room> rooms = restaurantService.getRoomsForRestaurant(id);
         List<RoomResponse> roomResponses = rooms.stream().map(roomMapper::toResponse).toList();
-        return ResponseEntity.ok(roomResponses);
+        return ResponseEntity.ok().eTag(eTag).body(roomResponses);
+    }
+
+    /**
+     * Available Rooms across restaurants, partial when some restaurants could not be searched in time
+     *
+     * @param restaurantIds restaurants to search, defaults to every restaurant
+     * @param date          reservation date
+     * @param startTime     reservation start time
+     * @param endTime       reservation end time
+     * @param roomType      optional room type
+     * @param groupSize     optional group size the room has to serve
+     * @return AvailabilitySearchResponse
+     */
+    @GetMapping("/available-rooms")
+    public ResponseEntity<AvailabilitySearchResponse> searchAvailableRooms(@RequestParam(name = "restaurantIds", required = false) List<Long> restaurantIds,
+                                                                           @RequestParam(name = "date", required = false) LocalDate date,
+                                                                           @RequestParam(name = "startTime", required = false) @Schema(type = "string", example = "19:00") @JsonFormat(pattern = "HH:mm") LocalTime startTime,
+                                                                           @RequestParam(name = "endTime", required = false) @Schema(type = "string", example = "22:00") @JsonFormat(pattern = "HH:mm") LocalTime endTime,
+                                                                           @RequestParam(name = "roomType", required = false) RoomType roomType,
+                                                                           @RequestParam(name = "groupSize", required = false) Integer groupSize) {
+        return ResponseEntity.ok(restaurantAvailabilitySearchService.search(restaurantIds, new ReservationTimeFrame(date, startTime, endTime), roomType, groupSize));
+    }
+
+    /**
+     * Available Rooms across restaurants streamed as NDJSON, one RestaurantAvailableRoomsResponse line per restaurant
+     * in the order they complete, followed by one AvailabilitySearchSummaryResponse line.
+     * Invalid searches are rejected before anything is streamed.
+     *
+     * @return StreamingResponseBody
+     */
+    @GetMapping("/available-rooms/stream")
+    public ResponseEntity<StreamingResponseBody> streamAvailableRooms(@RequestParam(name = "restaurantIds", required = false) List<Long> restaurantIds,
+                                                                      @RequestParam(name = "date", required = false) LocalDate date,
+                                                                      @RequestParam(name = "startTime", required = false) @Schema(type = "string", example = "19:00") @JsonFormat(pattern = "HH:mm") LocalTime startTime,
+                                                                      @RequestParam(name = "endTime", required = false) @Schema(type = "string", example = "22:00") @JsonFormat(pattern = "HH:mm") LocalTime endTime,
+                                                                      @RequestParam(name = "roomType", required = false) RoomType roomType,
+                                                                      @RequestParam(name = "groupSize", required = false) Integer groupSize) {
+        AvailabilitySearch availabilitySearch = restaurantAvailabilitySearchService.startSearch(restaurantIds, new ReservationTimeFrame(date, startTime, endTime), roomType, groupSize);
+        StreamingResponseBody body = outputStream -> {
+            NdjsonWriter ndjsonWriter = new NdjsonWriter(objectMapper, outputStream);
+            List<Long> incompleteRestaurantIds = availabilitySearch.forEachCompleted(ndjsonWriter::write);
+            ndjsonWriter.write(new AvailabilitySearchSummaryResponse(incompleteRestaurantIds, !incompleteRestaurantIds.isEmpty()));
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
 }
@@ -14,6 +14,7 @@ import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.Index;
 import jakarta.persistence.EnumType;
+import jakarta.persistence.Version;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -24,6 +25,7 @@ import java.time.LocalTime;
 @Entity
 @Table(name = "reservations", indexes = {
         @Index(name = "idx_room_date_status", columnList = "room_id, reservation_date, reservation_status"),
+        @Index(name = "idx_restaurant_date_status", columnList = "restaurant_id, reservation_date, reservation_status"),
         @Index(name = "idx_diner_res", columnList = "diner_email, restaurant_id")
 })
 @Getter
@@ -57,6 +59,13 @@ public class Reservation {
     private LocalDateTime createdAt;
     @Column(name = "updated_at", nullable = false)
     private LocalDateTime updatedAt;
+    /**
+     * Bumped by every change of the reservation and carried by its events, so they can be told apart in the order
+     * they happened whatever order they are delivered in.
+     * */
+    @Version
+    @Column(name = "version", columnDefinition = "bigint default 0 not null")
+    private long version;
 
     @PrePersist
     void prePersist() {
@@ -0,0 +1,56 @@
+package com.assignment.private_dining_reservation_system.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Reservation event waiting to be published, written in the same transaction as the reservation.
+ * Relay claims rows in id order for a while, and sets sentAt once the broker acknowledged them.
+ * A row which still is not acknowledged after the last attempt gets failedAt instead and is left for inspection.
+ * */
+@Entity
+@Table(name = "reservation_outbox", indexes = {
+        @Index(name = "idx_outbox_sent_at_id", columnList = "sent_at, id")
+})
+@Getter
+@Setter
+public class ReservationOutbox {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(name = "reservation_id", nullable = false)
+    private Long reservationId;
+    /**
+     * TableReservedEvent as json, captured at booking time.
+     * */
+    @Column(name = "payload", nullable = false, columnDefinition = "text")
+    private String payload;
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+    @Column(name = "attempts", columnDefinition = "integer default 0 not null")
+    private int attempts;
+    /**
+     * Other relays leave the row alone until then, a claim of a relay which died simply runs out.
+     * */
+    @Column(name = "claimed_until")
+    private LocalDateTime claimedUntil;
+    @Column(name = "failed_at")
+    private LocalDateTime failedAt;
+
+    @PrePersist
+    void prePersist() {
+        this.createdAt = LocalDateTime.now();
+    }
+}
@@ -34,6 +34,12 @@ public class Restaurant {
     @Enumerated(EnumType.STRING)
     @Column(name = "local_currency_code", nullable = false)
     private RestaurantCurrency localCurrencyCode;
+    /**
+     * Advanced by RestaurantVersionTracker in the transaction of every room change, booking and cancellation,
+     * never written from the entity so saving a restaurant cannot set it back.
+     * */
+    @Column(name = "availability_version", insertable = false, updatable = false, columnDefinition = "bigint default 0 not null")
+    private long availabilityVersion;
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
     @Column(name = "updated_at", nullable = false)
@@ -0,0 +1,62 @@
+package com.assignment.private_dining_reservation_system.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Availability read model, one row per reservation projected from the reservation topic.
+ * Denormalized and without foreign keys, availability reads query it without touching reservations.
+ * A cancelled reservation is kept with occupied false, so an older event replayed or re-sent after it is recognised
+ * by its reservation version and ignored.
+ * */
+@Entity
+@Table(name = "room_availability_slot", indexes = {
+        @Index(name = "idx_slot_restaurant_date", columnList = "restaurant_id, reservation_date, occupied")
+})
+@Getter
+@Setter
+public class RoomAvailabilitySlot {
+    @Id
+    @Column(name = "reservation_id")
+    private Long reservationId;
+    @Column(name = "restaurant_id", nullable = false)
+    private Long restaurantId;
+    @Column(name = "room_id", nullable = false)
+    private Long roomId;
+    @Column(name = "reservation_date", nullable = false)
+    private LocalDate reservationDate;
+    @Column(name = "reservation_start_time", nullable = false)
+    private LocalTime reservationStartTime;
+    @Column(name = "reservation_end_time", nullable = false)
+    private LocalTime reservationEndTime;
+    @Column(name = "occupied", nullable = false)
+    private boolean occupied;
+    /**
+     * Reservation version of the last applied event, the order the changes of the reservation happened in.
+     * */
+    @Column(name = "reservation_version", columnDefinition = "bigint default 0 not null")
+    private long reservationVersion;
+    /**
+     * Topic offset of the last applied event, only tells apart events of the same reservation version.
+     * Events of a reservation share its partition as it is the record key.
+     * */
+    @Column(name = "event_offset", nullable = false)
+    private long eventOffset;
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+    /**
+     * Start of the last rebuild which found the reservation on the topic, rows a rebuild neither found nor saw
+     * updated are removed at its end.
+     * */
+    @Column(name = "replayed_at")
+    private LocalDateTime replayedAt;
+}
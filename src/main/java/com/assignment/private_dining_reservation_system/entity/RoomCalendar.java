@@ -12,6 +12,7 @@ import jakarta.persistence.Column;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Index;
+import jakarta.persistence.Version;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -33,6 +34,18 @@ public class RoomCalendar {
     private Room room;
     @Column(name = "reservation_date")
     private LocalDate reservationDate;
+    /**
+     * One bit per minute of the reservation date, it also covers previous day reservations running past midnight.
+     * Null until it is built from existing reservations on first lock of the row.
+     * */
+    @Column(name = "occupancy")
+    private byte[] occupancy;
+    /**
+     * Incremented by every booking and cancellation, used by the optimistic booking strategy.
+     * */
+    @Version
+    @Column(name = "version", columnDefinition = "bigint default 0 not null")
+    private Long version;
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
     @Column(name = "updated_at", nullable = false)
@@ -3,6 +3,10 @@ package com.assignment.private_dining_reservation_system.event;
 import java.time.LocalDate;
 import java.time.LocalTime;
 
+/**
+ * @param reservationVersion version of the reservation the event was recorded for, a later change of the reservation
+ *                           has a higher one. 0 in events recorded before it was added
+ */
 public record TableReservedEvent(
         Long reservationId,
         Long restaurantId,
@@ -14,5 +18,6 @@ public record TableReservedEvent(
         LocalTime reservationEndTime,
         int groupSize,
         String reservationStatus,
-        String dinerEmail) {
+        String dinerEmail,
+        long reservationVersion) {
 }
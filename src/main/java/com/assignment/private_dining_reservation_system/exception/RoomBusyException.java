@@ -0,0 +1,10 @@
+package com.assignment.private_dining_reservation_system.exception;
+
+/**
+ * Room could not be locked in time because other reservations hold it, the room itself may still be free.
+ * */
+public class RoomBusyException extends ReservationFailedException {
+    public RoomBusyException(String message) {
+        super(message);
+    }
+}
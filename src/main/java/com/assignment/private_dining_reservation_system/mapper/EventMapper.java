@@ -18,7 +18,8 @@ public class EventMapper {
                 reservation.getReservationEndTime(),
                 reservation.getGroupSize(),
                 reservation.getReservationStatus().name(),
-                reservation.getDinerEmail()
+                reservation.getDinerEmail(),
+                reservation.getVersion()
         );
 
     }
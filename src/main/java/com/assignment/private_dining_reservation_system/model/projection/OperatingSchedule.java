@@ -0,0 +1,96 @@
+package com.assignment.private_dining_reservation_system.model.projection;
+
+import com.assignment.private_dining_reservation_system.service.MinuteOfDay;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Room operating hours compiled into one minute-of-week window per day of week.
+ * A window opens on its own day and can run past midnight into the next day, closed days have an empty window.
+ * Immutable, checking a time range is a handful of integer comparisons without allocation.
+ * */
+public final class OperatingSchedule {
+    private static final int CLOSED_OPENS_AT = Integer.MAX_VALUE;
+    private static final int CLOSED_CLOSES_AT = Integer.MIN_VALUE;
+
+    public static final OperatingSchedule CLOSED = new OperatingSchedule(closedDays(), closedDays(CLOSED_CLOSES_AT));
+
+    /**
+     * Indexed by DayOfWeek ordinal, minute offsets from Monday midnight.
+     * */
+    private final int[] opensAt;
+    private final int[] closesAt;
+
+    private OperatingSchedule(int[] opensAt, int[] closesAt) {
+        this.opensAt = opensAt;
+        this.closesAt = closesAt;
+    }
+
+    /**
+     * Same rule as rest of the system, closing time not after opening time means the room closes on the next day.
+     *
+     * @param openDays empty or null means open every day
+     */
+    public static OperatingSchedule of(Set<DayOfWeek> openDays, LocalTime openingTime, LocalTime closingTime) {
+        if (openingTime == null || closingTime == null) {
+            return CLOSED;
+        }
+        int opening = MinuteOfDay.of(openingTime);
+        int closing = MinuteOfDay.endOf(openingTime, closingTime);
+        int[] opensAt = closedDays();
+        int[] closesAt = closedDays(CLOSED_CLOSES_AT);
+        for (DayOfWeek dayOfWeek : DayOfWeek.values()) {
+            if (isOpenDay(openDays, dayOfWeek)) {
+                int dayStart = dayOfWeek.ordinal() * MinuteOfDay.MINUTES_PER_DAY;
+                opensAt[dayOfWeek.ordinal()] = dayStart + opening;
+                closesAt[dayOfWeek.ordinal()] = dayStart + closing;
+            }
+        }
+        return new OperatingSchedule(opensAt, closesAt);
+    }
+
+    /**
+     * Open days rule of the system, shared with everything deciding per day of week.
+     *
+     * @param openDays empty or null means open every day
+     */
+    public static boolean isOpenDay(Set<DayOfWeek> openDays, DayOfWeek dayOfWeek) {
+        return openDays == null || openDays.isEmpty() || openDays.contains(dayOfWeek);
+    }
+
+    /**
+     * Whether a time range starting on the given day lies within that day's operating window.
+     * End time not after start time means the range ends on the next day.
+     * */
+    public boolean isOpen(DayOfWeek dayOfWeek, LocalTime startTime, LocalTime endTime) {
+        int day = dayOfWeek.ordinal();
+        int dayStart = day * MinuteOfDay.MINUTES_PER_DAY;
+        return dayStart + MinuteOfDay.of(startTime) >= opensAt[day]
+                && dayStart + MinuteOfDay.endOf(startTime, endTime) <= closesAt[day];
+    }
+
+    private static int[] closedDays() {
+        return closedDays(CLOSED_OPENS_AT);
+    }
+
+    private static int[] closedDays(int value) {
+        int[] days = new int[DayOfWeek.values().length];
+        Arrays.fill(days, value);
+        return days;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return this == other || (other instanceof OperatingSchedule operatingSchedule
+                && Arrays.equals(opensAt, operatingSchedule.opensAt)
+                && Arrays.equals(closesAt, operatingSchedule.closesAt));
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(opensAt) + Arrays.hashCode(closesAt);
+    }
+}
@@ -0,0 +1,15 @@
+package com.assignment.private_dining_reservation_system.model.projection;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Light weight view of a reservation time range, used where only the occupied time is needed
+ * so that full Reservation entities are not hydrated.
+ * */
+public record ReservationTimeSlot(
+        LocalDate reservationDate,
+        LocalTime reservationStartTime,
+        LocalTime reservationEndTime
+) {
+}
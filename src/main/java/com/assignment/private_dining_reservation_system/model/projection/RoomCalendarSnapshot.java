@@ -0,0 +1,14 @@
+package com.assignment.private_dining_reservation_system.model.projection;
+
+import java.time.LocalDate;
+
+/**
+ * Point in time copy of a room calendar row, read without lock for optimistic updates.
+ * */
+public record RoomCalendarSnapshot(
+        Long id,
+        LocalDate reservationDate,
+        Long version,
+        byte[] occupancy
+) {
+}
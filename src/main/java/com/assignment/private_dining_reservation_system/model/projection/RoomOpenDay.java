@@ -0,0 +1,9 @@
+package com.assignment.private_dining_reservation_system.model.projection;
+
+import java.time.DayOfWeek;
+
+/**
+ * One open day of a room, dayOfWeek is null for a room whose open days are empty, i.e. open every day.
+ * */
+public record RoomOpenDay(Long roomId, DayOfWeek dayOfWeek) {
+}
@@ -0,0 +1,15 @@
+package com.assignment.private_dining_reservation_system.model.projection;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Reservation time range together with its room, used to read the occupancy of many rooms in one query.
+ * */
+public record RoomTimeSlot(
+        Long roomId,
+        LocalDate reservationDate,
+        LocalTime reservationStartTime,
+        LocalTime reservationEndTime
+) {
+}
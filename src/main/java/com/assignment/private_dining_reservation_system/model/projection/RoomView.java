@@ -0,0 +1,70 @@
+package com.assignment.private_dining_reservation_system.model.projection;
+
+import com.assignment.private_dining_reservation_system.entity.Room;
+import com.assignment.private_dining_reservation_system.entity.RoomMetaData;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Immutable copy of what booking validations read about a room, safe to share between requests.
+ * Opening and closing time are null when the room has no metadata, empty open days means open every day.
+ * Operating hours are compiled into the schedule once, views are rebuilt when the room is updated.
+ * */
+public record RoomView(
+        Long roomId,
+        Long restaurantId,
+        int minCapacity,
+        int maxCapacity,
+        LocalTime roomOpeningTime,
+        LocalTime roomClosingTime,
+        Set<DayOfWeek> openDays,
+        OperatingSchedule operatingSchedule
+) {
+    public RoomView(Long roomId, Long restaurantId, int minCapacity, int maxCapacity,
+                    LocalTime roomOpeningTime, LocalTime roomClosingTime, Set<DayOfWeek> openDays) {
+        this(roomId, restaurantId, minCapacity, maxCapacity, roomOpeningTime, roomClosingTime, openDays,
+                OperatingSchedule.of(openDays, roomOpeningTime, roomClosingTime));
+    }
+
+    public static RoomView of(Room room) {
+        RoomMetaData roomMetaData = room.getRoomMetaData();
+        Set<DayOfWeek> openDays = roomMetaData == null || roomMetaData.getOpenDays() == null || roomMetaData.getOpenDays().isEmpty()
+                ? Set.of()
+                : Collections.unmodifiableSet(EnumSet.copyOf(roomMetaData.getOpenDays()));
+        return new RoomView(
+                room.getId(),
+                room.getRestaurant().getId(),
+                room.getMinCapacity(),
+                room.getMaxCapacity(),
+                roomMetaData == null ? null : roomMetaData.getRoomOpeningTime(),
+                roomMetaData == null ? null : roomMetaData.getRoomClosingTime(),
+                openDays);
+    }
+
+    /**
+     * Whether the view still shows what the room row says, compared field by field so no schedule is compiled.
+     * */
+    public boolean matches(Room room) {
+        RoomMetaData roomMetaData = room.getRoomMetaData();
+        if (!roomId.equals(room.getId()) || !restaurantId.equals(room.getRestaurant().getId())
+                || minCapacity != room.getMinCapacity() || maxCapacity != room.getMaxCapacity()) {
+            return false;
+        }
+        if (roomMetaData == null) {
+            return roomOpeningTime == null && roomClosingTime == null && openDays.isEmpty();
+        }
+        Set<DayOfWeek> roomOpenDays = roomMetaData.getOpenDays() == null ? Set.of() : roomMetaData.getOpenDays();
+        return Objects.equals(roomOpeningTime, roomMetaData.getRoomOpeningTime())
+                && Objects.equals(roomClosingTime, roomMetaData.getRoomClosingTime())
+                && openDays.equals(roomOpenDays);
+    }
+
+    public boolean hasMetaData() {
+        return roomOpeningTime != null && roomClosingTime != null;
+    }
+}
@@ -11,6 +11,8 @@ import jakarta.validation.constraints.Email;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.LinkedHashSet;
+import java.util.List;
 
 public record AutoAssignReservationRequest(
 
@@ -20,13 +22,16 @@ public record AutoAssignReservationRequest(
                 description = "Restaurant unique id")
         Long restaurantId,
 
-        @NotNull
         @Schema(type = "string",
                 example = "ROOFTOP",
-                description = "Room Type",
+                description = "Room Type, required unless roomTypes is given",
                 allowableValues = {"PRIVATE_ROOM", "HALL", "ROOFTOP"})
         RoomType roomType,
 
+        @Schema(example = "[\"ROOFTOP\", \"HALL\"]",
+                description = "Acceptable Room Types in order of preference, used instead of roomType when given")
+        List<@NotNull RoomType> roomTypes,
+
         @NotNull
         @Schema(type = "string",
                 example = "18:00",
@@ -61,4 +66,18 @@ public record AutoAssignReservationRequest(
         @Email
         String dinerEmail
 ) {
+    public AutoAssignReservationRequest(Long restaurantId, RoomType roomType, LocalTime reservationStartTime, LocalTime reservationEndTime,
+                                        LocalDate reservationDate, int groupSize, String dinerEmail) {
+        this(restaurantId, roomType, null, reservationStartTime, reservationEndTime, reservationDate, groupSize, dinerEmail);
+    }
+
+    /**
+     * Room types to search, most preferred first, empty when none is given.
+     * */
+    public List<RoomType> acceptableRoomTypes() {
+        if (roomTypes != null && !roomTypes.isEmpty()) {
+            return List.copyOf(new LinkedHashSet<>(roomTypes));
+        }
+        return roomType == null ? List.of() : List.of(roomType);
+    }
 }
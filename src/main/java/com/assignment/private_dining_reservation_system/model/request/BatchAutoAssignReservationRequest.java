@@ -0,0 +1,17 @@
+package com.assignment.private_dining_reservation_system.model.request;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record BatchAutoAssignReservationRequest(
+
+        @NotEmpty
+        @Size(max = 2000)
+        @Schema(description = "Reservations to auto assign, all for the same restaurant and date, at most 2000 per batch")
+        List<@Valid AutoAssignReservationRequest> reservations
+) {
+}
@@ -0,0 +1,17 @@
+package com.assignment.private_dining_reservation_system.model.request;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record BatchReservationRequest(
+
+        @NotEmpty
+        @Size(max = 50)
+        @Schema(description = "Reservations to create, at most 50 per batch")
+        List<@Valid ReservationRequest> reservations
+) {
+}
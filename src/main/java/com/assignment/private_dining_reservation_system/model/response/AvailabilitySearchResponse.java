@@ -0,0 +1,14 @@
+package com.assignment.private_dining_reservation_system.model.response;
+
+import java.util.List;
+
+/**
+ * Restaurants with at least one matching room. Restaurants not evaluated before the deadline are listed as
+ * incomplete and the result is partial, they might still have rooms available.
+ * */
+public record AvailabilitySearchResponse(
+        List<RestaurantAvailableRoomsResponse> restaurants,
+        List<Long> incompleteRestaurantIds,
+        boolean partial
+) {
+}
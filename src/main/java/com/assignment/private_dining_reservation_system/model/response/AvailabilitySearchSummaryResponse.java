@@ -0,0 +1,12 @@
+package com.assignment.private_dining_reservation_system.model.response;
+
+import java.util.List;
+
+/**
+ * Last line of a streamed availability search, written once every restaurant is evaluated or the deadline passed.
+ * */
+public record AvailabilitySearchSummaryResponse(
+        List<Long> incompleteRestaurantIds,
+        boolean partial
+) {
+}
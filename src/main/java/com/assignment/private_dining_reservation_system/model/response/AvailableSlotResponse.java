@@ -0,0 +1,20 @@
+package com.assignment.private_dining_reservation_system.model.response;
+
+import com.assignment.private_dining_reservation_system.entity.RoomType;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+public record AvailableSlotResponse(
+        Long roomId,
+        String roomName,
+        RoomType roomType,
+        int minCapacity,
+        int maxCapacity,
+        LocalDate date,
+        @Schema(type = "string", example = "18:00") @JsonFormat(pattern = "HH:mm") LocalTime startTime,
+        @Schema(type = "string", example = "21:00") @JsonFormat(pattern = "HH:mm") LocalTime endTime
+) {
+}
@@ -0,0 +1,11 @@
+package com.assignment.private_dining_reservation_system.model.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+public record BatchReservationItemResponse(
+        @Schema(description = "Position of the item in the batch request") int index,
+        boolean created,
+        ReservationResponse reservation,
+        String error
+) {
+}
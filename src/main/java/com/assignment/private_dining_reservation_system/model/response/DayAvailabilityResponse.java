@@ -0,0 +1,13 @@
+package com.assignment.private_dining_reservation_system.model.response;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Free windows are empty when the room is closed or fully booked on that day.
+ * */
+public record DayAvailabilityResponse(
+        LocalDate date,
+        List<FreeWindowResponse> freeWindows
+) {
+}
@@ -0,0 +1,15 @@
+package com.assignment.private_dining_reservation_system.model.response;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalTime;
+
+/**
+ * End time not after start time means the window runs past midnight, same as reservations.
+ * */
+public record FreeWindowResponse(
+        @Schema(type = "string", example = "18:00") @JsonFormat(pattern = "HH:mm") LocalTime startTime,
+        @Schema(type = "string", example = "21:00") @JsonFormat(pattern = "HH:mm") LocalTime endTime
+) {
+}
@@ -0,0 +1,9 @@
+package com.assignment.private_dining_reservation_system.model.response;
+
+import java.util.List;
+
+public record RestaurantAvailableRoomsResponse(
+        Long restaurantId,
+        List<RoomResponse> rooms
+) {
+}
@@ -0,0 +1,15 @@
+package com.assignment.private_dining_reservation_system.model.response;
+
+import com.assignment.private_dining_reservation_system.entity.RoomType;
+
+import java.util.List;
+
+public record RoomAvailabilityCalendarResponse(
+        Long roomId,
+        String roomName,
+        RoomType roomType,
+        int minCapacity,
+        int maxCapacity,
+        List<DayAvailabilityResponse> days
+) {
+}
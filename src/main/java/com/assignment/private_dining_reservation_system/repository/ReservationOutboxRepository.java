@@ -0,0 +1,43 @@
+package com.assignment.private_dining_reservation_system.repository;
+
+import com.assignment.private_dining_reservation_system.entity.ReservationOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ReservationOutboxRepository extends JpaRepository<ReservationOutbox, Long> {
+
+    /**
+     * Unsent rows which are not claimed right now. Rows locked by a relay on another instance while it claims them
+     * are skipped rather than waited for.
+     * */
+    @Query(value = """
+            select * from reservation_outbox
+            where sent_at is null
+            and failed_at is null
+            and (claimed_until is null or claimed_until < :now)
+            order by id
+            limit :limit
+            for update skip locked
+            """, nativeQuery = true)
+    List<ReservationOutbox> findClaimableForUpdate(@Param("limit") int limit, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("update ReservationOutbox o set o.sentAt = :sentAt, o.claimedUntil = null where o.id in :ids")
+    int markSent(@Param("ids") Collection<Long> ids, @Param("sentAt") LocalDateTime sentAt);
+
+    @Modifying
+    @Query("update ReservationOutbox o set o.failedAt = :failedAt, o.claimedUntil = null where o.id in :ids")
+    int markFailed(@Param("ids") Collection<Long> ids, @Param("failedAt") LocalDateTime failedAt);
+
+    @Modifying
+    @Query("delete from ReservationOutbox o where o.sentAt < :sentBefore")
+    int deleteSentBefore(@Param("sentBefore") LocalDateTime sentBefore);
+}
@@ -3,12 +3,17 @@ package com.assignment.private_dining_reservation_system.repository;
 import com.assignment.private_dining_reservation_system.entity.Reservation;
 import com.assignment.private_dining_reservation_system.entity.ReservationStatus;
 import com.assignment.private_dining_reservation_system.entity.Room;
+import com.assignment.private_dining_reservation_system.model.projection.ReservationTimeSlot;
+import com.assignment.private_dining_reservation_system.model.projection.RoomTimeSlot;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -24,9 +29,80 @@ public interface ReservationRepository extends JpaRepository<Reservation, Long>
                                                          @Param("reservationDate") LocalDate reservationDate,
                                                          @Param("reservationStatus") ReservationStatus reservationStatus);
 
+    @Query("""
+            select new com.assignment.private_dining_reservation_system.model.projection.ReservationTimeSlot(
+                r.reservationDate, r.reservationStartTime, r.reservationEndTime)
+            from Reservation r
+            where r.room.id = :roomId
+            and r.reservationDate between :fromDate and :toDate
+            and r.reservationStatus = :reservationStatus
+            """)
+    List<ReservationTimeSlot> findTimeSlotsByRoomAndDateRange(@Param("roomId") Long roomId,
+                                                              @Param("fromDate") LocalDate fromDate,
+                                                              @Param("toDate") LocalDate toDate,
+                                                              @Param("reservationStatus") ReservationStatus reservationStatus);
+
+    @Query("""
+            select new com.assignment.private_dining_reservation_system.model.projection.RoomTimeSlot(
+                r.room.id, r.reservationDate, r.reservationStartTime, r.reservationEndTime)
+            from Reservation r
+            where r.restaurant.id = :restaurantId
+            and r.room.id in :roomIds
+            and r.reservationDate between :fromDate and :toDate
+            and r.reservationStatus = :reservationStatus
+            """)
+    List<RoomTimeSlot> findTimeSlotsByRoomsAndDateRange(@Param("restaurantId") Long restaurantId,
+                                                        @Param("roomIds") Collection<Long> roomIds,
+                                                        @Param("fromDate") LocalDate fromDate,
+                                                        @Param("toDate") LocalDate toDate,
+                                                        @Param("reservationStatus") ReservationStatus reservationStatus);
+
+    @Query("""
+            select new com.assignment.private_dining_reservation_system.model.projection.RoomTimeSlot(
+                r.room.id, r.reservationDate, r.reservationStartTime, r.reservationEndTime)
+            from Reservation r
+            where r.restaurant.id = :restaurantId
+            and r.reservationDate between :fromDate and :toDate
+            and r.reservationStatus = :reservationStatus
+            """)
+    List<RoomTimeSlot> findTimeSlotsByRestaurantAndDateRange(@Param("restaurantId") Long restaurantId,
+                                                             @Param("fromDate") LocalDate fromDate,
+                                                             @Param("toDate") LocalDate toDate,
+                                                             @Param("reservationStatus") ReservationStatus reservationStatus);
+
+    /**
+     * Rooms of the restaurant having a confirmed reservation overlapping [windowStart, windowEnd).
+     * Reservation end is moved to the next day when it is not after its start, same rule as rest of the system,
+     * so reservations of the previous day running past midnight are found as well.
+     * The date range only narrows the rows read through the index, it has to cover the day before windowStart.
+     * */
+    @Query(value = """
+            select distinct r.room_id from reservations r
+            where r.restaurant_id = :restaurantId
+            and r.reservation_date between :fromDate and :toDate
+            and r.reservation_status = 'CONFIRMED'
+            and r.reservation_date + r.reservation_start_time < :windowEnd
+            and case when r.reservation_end_time > r.reservation_start_time
+                    then r.reservation_date + r.reservation_end_time
+                    else r.reservation_date + 1 + r.reservation_end_time
+                end > :windowStart
+            """, nativeQuery = true)
+    List<Long> findConflictingRoomIds(@Param("restaurantId") Long restaurantId,
+                                      @Param("fromDate") LocalDate fromDate,
+                                      @Param("toDate") LocalDate toDate,
+                                      @Param("windowStart") LocalDateTime windowStart,
+                                      @Param("windowEnd") LocalDateTime windowEnd);
+
+    /**
+     * Listings map every reservation to a response reading its restaurant and room names, both are fetched with
+     * the reservations since nothing is lazily loaded once the query returned.
+     * */
+    @EntityGraph(attributePaths = {"restaurant", "room"})
     List<Reservation> findByDinerEmail(String dinerEmail);
 
+    @EntityGraph(attributePaths = {"restaurant", "room"})
     List<Reservation> findByRestaurantId(Long restaurantId);
 
+    @EntityGraph(attributePaths = {"restaurant", "room"})
     List<Reservation> findByDinerEmailAndRestaurantId(String dinerEmail, Long restaurantId);
 }
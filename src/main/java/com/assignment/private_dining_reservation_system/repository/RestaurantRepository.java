@@ -2,8 +2,27 @@ package com.assignment.private_dining_reservation_system.repository;
 
 import com.assignment.private_dining_reservation_system.entity.Restaurant;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface RestaurantRepository extends JpaRepository<Restaurant, Long> {
+    @Query("select r.id from Restaurant r order by r.id")
+    List<Long> findAllIds();
+
+    @Query("select r.availabilityVersion from Restaurant r where r.id = :id")
+    Optional<Long> findAvailabilityVersionById(@Param("id") Long id);
+
+    @Modifying
+    @Query("update Restaurant r set r.availabilityVersion = r.availabilityVersion + 1 where r.id = :id")
+    int incrementAvailabilityVersion(@Param("id") Long id);
+
+    @Modifying
+    @Query("update Restaurant r set r.availabilityVersion = r.availabilityVersion + 1")
+    int incrementAllAvailabilityVersions();
 }
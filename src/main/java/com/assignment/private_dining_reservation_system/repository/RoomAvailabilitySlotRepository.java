@@ -0,0 +1,103 @@
+package com.assignment.private_dining_reservation_system.repository;
+
+import com.assignment.private_dining_reservation_system.entity.RoomAvailabilitySlot;
+import com.assignment.private_dining_reservation_system.model.projection.RoomTimeSlot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface RoomAvailabilitySlotRepository extends JpaRepository<RoomAvailabilitySlot, Long> {
+
+    @Query("""
+            select new com.assignment.private_dining_reservation_system.model.projection.RoomTimeSlot(
+                s.roomId, s.reservationDate, s.reservationStartTime, s.reservationEndTime)
+            from RoomAvailabilitySlot s
+            where s.restaurantId = :restaurantId
+            and s.reservationDate between :fromDate and :toDate
+            and s.occupied = true
+            """)
+    List<RoomTimeSlot> findTimeSlotsByRestaurantAndDateRange(@Param("restaurantId") Long restaurantId,
+                                                             @Param("fromDate") LocalDate fromDate,
+                                                             @Param("toDate") LocalDate toDate);
+
+    @Query("""
+            select new com.assignment.private_dining_reservation_system.model.projection.RoomTimeSlot(
+                s.roomId, s.reservationDate, s.reservationStartTime, s.reservationEndTime)
+            from RoomAvailabilitySlot s
+            where s.restaurantId = :restaurantId
+            and s.roomId in :roomIds
+            and s.reservationDate between :fromDate and :toDate
+            and s.occupied = true
+            """)
+    List<RoomTimeSlot> findTimeSlotsByRoomsAndDateRange(@Param("restaurantId") Long restaurantId,
+                                                        @Param("roomIds") Collection<Long> roomIds,
+                                                        @Param("fromDate") LocalDate fromDate,
+                                                        @Param("toDate") LocalDate toDate);
+
+    /**
+     * Insert or overwrite the slot of a reservation, unless an event of a later reservation version was applied
+     * already. Offsets only order events of the same version, i.e. recorded before versions were carried, since an
+     * event re-sent by the outbox relay lands behind the later ones it was recorded before.
+     * Events can then be applied more than once and out of order, the latest change always wins.
+     *
+     * @return 0 when the event is older than the applied one
+     */
+    @Modifying
+    @Query(value = """
+            insert into room_availability_slot (reservation_id, restaurant_id, room_id, reservation_date,
+                reservation_start_time, reservation_end_time, occupied, reservation_version, event_offset, updated_at)
+            values (:reservationId, :restaurantId, :roomId, :reservationDate,
+                :startTime, :endTime, :occupied, :reservationVersion, :eventOffset, now())
+            on conflict (reservation_id) do update set
+                restaurant_id = excluded.restaurant_id,
+                room_id = excluded.room_id,
+                reservation_date = excluded.reservation_date,
+                reservation_start_time = excluded.reservation_start_time,
+                reservation_end_time = excluded.reservation_end_time,
+                occupied = excluded.occupied,
+                reservation_version = excluded.reservation_version,
+                event_offset = excluded.event_offset,
+                updated_at = excluded.updated_at
+            where (room_availability_slot.reservation_version, room_availability_slot.event_offset)
+                < (excluded.reservation_version, excluded.event_offset)
+            """, nativeQuery = true)
+    int upsert(@Param("reservationId") Long reservationId,
+               @Param("restaurantId") Long restaurantId,
+               @Param("roomId") Long roomId,
+               @Param("reservationDate") LocalDate reservationDate,
+               @Param("startTime") LocalTime startTime,
+               @Param("endTime") LocalTime endTime,
+               @Param("occupied") boolean occupied,
+               @Param("reservationVersion") long reservationVersion,
+               @Param("eventOffset") long eventOffset);
+
+    /**
+     * Database clock, the upsert stamps updated_at with it.
+     * */
+    @Query(value = "select localtimestamp", nativeQuery = true)
+    LocalDateTime currentTimestamp();
+
+    @Modifying
+    @Query("update RoomAvailabilitySlot s set s.replayedAt = :replayedAt where s.reservationId in :reservationIds")
+    int markReplayed(@Param("reservationIds") Collection<Long> reservationIds, @Param("replayedAt") LocalDateTime replayedAt);
+
+    /**
+     * Rows neither replayed by the rebuild started at the given time nor updated since it started.
+     * */
+    @Modifying
+    @Query("""
+            delete from RoomAvailabilitySlot s
+            where (s.replayedAt is null or s.replayedAt < :replayStartedAt)
+            and s.updatedAt < :replayStartedAt
+            """)
+    int deleteNotReplayedSince(@Param("replayStartedAt") LocalDateTime replayStartedAt);
+}
@@ -2,19 +2,28 @@ package com.assignment.private_dining_reservation_system.repository;
 
 import com.assignment.private_dining_reservation_system.entity.Room;
 import com.assignment.private_dining_reservation_system.entity.RoomCalendar;
+import com.assignment.private_dining_reservation_system.model.projection.RoomCalendarSnapshot;
 import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Repository
 public interface RoomCalendarRepository extends JpaRepository<RoomCalendar, Long> {
 
+    /**
+     * Postgres lock_timeout for the rest of the current transaction, e.g. 100ms.
+     * */
+    @Query(value = "select set_config('lock_timeout', :lockTimeout, true)", nativeQuery = true)
+    String setLocalLockTimeout(@Param("lockTimeout") String lockTimeout);
+
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("""
             select rc from RoomCalendar rc
@@ -24,4 +33,58 @@ public interface RoomCalendarRepository extends JpaRepository<RoomCalendar, Long
     Optional<RoomCalendar> findByRoomAndReservationDateForUpdate(@Param("room") Room room,
                                                                  @Param("reservationDate") LocalDate reservationDate);
 
+    @Query("""
+            select new com.assignment.private_dining_reservation_system.model.projection.RoomCalendarSnapshot(
+                rc.id, rc.reservationDate, rc.version, rc.occupancy)
+            from RoomCalendar rc
+            where rc.room.id = :roomId
+            and rc.reservationDate = :reservationDate
+            """)
+    Optional<RoomCalendarSnapshot> findSnapshotByRoomIdAndReservationDate(@Param("roomId") Long roomId,
+                                                                         @Param("reservationDate") LocalDate reservationDate);
+
+    /**
+     * Compare and set, nothing is updated when an other transaction changed the row since it was read.
+     * */
+    @Modifying
+    @Query("""
+            update RoomCalendar rc
+            set rc.occupancy = :occupancy, rc.version = rc.version + 1, rc.updatedAt = :updatedAt
+            where rc.id = :id
+            and rc.version = :version
+            """)
+    int compareAndSetOccupancy(@Param("id") Long id,
+                               @Param("version") Long version,
+                               @Param("occupancy") byte[] occupancy,
+                               @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * Drop the bitmaps of the room between the dates, they are rebuilt from the reservations on next use.
+     * Rows without a bitmap are not touched and so not locked.
+     * */
+    @Modifying
+    @Query("""
+            update RoomCalendar rc
+            set rc.occupancy = null, rc.version = rc.version + 1, rc.updatedAt = :updatedAt
+            where rc.room.id = :roomId
+            and rc.reservationDate between :fromDate and :toDate
+            and rc.occupancy is not null
+            """)
+    int clearOccupancy(@Param("roomId") Long roomId,
+                       @Param("fromDate") LocalDate fromDate,
+                       @Param("toDate") LocalDate toDate,
+                       @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * Unlike a failed insert, conflict here does not abort the surrounding transaction.
+     * */
+    @Modifying
+    @Query(value = """
+            insert into room_calendar (room_id, reservation_date, version, created_at, updated_at)
+            values (:roomId, :reservationDate, 0, :createdAt, :createdAt)
+            on conflict (room_id, reservation_date) do nothing
+            """, nativeQuery = true)
+    int insertIfAbsent(@Param("roomId") Long roomId,
+                       @Param("reservationDate") LocalDate reservationDate,
+                       @Param("createdAt") LocalDateTime createdAt);
 }
@@ -2,15 +2,103 @@ package com.assignment.private_dining_reservation_system.repository;
 
 import com.assignment.private_dining_reservation_system.entity.Room;
 import com.assignment.private_dining_reservation_system.entity.RoomType;
+import com.assignment.private_dining_reservation_system.model.projection.RoomOpenDay;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface RoomRepository extends JpaRepository<Room, Long> {
+    /**
+     * Listings map every room to a response reading its metadata and open days, both are fetched with the rooms
+     * instead of two lazy loads per room.
+     * */
+    @EntityGraph(attributePaths = {"roomMetaData", "roomMetaData.openDays"})
     List<Room> findByRestaurantId(Long restaurantId);
 
     Optional<Room> findByIdAndRestaurantId(Long roomId, Long restaurantId);
 
-    List<Room> findByRoomTypeAndRestaurantId(RoomType roomType, Long restaurantId);
+    /**
+     * Rooms of any of the types able to serve the group, same capacity rule as booking validation.
+     * Ranked tightest fit first, then lowest minimum spend, the order auto assign considers them in.
+     * */
+    @Query("""
+            select r from Room r
+            where r.restaurant.id = :restaurantId
+            and r.roomType in :roomTypes
+            and r.minCapacity <= :groupSize
+            and r.maxCapacity >= :groupSize
+            order by r.maxCapacity, r.minSpendInCents, r.id
+            """)
+    List<Room> findByRoomTypesAndRestaurantIdAndGroupSize(@Param("roomTypes") Collection<RoomType> roomTypes,
+                                                          @Param("restaurantId") Long restaurantId,
+                                                          @Param("groupSize") int groupSize);
+
+    /**
+     * Everything a booking reads about the room in one round trip: the room, its restaurant, metadata and open days.
+     * */
+    @Query("""
+            select r from Room r
+            join fetch r.restaurant
+            left join fetch r.roomMetaData m
+            left join fetch m.openDays
+            where r.id = :roomId
+            and r.restaurant.id = :restaurantId
+            """)
+    Optional<Room> findBookingContextByIdAndRestaurantId(@Param("roomId") Long roomId, @Param("restaurantId") Long restaurantId);
+
+    /**
+     * Rooms with their metadata and open days in one query, used where many rooms are validated together.
+     * */
+    @Query("""
+            select distinct r from Room r
+            left join fetch r.roomMetaData m
+            left join fetch m.openDays
+            where r.id in :roomIds
+            """)
+    List<Room> findAllWithMetaDataByIdIn(@Param("roomIds") Collection<Long> roomIds);
+
+    @Query("""
+            select distinct r from Room r
+            left join fetch r.roomMetaData m
+            left join fetch m.openDays
+            where r.restaurant.id = :restaurantId
+            order by r.id
+            """)
+    List<Room> findAllWithMetaDataByRestaurantId(@Param("restaurantId") Long restaurantId);
+
+    /**
+     * Rooms able to serve the group, same capacity rule as booking validation.
+     * */
+    @Query("""
+            select distinct r from Room r
+            left join fetch r.roomMetaData m
+            left join fetch m.openDays
+            where r.restaurant.id = :restaurantId
+            and r.minCapacity <= :groupSize
+            and r.maxCapacity >= :groupSize
+            order by r.id
+            """)
+    List<Room> findAllWithMetaDataByRestaurantIdAndGroupSize(@Param("restaurantId") Long restaurantId, @Param("groupSize") int groupSize);
+
+    /**
+     * Keyset page of room ids, stays cheap however far the scan has progressed.
+     * */
+    @Query("select r.id from Room r where r.id > :afterId order by r.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("select r.id from Room r where r.restaurant.id = :restaurantId and r.id > :afterId order by r.id")
+    List<Long> findIdsByRestaurantIdAfter(@Param("restaurantId") Long restaurantId, @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("""
+            select new com.assignment.private_dining_reservation_system.model.projection.RoomOpenDay(m.room.id, d)
+            from RoomMetaData m left join m.openDays d
+            where m.room.id in :roomIds
+            """)
+    List<RoomOpenDay> findOpenDaysByRoomIds(@Param("roomIds") List<Long> roomIds);
 }
@@ -0,0 +1,184 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import com.assignment.private_dining_reservation_system.constants.Constants;
+import com.assignment.private_dining_reservation_system.entity.Room;
+import com.assignment.private_dining_reservation_system.exception.ReservationValidationFailureException;
+import com.assignment.private_dining_reservation_system.model.projection.RoomView;
+import com.assignment.private_dining_reservation_system.model.response.AvailableSlotResponse;
+import com.assignment.private_dining_reservation_system.model.response.DayAvailabilityResponse;
+import com.assignment.private_dining_reservation_system.model.response.FreeWindowResponse;
+import com.assignment.private_dining_reservation_system.model.response.RoomAvailabilityCalendarResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Free windows of every room of a restaurant over a date range, and the earliest slots a group can book.
+ * Rooms are read in keyset pages of ROOMS_PER_CHUNK, with one reservations query per page for the whole range,
+ * then every room is walked once over its reservations sorted by start, days in order, so the cost does not grow
+ * with a query per day and memory does not grow with the number of rooms.
+ * */
+@Slf4j
+@Service
+public class AvailabilityCalendarService {
+    private static final int MIN_WINDOW_MINUTES = Constants.minBookingHours * 60;
+    private static final int SCAN_DAYS = 7;
+    private static final int MAX_SLOTS = 20;
+    private static final int MAX_SLOT_HOURS = 24;
+    static final int ROOMS_PER_CHUNK = 50;
+
+    private final RoomService roomService;
+    private final AvailabilityReadModel availabilityReadModel;
+
+    public AvailabilityCalendarService(RoomService roomService, AvailabilityReadModel availabilityReadModel) {
+        this.roomService = roomService;
+        this.availabilityReadModel = availabilityReadModel;
+    }
+
+    /**
+     * Windows shorter than the minimum booking are left out, as they cannot be booked anyway.
+     * Today's windows start after the current minute.
+     *
+     * @param from first date, today when null
+     * @param to   last date inclusive, last bookable date when null
+     */
+    public List<RoomAvailabilityCalendarResponse> getAvailabilityCalendar(Long restaurantId, LocalDate from, LocalDate to) {
+        return streamAvailabilityCalendar(restaurantId, from, to).toList();
+    }
+
+    /**
+     * Same as getAvailabilityCalendar, the range is validated and the first page of room ids read right away,
+     * while each page of rooms, its reservations and free windows are only read as the stream reaches it.
+     * */
+    public Stream<RoomAvailabilityCalendarResponse> streamAvailabilityCalendar(Long restaurantId, LocalDate from, LocalDate to) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate today = now.toLocalDate();
+        LocalDate fromDate = from == null ? today : from;
+        LocalDate toDate = to == null ? today.plusDays(Constants.advanceBookingDays) : to;
+        if (fromDate.isBefore(today) || toDate.isAfter(today.plusDays(Constants.advanceBookingDays))) {
+            throw new ReservationValidationFailureException("Calendar dates should be from today and less than 30 days in advance.");
+        }
+        if (toDate.isBefore(fromDate)) {
+            throw new ReservationValidationFailureException("Calendar from date cannot be after to date.");
+        }
+
+        //Booking today has to start after the current time
+        int earliestStart = fromDate.isEqual(today) ? MinuteOfDay.of(now.toLocalTime()) + 1 : 0;
+
+        log.debug("Building availability calendar for restaurant id: {} from: {} to: {}", restaurantId, fromDate, toDate);
+        //Next page is only read once the stream is done with the previous one, a short page is the last
+        return Stream.iterate(roomService.getRoomIdsAfter(restaurantId, 0L, ROOMS_PER_CHUNK),
+                        roomIds -> !roomIds.isEmpty(),
+                        roomIds -> roomIds.size() < ROOMS_PER_CHUNK
+                                ? List.of()
+                                : roomService.getRoomIdsAfter(restaurantId, roomIds.get(roomIds.size() - 1), ROOMS_PER_CHUNK))
+                .flatMap(roomIds -> calendarOf(restaurantId, roomIds, fromDate, toDate, earliestStart).stream());
+    }
+
+    /**
+     * Earliest bookable slots for the group, ordered by date, start time and room.
+     * Only rooms whose capacity fits the group are read, days are scanned forward a week at a time with one
+     * reservations query per week, and the scan stops with the first day completing the limit.
+     * Each free window long enough for the duration gives one slot, starting as early as the window allows.
+     *
+     * @param from first date, today when null
+     */
+    public List<AvailableSlotResponse> findNextAvailableSlots(Long restaurantId, Integer groupSize, int durationHours, int limit, LocalDate from) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate today = now.toLocalDate();
+        LocalDate fromDate = from == null ? today : from;
+        LocalDate lastDate = today.plusDays(Constants.advanceBookingDays);
+        if (fromDate.isBefore(today) || fromDate.isAfter(lastDate)) {
+            throw new ReservationValidationFailureException("Search date should be from today and less than 30 days in advance.");
+        }
+        if (groupSize == null || groupSize < 1) {
+            throw new ReservationValidationFailureException("Group size should be at least 1");
+        }
+        if (durationHours < Constants.minBookingHours) {
+            throw new ReservationValidationFailureException("Min Booking for Private Dining is for 3 hours");
+        }
+        if (durationHours > MAX_SLOT_HOURS) {
+            throw new ReservationValidationFailureException("Booking cannot be longer than " + MAX_SLOT_HOURS + " hours");
+        }
+        if (limit < 1 || limit > MAX_SLOTS) {
+            throw new ReservationValidationFailureException("Limit should be between 1 and " + MAX_SLOTS);
+        }
+
+        List<Room> rooms = roomService.getRoomsForGroupSize(restaurantId, groupSize);
+        if (rooms.isEmpty()) {
+            return List.of();
+        }
+        int duration = durationHours * 60;
+        List<AvailableSlotResponse> slots = new ArrayList<>(limit);
+        for (LocalDate chunkFrom = fromDate; !chunkFrom.isAfter(lastDate); chunkFrom = chunkFrom.plusDays(SCAN_DAYS)) {
+            LocalDate chunkTo = chunkFrom.plusDays(SCAN_DAYS - 1).isAfter(lastDate) ? lastDate : chunkFrom.plusDays(SCAN_DAYS - 1);
+            Map<Long, List<int[]>> occupiedByRoom = FreeWindowWalker.occupiedByRoom(availabilityReadModel.findTimeSlots(
+                    restaurantId, chunkFrom.minusDays(1), chunkTo.plusDays(1)), chunkFrom);
+            List<FreeWindowWalker> freeWindowWalkers = rooms.stream()
+                    .map(room -> new FreeWindowWalker(RoomView.of(room), occupiedByRoom.getOrDefault(room.getId(), List.of())))
+                    .toList();
+            int earliestStart = chunkFrom.isEqual(today) ? MinuteOfDay.of(now.toLocalTime()) + 1 : 0;
+            int dayOffset = 0;
+            for (LocalDate date = chunkFrom; !date.isAfter(chunkTo); date = date.plusDays(1), dayOffset += MinuteOfDay.MINUTES_PER_DAY) {
+                List<AvailableSlotResponse> daySlots = new ArrayList<>();
+                for (int i = 0; i < rooms.size(); i++) {
+                    Room room = rooms.get(i);
+                    for (int[] window : freeWindowWalkers.get(i).freeWindows(date, dayOffset, earliestStart, duration)) {
+                        daySlots.add(new AvailableSlotResponse(room.getId(), room.getRoomName(), room.getRoomType(),
+                                room.getMinCapacity(), room.getMaxCapacity(), date,
+                                FreeWindowWalker.toLocalTime(window[0]), FreeWindowWalker.toLocalTime(window[0] + duration)));
+                    }
+                }
+                //Rooms are in id order, stable sort keeps it for equal start times
+                daySlots.sort(Comparator.comparing(AvailableSlotResponse::startTime));
+                for (AvailableSlotResponse slot : daySlots) {
+                    slots.add(slot);
+                    if (slots.size() == limit) {
+                        log.debug("Found {} slots for restaurant id: {} group size: {} by date: {}", limit, restaurantId, groupSize, date);
+                        return slots;
+                    }
+                }
+            }
+        }
+        return slots;
+    }
+
+    /**
+     * Calendar of one page of rooms, in id order.
+     * */
+    private List<RoomAvailabilityCalendarResponse> calendarOf(Long restaurantId, List<Long> roomIds, LocalDate fromDate, LocalDate toDate, int earliestStart) {
+        //Previous day for reservations running past midnight, next day for windows closing after midnight
+        Map<Long, List<int[]>> occupiedByRoom = FreeWindowWalker.occupiedByRoom(availabilityReadModel.findTimeSlots(
+                restaurantId, roomIds, fromDate.minusDays(1), toDate.plusDays(1)), fromDate);
+        return roomService.getByIds(roomIds).stream()
+                .sorted(Comparator.comparing(Room::getId))
+                .map(room -> new RoomAvailabilityCalendarResponse(
+                        room.getId(),
+                        room.getRoomName(),
+                        room.getRoomType(),
+                        room.getMinCapacity(),
+                        room.getMaxCapacity(),
+                        freeDays(RoomView.of(room), occupiedByRoom.getOrDefault(room.getId(), List.of()), fromDate, toDate, earliestStart)))
+                .toList();
+    }
+
+    private List<DayAvailabilityResponse> freeDays(RoomView roomView, List<int[]> occupied, LocalDate fromDate, LocalDate toDate, int earliestStart) {
+        FreeWindowWalker freeWindowWalker = new FreeWindowWalker(roomView, occupied);
+        List<DayAvailabilityResponse> days = new ArrayList<>();
+        int dayOffset = 0;
+        for (LocalDate date = fromDate; !date.isAfter(toDate); date = date.plusDays(1), dayOffset += MinuteOfDay.MINUTES_PER_DAY) {
+            List<FreeWindowResponse> freeWindows = freeWindowWalker.freeWindows(date, dayOffset, earliestStart, MIN_WINDOW_MINUTES).stream()
+                    .map(window -> new FreeWindowResponse(FreeWindowWalker.toLocalTime(window[0]), FreeWindowWalker.toLocalTime(window[1])))
+                    .toList();
+            days.add(new DayAvailabilityResponse(date, freeWindows));
+        }
+        return days;
+    }
+}
@@ -0,0 +1,165 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import com.assignment.private_dining_reservation_system.event.TableReservedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Rebuilds the room availability projection by replaying the reservation topic from the beginning.
+ * A dedicated consumer is assigned every partition, so the replay is complete whichever instance runs it and
+ * however partitions are spread over the listener group. Live consumption carries on meanwhile, both sides apply
+ * events by offset so they cannot undo each other.
+ * <p>
+ * Events are replayed over the existing rows, so availability reads keep seeing every booking during the rebuild.
+ * Only once the replay caught up are rows removed which it did not find on the topic and which were not updated
+ * meanwhile. A replay which fails or runs out of time removes nothing.
+ * The topic has to keep every reservation's last event, by retention or compaction on the reservation id key.
+ * */
+@Slf4j
+@Component
+public class AvailabilityProjectionRebuilder {
+    static final String REBUILD_GROUP_ID = "availability-projection-rebuild";
+
+    private final ConsumerFactory<Long, TableReservedEvent> consumerFactory;
+    private final AvailabilityProjector availabilityProjector;
+    private final String topic;
+    private final Duration pollTimeout;
+    private final Duration timeout;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile RebuildStatus lastRebuild;
+
+    public AvailabilityProjectionRebuilder(ConsumerFactory<Long, TableReservedEvent> consumerFactory,
+                                           AvailabilityProjector availabilityProjector,
+                                           @Value("${spring.kafka.topic}") String topic,
+                                           @Value("${reservation.availability.projection.rebuild-poll-timeout:PT1S}") Duration pollTimeout,
+                                           @Value("${reservation.availability.projection.rebuild-timeout:PT30M}") Duration timeout) {
+        this.consumerFactory = consumerFactory;
+        this.availabilityProjector = availabilityProjector;
+        this.topic = topic;
+        this.pollTimeout = pollTimeout;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Run the rebuild on its own thread, the outcome is reported by lastRebuild.
+     *
+     * @return false if a rebuild is already running
+     */
+    public boolean startRebuild() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread.ofVirtual().name("availability-projection-rebuild").start(() -> {
+            try {
+                replay();
+            } catch (RuntimeException exception) {
+                log.error("Availability projection rebuild failed, projection is left as it was: {}", exception.getMessage());
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Same as startRebuild on the calling thread.
+     *
+     * @return number of events replayed
+     */
+    public long rebuild() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Availability projection rebuild is already running");
+        }
+        try {
+            return replay();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * @return null until a rebuild ended on this instance
+     */
+    public RebuildStatus lastRebuild() {
+        return lastRebuild;
+    }
+
+    /**
+     * Replays up to the end offsets seen at the start, events published later are left to the listener.
+     * */
+    private long replay() {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        long replayed = 0;
+        try (Consumer<Long, TableReservedEvent> consumer = createConsumer()) {
+            LocalDateTime replayStartedAt = availabilityProjector.replayStartedAt();
+            List<TopicPartition> partitions = consumer.partitionsFor(topic).stream()
+                    .map(partitionInfo -> new TopicPartition(topic, partitionInfo.partition()))
+                    .toList();
+            consumer.assign(partitions);
+            consumer.seekToBeginning(partitions);
+            Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions);
+            while (!caughtUp(consumer, endOffsets)) {
+                if (System.nanoTime() - deadline > 0) {
+                    throw new IllegalStateException("Availability projection rebuild did not catch up within " + timeout
+                            + " after " + replayed + " events");
+                }
+                List<Long> reservationIds = new ArrayList<>();
+                for (ConsumerRecord<Long, TableReservedEvent> consumerRecord : consumer.poll(pollTimeout)) {
+                    // Tombstones of a compacted topic carry no event
+                    if (consumerRecord.value() != null) {
+                        availabilityProjector.apply(consumerRecord.value(), consumerRecord.offset());
+                        reservationIds.add(consumerRecord.value().reservationId());
+                        replayed++;
+                    }
+                }
+                if (!reservationIds.isEmpty()) {
+                    availabilityProjector.markReplayed(reservationIds, replayStartedAt);
+                }
+            }
+            int removed = availabilityProjector.removeNotReplayedSince(replayStartedAt);
+            log.info("Availability projection rebuilt from {} reservation events, {} rows no longer on the topic removed", replayed, removed);
+            lastRebuild = new RebuildStatus(LocalDateTime.now(), replayed, removed, null);
+            return replayed;
+        } catch (RuntimeException exception) {
+            lastRebuild = new RebuildStatus(LocalDateTime.now(), replayed, 0, exception.getMessage());
+            throw exception;
+        }
+    }
+
+    /**
+     * Offsets are never committed, the replay always starts from the beginning.
+     * */
+    private Consumer<Long, TableReservedEvent> createConsumer() {
+        Properties properties = new Properties();
+        properties.setProperty(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        return consumerFactory.createConsumer(REBUILD_GROUP_ID, null, "-rebuild", properties);
+    }
+
+    private static boolean caughtUp(Consumer<Long, TableReservedEvent> consumer, Map<TopicPartition, Long> endOffsets) {
+        return endOffsets.entrySet().stream().allMatch(endOffset -> consumer.position(endOffset.getKey()) >= endOffset.getValue());
+    }
+
+    /**
+     * @param failure null when the rebuild completed
+     */
+    public record RebuildStatus(LocalDateTime finishedAt, long replayedEvents, int removedRows, String failure) {
+    }
+}
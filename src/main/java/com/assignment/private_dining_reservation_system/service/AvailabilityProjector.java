@@ -0,0 +1,86 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import com.assignment.private_dining_reservation_system.entity.ReservationStatus;
+import com.assignment.private_dining_reservation_system.event.TableReservedEvent;
+import com.assignment.private_dining_reservation_system.repository.RoomAvailabilitySlotRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+/**
+ * Applies reservation events to the room availability projection.
+ * Booked and cancelled events overwrite the reservation's slot by reservation version, so at least once delivery,
+ * an event re-sent after later ones, live consumption and a rebuild replaying the topic can all apply the same
+ * events and end in the same state.
+ * */
+@Slf4j
+@Service
+public class AvailabilityProjector {
+
+    private final RoomAvailabilitySlotRepository roomAvailabilitySlotRepository;
+    private final RestaurantAvailabilityCache restaurantAvailabilityCache;
+
+    public AvailabilityProjector(RoomAvailabilitySlotRepository roomAvailabilitySlotRepository, RestaurantAvailabilityCache restaurantAvailabilityCache) {
+        this.roomAvailabilitySlotRepository = roomAvailabilitySlotRepository;
+        this.restaurantAvailabilityCache = restaurantAvailabilityCache;
+    }
+
+    /**
+     * @return false if a later event of the reservation was applied already
+     */
+    @Transactional
+    public boolean apply(TableReservedEvent tableReservedEvent, long eventOffset) {
+        boolean occupied = ReservationStatus.CONFIRMED.name().equals(tableReservedEvent.reservationStatus());
+        int updated = roomAvailabilitySlotRepository.upsert(
+                tableReservedEvent.reservationId(),
+                tableReservedEvent.restaurantId(),
+                tableReservedEvent.roomId(),
+                tableReservedEvent.reservationDate(),
+                tableReservedEvent.reservationStartTime(),
+                tableReservedEvent.reservationEndTime(),
+                occupied,
+                tableReservedEvent.reservationVersion(),
+                eventOffset);
+        if (updated == 0) {
+            log.debug("Skipped stale event of reservation id: {} version: {} at offset: {}",
+                    tableReservedEvent.reservationId(), tableReservedEvent.reservationVersion(), eventOffset);
+            return false;
+        }
+        // Projection backed days are reloaded once the projection caught up, not on booking commit
+        restaurantAvailabilityCache.reservationChanged(tableReservedEvent.restaurantId(), tableReservedEvent.reservationDate(),
+                tableReservedEvent.reservationStartTime(), tableReservedEvent.reservationEndTime());
+        return true;
+    }
+
+    /**
+     * Start of a replay on the database clock, rows updated from then on are kept by removeNotReplayedSince.
+     * */
+    public LocalDateTime replayStartedAt() {
+        return roomAvailabilitySlotRepository.currentTimestamp();
+    }
+
+    /**
+     * Record that the reservations were found on the topic by the replay, whether or not their events were stale.
+     * */
+    @Transactional
+    public void markReplayed(Collection<Long> reservationIds, LocalDateTime replayStartedAt) {
+        roomAvailabilitySlotRepository.markReplayed(reservationIds, replayStartedAt);
+    }
+
+    /**
+     * End of a complete replay, removes the rows of reservations no longer on the topic.
+     *
+     * @return number of rows removed
+     */
+    @Transactional
+    public int removeNotReplayedSince(LocalDateTime replayStartedAt) {
+        int removed = roomAvailabilitySlotRepository.deleteNotReplayedSince(replayStartedAt);
+        if (removed > 0) {
+            restaurantAvailabilityCache.invalidateAll();
+        }
+        return removed;
+    }
+}
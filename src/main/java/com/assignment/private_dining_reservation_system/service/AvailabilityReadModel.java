@@ -0,0 +1,25 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import com.assignment.private_dining_reservation_system.model.projection.RoomTimeSlot;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Where availability reads take reserved time slots from.
+ * Implementation is picked with reservation.availability.read-model, the projection keeps read traffic off the
+ * reservations table bookings write to, at the cost of lagging behind the topic.
+ * */
+public interface AvailabilityReadModel {
+
+    /**
+     * Confirmed time slots of the restaurant's rooms with reservation date in the range, both inclusive.
+     */
+    List<RoomTimeSlot> findTimeSlots(Long restaurantId, LocalDate fromDate, LocalDate toDate);
+
+    /**
+     * Same as findTimeSlots for the given rooms of the restaurant only.
+     */
+    List<RoomTimeSlot> findTimeSlots(Long restaurantId, Collection<Long> roomIds, LocalDate fromDate, LocalDate toDate);
+}
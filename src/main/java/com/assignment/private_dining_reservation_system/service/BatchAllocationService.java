@@ -0,0 +1,169 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import com.assignment.private_dining_reservation_system.entity.Room;
+import com.assignment.private_dining_reservation_system.exception.ReservationValidationFailureException;
+import com.assignment.private_dining_reservation_system.model.projection.RoomView;
+import com.assignment.private_dining_reservation_system.model.request.AutoAssignReservationRequest;
+import com.assignment.private_dining_reservation_system.model.request.ReservationRequest;
+import com.assignment.private_dining_reservation_system.model.request.ReservationTimeFrame;
+import com.assignment.private_dining_reservation_system.service.BatchAssignmentSolver.CandidateRoom;
+import com.assignment.private_dining_reservation_system.service.BatchAssignmentSolver.PendingRequest;
+import com.assignment.private_dining_reservation_system.service.ReservationService.BatchReservationResult;
+import com.assignment.private_dining_reservation_system.service.RestaurantAvailabilityCache.DayAvailability;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Auto assigns a batch of requests collected for one restaurant and date in one go, e.g. for corporate events.
+ * Rooms are assigned together by BatchAssignmentSolver against the cached occupancy of the day, then the winners
+ * are booked through the batch reservation pass, in parts of a few room-day stripes each committed on its own with
+ * rooms locked in a deterministic order and each item in its own savepoint.
+ * <p>
+ * An item whose room was booked or locked by others meanwhile is offered to the solver again, which still holds
+ * the room as occupied for that time, so it goes to another room if one is left. Items are offered up to
+ * MAX_ASSIGN_ROUNDS times in all.
+ * */
+@Slf4j
+@Service
+public class BatchAllocationService {
+    static final int MAX_ASSIGN_ROUNDS = 3;
+
+    private final ReservationService reservationService;
+    private final ReservationValidationService reservationValidationService;
+    private final RoomService roomService;
+    private final RestaurantAvailabilityCache restaurantAvailabilityCache;
+
+    public BatchAllocationService(ReservationService reservationService,
+                                  ReservationValidationService reservationValidationService,
+                                  RoomService roomService,
+                                  RestaurantAvailabilityCache restaurantAvailabilityCache) {
+        this.reservationService = reservationService;
+        this.reservationValidationService = reservationValidationService;
+        this.roomService = roomService;
+        this.restaurantAvailabilityCache = restaurantAvailabilityCache;
+    }
+
+    /**
+     * @return outcome of every request in request order
+     */
+    public List<BatchReservationResult> assignAll(List<AutoAssignReservationRequest> autoAssignReservationRequests) {
+        //1. Whole batch belongs to one restaurant and date
+        Long restaurantId = autoAssignReservationRequests.getFirst().restaurantId();
+        LocalDate reservationDate = autoAssignReservationRequests.getFirst().reservationDate();
+        for (AutoAssignReservationRequest autoAssignReservationRequest : autoAssignReservationRequests) {
+            if (!restaurantId.equals(autoAssignReservationRequest.restaurantId()) || !reservationDate.equals(autoAssignReservationRequest.reservationDate())) {
+                throw new ReservationValidationFailureException("Batch auto assign requires all reservations for the same restaurant and date.");
+            }
+        }
+
+        //2. Validate Date and Time of every item up front, invalid items are left out of the assignment
+        BatchReservationResult[] results = new BatchReservationResult[autoAssignReservationRequests.size()];
+        List<Integer> pendingIndexes = new ArrayList<>(autoAssignReservationRequests.size());
+        List<PendingRequest> pendingRequests = new ArrayList<>(autoAssignReservationRequests.size());
+        for (int index = 0; index < autoAssignReservationRequests.size(); index++) {
+            AutoAssignReservationRequest autoAssignReservationRequest = autoAssignReservationRequests.get(index);
+            try {
+                reservationValidationService.validateDateAndTime(new ReservationTimeFrame(reservationDate,
+                        autoAssignReservationRequest.reservationStartTime(), autoAssignReservationRequest.reservationEndTime()));
+                if (autoAssignReservationRequest.acceptableRoomTypes().isEmpty()) {
+                    throw new ReservationValidationFailureException("Room type is required.");
+                }
+                pendingIndexes.add(index);
+                pendingRequests.add(pendingRequest(autoAssignReservationRequest));
+            } catch (ReservationValidationFailureException reservationValidationFailureException) {
+                results[index] = BatchReservationResult.failed(index, reservationValidationFailureException.getMessage());
+            }
+        }
+
+        //3. Assign rooms for the whole batch from the rooms and cached occupancy of the day
+        BatchAssignmentSolver batchAssignmentSolver = new BatchAssignmentSolver(candidateRooms(restaurantId, reservationDate));
+        int booked = 0;
+        for (int round = 1; !pendingIndexes.isEmpty(); round++) {
+            int[] assignments = batchAssignmentSolver.assign(pendingRequests);
+
+            //4. Book the winners part by part
+            List<Integer> assignedIndexes = new ArrayList<>();
+            List<ReservationRequest> reservationRequests = new ArrayList<>();
+            for (int pending = 0; pending < assignments.length; pending++) {
+                int index = pendingIndexes.get(pending);
+                if (assignments[pending] == BatchAssignmentSolver.UNASSIGNED) {
+                    if (results[index] == null) {
+                        results[index] = BatchReservationResult.failed(index, "No room is available to accommodate this group size");
+                    }
+                    continue;
+                }
+                AutoAssignReservationRequest autoAssignReservationRequest = autoAssignReservationRequests.get(index);
+                assignedIndexes.add(index);
+                reservationRequests.add(new ReservationRequest(
+                        batchAssignmentSolver.room(assignments[pending]).roomId(),
+                        restaurantId,
+                        autoAssignReservationRequest.reservationStartTime(),
+                        autoAssignReservationRequest.reservationEndTime(),
+                        reservationDate,
+                        autoAssignReservationRequest.groupSize(),
+                        autoAssignReservationRequest.dinerEmail()));
+            }
+            if (reservationRequests.isEmpty()) {
+                break;
+            }
+
+            //5. Items whose room was taken meanwhile go back to the solver, keeping their error should no room be left
+            List<Integer> takenIndexes = new ArrayList<>();
+            List<PendingRequest> takenRequests = new ArrayList<>();
+            for (BatchReservationResult result : reservationService.createReservations(reservationRequests)) {
+                int index = assignedIndexes.get(result.index());
+                results[index] = new BatchReservationResult(index, result.reservation(), result.error(), result.roomTaken());
+                if (result.reservation() != null) {
+                    booked++;
+                } else if (result.roomTaken() && round < MAX_ASSIGN_ROUNDS) {
+                    takenIndexes.add(index);
+                    takenRequests.add(pendingRequest(autoAssignReservationRequests.get(index)));
+                }
+            }
+            if (!takenIndexes.isEmpty()) {
+                log.debug("Batch auto assign for Restaurant id: {} offers {} items with a taken room again", restaurantId, takenIndexes.size());
+            }
+            pendingIndexes = takenIndexes;
+            pendingRequests = takenRequests;
+        }
+        log.info("Batch auto assign for Restaurant id: {} date: {} booked {} of {} requests", restaurantId, reservationDate,
+                booked, autoAssignReservationRequests.size());
+        return List.of(results);
+    }
+
+    /**
+     * Rooms with metadata in one query, occupancy of the date and of the next day from the availability cache.
+     * */
+    private List<CandidateRoom> candidateRooms(Long restaurantId, LocalDate reservationDate) {
+        DayAvailability dayAvailability = restaurantAvailabilityCache.get(restaurantId, reservationDate);
+        DayAvailability nextDayAvailability = restaurantAvailabilityCache.get(restaurantId, reservationDate.plusDays(1));
+        List<CandidateRoom> candidateRooms = new ArrayList<>();
+        for (Room room : roomService.getRoomsWithMetaData(restaurantId)) {
+            RoomView roomView = RoomView.of(room);
+            boolean open = roomView.hasMetaData()
+                    && (roomView.openDays().isEmpty() || roomView.openDays().contains(reservationDate.getDayOfWeek()));
+            candidateRooms.add(new CandidateRoom(
+                    room.getId(),
+                    room.getRoomType(),
+                    room.getMinCapacity(),
+                    room.getMaxCapacity(),
+                    open ? MinuteOfDay.of(roomView.roomOpeningTime()) : 1,
+                    open ? MinuteOfDay.endOf(roomView.roomOpeningTime(), roomView.roomClosingTime()) : 0,
+                    dayAvailability.occupancy().get(room.getId()),
+                    nextDayAvailability.occupancy().get(room.getId())));
+        }
+        return candidateRooms;
+    }
+
+    private static PendingRequest pendingRequest(AutoAssignReservationRequest autoAssignReservationRequest) {
+        return new PendingRequest(
+                autoAssignReservationRequest.acceptableRoomTypes(),
+                autoAssignReservationRequest.groupSize(),
+                MinuteOfDay.of(autoAssignReservationRequest.reservationStartTime()),
+                MinuteOfDay.endOf(autoAssignReservationRequest.reservationStartTime(), autoAssignReservationRequest.reservationEndTime()));
+    }
+}
@@ -0,0 +1,242 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import com.assignment.private_dining_reservation_system.entity.RoomType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assigns pending requests of one restaurant and date to its rooms, fitting as many requests as possible.
+ * <p>
+ * Requests are taken earliest end first, each into the free eligible room of its most preferred room type
+ * wasting the fewest seats and, among those, leaving the shortest idle gap before it. Earliest end first is optimal for interchangeable rooms, with
+ * rooms of different capacities and existing bookings it is a greedy heuristic which stays close in practice.
+ * <p>
+ * Every room keeps a bitset of minute offsets from midnight of the date covering the date and the next day, so
+ * requests crossing midnight need no special casing and a free check reads a handful of words.
+ * Not thread safe, a solver is used for one batch.
+ * */
+public final class BatchAssignmentSolver {
+    public static final int UNASSIGNED = -1;
+
+    private static final int MINUTES = 2 * MinuteOfDay.MINUTES_PER_DAY;
+    private static final int WORDS = (MINUTES + Long.SIZE - 1) / Long.SIZE;
+    private static final int MAX_GAP_SCAN = 24 * 60;
+    private static final int MAX_REQUESTS = 1 << 23;
+
+    private final List<CandidateRoom> rooms;
+    private final long[][] occupied;
+    private final Map<RoomType, int[]> roomsByType = new EnumMap<>(RoomType.class);
+
+    public BatchAssignmentSolver(List<CandidateRoom> rooms) {
+        this.rooms = List.copyOf(rooms);
+        this.occupied = new long[this.rooms.size()][];
+        Map<RoomType, List<Integer>> indexesByType = new EnumMap<>(RoomType.class);
+        for (int index = 0; index < this.rooms.size(); index++) {
+            CandidateRoom room = this.rooms.get(index);
+            occupied[index] = toWords(room.occupancy(), room.nextDayOccupancy());
+            indexesByType.computeIfAbsent(room.roomType(), roomType -> new ArrayList<>()).add(index);
+        }
+        //Tightest rooms first, the scan of a type stops at the first capacity above the best fit found
+        indexesByType.forEach((roomType, indexes) -> roomsByType.put(roomType, indexes.stream()
+                .sorted(Comparator.comparingInt((Integer index) -> this.rooms.get(index).maxCapacity()).thenComparing(index -> index))
+                .mapToInt(Integer::intValue)
+                .toArray()));
+    }
+
+    /**
+     * @return index into the rooms for each request in request order, UNASSIGNED when no room could take it
+     */
+    public int[] assign(List<PendingRequest> requests) {
+        if (requests.size() > MAX_REQUESTS) {
+            throw new IllegalArgumentException("At most " + MAX_REQUESTS + " requests can be assigned at once");
+        }
+        int[] assignments = new int[requests.size()];
+        Arrays.fill(assignments, UNASSIGNED);
+        //Earliest end first, then latest start, then largest group, then request order
+        long[] order = new long[requests.size()];
+        for (int i = 0; i < order.length; i++) {
+            PendingRequest request = requests.get(i);
+            order[i] = (long) clamp(request.end(), 0xFFF) << 51
+                    | (long) (0xFFF - clamp(request.start(), 0xFFF)) << 39
+                    | (long) (0xFFFF - clamp(request.groupSize(), 0xFFFF)) << 23
+                    | i;
+        }
+        Arrays.sort(order);
+        for (long key : order) {
+            int requestIndex = (int) (key & (MAX_REQUESTS - 1));
+            PendingRequest request = requests.get(requestIndex);
+            int roomIndex = bestRoom(request);
+            if (roomIndex != UNASSIGNED) {
+                occupy(occupied[roomIndex], request.start(), request.end());
+                assignments[requestIndex] = roomIndex;
+            }
+        }
+        return assignments;
+    }
+
+    public CandidateRoom room(int roomIndex) {
+        return rooms.get(roomIndex);
+    }
+
+    /**
+     * Best room of the first acceptable room type with any free eligible room.
+     * */
+    private int bestRoom(PendingRequest request) {
+        if (request.start() < 0 || request.end() > MINUTES || request.start() >= request.end()) {
+            return UNASSIGNED;
+        }
+        for (RoomType roomType : request.roomTypes()) {
+            int[] candidates = roomsByType.get(roomType);
+            int roomIndex = candidates == null ? UNASSIGNED : bestRoom(request, candidates);
+            if (roomIndex != UNASSIGNED) {
+                return roomIndex;
+            }
+        }
+        return UNASSIGNED;
+    }
+
+    private int bestRoom(PendingRequest request, int[] candidates) {
+        int bestRoom = UNASSIGNED;
+        int bestCapacity = Integer.MAX_VALUE;
+        int bestGap = Integer.MAX_VALUE;
+        for (int candidate = firstFitting(candidates, request.groupSize()); candidate < candidates.length; candidate++) {
+            int roomIndex = candidates[candidate];
+            CandidateRoom room = rooms.get(roomIndex);
+            if (room.maxCapacity() > bestCapacity) {
+                break;
+            }
+            if (request.groupSize() < room.minCapacity() || request.groupSize() > room.maxCapacity()
+                    || request.start() < room.opensAt() || request.end() > room.closesAt()
+                    || !isFree(occupied[roomIndex], request.start(), request.end())) {
+                continue;
+            }
+            int gap = freeMinutesBefore(occupied[roomIndex], Math.max(room.opensAt(), request.start() - MAX_GAP_SCAN), request.start());
+            if (gap < bestGap) {
+                bestRoom = roomIndex;
+                bestCapacity = room.maxCapacity();
+                bestGap = gap;
+            }
+        }
+        return bestRoom;
+    }
+
+    /**
+     * First of the candidates, sorted by capacity, large enough for the group.
+     * */
+    private int firstFitting(int[] candidates, int groupSize) {
+        int low = 0;
+        int high = candidates.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (rooms.get(candidates[middle]).maxCapacity() < groupSize) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static int clamp(int value, int max) {
+        return Math.max(0, Math.min(value, max));
+    }
+
+    private static long[] toWords(byte[] occupancy, byte[] nextDayOccupancy) {
+        long[] words = new long[WORDS];
+        copyBits(words, occupancy, 0);
+        copyBits(words, nextDayOccupancy, MinuteOfDay.MINUTES_PER_DAY);
+        return words;
+    }
+
+    private static void copyBits(long[] words, byte[] occupancy, int offset) {
+        if (occupancy == null) {
+            return;
+        }
+        for (int i = 0; i < occupancy.length; i++) {
+            long bits = occupancy[i] & 0xFFL;
+            if (bits != 0) {
+                int minute = offset + i * Byte.SIZE;
+                words[minute >>> 6] |= bits << (minute & 63);
+            }
+        }
+    }
+
+    /**
+     * @param from inclusive
+     * @param to   exclusive
+     */
+    static boolean isFree(long[] words, int from, int to) {
+        for (int word = from >>> 6; word <= (to - 1) >>> 6; word++) {
+            if ((words[word] & mask(word, from, to)) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static void occupy(long[] words, int from, int to) {
+        for (int word = from >>> 6; word <= (to - 1) >>> 6; word++) {
+            words[word] |= mask(word, from, to);
+        }
+    }
+
+    /**
+     * Free minutes directly before to, counted back no further than from.
+     * */
+    static int freeMinutesBefore(long[] words, int from, int to) {
+        if (from >= to) {
+            return 0;
+        }
+        for (int word = (to - 1) >>> 6; word >= from >>> 6; word--) {
+            long bits = words[word] & mask(word, from, to);
+            if (bits != 0) {
+                int lastOccupied = (word << 6) + Long.SIZE - 1 - Long.numberOfLeadingZeros(bits);
+                return to - 1 - lastOccupied;
+            }
+        }
+        return to - from;
+    }
+
+    /**
+     * Bits of the word within [from, to).
+     * */
+    private static long mask(int word, int from, int to) {
+        int wordStart = word << 6;
+        long mask = -1L;
+        if (from > wordStart) {
+            mask &= -1L << (from - wordStart);
+        }
+        if (to < wordStart + Long.SIZE) {
+            mask &= -1L >>> (wordStart + Long.SIZE - to);
+        }
+        return mask;
+    }
+
+    /**
+     * Room able to take requests of the batch.
+     *
+     * @param opensAt          operating window of the date as minute offsets from its midnight, closesAt can run
+     *                         past midnight. A closed room has opensAt after closesAt
+     * @param occupancy        booked minutes of the date, null when none
+     * @param nextDayOccupancy booked minutes of the next day, null when none
+     */
+    public record CandidateRoom(Long roomId, RoomType roomType, int minCapacity, int maxCapacity,
+                                int opensAt, int closesAt, byte[] occupancy, byte[] nextDayOccupancy) {
+    }
+
+    /**
+     * @param roomTypes acceptable room types, most preferred first
+     * @param start     minute offset from midnight of the date
+     * @param end       exclusive, past a day when the request crosses midnight
+     */
+    public record PendingRequest(List<RoomType> roomTypes, int groupSize, int start, int end) {
+        public PendingRequest(RoomType roomType, int groupSize, int start, int end) {
+            this(List.of(roomType), groupSize, start, end);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import com.assignment.private_dining_reservation_system.constants.Constants;
+import com.assignment.private_dining_reservation_system.entity.Room;
+import com.assignment.private_dining_reservation_system.model.projection.RoomView;
+import com.assignment.private_dining_reservation_system.model.request.ReservationTimeFrame;
+import com.assignment.private_dining_reservation_system.service.RestaurantAvailabilityCache.DayAvailability;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Candidate leaving the least behind wins, so rooms stay usable for the groups booking after this one.
+ * A candidate is scored in seats, lower is better:
+ * <ul>
+ *     <li>wasted capacity, seats of the room the group does not fill</li>
+ *     <li>dead minutes, free gaps the booking leaves next to another booking or the operating window edge that are
+ *     shorter than the minimum booking and can never be sold, one seat per deadMinutesPerSeat</li>
+ *     <li>minimum spend, one seat per minSpendPerSeat cents, so premium rooms are kept for groups asking for them</li>
+ * </ul>
+ * Ties go to the lowest room id so allocation is deterministic.
+ * <p>
+ * Occupancy is read from the cached restaurant days of the available rooms endpoint, scoring adds no query per
+ * candidate. The cached day might miss a booking made on another instance within the cache ttl, this only affects
+ * the score, candidates themselves are free as checked against the database.
+ * */
+@Component
+@ConditionalOnProperty(name = "reservation.allocation.engine", havingValue = "best-fit", matchIfMissing = true)
+public class BestFitAllocationEngine implements RoomAllocationEngine {
+    private static final int MIN_BOOKING_MINUTES = Constants.minBookingHours * 60;
+    private static final Comparator<ScoredRoom> SCORED_ORDER = Comparator.comparingDouble(ScoredRoom::score)
+            .thenComparing(ScoredRoom::room, Comparator.comparing(Room::getId, Comparator.nullsLast(Comparator.naturalOrder())));
+
+    private final RestaurantAvailabilityCache restaurantAvailabilityCache;
+    private final double deadMinutesPerSeat;
+    private final double minSpendPerSeat;
+
+    public BestFitAllocationEngine(RestaurantAvailabilityCache restaurantAvailabilityCache,
+                                   @Value("${reservation.allocation.best-fit.dead-minutes-per-seat:15}") int deadMinutesPerSeat,
+                                   @Value("${reservation.allocation.best-fit.min-spend-per-seat:10000}") long minSpendPerSeat) {
+        this.restaurantAvailabilityCache = restaurantAvailabilityCache;
+        this.deadMinutesPerSeat = deadMinutesPerSeat;
+        this.minSpendPerSeat = minSpendPerSeat;
+    }
+
+    @Override
+    public List<Room> rank(Long restaurantId, List<Room> candidates, ReservationTimeFrame reservationTimeFrame, int groupSize) {
+        List<Room> fittingRooms = candidates.stream()
+                .filter(room -> ReservationValidationService.canServe(room, groupSize))
+                .toList();
+        if (fittingRooms.size() <= 1) {
+            return fittingRooms;
+        }
+        Timeline timeline = new Timeline(restaurantId, reservationTimeFrame);
+        return fittingRooms.stream()
+                .map(room -> new ScoredRoom(room, score(room, groupSize, timeline)))
+                .sorted(SCORED_ORDER)
+                .map(ScoredRoom::room)
+                .toList();
+    }
+
+    private double score(Room room, int groupSize, Timeline timeline) {
+        int wastedSeats = room.getMaxCapacity() - groupSize;
+        BigDecimal minSpendInCents = room.getMinSpendInCents() == null ? BigDecimal.ZERO : room.getMinSpendInCents();
+        return wastedSeats
+                + timeline.deadMinutes(room.getId()) / deadMinutesPerSeat
+                + minSpendInCents.doubleValue() / minSpendPerSeat;
+    }
+
+    private record ScoredRoom(Room room, double score) {
+    }
+
+    /**
+     * Occupancy around the requested time frame, the next day is only read when the booking or an operating window
+     * runs past midnight.
+     * */
+    private final class Timeline {
+        private final Long restaurantId;
+        private final ReservationTimeFrame reservationTimeFrame;
+        private final int start;
+        private final int end;
+        private final DayAvailability dayAvailability;
+        private final Map<Long, RoomView> roomViews;
+        private DayAvailability nextDayAvailability;
+
+        private Timeline(Long restaurantId, ReservationTimeFrame reservationTimeFrame) {
+            this.restaurantId = restaurantId;
+            this.reservationTimeFrame = reservationTimeFrame;
+            this.start = MinuteOfDay.of(reservationTimeFrame.startTime());
+            this.end = MinuteOfDay.endOf(reservationTimeFrame.startTime(), reservationTimeFrame.endTime());
+            this.dayAvailability = restaurantAvailabilityCache.get(restaurantId, reservationTimeFrame.date());
+            this.roomViews = dayAvailability.rooms().stream()
+                    .collect(Collectors.toMap(RoomView::roomId, Function.identity()));
+        }
+
+        /**
+         * Free minutes left before and after the booking which are too short to be booked on their own.
+         * A gap reaching the minimum booking length is not dead, the scan stops there.
+         * */
+        int deadMinutes(Long roomId) {
+            RoomView roomView = roomViews.get(roomId);
+            int opening = roomView == null || !roomView.hasMetaData() ? start : MinuteOfDay.of(roomView.roomOpeningTime());
+            int closing = roomView == null || !roomView.hasMetaData() ? end : MinuteOfDay.endOf(roomView.roomOpeningTime(), roomView.roomClosingTime());
+            int freeBefore = dayAvailability.freeMinutesBefore(roomId, Math.max(opening, start - MIN_BOOKING_MINUTES), start);
+            int freeAfter = freeMinutesFrom(roomId, end, Math.min(closing, end + MIN_BOOKING_MINUTES));
+            return dead(freeBefore) + dead(freeAfter);
+        }
+
+        private int freeMinutesFrom(Long roomId, int fromMinute, int toMinute) {
+            int free = 0;
+            if (fromMinute < MinuteOfDay.MINUTES_PER_DAY) {
+                int sameDayEnd = Math.min(toMinute, MinuteOfDay.MINUTES_PER_DAY);
+                free = dayAvailability.freeMinutesFrom(roomId, fromMinute, sameDayEnd);
+                if (free < sameDayEnd - fromMinute) {
+                    return free;
+                }
+            }
+            if (toMinute > MinuteOfDay.MINUTES_PER_DAY) {
+                free += nextDayAvailability().freeMinutesFrom(roomId, Math.max(fromMinute, MinuteOfDay.MINUTES_PER_DAY) - MinuteOfDay.MINUTES_PER_DAY,
+                        toMinute - MinuteOfDay.MINUTES_PER_DAY);
+            }
+            return free;
+        }
+
+        private DayAvailability nextDayAvailability() {
+            if (nextDayAvailability == null) {
+                nextDayAvailability = restaurantAvailabilityCache.get(restaurantId, reservationTimeFrame.date().plusDays(1));
+            }
+            return nextDayAvailability;
+        }
+
+        private static int dead(int freeMinutes) {
+            return freeMinutes < MIN_BOOKING_MINUTES ? freeMinutes : 0;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import com.assignment.private_dining_reservation_system.entity.Reservation;
+
+import java.util.function.Supplier;
+
+/**
+ * Guards a room against double booking while a reservation is persisted.
+ * Implementation is picked with reservation.concurrency.strategy so that approaches can be compared under contention.
+ * */
+public interface BookingConcurrencyStrategy {
+
+    /**
+     * Persist the reservation if its time range is still free for the room.
+     * Must be called inside the booking transaction.
+     *
+     * @throws com.assignment.private_dining_reservation_system.exception.RoomNotAvailableException if time range is taken
+     */
+    Reservation reserve(Reservation reservation);
+
+    /**
+     * Free the time range of a reservation which is about to be cancelled.
+     */
+    void release(Reservation reservation);
+
+    /**
+     * Whether bookings of the same room-day have to queue on the RoomDayLockManager stripe before their transaction.
+     * Only worth it where they would otherwise queue on a database row lock holding a connection, strategies letting
+     * non overlapping bookings of a room-day through side by side must not serialize them here.
+     */
+    default boolean requiresRoomDayLock() {
+        return false;
+    }
+
+    /**
+     * Run a whole booking or cancellation transaction, strategies whose reserve or release can lose against a
+     * concurrent update roll it back and run it again here, outside of it.
+     */
+    default <T> T retryOnConflict(Supplier<T> transaction) {
+        return transaction.get();
+    }
+}
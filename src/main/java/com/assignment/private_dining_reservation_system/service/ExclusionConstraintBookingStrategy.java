@@ -0,0 +1,113 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import com.assignment.private_dining_reservation_system.entity.Reservation;
+import com.assignment.private_dining_reservation_system.exception.RoomNotAvailableException;
+import com.assignment.private_dining_reservation_system.repository.ReservationRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.SQLException;
+
+/**
+ * Postgres only strategy, reservation time range is kept in a generated tsrange column
+ * and a GiST exclusion constraint rejects overlapping CONFIRMED reservations of the same room.
+ * No row is locked up front, so non conflicting bookings of the same room-day do not wait on each other.
+ * Only bookings which really overlap wait for each other inside the index check.
+ * <p>
+ * Room calendar bitmaps are not kept here, each booking and cancellation drops them for its days instead,
+ * so switching back to a bitmap strategy rebuilds them from the reservations rather than trusting a stale one.
+ * Once dropped, later bookings of the day find no bitmap and lock no room calendar row.
+ * */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "reservation.concurrency.strategy", havingValue = "exclusion-constraint")
+public class ExclusionConstraintBookingStrategy implements BookingConcurrencyStrategy {
+    static final String EXCLUSION_VIOLATION_SQL_STATE = "23P01";
+    static final String CONSTRAINT_NAME = "exclude_confirmed_room_overlap";
+
+    private final ReservationRepository reservationRepository;
+    private final RoomCalendarService roomCalendarService;
+    private final JdbcTemplate jdbcTemplate;
+
+    public ExclusionConstraintBookingStrategy(ReservationRepository reservationRepository,
+                                              RoomCalendarService roomCalendarService,
+                                              JdbcTemplate jdbcTemplate) {
+        this.reservationRepository = reservationRepository;
+        this.roomCalendarService = roomCalendarService;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Schema is managed by hibernate, range column and constraint are added idempotently on top of it.
+     * Reservation crossing midnight ends on the next day, same rule as rest of the system.
+     * */
+    @PostConstruct
+    void installExclusionConstraint() {
+        jdbcTemplate.execute("create extension if not exists btree_gist");
+        jdbcTemplate.execute("""
+                alter table reservations add column if not exists reservation_period tsrange
+                generated always as (tsrange(
+                    reservation_date + reservation_start_time,
+                    case when reservation_end_time > reservation_start_time
+                        then reservation_date + reservation_end_time
+                        else reservation_date + 1 + reservation_end_time
+                    end,
+                    '[)')) stored
+                """);
+        jdbcTemplate.execute("""
+                do $$
+                begin
+                    if not exists (select 1 from pg_constraint where conname = '%s') then
+                        alter table reservations add constraint %s
+                        exclude using gist (room_id with =, reservation_period with &&)
+                        where (reservation_status = 'CONFIRMED');
+                    end if;
+                end
+                $$
+                """.formatted(CONSTRAINT_NAME, CONSTRAINT_NAME));
+        log.info("Reservation exclusion constraint {} is in place", CONSTRAINT_NAME);
+    }
+
+    @Override
+    public Reservation reserve(Reservation reservation) {
+        Reservation savedReservation;
+        try {
+            //Flush so that constraint is checked here and not at commit
+            savedReservation = reservationRepository.saveAndFlush(reservation);
+        } catch (DataIntegrityViolationException dataIntegrityViolationException) {
+            if (isExclusionViolation(dataIntegrityViolationException)) {
+                throw new RoomNotAvailableException("Room is not available for reservation at give time range");
+            }
+            throw dataIntegrityViolationException;
+        }
+        discardOccupancy(savedReservation);
+        return savedReservation;
+    }
+
+    /**
+     * Constraint only covers CONFIRMED reservations, status change of the cancellation frees the range.
+     * Only the bitmaps of its days are dropped here.
+     * */
+    @Override
+    public void release(Reservation reservation) {
+        discardOccupancy(reservation);
+    }
+
+    private void discardOccupancy(Reservation reservation) {
+        roomCalendarService.discardOccupancy(reservation.getRoom(), reservation.getReservationDate(),
+                reservation.getReservationStartTime(), reservation.getReservationEndTime());
+    }
+
+    static boolean isExclusionViolation(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException && EXCLUSION_VIOLATION_SQL_STATE.equals(sqlException.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
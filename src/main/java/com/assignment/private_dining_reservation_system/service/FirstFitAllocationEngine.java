@@ -0,0 +1,23 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import com.assignment.private_dining_reservation_system.entity.Room;
+import com.assignment.private_dining_reservation_system.model.request.ReservationTimeFrame;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Candidates able to serve the group in the order given, whatever they leave behind.
+ * */
+@Component
+@ConditionalOnProperty(name = "reservation.allocation.engine", havingValue = "first-fit")
+public class FirstFitAllocationEngine implements RoomAllocationEngine {
+
+    @Override
+    public List<Room> rank(Long restaurantId, List<Room> candidates, ReservationTimeFrame reservationTimeFrame, int groupSize) {
+        return candidates.stream()
+                .filter(room -> ReservationValidationService.canServe(room, groupSize))
+                .toList();
+    }
+}
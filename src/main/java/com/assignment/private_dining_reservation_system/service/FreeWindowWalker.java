@@ -0,0 +1,87 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import com.assignment.private_dining_reservation_system.model.projection.RoomTimeSlot;
+import com.assignment.private_dining_reservation_system.model.projection.RoomView;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Walks the free windows of one room day by day over its reservations sorted by start.
+ * Minutes are offsets from midnight of an origin date, so windows and reservations crossing midnight need no
+ * special casing. Operating windows only move forward, reservations ending before a window are never needed again
+ * and the cursor is not reset, a walk over a date range reads every reservation once.
+ * */
+final class FreeWindowWalker {
+    private final RoomView roomView;
+    private final List<int[]> occupied;
+    private int cursor;
+
+    /**
+     * @param occupied [start, end) minute offsets from the origin, sorted by start
+     */
+    FreeWindowWalker(RoomView roomView, List<int[]> occupied) {
+        this.roomView = roomView;
+        this.occupied = occupied;
+    }
+
+    /**
+     * Reservations of each room as sorted minute offsets from midnight of the origin date.
+     * */
+    static Map<Long, List<int[]>> occupiedByRoom(List<RoomTimeSlot> timeSlots, LocalDate origin) {
+        Map<Long, List<int[]>> occupiedByRoom = new HashMap<>();
+        for (RoomTimeSlot timeSlot : timeSlots) {
+            int dayOffset = (int) ChronoUnit.DAYS.between(origin, timeSlot.reservationDate()) * MinuteOfDay.MINUTES_PER_DAY;
+            occupiedByRoom.computeIfAbsent(timeSlot.roomId(), roomId -> new ArrayList<>()).add(new int[]{
+                    dayOffset + MinuteOfDay.of(timeSlot.reservationStartTime()),
+                    dayOffset + MinuteOfDay.endOf(timeSlot.reservationStartTime(), timeSlot.reservationEndTime())});
+        }
+        occupiedByRoom.values().forEach(occupied -> occupied.sort(Comparator.comparingInt(interval -> interval[0])));
+        return occupiedByRoom;
+    }
+
+    /**
+     * Free [start, end) windows within the operating hours of the day, empty when the room is closed or has no metadata.
+     * Days have to be asked in increasing order.
+     *
+     * @param dayOffset     minute offset of the day's midnight from the origin
+     * @param earliestStart no window starts before this offset
+     * @param minLength     shorter windows are left out
+     */
+    List<int[]> freeWindows(LocalDate date, int dayOffset, int earliestStart, int minLength) {
+        if (!roomView.hasMetaData() || (!roomView.openDays().isEmpty() && !roomView.openDays().contains(date.getDayOfWeek()))) {
+            return List.of();
+        }
+        int windowStart = Math.max(dayOffset + MinuteOfDay.of(roomView.roomOpeningTime()), earliestStart);
+        int windowEnd = dayOffset + MinuteOfDay.endOf(roomView.roomOpeningTime(), roomView.roomClosingTime());
+        while (cursor < occupied.size() && occupied.get(cursor)[1] <= windowStart) {
+            cursor++;
+        }
+        List<int[]> freeWindows = new ArrayList<>();
+        int free = windowStart;
+        for (int i = cursor; i < occupied.size() && occupied.get(i)[0] < windowEnd; i++) {
+            int[] interval = occupied.get(i);
+            addWindow(freeWindows, free, Math.min(interval[0], windowEnd), minLength);
+            free = Math.max(free, interval[1]);
+        }
+        addWindow(freeWindows, free, windowEnd, minLength);
+        return freeWindows;
+    }
+
+    static LocalTime toLocalTime(int minute) {
+        int minuteOfDay = minute % MinuteOfDay.MINUTES_PER_DAY;
+        return LocalTime.of(minuteOfDay / 60, minuteOfDay % 60);
+    }
+
+    private static void addWindow(List<int[]> freeWindows, int start, int end, int minLength) {
+        if (end - start >= minLength) {
+            freeWindows.add(new int[]{start, end});
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import java.time.LocalTime;
+
+/**
+ * Converts reservation times to minute offsets from the midnight of the reservation date.
+ * End offsets can go beyond a day when the reservation crosses midnight.
+ * */
+public final class MinuteOfDay {
+    public static final int MINUTES_PER_DAY = 24 * 60;
+
+    private MinuteOfDay() {
+    }
+
+    public static int of(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    /**
+     * Same rule as rest of the system, end time not after start time means midnight crossed.
+     * Partial minutes are rounded up so that the range never shrinks.
+     * */
+    public static int endOf(LocalTime start, LocalTime end) {
+        int endMinute = of(end) + (end.getSecond() > 0 || end.getNano() > 0 ? 1 : 0);
+        return end.isAfter(start) ? endMinute : endMinute + MINUTES_PER_DAY;
+    }
+}
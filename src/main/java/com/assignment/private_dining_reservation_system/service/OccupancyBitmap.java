@@ -0,0 +1,70 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import java.util.Arrays;
+
+/**
+ * Minute level occupancy of a room for one calendar day, one bit per minute (180 bytes per day).
+ * Minute resolution keeps the check exact for any HH:mm booking, coarser slots would reject valid back to back bookings.
+ * Updates always return a new array, the input is never modified.
+ * */
+public final class OccupancyBitmap {
+    public static final int SIZE_IN_BYTES = MinuteOfDay.MINUTES_PER_DAY / Byte.SIZE;
+
+    private OccupancyBitmap() {
+    }
+
+    public static byte[] empty() {
+        return new byte[SIZE_IN_BYTES];
+    }
+
+    /**
+     * @param fromMinute inclusive
+     * @param toMinute   exclusive, at most end of the day
+     */
+    public static boolean isFree(byte[] occupancy, int fromMinute, int toMinute) {
+        for (int minute = fromMinute; minute < toMinute; minute++) {
+            if ((occupancy[minute >>> 3] & (1 << (minute & 7))) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Free minutes directly before toMinute, counted back no further than fromMinute.
+     * */
+    public static int freeMinutesBefore(byte[] occupancy, int fromMinute, int toMinute) {
+        int minute = toMinute - 1;
+        while (minute >= fromMinute && (occupancy[minute >>> 3] & (1 << (minute & 7))) == 0) {
+            minute--;
+        }
+        return toMinute - 1 - minute;
+    }
+
+    /**
+     * Free minutes from fromMinute on, counted no further than toMinute.
+     * */
+    public static int freeMinutesFrom(byte[] occupancy, int fromMinute, int toMinute) {
+        int minute = fromMinute;
+        while (minute < toMinute && (occupancy[minute >>> 3] & (1 << (minute & 7))) == 0) {
+            minute++;
+        }
+        return minute - fromMinute;
+    }
+
+    public static byte[] occupy(byte[] occupancy, int fromMinute, int toMinute) {
+        byte[] updated = Arrays.copyOf(occupancy, SIZE_IN_BYTES);
+        for (int minute = fromMinute; minute < toMinute; minute++) {
+            updated[minute >>> 3] |= (byte) (1 << (minute & 7));
+        }
+        return updated;
+    }
+
+    public static byte[] release(byte[] occupancy, int fromMinute, int toMinute) {
+        byte[] updated = Arrays.copyOf(occupancy, SIZE_IN_BYTES);
+        for (int minute = fromMinute; minute < toMinute; minute++) {
+            updated[minute >>> 3] &= (byte) ~(1 << (minute & 7));
+        }
+        return updated;
+    }
+}
@@ -0,0 +1,133 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import com.assignment.private_dining_reservation_system.entity.Reservation;
+import com.assignment.private_dining_reservation_system.exception.ReservationFailedException;
+import com.assignment.private_dining_reservation_system.exception.RoomNotAvailableException;
+import com.assignment.private_dining_reservation_system.repository.ReservationRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Booking strategy for low contention deployments, room calendar rows are read without lock
+ * and the occupancy bitmap is written only if the row version is still the one that was read.
+ * On a version conflict the booking transaction is rolled back, and run again with the fresh row after a jittered
+ * backoff up to the configured number of attempts, see retryOnConflict. Nothing is slept on while a transaction,
+ * its connection and its row locks are held.
+ * */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "reservation.concurrency.strategy", havingValue = "optimistic")
+public class OptimisticBookingStrategy implements BookingConcurrencyStrategy {
+
+    private final RoomCalendarService roomCalendarService;
+    private final ReservationRepository reservationRepository;
+    private final int maxAttempts;
+    private final long backoffNanos;
+    private final Counter reserveRetries;
+    private final Counter releaseRetries;
+    private final Counter exhausted;
+    private final DistributionSummary attempts;
+
+    public OptimisticBookingStrategy(RoomCalendarService roomCalendarService,
+                                     ReservationRepository reservationRepository,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${reservation.concurrency.optimistic.max-attempts:5}") int maxAttempts,
+                                     @Value("${reservation.concurrency.optimistic.backoff:PT0.02S}") Duration backoff) {
+        this.roomCalendarService = roomCalendarService;
+        this.reservationRepository = reservationRepository;
+        this.maxAttempts = maxAttempts;
+        this.backoffNanos = backoff.toNanos();
+        this.reserveRetries = Counter.builder("reservation.booking.optimistic.retries")
+                .tag("operation", "reserve").register(meterRegistry);
+        this.releaseRetries = Counter.builder("reservation.booking.optimistic.retries")
+                .tag("operation", "release").register(meterRegistry);
+        this.exhausted = Counter.builder("reservation.booking.optimistic.exhausted").register(meterRegistry);
+        this.attempts = DistributionSummary.builder("reservation.booking.optimistic.attempts").register(meterRegistry);
+    }
+
+    @Override
+    public Reservation reserve(Reservation reservation) {
+        RoomCalendarService.OccupancyUpdate update = roomCalendarService.compareAndReserveOccupancy(
+                reservation.getRoom(), reservation.getReservationDate(),
+                reservation.getReservationStartTime(), reservation.getReservationEndTime());
+        if (update == RoomCalendarService.OccupancyUpdate.VERSION_CONFLICT) {
+            throw new VersionConflictException(reserveRetries);
+        }
+        if (update == RoomCalendarService.OccupancyUpdate.OCCUPIED) {
+            throw new RoomNotAvailableException("Room is not available for reservation at give time range");
+        }
+        return reservationRepository.save(reservation);
+    }
+
+    @Override
+    public void release(Reservation reservation) {
+        RoomCalendarService.OccupancyUpdate update = roomCalendarService.compareAndReleaseOccupancy(
+                reservation.getRoom(), reservation.getReservationDate(),
+                reservation.getReservationStartTime(), reservation.getReservationEndTime());
+        if (update == RoomCalendarService.OccupancyUpdate.VERSION_CONFLICT) {
+            throw new VersionConflictException(releaseRetries);
+        }
+    }
+
+    /**
+     * The conflict thrown by reserve or release has rolled the transaction back already when it gets here, so the
+     * backoff holds no connection.
+     * */
+    @Override
+    public <T> T retryOnConflict(Supplier<T> transaction) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                T result = transaction.get();
+                attempts.record(attempt);
+                return result;
+            } catch (VersionConflictException versionConflictException) {
+                if (attempt >= maxAttempts) {
+                    attempts.record(attempt);
+                    exhausted.increment();
+                    log.warn("Room calendar version conflict not resolved after {} attempts", maxAttempts);
+                    throw new ReservationFailedException("Reservation failed due to concurrent updates, please try again");
+                }
+                versionConflictException.retries.increment();
+                backoff(attempt);
+            }
+        }
+    }
+
+    /**
+     * Full jitter on an exponential backoff so that the conflicting requests do not retry in lock step.
+     * */
+    private void backoff(int attempt) {
+        long bound = backoffNanos << Math.min(attempt - 1, 10);
+        if (bound <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(Duration.ofNanos(ThreadLocalRandom.current().nextLong(bound)));
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+            throw new ReservationFailedException("Reservation interrupted while retrying");
+        }
+    }
+
+    /**
+     * Row version moved since it was read. Still a ReservationFailedException where it is not retried, e.g. for a
+     * batch item which fails alone inside its savepoint.
+     * */
+    private static final class VersionConflictException extends ReservationFailedException {
+        private final Counter retries;
+
+        private VersionConflictException(Counter retries) {
+            super("Reservation failed due to concurrent updates, please try again");
+            this.retries = retries;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import com.assignment.private_dining_reservation_system.model.projection.RoomTimeSlot;
+import com.assignment.private_dining_reservation_system.repository.RoomAvailabilitySlotRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Reads the room availability projection maintained by AvailabilityProjector, never the reservations table.
+ * A booking shows up once its event went through the outbox and the topic.
+ * */
+@Service
+@ConditionalOnProperty(name = "reservation.availability.read-model", havingValue = "projection")
+public class ProjectedReadModel implements AvailabilityReadModel {
+
+    private final RoomAvailabilitySlotRepository roomAvailabilitySlotRepository;
+
+    public ProjectedReadModel(RoomAvailabilitySlotRepository roomAvailabilitySlotRepository) {
+        this.roomAvailabilitySlotRepository = roomAvailabilitySlotRepository;
+    }
+
+    @Override
+    public List<RoomTimeSlot> findTimeSlots(Long restaurantId, LocalDate fromDate, LocalDate toDate) {
+        return roomAvailabilitySlotRepository.findTimeSlotsByRestaurantAndDateRange(restaurantId, fromDate, toDate);
+    }
+
+    @Override
+    public List<RoomTimeSlot> findTimeSlots(Long restaurantId, Collection<Long> roomIds, LocalDate fromDate, LocalDate toDate) {
+        return roomAvailabilitySlotRepository.findTimeSlotsByRoomsAndDateRange(restaurantId, roomIds, fromDate, toDate);
+    }
+}
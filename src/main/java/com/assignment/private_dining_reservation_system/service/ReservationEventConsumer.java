@@ -2,19 +2,33 @@ package com.assignment.private_dining_reservation_system.service;
 
 import com.assignment.private_dining_reservation_system.event.TableReservedEvent;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Service;
 
+/**
+ * Projects booked and cancelled reservation events into the room availability read model.
+ * */
 @Slf4j
 @Service
 public class ReservationEventConsumer {
 
+    private final AvailabilityProjector availabilityProjector;
+
+    public ReservationEventConsumer(AvailabilityProjector availabilityProjector) {
+        this.availabilityProjector = availabilityProjector;
+    }
+
     @KafkaListener(
             topics = "${spring.kafka.topic}",
             groupId = "${spring.kafka.consumer.group-id}",
             containerFactory = "concurrentKafkaListenerContainerFactory"
     )
-    public void reservationConsumerEvent(TableReservedEvent tableReservedEvent) {
+    public void reservationConsumerEvent(ConsumerRecord<Long, TableReservedEvent> consumerRecord) {
+        TableReservedEvent tableReservedEvent = consumerRecord.value();
+        if (tableReservedEvent == null) {
+            return;
+        }
         log.info("Reservation Id: {}, Restaurant Name: {}, Room Name: {}, Reservation date: {}, Diner Email: {}, Reservation Status: {}",
                 tableReservedEvent.reservationId(),
                 tableReservedEvent.restaurantName(),
@@ -22,5 +36,6 @@ public class ReservationEventConsumer {
                 tableReservedEvent.reservationDate(),
                 tableReservedEvent.dinerEmail(),
                 tableReservedEvent.reservationStatus());
+        availabilityProjector.apply(tableReservedEvent, consumerRecord.offset());
     }
 }
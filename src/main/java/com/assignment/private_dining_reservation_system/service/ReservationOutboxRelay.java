@@ -0,0 +1,173 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import com.assignment.private_dining_reservation_system.entity.ReservationOutbox;
+import com.assignment.private_dining_reservation_system.event.TableReservedEvent;
+import com.assignment.private_dining_reservation_system.repository.ReservationOutboxRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Drains the reservation outbox to Kafka in batches.
+ * A batch is claimed in a short transaction, sent without holding any row lock, and every acknowledged row is
+ * marked sent on its own. A row not acknowledged within the send timeout is picked up again once its claim
+ * runs out (at least once delivery, consumers see the reservation id as record key), until max attempts
+ * are used up and it is marked failed.
+ * Rows are claimed with skip locked, so relays of several instances share the work without waiting on each other.
+ * */
+@Slf4j
+@Component
+public class ReservationOutboxRelay {
+
+    private final ReservationOutboxRepository reservationOutboxRepository;
+    private final ReservationEventProducer reservationEventProducer;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration sendTimeout;
+    private final Duration claimTimeout;
+    private final Duration retention;
+
+    public ReservationOutboxRelay(ReservationOutboxRepository reservationOutboxRepository,
+                                  ReservationEventProducer reservationEventProducer,
+                                  ObjectMapper objectMapper,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${reservation.outbox.batch-size:100}") int batchSize,
+                                  @Value("${reservation.outbox.max-attempts:10}") int maxAttempts,
+                                  @Value("${reservation.outbox.send-timeout:PT10S}") Duration sendTimeout,
+                                  @Value("${reservation.outbox.claim-timeout:PT1M}") Duration claimTimeout,
+                                  @Value("${reservation.outbox.retention:P7D}") Duration retention) {
+        this.reservationOutboxRepository = reservationOutboxRepository;
+        this.reservationEventProducer = reservationEventProducer;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.sendTimeout = sendTimeout;
+        //A claim running out while its relay still waits for the broker would only cause a duplicate send
+        this.claimTimeout = claimTimeout.compareTo(sendTimeout) > 0 ? claimTimeout : sendTimeout.multipliedBy(2);
+        this.retention = retention;
+    }
+
+    /**
+     * Keeps draining while full batches are acknowledged, so a backlog is cleared without waiting for the next run.
+     * */
+    @Scheduled(fixedDelayString = "${reservation.outbox.relay-interval:PT1S}")
+    public void relay() {
+        try {
+            int sent;
+            do {
+                sent = relayBatch();
+            } while (sent == batchSize);
+        } catch (RuntimeException exception) {
+            log.warn("Reservation outbox relay failed, rows are retried on next run: {}", exception.getMessage());
+        }
+    }
+
+    /**
+     * Failed rows are kept, only sent rows are deleted.
+     * */
+    @Scheduled(cron = "${reservation.outbox.cleanup-cron:0 30 0 * * *}")
+    public void deleteSentEvents() {
+        Integer deleted = transactionTemplate.execute(status ->
+                reservationOutboxRepository.deleteSentBefore(LocalDateTime.now().minus(retention)));
+        log.info("Deleted {} sent reservation outbox rows", deleted);
+    }
+
+    private int relayBatch() {
+        List<ReservationOutbox> reservationOutboxes = transactionTemplate.execute(status -> claimBatch());
+        if (reservationOutboxes == null || reservationOutboxes.isEmpty()) {
+            return 0;
+        }
+        Map<ReservationOutbox, CompletableFuture<?>> acknowledgements = new LinkedHashMap<>();
+        for (ReservationOutbox reservationOutbox : reservationOutboxes) {
+            acknowledgements.put(reservationOutbox, send(reservationOutbox));
+        }
+
+        long deadline = System.nanoTime() + sendTimeout.toNanos();
+        List<Long> sentIds = new ArrayList<>();
+        List<Long> failedIds = new ArrayList<>();
+        acknowledgements.forEach((reservationOutbox, acknowledgement) -> {
+            if (isAcknowledged(reservationOutbox, acknowledgement, deadline)) {
+                sentIds.add(reservationOutbox.getId());
+            } else if (reservationOutbox.getAttempts() >= maxAttempts) {
+                failedIds.add(reservationOutbox.getId());
+            }
+        });
+
+        transactionTemplate.executeWithoutResult(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            if (!sentIds.isEmpty()) {
+                reservationOutboxRepository.markSent(sentIds, now);
+            }
+            if (!failedIds.isEmpty()) {
+                reservationOutboxRepository.markFailed(failedIds, now);
+            }
+        });
+        if (!failedIds.isEmpty()) {
+            log.error("Reservation outbox rows {} failed after {} attempts and are no longer retried", failedIds, maxAttempts);
+        }
+        log.info("Reservation events sent successfully for {} of {} reservations", sentIds.size(), reservationOutboxes.size());
+        return sentIds.size();
+    }
+
+    /**
+     * Rows are committed as claimed before anything is sent, the row locks are held only for this.
+     * */
+    private List<ReservationOutbox> claimBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<ReservationOutbox> reservationOutboxes = reservationOutboxRepository.findClaimableForUpdate(batchSize, now);
+        for (ReservationOutbox reservationOutbox : reservationOutboxes) {
+            reservationOutbox.setAttempts(reservationOutbox.getAttempts() + 1);
+            reservationOutbox.setClaimedUntil(now.plus(claimTimeout));
+        }
+        return reservationOutboxes;
+    }
+
+    private CompletableFuture<?> send(ReservationOutbox reservationOutbox) {
+        try {
+            return reservationEventProducer.sendReservationEvent(readEvent(reservationOutbox));
+        } catch (RuntimeException exception) {
+            return CompletableFuture.failedFuture(exception);
+        }
+    }
+
+    private boolean isAcknowledged(ReservationOutbox reservationOutbox, CompletableFuture<?> acknowledgement, long deadline) {
+        try {
+            acknowledgement.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            return true;
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException exception) {
+            log.warn("Reservation outbox row id: {} not acknowledged on attempt {}: {}",
+                    reservationOutbox.getId(), reservationOutbox.getAttempts(), exception.getMessage());
+            return false;
+        }
+    }
+
+    private TableReservedEvent readEvent(ReservationOutbox reservationOutbox) {
+        try {
+            return objectMapper.readValue(reservationOutbox.getPayload(), TableReservedEvent.class);
+        } catch (JsonProcessingException jsonProcessingException) {
+            throw new IllegalStateException("Unreadable reservation outbox row id: " + reservationOutbox.getId(), jsonProcessingException);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import com.assignment.private_dining_reservation_system.entity.Reservation;
+import com.assignment.private_dining_reservation_system.entity.ReservationOutbox;
+import com.assignment.private_dining_reservation_system.mapper.EventMapper;
+import com.assignment.private_dining_reservation_system.repository.ReservationOutboxRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Records reservation events in the outbox table, it has to be called within the booking transaction
+ * so an event exists if and only if the reservation got committed.
+ * Publishing is left to ReservationOutboxRelay, booking never waits on Kafka.
+ * */
+@Service
+public class ReservationOutboxService {
+
+    private final ReservationOutboxRepository reservationOutboxRepository;
+    private final EventMapper eventMapper;
+    private final ObjectMapper objectMapper;
+
+    public ReservationOutboxService(ReservationOutboxRepository reservationOutboxRepository, EventMapper eventMapper, ObjectMapper objectMapper) {
+        this.reservationOutboxRepository = reservationOutboxRepository;
+        this.eventMapper = eventMapper;
+        this.objectMapper = objectMapper;
+    }
+
+    public void recordReservationEvent(Reservation reservation) {
+        reservationOutboxRepository.save(toOutbox(reservation));
+    }
+
+    public void recordReservationEvents(List<Reservation> reservations) {
+        reservationOutboxRepository.saveAll(reservations.stream().map(this::toOutbox).toList());
+    }
+
+    private ReservationOutbox toOutbox(Reservation reservation) {
+        ReservationOutbox reservationOutbox = new ReservationOutbox();
+        reservationOutbox.setReservationId(reservation.getId());
+        try {
+            reservationOutbox.setPayload(objectMapper.writeValueAsString(eventMapper.mapToTableReservedEvent(reservation)));
+        } catch (JsonProcessingException jsonProcessingException) {
+            throw new IllegalStateException("Unable to serialize reservation event for reservation id: " + reservation.getId(), jsonProcessingException);
+        }
+        return reservationOutbox;
+    }
+}
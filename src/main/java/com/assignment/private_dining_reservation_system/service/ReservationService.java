@@ -3,20 +3,38 @@ package com.assignment.private_dining_reservation_system.service;
 import com.assignment.private_dining_reservation_system.entity.*;
 import com.assignment.private_dining_reservation_system.exception.EntityNotFoundException;
 import com.assignment.private_dining_reservation_system.exception.ReservationFailedException;
+import com.assignment.private_dining_reservation_system.exception.ReservationValidationFailureException;
+import com.assignment.private_dining_reservation_system.exception.RoomBusyException;
 import com.assignment.private_dining_reservation_system.exception.RoomNotAvailableException;
+import com.assignment.private_dining_reservation_system.model.projection.RoomView;
 import com.assignment.private_dining_reservation_system.model.request.AutoAssignReservationRequest;
 import com.assignment.private_dining_reservation_system.model.request.ReservationRequest;
 import com.assignment.private_dining_reservation_system.model.request.ReservationTimeFrame;
 import com.assignment.private_dining_reservation_system.repository.ReservationRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.CollectionUtils;
 
-import java.time.LocalDate;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 /**
  * It basically orchestrates and manage the full lifecycle of the reservation workflow.
  * */
@@ -26,117 +44,389 @@ public class ReservationService {
     private final ReservationRepository reservationRepository;
     private final RoomService roomService;
     private final RestaurantService restaurantService;
-    private final RoomCalendarService roomCalendarService;
+    private final BookingConcurrencyStrategy bookingConcurrencyStrategy;
     private final ReservationValidationService reservationValidationService;
     private final RestaurantAvailabilityService restaurantAvailabilityService;
-    private final ReservationEventProducer reservationEventProducer;
+    private final ReservationOutboxService reservationOutboxService;
+    private final RoomOccupancyIndex roomOccupancyIndex;
+    private final RoomDayLockManager roomDayLockManager;
+    private final RoomViewCache roomViewCache;
+    private final RestaurantAvailabilityCache restaurantAvailabilityCache;
+    private final RoomAllocationEngine roomAllocationEngine;
+    private final RoomCalendarService roomCalendarService;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate savepointTransactionTemplate;
+    private final Duration autoAssignTimeBudget;
+    private final Duration autoAssignLockTimeout;
+    private final DistributionSummary assignedCandidatesTried;
+    private final DistributionSummary failedCandidatesTried;
 
-    public ReservationService(ReservationRepository reservationRepository, RoomService roomService, RestaurantService restaurantService, RoomCalendarService roomCalendarService, ReservationValidationService reservationValidationService, RestaurantAvailabilityService restaurantAvailabilityService, ReservationEventProducer reservationEventProducer) {
+    public ReservationService(ReservationRepository reservationRepository, RoomService roomService, RestaurantService restaurantService, BookingConcurrencyStrategy bookingConcurrencyStrategy, ReservationValidationService reservationValidationService, RestaurantAvailabilityService restaurantAvailabilityService, ReservationOutboxService reservationOutboxService, RoomOccupancyIndex roomOccupancyIndex, RoomDayLockManager roomDayLockManager, RoomViewCache roomViewCache, RestaurantAvailabilityCache restaurantAvailabilityCache, RoomAllocationEngine roomAllocationEngine, RoomCalendarService roomCalendarService, EntityManager entityManager, PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                              @Value("${reservation.allocation.time-budget:PT1S}") Duration autoAssignTimeBudget,
+                              @Value("${reservation.allocation.lock-timeout:PT0.1S}") Duration autoAssignLockTimeout) {
         this.reservationRepository = reservationRepository;
         this.roomService = roomService;
         this.restaurantService = restaurantService;
-        this.roomCalendarService = roomCalendarService;
+        this.bookingConcurrencyStrategy = bookingConcurrencyStrategy;
         this.reservationValidationService = reservationValidationService;
         this.restaurantAvailabilityService = restaurantAvailabilityService;
-        this.reservationEventProducer = reservationEventProducer;
+        this.reservationOutboxService = reservationOutboxService;
+        this.roomOccupancyIndex = roomOccupancyIndex;
+        this.roomDayLockManager = roomDayLockManager;
+        this.roomViewCache = roomViewCache;
+        this.restaurantAvailabilityCache = restaurantAvailabilityCache;
+        this.roomAllocationEngine = roomAllocationEngine;
+        this.roomCalendarService = roomCalendarService;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.savepointTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.savepointTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+        this.autoAssignTimeBudget = autoAssignTimeBudget;
+        this.autoAssignLockTimeout = autoAssignLockTimeout;
+        this.assignedCandidatesTried = candidatesTried(meterRegistry, "assigned");
+        this.failedCandidatesTried = candidatesTried(meterRegistry, "failed");
+    }
+
+    private static DistributionSummary candidatesTried(MeterRegistry meterRegistry, String outcome) {
+        return DistributionSummary.builder("reservation.auto-assign.candidates-tried")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
     }
 
-    @Transactional
+    /**
+     * Booking runs in two phases.
+     * Phase one validates against the cached room view and the occupancy index without taking a connection,
+     * invalid requests fail fast there. Phase two is a short transaction that only locks, checks overlap and inserts,
+     * see createRoomReservation.
+     * */
     public Reservation createReservation(@Valid ReservationRequest reservationRequest) {
-        //1. Fetch Room Details
-        Room room = roomService.getByIdAndRestaurantId(reservationRequest.roomId(), reservationRequest.restaurantId());
-        //2. Fetch Restaurant Details
-        Restaurant restaurant = restaurantService.getById(reservationRequest.restaurantId());
+        //1. Validate Date and Time For Reservation
+        //   # Reservation Date >= today
+        //   # Reservation end time > reservation start time
+        reservationValidationService.validateDateAndTime(reservationRequest);
+        //2. Fetch cached Room view, the room is read only on a cache miss
+        RoomView roomView = roomViewCache.get(reservationRequest.roomId(), reservationRequest.restaurantId());
         //3. Validate Reservation is within room operating hours
-        boolean validOperatingHours = reservationValidationService.validateRoomOperatingHours(room, reservationRequest.reservationDate(), reservationRequest.reservationStartTime(), reservationRequest.reservationEndTime());
+        boolean validOperatingHours = reservationValidationService.validateRoomOperatingHours(roomView, reservationRequest.reservationDate(), reservationRequest.reservationStartTime(), reservationRequest.reservationEndTime());
         if(!validOperatingHours){
             throw new RoomNotAvailableException("Reservation is not within operating hours");
         }
-        //4. Validate Date and Time For Reservation
-        //   # Reservation Date >= today
-        //   # Reservation end time > reservation start time
-        reservationValidationService.validateDateAndTime(reservationRequest);
-        //5. Validate Room Capacity for Group
-        reservationValidationService.validateRoomCapacity(room, reservationRequest.groupSize());
-        //6. Core Reservation Logic
-        Reservation reservation = createRoomReservation(restaurant, room, reservationRequest);
-        //7. Emit Notification for reservation created
-        reservationEventProducer.sendReservationEvent(reservation);
-        return reservation;
+        //4. Validate Room Capacity for Group
+        reservationValidationService.validateRoomCapacity(roomView, reservationRequest.groupSize());
+        //5. Core Reservation Logic, notification for reservation created is recorded with it
+        return createRoomReservation(roomView, reservationRequest);
     }
 
-    @Transactional
+    /**
+     * Every ranked candidate is tried in turn until one is booked or the time budget is spent, the first candidate
+     * is always tried.
+     * */
     public Reservation autoAssignCreateReservation(@Valid AutoAssignReservationRequest autoAssignReservationRequest) {
-        //1. Fetch Available Room Details for restaurant and Room Type
-        List<Room> rooms = restaurantAvailabilityService.findAvailableRoomsByRestaurantAndRoomType(autoAssignReservationRequest.restaurantId(), autoAssignReservationRequest.roomType(), new ReservationTimeFrame(
+        long deadline = System.nanoTime() + autoAssignTimeBudget.toNanos();
+        ReservationTimeFrame reservationTimeFrame = new ReservationTimeFrame(
                 autoAssignReservationRequest.reservationDate(),
                 autoAssignReservationRequest.reservationStartTime(),
                 autoAssignReservationRequest.reservationEndTime()
-        ));
+        );
+        //1. Validate Date and Time For Reservation before searching for a room
+        reservationValidationService.validateDateAndTime(reservationTimeFrame);
+        List<RoomType> roomTypes = autoAssignReservationRequest.acceptableRoomTypes();
+        if (roomTypes.isEmpty()) {
+            throw new ReservationValidationFailureException("Room type is required.");
+        }
+
+        //2. Fetch Available Rooms for restaurant of every acceptable Room Type able to serve the group at once
+        List<Room> rooms = restaurantAvailabilityService.findAvailableRoomsByRestaurantAndRoomTypes(autoAssignReservationRequest.restaurantId(), roomTypes, autoAssignReservationRequest.groupSize(), reservationTimeFrame);
 
         if (CollectionUtils.isEmpty(rooms)) {
             String errorMessage = String.format("No Room is available for Restaurant id: %d  Reservation date: %s Room Type: %s",
-                    autoAssignReservationRequest.restaurantId(), autoAssignReservationRequest.reservationDate(), autoAssignReservationRequest.roomType());
+                    autoAssignReservationRequest.restaurantId(), autoAssignReservationRequest.reservationDate(),
+                    roomTypes.stream().map(RoomType::name).collect(Collectors.joining(", ")));
             log.error(errorMessage);
             throw new RoomNotAvailableException(errorMessage);
         }
 
-        //2. Select any one room from available rooms
-        Room selectedRoom = rooms.stream()
-                .filter(room -> autoAssignReservationRequest.groupSize() >= room.getMinCapacity()
-                        && autoAssignReservationRequest.groupSize() <= room.getMaxCapacity())
-                .findFirst()
-                .orElseThrow(() -> new RoomNotAvailableException("No room is available to accommodate this group size"));
+        //3. Rank candidates through the configured allocation engine, preferred Room Types first
+        List<Room> rankedRooms = rankByRoomType(autoAssignReservationRequest.restaurantId(), roomTypes, rooms, reservationTimeFrame, autoAssignReservationRequest.groupSize());
+        if (rankedRooms.isEmpty()) {
+            throw new RoomNotAvailableException("No room is available to accommodate this group size");
+        }
 
+        //4. Try candidates in order, a room taken meanwhile or busy with other bookings moves on to the next one
+        RuntimeException lastFailure = null;
+        int candidatesTried = 0;
+        for (Room room : rankedRooms) {
+            if (candidatesTried > 0 && System.nanoTime() - deadline > 0) {
+                log.warn("Auto assign time budget of {} spent after trying {} of {} candidates", autoAssignTimeBudget, candidatesTried, rankedRooms.size());
+                break;
+            }
+            candidatesTried++;
+            ReservationRequest reservationRequest = new ReservationRequest(
+                    room.getId(),
+                    autoAssignReservationRequest.restaurantId(),
+                    autoAssignReservationRequest.reservationStartTime(),
+                    autoAssignReservationRequest.reservationEndTime(),
+                    autoAssignReservationRequest.reservationDate(),
+                    autoAssignReservationRequest.groupSize(),
+                    autoAssignReservationRequest.dinerEmail()
+            );
+            //5. Validate Reservation is within room operating hours
+            RoomView roomView = roomViewCache.get(room.getId(), autoAssignReservationRequest.restaurantId());
+            boolean validOperatingHours = reservationValidationService.validateRoomOperatingHours(roomView, reservationRequest.reservationDate(), reservationRequest.reservationStartTime(), reservationRequest.reservationEndTime());
+            if (!validOperatingHours) {
+                lastFailure = new RoomNotAvailableException("Reservation is not within operating hours");
+                continue;
+            }
+            try {
+                //6. Core Reservation Logic under short lock waits, notification for reservation created is recorded with it
+                Reservation reservation = createAutoAssignedReservation(roomView, reservationRequest);
+                assignedCandidatesTried.record(candidatesTried);
+                log.info("Auto assigned room id: {} after trying {} of {} candidates", room.getId(), candidatesTried, rankedRooms.size());
+                return reservation;
+            } catch (RoomNotAvailableException | RoomBusyException | ReservationValidationFailureException exception) {
+                //Validation only fails here for a room changed since it was ranked
+                log.debug("Auto assign candidate room id: {} not booked: {}", room.getId(), exception.getMessage());
+                lastFailure = exception;
+            }
+        }
+        failedCandidatesTried.record(candidatesTried);
+        log.warn("Auto assign failed for Restaurant id: {} after trying {} candidates", autoAssignReservationRequest.restaurantId(), candidatesTried);
+        throw lastFailure;
+    }
 
-        //3. Fetch Restaurant Details
-        Restaurant restaurant = restaurantService.getById(autoAssignReservationRequest.restaurantId());
+    /**
+     * Candidates of each room type ranked by the allocation engine, room types in order of preference.
+     * Every room type is ranked from the same cached occupancy of the restaurant day.
+     * */
+    private List<Room> rankByRoomType(Long restaurantId, List<RoomType> roomTypes, List<Room> rooms,
+                                      ReservationTimeFrame reservationTimeFrame, int groupSize) {
+        if (roomTypes.size() == 1) {
+            return roomAllocationEngine.rank(restaurantId, rooms, reservationTimeFrame, groupSize);
+        }
+        Map<RoomType, List<Room>> roomsByType = rooms.stream()
+                .collect(Collectors.groupingBy(Room::getRoomType, () -> new EnumMap<>(RoomType.class), Collectors.toList()));
+        List<Room> rankedRooms = new ArrayList<>();
+        for (RoomType roomType : roomTypes) {
+            List<Room> candidates = roomsByType.get(roomType);
+            if (candidates == null) {
+                continue;
+            }
+            rankedRooms.addAll(roomAllocationEngine.rank(restaurantId, candidates, reservationTimeFrame, groupSize));
+        }
+        return rankedRooms;
+    }
 
-        //4. Create reservation request Payload with selected room id
-        ReservationRequest reservationRequest = new ReservationRequest(
-                selectedRoom.getId(),
-                autoAssignReservationRequest.restaurantId(),
-                autoAssignReservationRequest.reservationStartTime(),
-                autoAssignReservationRequest.reservationEndTime(),
-                autoAssignReservationRequest.reservationDate(),
-                autoAssignReservationRequest.groupSize(),
-                autoAssignReservationRequest.dinerEmail()
-        );
-        //5. Validate Reservation is within room operating hours
-        boolean validOperatingHours = reservationValidationService.validateRoomOperatingHours(selectedRoom, reservationRequest.reservationDate(), reservationRequest.reservationStartTime(), reservationRequest.reservationEndTime());
-        if(!validOperatingHours){
+    /**
+     * Create a batch of reservations, every item succeeds or fails on its own.
+     * Rooms and restaurants are loaded in bulk and all items are validated before anything is locked.
+     * Valid items are sorted by room and date, so room calendar rows are always locked in the same order
+     * and two overlapping batches cannot deadlock. They are booked in parts of a few room-day stripes,
+     * each part in one transaction with its events recorded in the outbox, see RoomDayLockManager.partitionByStripes.
+     * Each item runs in a savepoint, a failed item is rolled back without affecting the rest of its part.
+     * */
+    public List<BatchReservationResult> createReservations(List<ReservationRequest> reservationRequests) {
+        //1. Fetch Rooms and Restaurants of the batch in bulk
+        Map<Long, Room> rooms = roomService.getByIds(reservationRequests.stream().map(ReservationRequest::roomId).collect(Collectors.toSet()))
+                .stream().collect(Collectors.toMap(Room::getId, Function.identity()));
+        Map<Long, Restaurant> restaurants = restaurantService.getByIds(reservationRequests.stream().map(ReservationRequest::restaurantId).collect(Collectors.toSet()))
+                .stream().collect(Collectors.toMap(Restaurant::getId, Function.identity()));
+
+        //2. Validate every item up front
+        BatchReservationResult[] results = new BatchReservationResult[reservationRequests.size()];
+        List<Integer> validIndexes = new ArrayList<>();
+        for (int index = 0; index < reservationRequests.size(); index++) {
+            try {
+                validateBatchItem(reservationRequests.get(index), rooms, restaurants);
+            } catch (RoomNotAvailableException | ReservationValidationFailureException | EntityNotFoundException exception) {
+                results[index] = BatchReservationResult.failed(index, exception.getMessage());
+                continue;
+            }
+            try {
+                rejectOnOverlap(reservationRequests.get(index).roomId(), reservationRequests.get(index));
+                validIndexes.add(index);
+            } catch (RoomNotAvailableException roomNotAvailableException) {
+                results[index] = BatchReservationResult.taken(index, roomNotAvailableException.getMessage());
+            }
+        }
+
+        //3. Deterministic lock order, by room then date then start time
+        validIndexes.sort(Comparator.comparing((Integer index) -> reservationRequests.get(index).roomId())
+                .thenComparing(index -> reservationRequests.get(index).reservationDate())
+                .thenComparing(index -> reservationRequests.get(index).reservationStartTime()));
+
+        //4. Book part by part, a part which cannot get its stripes fails alone
+        for (List<Integer> partIndexes : roomDayLockManager.partitionByStripes(validIndexes, reservationRequests::get)) {
+            List<ReservationRequest> partRequests = partIndexes.stream().map(reservationRequests::get).toList();
+            Supplier<List<Reservation>> bookPart = () -> transactionTemplate.execute(status ->
+                    bookBatchPart(partIndexes, reservationRequests, rooms, restaurants, results));
+            try {
+                if (bookingConcurrencyStrategy.requiresRoomDayLock()) {
+                    roomDayLockManager.withRoomDayLocks(partRequests, bookPart);
+                } else {
+                    bookPart.get();
+                }
+            } catch (RoomBusyException roomBusyException) {
+                partIndexes.forEach(index -> results[index] = BatchReservationResult.taken(index, roomBusyException.getMessage()));
+            }
+        }
+        return List.of(results);
+    }
+
+    private List<Reservation> bookBatchPart(List<Integer> partIndexes, List<ReservationRequest> reservationRequests,
+                                            Map<Long, Room> rooms, Map<Long, Restaurant> restaurants, BatchReservationResult[] results) {
+        List<Reservation> createdReservations = new ArrayList<>();
+        for (Integer index : partIndexes) {
+            ReservationRequest reservationRequest = reservationRequests.get(index);
+            Room room = rooms.get(reservationRequest.roomId());
+            Reservation payload = createReservationPayload(reservationRequest, restaurants.get(reservationRequest.restaurantId()), room);
+            try {
+                Reservation reservation = savepointTransactionTemplate.execute(savepoint -> {
+                    rejectOnOverlap(room.getId(), reservationRequest);
+                    Reservation savedReservation = bookingConcurrencyStrategy.reserve(payload);
+                    //Write the item inside its own savepoint, nothing of it is left pending for the next item
+                    entityManager.flush();
+                    roomOccupancyIndex.reservationConfirmed(savedReservation);
+                    restaurantAvailabilityCache.reservationChanged(savedReservation);
+                    return savedReservation;
+                });
+                results[index] = BatchReservationResult.created(index, reservation);
+                createdReservations.add(reservation);
+            } catch (RoomNotAvailableException | ReservationFailedException exception) {
+                //Only the failed item's entities hold state rolled back with its savepoint, its payload and the room
+                //calendar rows it booked on. Earlier items of the part stay managed
+                if (entityManager.contains(payload)) {
+                    entityManager.detach(payload);
+                }
+                roomCalendarService.detachRoomCalendars(room, reservationRequest.reservationDate(),
+                        reservationRequest.reservationStartTime(), reservationRequest.reservationEndTime());
+                results[index] = BatchReservationResult.taken(index, exception.getMessage());
+            }
+        }
+        //Record Notifications for the created reservations of the part together
+        reservationOutboxService.recordReservationEvents(createdReservations);
+        return createdReservations;
+    }
+
+    private void validateBatchItem(ReservationRequest reservationRequest, Map<Long, Room> rooms, Map<Long, Restaurant> restaurants) {
+        Room room = rooms.get(reservationRequest.roomId());
+        if (room == null || !room.getRestaurant().getId().equals(reservationRequest.restaurantId())) {
+            throw new EntityNotFoundException("Room not found with room Id: " + reservationRequest.roomId());
+        }
+        if (!restaurants.containsKey(reservationRequest.restaurantId())) {
+            throw new EntityNotFoundException("Restaurant Not Found");
+        }
+        boolean validOperatingHours = reservationValidationService.validateRoomOperatingHours(room, reservationRequest.reservationDate(), reservationRequest.reservationStartTime(), reservationRequest.reservationEndTime());
+        if (!validOperatingHours) {
             throw new RoomNotAvailableException("Reservation is not within operating hours");
         }
-        //6. Validate Date and Time For Reservation
-        //   # Reservation Date >= today
-        //   # Reservation end time > reservation start time
         reservationValidationService.validateDateAndTime(reservationRequest);
+        reservationValidationService.validateRoomCapacity(room, reservationRequest.groupSize());
+    }
 
-        //7. Core Reservation Logic
-        Reservation reservation = createRoomReservation(restaurant, selectedRoom, reservationRequest);
-        //7. Emit Notification for reservation created
-        reservationEventProducer.sendReservationEvent(reservation);
-        return reservation;
+    /**
+     * Outcome of one item of a batch, reservation is set when created and error otherwise.
+     *
+     * @param roomTaken failed only because the room was booked or locked by others meanwhile, another room might
+     *                  still take the item
+     */
+    public record BatchReservationResult(int index, Reservation reservation, String error, boolean roomTaken) {
+        static BatchReservationResult created(int index, Reservation reservation) {
+            return new BatchReservationResult(index, reservation, null, false);
+        }
+
+        static BatchReservationResult failed(int index, String error) {
+            return new BatchReservationResult(index, null, error, false);
+        }
+
+        static BatchReservationResult taken(int index, String error) {
+            return new BatchReservationResult(index, null, error, true);
+        }
     }
 
-    private Reservation createRoomReservation(Restaurant restaurant, Room room, ReservationRequest reservationRequest) {
-        //1. Lock Room Calendar to prevent Double Booking
-        LocalDate reservationDate = reservationRequest.reservationDate();
-        RoomCalendar roomCalendar = lockRoomCalendarForReservationDate(room, reservationDate);
+    /**
+     * Where the booking strategy requires it, the room-day JVM lock is taken before the transaction is opened, so
+     * requests contending for the same room-day wait without holding a connection. Transaction commits before the
+     * lock is released. Other strategies book straight away, non overlapping bookings of a room-day do not wait.
+     * Inside the transaction the room is read with its restaurant in one statement, capacity and operating hours
+     * are checked again against it since the room view may be cached from before an update of the room.
+     * */
+    private Reservation createRoomReservation(RoomView roomView, ReservationRequest reservationRequest) {
+        //1. Reject early from occupancy index, before any lock is taken
+        rejectOnOverlap(roomView.roomId(), reservationRequest);
+        if (!bookingConcurrencyStrategy.requiresRoomDayLock()) {
+            return bookingConcurrencyStrategy.retryOnConflict(() ->
+                    transactionTemplate.execute(status -> reserveRoom(roomView, reservationRequest)));
+        }
 
-        //2. Verify any overlap with existing reservations
-        boolean overlap = reservationValidationService.checkOverlap(room, reservationDate, reservationRequest.reservationStartTime(), reservationRequest.reservationEndTime());
+        return roomDayLockManager.withRoomDayLock(roomView.roomId(), reservationRequest.reservationDate(),
+                reservationRequest.reservationStartTime(), reservationRequest.reservationEndTime(),
+                () -> {
+                    //2. Check again, request queued ahead on the same room-day might just have booked it
+                    rejectOnOverlap(roomView.roomId(), reservationRequest);
+                    return bookingConcurrencyStrategy.retryOnConflict(() ->
+                            transactionTemplate.execute(status -> reserveRoom(roomView, reservationRequest)));
+                });
+    }
 
-        //3. If overlap, fail the reservation
-        if (overlap) {
-            throw new RoomNotAvailableException("Room is not available for reservation at give time range");
+    /**
+     * Same as createRoomReservation for one auto assign candidate, except that both the room-day lock and the
+     * database row locks are waited on only for the auto assign lock timeout. A room held by another booking fails
+     * with RoomBusyException so the next candidate can be tried instead of queueing behind it.
+     * */
+    private Reservation createAutoAssignedReservation(RoomView roomView, ReservationRequest reservationRequest) {
+        rejectOnOverlap(roomView.roomId(), reservationRequest);
+        if (!bookingConcurrencyStrategy.requiresRoomDayLock()) {
+            return reserveRoomWithinLockTimeout(roomView, reservationRequest);
+        }
+
+        return roomDayLockManager.withRoomDayLock(roomView.roomId(), reservationRequest.reservationDate(),
+                reservationRequest.reservationStartTime(), reservationRequest.reservationEndTime(), autoAssignLockTimeout,
+                () -> {
+                    rejectOnOverlap(roomView.roomId(), reservationRequest);
+                    return reserveRoomWithinLockTimeout(roomView, reservationRequest);
+                });
+    }
+
+    private Reservation reserveRoomWithinLockTimeout(RoomView roomView, ReservationRequest reservationRequest) {
+        try {
+            return bookingConcurrencyStrategy.retryOnConflict(() -> transactionTemplate.execute(status -> {
+                roomCalendarService.limitLockWait(autoAssignLockTimeout);
+                return reserveRoom(roomView, reservationRequest);
+            }));
+        } catch (PessimisticLockingFailureException pessimisticLockingFailureException) {
+            throw new RoomBusyException("Room is busy with other reservations, please try again");
+        }
+    }
+
+    private Reservation reserveRoom(RoomView roomView, ReservationRequest reservationRequest) {
+        //3. Room view may be cached from before an update of the room, check again against the room read here
+        Room room = roomService.getBookingContext(roomView.roomId(), roomView.restaurantId());
+        boolean validOperatingHours = reservationValidationService.validateRoomOperatingHours(room, reservationRequest.reservationDate(), reservationRequest.reservationStartTime(), reservationRequest.reservationEndTime());
+        if (!validOperatingHours) {
+            throw new RoomNotAvailableException("Reservation is not within operating hours");
         }
+        reservationValidationService.validateRoomCapacity(room, reservationRequest.groupSize());
+
+        //4. Persist through the configured concurrency strategy, it prevents Double Booking
+        //   and fails the reservation if time range got taken meanwhile
+        Reservation reservation = createReservationPayload(reservationRequest, room.getRestaurant(), room);
+        Reservation savedReservation = bookingConcurrencyStrategy.reserve(reservation);
 
-        //4. Create Reservation Payload
-        Reservation reservation = createReservationPayload(reservationRequest, restaurant, room);
+        //5. Keep occupancy index and cached availability in step once transaction commits
+        roomOccupancyIndex.reservationConfirmed(savedReservation);
+        restaurantAvailabilityCache.reservationChanged(savedReservation);
 
-        //5. Create Reservation Record
-        return reservationRepository.save(reservation);
+        //6. Record Notification for reservation created, published by the outbox relay after commit
+        reservationOutboxService.recordReservationEvent(savedReservation);
+        return savedReservation;
+    }
+
+    private void rejectOnOverlap(Long roomId, ReservationRequest reservationRequest) {
+        boolean overlap = reservationValidationService.checkOverlap(roomId, reservationRequest.reservationDate(), reservationRequest.reservationStartTime(), reservationRequest.reservationEndTime());
+        if (overlap) {
+            throw new RoomNotAvailableException("Room is not available for reservation at give time range");
+        }
     }
 
     public List<Reservation> getReservationsByDiner(String email) {
@@ -151,7 +441,17 @@ public class ReservationService {
         return reservationRepository.findByDinerEmailAndRestaurantId(dinerEmail, restaurantId);
     }
 
+    /**
+     * Runs in its own transaction, run again as a whole where the booking strategy retries a conflicting release.
+     * */
     public void cancelReservation(Long reservationId) {
+        bookingConcurrencyStrategy.retryOnConflict(() -> transactionTemplate.execute(status -> {
+            cancel(reservationId);
+            return null;
+        }));
+    }
+
+    private void cancel(Long reservationId) {
         Reservation reservation = reservationRepository.findById(reservationId)
                 .orElseThrow(() -> new EntityNotFoundException("Reservation not found with reservation id: " + reservationId));
 
@@ -164,12 +464,18 @@ public class ReservationService {
             throw new ReservationFailedException("Reservation is already cancelled");
         }
 
+        bookingConcurrencyStrategy.release(reservation);
         reservation.setReservationStatus(ReservationStatus.CANCELLED);
-        reservationRepository.save(reservation);
-    }
-
-    private RoomCalendar lockRoomCalendarForReservationDate(Room room, LocalDate reservationDate) {
-        return roomCalendarService.lockRoomCalendarForReservationDate(room, reservationDate);
+        try {
+            //Flushed so that the event below carries the version of the cancellation
+            reservationRepository.saveAndFlush(reservation);
+        } catch (ObjectOptimisticLockingFailureException objectOptimisticLockingFailureException) {
+            throw new ReservationFailedException("Reservation is already cancelled");
+        }
+        roomOccupancyIndex.reservationCancelled(reservation);
+        restaurantAvailabilityCache.reservationChanged(reservation);
+        // Availability projection frees the slot from this event
+        reservationOutboxService.recordReservationEvent(reservation);
     }
 
     private Reservation createReservationPayload(ReservationRequest reservationRequest, Restaurant restaurant, Room room) {
@@ -0,0 +1,35 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import com.assignment.private_dining_reservation_system.entity.ReservationStatus;
+import com.assignment.private_dining_reservation_system.model.projection.RoomTimeSlot;
+import com.assignment.private_dining_reservation_system.repository.ReservationRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Default read model, reads the reservations table and sees a booking as soon as it commits.
+ * */
+@Service
+@ConditionalOnProperty(name = "reservation.availability.read-model", havingValue = "reservations", matchIfMissing = true)
+public class ReservationTableReadModel implements AvailabilityReadModel {
+
+    private final ReservationRepository reservationRepository;
+
+    public ReservationTableReadModel(ReservationRepository reservationRepository) {
+        this.reservationRepository = reservationRepository;
+    }
+
+    @Override
+    public List<RoomTimeSlot> findTimeSlots(Long restaurantId, LocalDate fromDate, LocalDate toDate) {
+        return reservationRepository.findTimeSlotsByRestaurantAndDateRange(restaurantId, fromDate, toDate, ReservationStatus.CONFIRMED);
+    }
+
+    @Override
+    public List<RoomTimeSlot> findTimeSlots(Long restaurantId, Collection<Long> roomIds, LocalDate fromDate, LocalDate toDate) {
+        return reservationRepository.findTimeSlotsByRoomsAndDateRange(restaurantId, roomIds, fromDate, toDate, ReservationStatus.CONFIRMED);
+    }
+}
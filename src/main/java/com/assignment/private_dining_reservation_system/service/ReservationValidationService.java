@@ -4,15 +4,18 @@ import com.assignment.private_dining_reservation_system.constants.Constants;
 import com.assignment.private_dining_reservation_system.entity.Reservation;
 import com.assignment.private_dining_reservation_system.entity.ReservationStatus;
 import com.assignment.private_dining_reservation_system.entity.Room;
-import com.assignment.private_dining_reservation_system.entity.RoomMetaData;
 import com.assignment.private_dining_reservation_system.exception.ReservationValidationFailureException;
+import com.assignment.private_dining_reservation_system.model.projection.OperatingSchedule;
+import com.assignment.private_dining_reservation_system.model.projection.RoomView;
 import com.assignment.private_dining_reservation_system.model.request.ReservationRequest;
+import com.assignment.private_dining_reservation_system.model.request.ReservationTimeFrame;
 import com.assignment.private_dining_reservation_system.repository.ReservationRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.time.*;
 import java.util.List;
+import java.util.Set;
 /**
  * Central place for all reservation validations
  * */
@@ -20,9 +23,13 @@ import java.util.List;
 @Service
 public class ReservationValidationService {
     private final ReservationRepository reservationRepository;
+    private final RoomOccupancyIndex roomOccupancyIndex;
+    private final RoomViewCache roomViewCache;
 
-    public ReservationValidationService(ReservationRepository reservationRepository) {
+    public ReservationValidationService(ReservationRepository reservationRepository, RoomOccupancyIndex roomOccupancyIndex, RoomViewCache roomViewCache) {
         this.reservationRepository = reservationRepository;
+        this.roomOccupancyIndex = roomOccupancyIndex;
+        this.roomViewCache = roomViewCache;
     }
 
     /**
@@ -31,6 +38,9 @@ public class ReservationValidationService {
      * Keeping logic in application will help us to move to any db in future
      * Secondly, based on private dining which is definitely booking for little larger time, the number of rows per day per room will be less
      * hence easy to keep the logic here
+     * Reserved time ranges are served from the in memory occupancy index, so no reservation entities are loaded to answer it.
+     * The index can be behind bookings and cancellations of other instances, so it is a pre-check only: an overlap is
+     * confirmed from the database before it is reported, and a free range is guarded by the booking strategy.
      *
      *
      * @param room, reservationDate, startTime, endTime
@@ -38,28 +48,24 @@ public class ReservationValidationService {
      *
      */
     public boolean checkOverlap(Room room, LocalDate reservationDate, LocalTime startTime, LocalTime endTime) {
-        //1. Get all reservations of same day to check overlap
-        List<Reservation> reservationsForSameDay = getReservationsByRoomReservationDateAndStatus(room, reservationDate);
-
-        LocalDateTime newReservationTime = reservationDate.atTime(startTime);
-        LocalDateTime newReservationEndTime = getFinalEndDateTime(reservationDate, startTime, endTime);
-        //2. Verify any overlap with existing reservations
-        for (Reservation reservation : reservationsForSameDay) {
-            LocalTime existingReservationStartTime = reservation.getReservationStartTime();
-            LocalTime existingReservationEndTime = reservation.getReservationEndTime();
-
-            LocalDate existingReservationDate = reservation.getReservationDate();
-            LocalDateTime existingStart = existingReservationDate.atTime(existingReservationStartTime);
-            LocalDateTime existingEnd = getFinalEndDateTime(existingReservationDate, existingReservationStartTime, existingReservationEndTime);
-            boolean overlap = newReservationTime.isBefore(existingEnd)
-                    && newReservationEndTime.isAfter(existingStart);
-
-            if (overlap) {
-                // 3. Overlap Exists -> Don't confirm this reservation.
-                return true;
-            }
-        }
-        return false;
+        return checkOverlap(room.getId(), reservationDate, startTime, endTime);
+    }
+
+    public boolean checkOverlap(Long roomId, LocalDate reservationDate, LocalTime startTime, LocalTime endTime) {
+        return roomOccupancyIndex.overlaps(roomId, reservationDate, startTime, endTime)
+                && roomOccupancyIndex.overlapsReloaded(roomId, reservationDate, startTime, endTime);
+    }
+
+    /**
+     * Rooms of the restaurant which are already reserved at any point of the time frame, in one query for all rooms.
+     * Reservations of the previous day crossing midnight are included, and when the time frame itself crosses midnight
+     * so are the reservations of the next day.
+     * */
+    public Set<Long> findConflictingRoomIds(Long restaurantId, ReservationTimeFrame reservationTimeFrame) {
+        LocalDate date = reservationTimeFrame.date();
+        LocalDateTime windowStart = date.atTime(reservationTimeFrame.startTime());
+        LocalDateTime windowEnd = getFinalEndDateTime(date, reservationTimeFrame.startTime(), reservationTimeFrame.endTime());
+        return Set.copyOf(reservationRepository.findConflictingRoomIds(restaurantId, date.minusDays(1), windowEnd.toLocalDate(), windowStart, windowEnd));
     }
 
     /**
@@ -82,10 +88,15 @@ public class ReservationValidationService {
      *
      */
     public void validateDateAndTime(ReservationRequest reservationRequest) {
+        validateDateAndTime(new ReservationTimeFrame(reservationRequest.reservationDate(),
+                reservationRequest.reservationStartTime(), reservationRequest.reservationEndTime()));
+    }
+
+    public void validateDateAndTime(ReservationTimeFrame reservationTimeFrame) {
         LocalDate today = LocalDate.now();
-        LocalDate reservationDate = reservationRequest.reservationDate();
-        LocalTime start = reservationRequest.reservationStartTime();
-        LocalTime end = reservationRequest.reservationEndTime();
+        LocalDate reservationDate = reservationTimeFrame.date();
+        LocalTime start = reservationTimeFrame.startTime();
+        LocalTime end = reservationTimeFrame.endTime();
 
         LocalDateTime reservationStartTime = reservationDate.atTime(start);
         LocalDateTime reservationEndTime = getFinalEndDateTime(reservationDate, start, end);
@@ -112,44 +123,58 @@ public class ReservationValidationService {
      *
      */
     public void validateRoomCapacity(Room room, int groupSize) {
-        if (groupSize > room.getMaxCapacity() || groupSize < room.getMinCapacity()) {
+        validateRoomCapacity(room.getMinCapacity(), room.getMaxCapacity(), groupSize);
+    }
+
+    /**
+     * Same as validateRoomCapacity against the cached room view, no entity is needed.
+     * */
+    public void validateRoomCapacity(RoomView roomView, int groupSize) {
+        validateRoomCapacity(roomView.minCapacity(), roomView.maxCapacity(), groupSize);
+    }
+
+    private void validateRoomCapacity(int minCapacity, int maxCapacity, int groupSize) {
+        if (!canServe(minCapacity, maxCapacity, groupSize)) {
             throw new ReservationValidationFailureException("Room is not suitable for your group");
         }
     }
 
     /**
-     * Validate whether reservation is within the opening closing time
+     * Capacity rule behind validateRoomCapacity, for callers filtering rooms rather than failing a booking,
+     * e.g. room allocation and availability search.
      * */
-    public boolean validateRoomOperatingHours(Room room, LocalDate reservationDate, LocalTime startTime, LocalTime endTime) {
-        RoomMetaData roomMetaData = room.getRoomMetaData();
-        if(roomMetaData == null){
-            log.debug("Room is not available");
-            return false;
-        }
-        //Check room is operating on that day of week
-        if(null != roomMetaData.getOpenDays() && !roomMetaData.getOpenDays().isEmpty()){
-            DayOfWeek dayOfWeek = reservationDate.getDayOfWeek();
-            if(!roomMetaData.getOpenDays().contains(dayOfWeek)){
-                log.debug("Room is not available on the request day");
-                return false;
-            }
-        }
-        LocalDateTime reservationStartTime = reservationDate.atTime(startTime);
-        LocalDateTime reservationEndTime = getFinalEndDateTime(reservationDate, startTime, endTime);
+    public static boolean canServe(Room room, int groupSize) {
+        return canServe(room.getMinCapacity(), room.getMaxCapacity(), groupSize);
+    }
 
-        LocalDateTime openReservationTime = reservationDate.atTime(roomMetaData.getRoomOpeningTime());
-        LocalDateTime closeReservationEndTime = getFinalEndDateTime(reservationDate, roomMetaData.getRoomOpeningTime(), roomMetaData.getRoomClosingTime());
+    private static boolean canServe(int minCapacity, int maxCapacity, int groupSize) {
+        return groupSize >= minCapacity && groupSize <= maxCapacity;
+    }
 
+    /**
+     * Validate whether reservation is within the opening closing time
+     * Checked against the schedule of the cached room view while the view matches the room row, so bookings and
+     * batch items do not compile the operating hours again, only a room changed since it was cached is compiled.
+     * */
+    public boolean validateRoomOperatingHours(Room room, LocalDate reservationDate, LocalTime startTime, LocalTime endTime) {
+        return validateRoomOperatingHours(roomViewCache.viewOf(room), reservationDate, startTime, endTime);
+    }
 
-        //check room is operating at request start time
-        if(reservationStartTime.isBefore(openReservationTime)){
-            log.debug("Room opens at: " + roomMetaData.getRoomOpeningTime());
+    /**
+     * Same as validateRoomOperatingHours against the cached room view, no entity is needed.
+     * Checked against the compiled schedule of the view, called for every room of an availability search.
+     * */
+    public boolean validateRoomOperatingHours(RoomView roomView, LocalDate reservationDate, LocalTime startTime, LocalTime endTime) {
+        if(!roomView.hasMetaData()){
+            log.debug("Room is not available");
             return false;
         }
+        return isOperating(roomView.roomId(), roomView.operatingSchedule(), reservationDate, startTime, endTime);
+    }
 
-        //
-        if(reservationEndTime.isAfter(closeReservationEndTime)){
-            log.debug("Room closes at: " + roomMetaData.getRoomClosingTime());
+    private boolean isOperating(Long roomId, OperatingSchedule operatingSchedule, LocalDate reservationDate, LocalTime startTime, LocalTime endTime) {
+        if (!operatingSchedule.isOpen(reservationDate.getDayOfWeek(), startTime, endTime)) {
+            log.debug("Room id: {} is not operating on {} from {} to {}", roomId, reservationDate, startTime, endTime);
             return false;
         }
         return true;
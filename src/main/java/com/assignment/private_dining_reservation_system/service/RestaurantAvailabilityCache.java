@@ -0,0 +1,261 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import com.assignment.private_dining_reservation_system.entity.Reservation;
+import com.assignment.private_dining_reservation_system.model.projection.RoomTimeSlot;
+import com.assignment.private_dining_reservation_system.model.projection.RoomView;
+import com.assignment.private_dining_reservation_system.repository.RoomRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rooms of a restaurant and their minute occupancy for one day, behind the available rooms endpoint.
+ * A day is loaded with two queries (rooms with metadata, time slots of the whole restaurant) instead of
+ * one occupancy load per room.
+ * <p>
+ * Bounded, the least recently used day is evicted once maximum size is reached.
+ * A booking or cancellation drops only the days it touches once its transaction commits, a room change drops the
+ * days of its restaurant. Changes made on other instances are picked up through the restaurant version, a day is
+ * kept with the version read before loading it and reloaded once the version moved on. The ttl only bounds how long
+ * a day is kept should an increment of the version get lost.
+ * A load racing with an invalidation of its own day is returned but not cached, so a dropped day is never put back
+ * stale, while loads of other days are cached as usual.
+ * Every invalidation also advances the restaurant version that response ETags are derived from, once the
+ * transaction making the change committed.
+ * Statistics are published with the micrometer cache meter names, tagged cache=restaurant-availability.
+ * */
+@Slf4j
+@Component
+public class RestaurantAvailabilityCache {
+    private static final String CACHE_NAME = "restaurant-availability";
+
+    private final RoomRepository roomRepository;
+    private final AvailabilityReadModel availabilityReadModel;
+    private final RestaurantVersionTracker restaurantVersionTracker;
+    private final int maximumSize;
+    private final long ttlNanos;
+    private final Map<RestaurantDay, CachedDay> entries;
+    /**
+     * Token of the latest load of each day in progress, guarded by entries. Invalidating a day drops its token,
+     * a load only caches its result while its token is still in place.
+     * */
+    private final Map<RestaurantDay, Object> loadsInFlight = new HashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public RestaurantAvailabilityCache(RoomRepository roomRepository,
+                                       AvailabilityReadModel availabilityReadModel,
+                                       RestaurantVersionTracker restaurantVersionTracker,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${reservation.availability-cache.maximum-size:1000}") int maximumSize,
+                                       @Value("${reservation.availability-cache.ttl:PT1M}") Duration ttl) {
+        this.roomRepository = roomRepository;
+        this.availabilityReadModel = availabilityReadModel;
+        this.restaurantVersionTracker = restaurantVersionTracker;
+        this.maximumSize = maximumSize;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<RestaurantDay, CachedDay> eldest) {
+                if (size() > RestaurantAvailabilityCache.this.maximumSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.hits = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "miss").register(meterRegistry);
+        this.evictions = Counter.builder("cache.evictions").tag("cache", CACHE_NAME).register(meterRegistry);
+        Gauge.builder("cache.size", this, RestaurantAvailabilityCache::size).tag("cache", CACHE_NAME).register(meterRegistry);
+    }
+
+    public DayAvailability get(Long restaurantId, LocalDate date) {
+        RestaurantDay restaurantDay = new RestaurantDay(restaurantId, date);
+        Object loadToken = new Object();
+        long version = restaurantVersionTracker.version(restaurantId);
+        synchronized (entries) {
+            CachedDay cachedDay = entries.get(restaurantDay);
+            if (cachedDay != null && cachedDay.version() == version
+                    && System.nanoTime() - cachedDay.dayAvailability().loadedAt() <= ttlNanos) {
+                hits.increment();
+                return cachedDay.dayAvailability();
+            }
+            loadsInFlight.put(restaurantDay, loadToken);
+        }
+        misses.increment();
+        DayAvailability dayAvailability = null;
+        try {
+            dayAvailability = load(restaurantId, date);
+            return dayAvailability;
+        } finally {
+            synchronized (entries) {
+                if (loadsInFlight.remove(restaurantDay, loadToken) && dayAvailability != null) {
+                    entries.put(restaurantDay, new CachedDay(dayAvailability, version));
+                }
+            }
+        }
+    }
+
+    /**
+     * Drop the days touched by a booked or cancelled reservation once the current transaction commits.
+     * */
+    public void reservationChanged(Reservation reservation) {
+        reservationChanged(reservation.getRestaurant().getId(), reservation.getReservationDate(),
+                reservation.getReservationStartTime(), reservation.getReservationEndTime());
+    }
+
+    /**
+     * Same as reservationChanged for a time slot which is not backed by a loaded reservation, used by the projector.
+     * */
+    public void reservationChanged(Long restaurantId, LocalDate reservationDate, LocalTime startTime, LocalTime endTime) {
+        boolean crossesMidnight = MinuteOfDay.endOf(startTime, endTime) > MinuteOfDay.MINUTES_PER_DAY;
+        restaurantVersionTracker.restaurantChanged(restaurantId);
+        afterCommit(() -> {
+            synchronized (entries) {
+                invalidate(new RestaurantDay(restaurantId, reservationDate));
+                if (crossesMidnight) {
+                    invalidate(new RestaurantDay(restaurantId, reservationDate.plusDays(1)));
+                }
+            }
+        });
+    }
+
+    /**
+     * Drop every day of the restaurant, used when its rooms change.
+     * */
+    public void invalidateRestaurant(Long restaurantId) {
+        restaurantVersionTracker.restaurantChanged(restaurantId);
+        afterCommit(() -> {
+            synchronized (entries) {
+                entries.keySet().removeIf(restaurantDay -> restaurantDay.restaurantId().equals(restaurantId));
+                loadsInFlight.keySet().removeIf(restaurantDay -> restaurantDay.restaurantId().equals(restaurantId));
+            }
+        });
+    }
+
+    /**
+     * Drop every day, used when the availability projection is rebuilt.
+     * */
+    public void invalidateAll() {
+        restaurantVersionTracker.allChanged();
+        afterCommit(() -> {
+            synchronized (entries) {
+                entries.clear();
+                loadsInFlight.clear();
+            }
+        });
+    }
+
+    /**
+     * Caller holds the entries lock.
+     * */
+    private void invalidate(RestaurantDay restaurantDay) {
+        entries.remove(restaurantDay);
+        loadsInFlight.remove(restaurantDay);
+    }
+
+    private int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Reservations of the previous day are read as well as they might run past midnight.
+     * */
+    private DayAvailability load(Long restaurantId, LocalDate date) {
+        List<RoomView> rooms = roomRepository.findAllWithMetaDataByRestaurantId(restaurantId).stream()
+                .map(RoomView::of)
+                .toList();
+        Map<Long, byte[]> occupancy = new HashMap<>();
+        for (RoomTimeSlot timeSlot : availabilityReadModel.findTimeSlots(
+                restaurantId, date.minusDays(1), date)) {
+            int start = MinuteOfDay.of(timeSlot.reservationStartTime());
+            int end = MinuteOfDay.endOf(timeSlot.reservationStartTime(), timeSlot.reservationEndTime());
+            if (date.equals(timeSlot.reservationDate())) {
+                occupancy.merge(timeSlot.roomId(), OccupancyBitmap.occupy(OccupancyBitmap.empty(), start, Math.min(end, MinuteOfDay.MINUTES_PER_DAY)),
+                        RestaurantAvailabilityCache::union);
+            } else if (end > MinuteOfDay.MINUTES_PER_DAY) {
+                occupancy.merge(timeSlot.roomId(), OccupancyBitmap.occupy(OccupancyBitmap.empty(), 0, end - MinuteOfDay.MINUTES_PER_DAY),
+                        RestaurantAvailabilityCache::union);
+            }
+        }
+        log.debug("Loaded availability of {} rooms for restaurant id: {} date: {}", rooms.size(), restaurantId, date);
+        return new DayAvailability(rooms, Map.copyOf(occupancy), System.nanoTime());
+    }
+
+    private static byte[] union(byte[] occupancy, byte[] other) {
+        byte[] merged = new byte[OccupancyBitmap.SIZE_IN_BYTES];
+        for (int i = 0; i < merged.length; i++) {
+            merged[i] = (byte) (occupancy[i] | other[i]);
+        }
+        return merged;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private record RestaurantDay(Long restaurantId, LocalDate date) {
+    }
+
+    /**
+     * @param version restaurant version read before the day was loaded
+     */
+    private record CachedDay(DayAvailability dayAvailability, long version) {
+    }
+
+    /**
+     * Immutable, rooms are ordered by id and rooms without reservations have no occupancy entry.
+     * */
+    public record DayAvailability(List<RoomView> rooms, Map<Long, byte[]> occupancy, long loadedAt) {
+        /**
+         * @param fromMinute inclusive
+         * @param toMinute   exclusive, at most end of the day
+         */
+        public boolean isFree(Long roomId, int fromMinute, int toMinute) {
+            byte[] roomOccupancy = occupancy.get(roomId);
+            return roomOccupancy == null || OccupancyBitmap.isFree(roomOccupancy, fromMinute, toMinute);
+        }
+
+        /**
+         * Free minutes of the room directly before toMinute, counted back no further than fromMinute.
+         * */
+        public int freeMinutesBefore(Long roomId, int fromMinute, int toMinute) {
+            byte[] roomOccupancy = occupancy.get(roomId);
+            return roomOccupancy == null ? Math.max(0, toMinute - fromMinute) : OccupancyBitmap.freeMinutesBefore(roomOccupancy, fromMinute, toMinute);
+        }
+
+        /**
+         * Free minutes of the room from fromMinute on, counted no further than toMinute.
+         * */
+        public int freeMinutesFrom(Long roomId, int fromMinute, int toMinute) {
+            byte[] roomOccupancy = occupancy.get(roomId);
+            return roomOccupancy == null ? Math.max(0, toMinute - fromMinute) : OccupancyBitmap.freeMinutesFrom(roomOccupancy, fromMinute, toMinute);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import com.assignment.private_dining_reservation_system.entity.RoomType;
+import com.assignment.private_dining_reservation_system.exception.ReservationValidationFailureException;
+import com.assignment.private_dining_reservation_system.mapper.RoomMapper;
+import com.assignment.private_dining_reservation_system.model.request.ReservationTimeFrame;
+import com.assignment.private_dining_reservation_system.model.response.AvailabilitySearchResponse;
+import com.assignment.private_dining_reservation_system.model.response.RestaurantAvailableRoomsResponse;
+import com.assignment.private_dining_reservation_system.model.response.RoomResponse;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Available rooms of many restaurants for one time frame, each restaurant evaluated on its own virtual thread.
+ * At most parallelism restaurants are evaluated at once so a search over every restaurant cannot take the whole
+ * connection pool. Restaurants not evaluated by the deadline are given up on and reported as incomplete, the rest of
+ * the result is still returned. Results can be taken whole or one restaurant at a time as each completes.
+ * Restaurants already running are not interrupted, an interrupt in the middle of a JDBC call closes the connection.
+ * Their queries run to completion and the result is dropped, waiting ones and ones not started yet are skipped.
+ * */
+@Slf4j
+@Service
+public class RestaurantAvailabilitySearchService {
+    private final RestaurantService restaurantService;
+    private final RestaurantAvailabilityService restaurantAvailabilityService;
+    private final ReservationValidationService reservationValidationService;
+    private final RoomMapper roomMapper;
+    private final ExecutorService executorService;
+    private final Semaphore permits;
+    private final long timeoutNanos;
+
+    public RestaurantAvailabilitySearchService(RestaurantService restaurantService,
+                                               RestaurantAvailabilityService restaurantAvailabilityService,
+                                               ReservationValidationService reservationValidationService,
+                                               RoomMapper roomMapper,
+                                               @Value("${reservation.availability.search.parallelism:16}") int parallelism,
+                                               @Value("${reservation.availability.search.timeout:PT2S}") Duration timeout) {
+        this.restaurantService = restaurantService;
+        this.restaurantAvailabilityService = restaurantAvailabilityService;
+        this.reservationValidationService = reservationValidationService;
+        this.roomMapper = roomMapper;
+        this.executorService = Executors.newVirtualThreadPerTaskExecutor();
+        this.permits = new Semaphore(parallelism);
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    /**
+     * Whole result at once, restaurants in the order they were asked for.
+     *
+     * @param restaurantIds null or empty searches every restaurant
+     * @param roomType      null matches any room type
+     * @param groupSize     null matches any capacity
+     */
+    public AvailabilitySearchResponse search(Collection<Long> restaurantIds, ReservationTimeFrame reservationTimeFrame,
+                                             RoomType roomType, Integer groupSize) {
+        AvailabilitySearch availabilitySearch = startSearch(restaurantIds, reservationTimeFrame, roomType, groupSize);
+        List<RestaurantAvailableRoomsResponse> restaurants = new ArrayList<>();
+        List<Long> incompleteRestaurantIds = availabilitySearch.forEachCompleted(restaurants::add);
+        restaurants.sort(Comparator.comparingInt(restaurant -> availabilitySearch.position(restaurant.restaurantId())));
+        incompleteRestaurantIds.sort(Comparator.comparingInt(availabilitySearch::position));
+        return new AvailabilitySearchResponse(restaurants, incompleteRestaurantIds, !incompleteRestaurantIds.isEmpty());
+    }
+
+    /**
+     * Validates the search and submits every restaurant, results are then taken in completion order from the
+     * returned search. The deadline starts now.
+     * */
+    public AvailabilitySearch startSearch(Collection<Long> restaurantIds, ReservationTimeFrame reservationTimeFrame,
+                                          RoomType roomType, Integer groupSize) {
+        validateSearch(reservationTimeFrame, groupSize);
+        long deadline = System.nanoTime() + timeoutNanos;
+        List<Long> searchedRestaurantIds = restaurantIds == null || restaurantIds.isEmpty()
+                ? restaurantService.getAllIds()
+                : List.copyOf(new LinkedHashSet<>(restaurantIds));
+        CompletionService<List<RoomResponse>> completionService = new ExecutorCompletionService<>(executorService);
+        Map<Future<List<RoomResponse>>, Long> searches = new LinkedHashMap<>();
+        AtomicBoolean abandoned = new AtomicBoolean();
+        for (Long restaurantId : searchedRestaurantIds) {
+            searches.put(completionService.submit(() -> searchRestaurant(restaurantId, reservationTimeFrame, roomType, groupSize, abandoned)), restaurantId);
+        }
+        return new AvailabilitySearch(searchedRestaurantIds, completionService, searches, abandoned, deadline);
+    }
+
+    /**
+     * Waiting for a permit parks the virtual thread only, a restaurant of an abandoned search gives the permit
+     * straight back without querying.
+     * */
+    private List<RoomResponse> searchRestaurant(Long restaurantId, ReservationTimeFrame reservationTimeFrame,
+                                                RoomType roomType, Integer groupSize, AtomicBoolean abandoned) throws InterruptedException {
+        permits.acquire();
+        try {
+            if (abandoned.get()) {
+                return List.of();
+            }
+            return restaurantAvailabilityService.findAvailableRoomsByRestaurantId(restaurantId, reservationTimeFrame).stream()
+                    .filter(room -> roomType == null || room.getRoomType() == roomType)
+                    .filter(room -> groupSize == null || ReservationValidationService.canServe(room, groupSize))
+                    .map(roomMapper::toResponse)
+                    .toList();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void validateSearch(ReservationTimeFrame reservationTimeFrame, Integer groupSize) {
+        if (reservationTimeFrame.date() == null || reservationTimeFrame.startTime() == null || reservationTimeFrame.endTime() == null) {
+            throw new ReservationValidationFailureException("Date, start time and end time are required.");
+        }
+        //Same date and time rules as a booking, a time frame nobody could book is not searched
+        reservationValidationService.validateDateAndTime(reservationTimeFrame);
+        if (groupSize != null && groupSize < 1) {
+            throw new ReservationValidationFailureException("Group size should be at least 1.");
+        }
+    }
+
+    /**
+     * Submitted restaurants of one search, read once.
+     * */
+    public static final class AvailabilitySearch {
+        private final Map<Long, Integer> positions = new HashMap<>();
+        private final CompletionService<List<RoomResponse>> completionService;
+        private final Map<Future<List<RoomResponse>>, Long> pending;
+        private final AtomicBoolean abandoned;
+        private final long deadline;
+
+        private AvailabilitySearch(List<Long> restaurantIds, CompletionService<List<RoomResponse>> completionService,
+                                   Map<Future<List<RoomResponse>>, Long> pending, AtomicBoolean abandoned, long deadline) {
+            for (int i = 0; i < restaurantIds.size(); i++) {
+                positions.put(restaurantIds.get(i), i);
+            }
+            this.completionService = completionService;
+            this.pending = pending;
+            this.abandoned = abandoned;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Hands over every restaurant with matching rooms as soon as it is evaluated. Restaurants still pending at
+         * the deadline are given up on, as are all remaining ones when the consumer fails, e.g. the client went away.
+         *
+         * @return ids of restaurants not evaluated, timed out or failed
+         */
+        public List<Long> forEachCompleted(Consumer<? super RestaurantAvailableRoomsResponse> consumer) {
+            List<Long> incompleteRestaurantIds = new ArrayList<>();
+            try {
+                while (!pending.isEmpty()) {
+                    Future<List<RoomResponse>> future = completionService.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    if (future == null) {
+                        break;
+                    }
+                    Long restaurantId = pending.remove(future);
+                    try {
+                        List<RoomResponse> rooms = future.get();
+                        if (!rooms.isEmpty()) {
+                            consumer.accept(new RestaurantAvailableRoomsResponse(restaurantId, rooms));
+                        }
+                    } catch (ExecutionException | CancellationException exception) {
+                        log.warn("Availability search failed for restaurant id: {}", restaurantId, exception.getCause());
+                        incompleteRestaurantIds.add(restaurantId);
+                    }
+                }
+            } catch (InterruptedException interruptedException) {
+                Thread.currentThread().interrupt();
+            } finally {
+                abandoned.set(true);
+                pending.keySet().forEach(future -> future.cancel(false));
+            }
+            incompleteRestaurantIds.addAll(pending.values());
+            pending.clear();
+            if (!incompleteRestaurantIds.isEmpty()) {
+                log.info("Availability search returned partial result, incomplete restaurant ids: {}", incompleteRestaurantIds);
+            }
+            return incompleteRestaurantIds;
+        }
+
+        private int position(Long restaurantId) {
+            return positions.getOrDefault(restaurantId, Integer.MAX_VALUE);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executorService.shutdownNow();
+    }
+}
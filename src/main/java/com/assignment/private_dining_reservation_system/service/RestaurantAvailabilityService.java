@@ -3,47 +3,106 @@ package com.assignment.private_dining_reservation_system.service;
 import com.assignment.private_dining_reservation_system.entity.Room;
 import com.assignment.private_dining_reservation_system.entity.RoomType;
 import com.assignment.private_dining_reservation_system.exception.ReservationValidationFailureException;
+import com.assignment.private_dining_reservation_system.model.projection.RoomView;
 import com.assignment.private_dining_reservation_system.model.request.ReservationTimeFrame;
+import com.assignment.private_dining_reservation_system.service.RestaurantAvailabilityCache.DayAvailability;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 @Service
 public class RestaurantAvailabilityService {
+    static final int ROOMS_PER_CHUNK = 50;
 
     private final RoomService roomService;
     private final ReservationValidationService reservationValidationService;
+    private final RestaurantAvailabilityCache restaurantAvailabilityCache;
 
-    public RestaurantAvailabilityService(RoomService roomService, ReservationValidationService reservationValidationService) {
+    public RestaurantAvailabilityService(RoomService roomService, ReservationValidationService reservationValidationService, RestaurantAvailabilityCache restaurantAvailabilityCache) {
         this.roomService = roomService;
         this.reservationValidationService = reservationValidationService;
+        this.restaurantAvailabilityCache = restaurantAvailabilityCache;
     }
 
+    /**
+     * Rooms are filtered on the cached availability of the day, only the available rooms are loaded.
+     * */
     public List<Room> findAvailableRoomsByRestaurantId(Long restaurantId, ReservationTimeFrame reservationTimeFrame) {
+        List<Long> availableRoomIds = findAvailableRoomIds(restaurantId, reservationTimeFrame);
+        if (availableRoomIds.isEmpty()) {
+            return List.of();
+        }
+        return getByIdsInOrder(availableRoomIds);
+    }
+
+    /**
+     * Same as findAvailableRoomsByRestaurantId, available room ids are found right away from the cache while
+     * rooms are loaded ROOMS_PER_CHUNK at a time as the stream reaches them.
+     * */
+    public Stream<Room> streamAvailableRoomsByRestaurantId(Long restaurantId, ReservationTimeFrame reservationTimeFrame) {
+        List<Long> availableRoomIds = findAvailableRoomIds(restaurantId, reservationTimeFrame);
+        return IntStream.iterate(0, from -> from < availableRoomIds.size(), from -> from + ROOMS_PER_CHUNK)
+                .mapToObj(from -> availableRoomIds.subList(from, Math.min(from + ROOMS_PER_CHUNK, availableRoomIds.size())))
+                .flatMap(roomIds -> getByIdsInOrder(roomIds).stream());
+    }
+
+    private List<Long> findAvailableRoomIds(Long restaurantId, ReservationTimeFrame reservationTimeFrame) {
         if (LocalDate.now().isAfter(reservationTimeFrame.date())) {
             throw new ReservationValidationFailureException("Reservation date cannot be in past.");
         }
-        List<Room> rooms = roomService.getRoomsForRestaurant(restaurantId);
-        return rooms.stream()
-                .filter(room -> reservationValidationService.validateRoomOperatingHours(room,reservationTimeFrame.date(), reservationTimeFrame.startTime(), reservationTimeFrame.endTime()))
-                .filter(room -> isRoomAvailableForSlot(room, reservationTimeFrame))
+        int start = MinuteOfDay.of(reservationTimeFrame.startTime());
+        int end = MinuteOfDay.endOf(reservationTimeFrame.startTime(), reservationTimeFrame.endTime());
+        DayAvailability dayAvailability = restaurantAvailabilityCache.get(restaurantId, reservationTimeFrame.date());
+        //Midnight crossed, remaining part has to be free on the next day as well
+        DayAvailability nextDayAvailability = end > MinuteOfDay.MINUTES_PER_DAY
+                ? restaurantAvailabilityCache.get(restaurantId, reservationTimeFrame.date().plusDays(1))
+                : null;
+        return dayAvailability.rooms().stream()
+                .filter(roomView -> reservationValidationService.validateRoomOperatingHours(roomView, reservationTimeFrame.date(), reservationTimeFrame.startTime(), reservationTimeFrame.endTime()))
+                .map(RoomView::roomId)
+                .filter(roomId -> dayAvailability.isFree(roomId, start, Math.min(end, MinuteOfDay.MINUTES_PER_DAY)))
+                .filter(roomId -> nextDayAvailability == null || nextDayAvailability.isFree(roomId, 0, end - MinuteOfDay.MINUTES_PER_DAY))
                 .toList();
     }
 
-    public List<Room> findAvailableRoomsByRestaurantAndRoomType(Long restaurantId, RoomType roomType, ReservationTimeFrame reservationTimeFrame) {
+    /**
+     * Rooms in the order of the ids, ids of rooms removed meanwhile are skipped.
+     * */
+    private List<Room> getByIdsInOrder(List<Long> roomIds) {
+        Map<Long, Room> rooms = roomService.getByIds(roomIds).stream()
+                .collect(Collectors.toMap(Room::getId, Function.identity()));
+        return roomIds.stream()
+                .map(rooms::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /**
+     * Candidates of an auto assigned reservation in two queries whatever the number of room types: rooms of the
+     * types able to serve the group, ranked tightest fit first, and the conflicting room ids of the restaurant.
+     * Conflicts are not read when no room fits.
+     * */
+    public List<Room> findAvailableRoomsByRestaurantAndRoomTypes(Long restaurantId, Collection<RoomType> roomTypes, int groupSize, ReservationTimeFrame reservationTimeFrame) {
         if (LocalDate.now().isAfter(reservationTimeFrame.date())) {
             throw new ReservationValidationFailureException("Reservation date cannot be in past.");
         }
-        List<Room> rooms = roomService.getByRoomTypeAndRestaurantId(roomType, restaurantId);
+        List<Room> rooms = roomService.getByRoomTypesAndRestaurantIdAndGroupSize(roomTypes, restaurantId, groupSize);
+        if (rooms.isEmpty()) {
+            return rooms;
+        }
+        //One query for the whole restaurant instead of an overlap check per room
+        Set<Long> conflictingRoomIds = reservationValidationService.findConflictingRoomIds(restaurantId, reservationTimeFrame);
         return rooms.stream()
-                .filter(room -> isRoomAvailableForSlot(room, reservationTimeFrame))
+                .filter(room -> !conflictingRoomIds.contains(room.getId()))
                 .toList();
     }
-
-    private boolean isRoomAvailableForSlot(Room room, ReservationTimeFrame reservationTimeFrame) {
-        boolean overlap = reservationValidationService
-                .checkOverlap(room, reservationTimeFrame.date(), reservationTimeFrame.startTime(), reservationTimeFrame.endTime());
-        return !overlap;
-    }
 }
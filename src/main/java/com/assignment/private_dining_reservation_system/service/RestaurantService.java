@@ -8,6 +8,7 @@ import com.assignment.private_dining_reservation_system.model.request.RoomReques
 import com.assignment.private_dining_reservation_system.repository.RestaurantRepository;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.List;
 
 @Service
@@ -36,6 +37,14 @@ public class RestaurantService {
         return restaurantRepository.findById(restaurantId).orElseThrow(() -> new EntityNotFoundException("Restaurant Not Found"));
     }
 
+    public List<Restaurant> getByIds(Collection<Long> restaurantIds) {
+        return restaurantRepository.findAllById(restaurantIds);
+    }
+
+    public List<Long> getAllIds() {
+        return restaurantRepository.findAllIds();
+    }
+
     public Restaurant updateRestaurant(Long restaurantId, RestaurantRequest restaurantRequest) {
         Restaurant restaurant = getById(restaurantId);
         restaurant.setRestaurantName(restaurantRequest.restaurantName());
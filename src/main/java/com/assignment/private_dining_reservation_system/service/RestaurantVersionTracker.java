@@ -0,0 +1,123 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import com.assignment.private_dining_reservation_system.repository.RestaurantRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Version of what room and availability responses of a restaurant show, ETags are derived from it so polling
+ * clients get a 304 after a single primary key read. Availability caches check it as well, so a day cached on
+ * any instance is reloaded once the restaurant changed.
+ * The version is the availability_version column of the restaurant, advanced after every room change, booking
+ * and cancellation commits, so every instance derives the same tag and a restart changes nothing.
+ * <p>
+ * The restaurant row is only updated in a short transaction of its own once the change committed, so bookings of
+ * a restaurant never queue on its row, nor fail on the lock timeout of an auto assign. Responses read the version
+ * before their data, a response built between the commit and the increment is tagged with the old version and
+ * replaced on the next poll.
+ * */
+@Slf4j
+@Component
+public class RestaurantVersionTracker {
+    private final RestaurantRepository restaurantRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public RestaurantVersionTracker(RestaurantRepository restaurantRepository, PlatformTransactionManager transactionManager) {
+        this.restaurantRepository = restaurantRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Advance the version of the restaurant once the current transaction commits, or right away when there is none.
+     * */
+    public void restaurantChanged(Long restaurantId) {
+        VersionIncrement versionIncrement = pendingIncrement();
+        if (versionIncrement == null) {
+            increment(Set.of(restaurantId), false);
+            return;
+        }
+        versionIncrement.restaurantIds.add(restaurantId);
+    }
+
+    /**
+     * Every restaurant changed, used when the availability projection is rebuilt.
+     * */
+    public void allChanged() {
+        VersionIncrement versionIncrement = pendingIncrement();
+        if (versionIncrement == null) {
+            increment(Set.of(), true);
+            return;
+        }
+        versionIncrement.all = true;
+    }
+
+    public long version(Long restaurantId) {
+        return restaurantRepository.findAvailabilityVersionById(restaurantId).orElse(0L);
+    }
+
+    /**
+     * Strong ETag of a restaurant response, read it before running the queries of the response.
+     *
+     * @param variant what else the response depends on besides the restaurant data, e.g. the resolved time frame
+     */
+    public String eTag(Long restaurantId, String variant) {
+        return "\"%d-%08x\"".formatted(version(restaurantId), variant.hashCode());
+    }
+
+    /**
+     * @return null without a transaction to wait for
+     */
+    private VersionIncrement pendingIncrement() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        return TransactionSynchronizationManager.getSynchronizations().stream()
+                .filter(VersionIncrement.class::isInstance)
+                .map(VersionIncrement.class::cast)
+                .findFirst()
+                .orElseGet(() -> {
+                    VersionIncrement versionIncrement = new VersionIncrement();
+                    TransactionSynchronizationManager.registerSynchronization(versionIncrement);
+                    return versionIncrement;
+                });
+    }
+
+    /**
+     * The change is committed already, a failure here is only logged and tags catch up with the next change.
+     * */
+    private void increment(Set<Long> restaurantIds, boolean all) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (all) {
+                    restaurantRepository.incrementAllAvailabilityVersions();
+                } else {
+                    restaurantIds.forEach(restaurantRepository::incrementAvailabilityVersion);
+                }
+            });
+        } catch (RuntimeException exception) {
+            log.warn("Availability version of restaurant ids: {} not advanced: {}", all ? "all" : restaurantIds, exception.getMessage());
+        }
+    }
+
+    /**
+     * Restaurants changed by one transaction, advanced in id order in one transaction after it committed.
+     * */
+    private final class VersionIncrement implements TransactionSynchronization {
+        private final Set<Long> restaurantIds = new TreeSet<>();
+        private boolean all;
+
+        @Override
+        public void afterCommit() {
+            increment(restaurantIds, all);
+        }
+    }
+}
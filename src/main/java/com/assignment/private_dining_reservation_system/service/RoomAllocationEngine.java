@@ -0,0 +1,19 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import com.assignment.private_dining_reservation_system.entity.Room;
+import com.assignment.private_dining_reservation_system.model.request.ReservationTimeFrame;
+
+import java.util.List;
+
+/**
+ * Picks the room an auto assigned reservation is booked into.
+ * Implementation is picked with reservation.allocation.engine so that allocation policies can be compared.
+ * */
+public interface RoomAllocationEngine {
+
+    /**
+     * @param candidates rooms of the restaurant free for the whole time frame
+     * @return every candidate able to serve the group, most preferred first, empty when no candidate can
+     */
+    List<Room> rank(Long restaurantId, List<Room> candidates, ReservationTimeFrame reservationTimeFrame, int groupSize);
+}
@@ -0,0 +1,48 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import com.assignment.private_dining_reservation_system.entity.Reservation;
+import com.assignment.private_dining_reservation_system.exception.RoomNotAvailableException;
+import com.assignment.private_dining_reservation_system.repository.ReservationRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+/**
+ * Default strategy, every booking of a room-day is serialized behind the room calendar row lock
+ * and checked against the occupancy bitmap of the locked row.
+ * */
+@Service
+@ConditionalOnProperty(name = "reservation.concurrency.strategy", havingValue = "room-calendar-lock", matchIfMissing = true)
+public class RoomCalendarLockBookingStrategy implements BookingConcurrencyStrategy {
+
+    private final RoomCalendarService roomCalendarService;
+    private final ReservationRepository reservationRepository;
+
+    public RoomCalendarLockBookingStrategy(RoomCalendarService roomCalendarService, ReservationRepository reservationRepository) {
+        this.roomCalendarService = roomCalendarService;
+        this.reservationRepository = reservationRepository;
+    }
+
+    @Override
+    public Reservation reserve(Reservation reservation) {
+        boolean reserved = roomCalendarService.reserveOccupancy(reservation.getRoom(), reservation.getReservationDate(),
+                reservation.getReservationStartTime(), reservation.getReservationEndTime());
+        if (!reserved) {
+            throw new RoomNotAvailableException("Room is not available for reservation at give time range");
+        }
+        return reservationRepository.save(reservation);
+    }
+
+    @Override
+    public void release(Reservation reservation) {
+        roomCalendarService.releaseOccupancy(reservation.getRoom(), reservation.getReservationDate(),
+                reservation.getReservationStartTime(), reservation.getReservationEndTime());
+    }
+
+    /**
+     * Bookings of a room-day wait for each other on the row lock anyway, better without a connection.
+     * */
+    @Override
+    public boolean requiresRoomDayLock() {
+        return true;
+    }
+}
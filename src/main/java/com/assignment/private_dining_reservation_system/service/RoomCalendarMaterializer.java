@@ -0,0 +1,111 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import com.assignment.private_dining_reservation_system.constants.Constants;
+import com.assignment.private_dining_reservation_system.entity.Room;
+import com.assignment.private_dining_reservation_system.model.projection.OperatingSchedule;
+import com.assignment.private_dining_reservation_system.model.projection.RoomOpenDay;
+import com.assignment.private_dining_reservation_system.repository.RoomRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps room calendar rows created ahead of bookings for the whole advance booking window,
+ * so the booking path only has to lock an existing row.
+ * Rows are created for every open day and the day after it, as a reservation running past midnight locks that day too.
+ * Rooms with empty open days are open every day, same rule as OperatingSchedule.
+ * <p>
+ * Inserts ignore existing rows, the job is safe to run on every instance and as often as needed.
+ * Rows of days which are no longer open are left in place, they are never locked.
+ * */
+@Slf4j
+@Component
+public class RoomCalendarMaterializer {
+    private static final String INSERT_ROOM_CALENDAR = """
+            insert into room_calendar (room_id, reservation_date, version, created_at, updated_at)
+            values (?, ?, 0, ?, ?)
+            on conflict (room_id, reservation_date) do nothing
+            """;
+
+    private final RoomRepository roomRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public RoomCalendarMaterializer(RoomRepository roomRepository,
+                                    JdbcTemplate jdbcTemplate,
+                                    @Value("${reservation.room-calendar.materialization.batch-size:500}") int batchSize) {
+        this.roomRepository = roomRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Runs once on start up and then daily to open the new last day of the window.
+     * */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${reservation.room-calendar.materialization.cron:0 5 0 * * *}")
+    public void materializeAll() {
+        LocalDate today = LocalDate.now();
+        long roomCount = 0;
+        List<Long> roomIds = roomRepository.findIdsAfter(0L, PageRequest.ofSize(batchSize));
+        while (!roomIds.isEmpty()) {
+            Map<Long, Set<DayOfWeek>> openDaysByRoom = new HashMap<>();
+            for (RoomOpenDay roomOpenDay : roomRepository.findOpenDaysByRoomIds(roomIds)) {
+                Set<DayOfWeek> openDays = openDaysByRoom.computeIfAbsent(roomOpenDay.roomId(), roomId -> EnumSet.noneOf(DayOfWeek.class));
+                //Room without open days, still present with an empty set
+                if (roomOpenDay.dayOfWeek() != null) {
+                    openDays.add(roomOpenDay.dayOfWeek());
+                }
+            }
+            List<Object[]> rows = new ArrayList<>();
+            openDaysByRoom.forEach((roomId, openDays) -> addRows(rows, roomId, openDays, today));
+            insert(rows);
+            roomCount += roomIds.size();
+            roomIds = roomRepository.findIdsAfter(roomIds.get(roomIds.size() - 1), PageRequest.ofSize(batchSize));
+        }
+        log.info("Room calendar materialized for {} rooms from {}", roomCount, today);
+    }
+
+    /**
+     * Used when a room is created or its open days change.
+     * */
+    public void materialize(Room room) {
+        List<Object[]> rows = new ArrayList<>();
+        addRows(rows, room.getId(), room.getRoomMetaData().getOpenDays(), LocalDate.now());
+        insert(rows);
+    }
+
+    private void addRows(List<Object[]> rows, Long roomId, Set<DayOfWeek> openDays, LocalDate today) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        LocalDate lastDate = today.plusDays(Constants.advanceBookingDays + 1);
+        for (LocalDate date = today; !date.isAfter(lastDate); date = date.plusDays(1)) {
+            if (OperatingSchedule.isOpenDay(openDays, date.getDayOfWeek())
+                    || OperatingSchedule.isOpenDay(openDays, date.getDayOfWeek().minus(1))) {
+                rows.add(new Object[]{roomId, Date.valueOf(date), now, now});
+            }
+        }
+    }
+
+    private void insert(List<Object[]> rows) {
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            jdbcTemplate.batchUpdate(INSERT_ROOM_CALENDAR, rows.subList(from, Math.min(from + batchSize, rows.size())));
+        }
+    }
+}
@@ -1,25 +1,56 @@
 package com.assignment.private_dining_reservation_system.service;
 
+import com.assignment.private_dining_reservation_system.entity.ReservationStatus;
 import com.assignment.private_dining_reservation_system.entity.Room;
 import com.assignment.private_dining_reservation_system.entity.RoomCalendar;
 import com.assignment.private_dining_reservation_system.exception.EntityNotFoundException;
+import com.assignment.private_dining_reservation_system.model.projection.ReservationTimeSlot;
+import com.assignment.private_dining_reservation_system.model.projection.RoomCalendarSnapshot;
+import com.assignment.private_dining_reservation_system.repository.ReservationRepository;
 import com.assignment.private_dining_reservation_system.repository.RoomCalendarRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionImplementor;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Map;
 
 @Service
 public class RoomCalendarService {
 
+    public enum OccupancyUpdate {
+        APPLIED, OCCUPIED, VERSION_CONFLICT
+    }
+
     private final RoomCalendarRepository roomCalendarRepository;
+    private final ReservationRepository reservationRepository;
+    private final EntityManager entityManager;
 
-    public RoomCalendarService(RoomCalendarRepository roomCalendarRepository) {
+    public RoomCalendarService(RoomCalendarRepository roomCalendarRepository, ReservationRepository reservationRepository, EntityManager entityManager) {
         this.roomCalendarRepository = roomCalendarRepository;
+        this.reservationRepository = reservationRepository;
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Row locks taken later in the current transaction wait at most the timeout, after which the statement fails
+     * with a PessimisticLockingFailureException. Applies to whichever booking strategy runs in the transaction.
+     * */
+    public void limitLockWait(Duration timeout) {
+        roomCalendarRepository.setLocalLockTimeout(Math.max(1, timeout.toMillis()) + "ms");
     }
 
+    /**
+     * Rows are normally created ahead by RoomCalendarMaterializer, insert here only covers a row
+     * the job has not reached yet.
+     * */
     public RoomCalendar lockRoomCalendarForReservationDate(Room room, LocalDate reservationDate) {
-        return roomCalendarRepository.findByRoomAndReservationDateForUpdate(room, reservationDate)
+        RoomCalendar roomCalendar = roomCalendarRepository.findByRoomAndReservationDateForUpdate(room, reservationDate)
                 .orElseGet(() -> {
                     RoomCalendar newRoomCalendar = new RoomCalendar();
                     newRoomCalendar.setReservationDate(reservationDate);
@@ -31,5 +62,166 @@ public class RoomCalendarService {
                                 .orElseThrow(() -> new EntityNotFoundException("Unable to acquire lock as other transaction might have consumed it."));
                     }
                 });
+        if (roomCalendar.getOccupancy() == null) {
+            roomCalendar.setOccupancy(buildOccupancy(room, reservationDate));
+        }
+        return roomCalendar;
+    }
+
+    /**
+     * Reserve the time range on the occupancy bitmap of locked room calendar rows.
+     * Reservation crossing midnight locks the next day as well, rows are always locked in date order.
+     *
+     * @return false if any minute of the range is already occupied, nothing is updated in that case
+     */
+    public boolean reserveOccupancy(Room room, LocalDate reservationDate, LocalTime startTime, LocalTime endTime) {
+        int start = MinuteOfDay.of(startTime);
+        int end = MinuteOfDay.endOf(startTime, endTime);
+        RoomCalendar roomCalendar = lockRoomCalendarForReservationDate(room, reservationDate);
+        RoomCalendar nextDayRoomCalendar = end > MinuteOfDay.MINUTES_PER_DAY
+                ? lockRoomCalendarForReservationDate(room, reservationDate.plusDays(1))
+                : null;
+
+        if (!OccupancyBitmap.isFree(roomCalendar.getOccupancy(), start, Math.min(end, MinuteOfDay.MINUTES_PER_DAY))) {
+            return false;
+        }
+        if (nextDayRoomCalendar != null
+                && !OccupancyBitmap.isFree(nextDayRoomCalendar.getOccupancy(), 0, end - MinuteOfDay.MINUTES_PER_DAY)) {
+            return false;
+        }
+
+        roomCalendar.setOccupancy(OccupancyBitmap.occupy(roomCalendar.getOccupancy(), start, Math.min(end, MinuteOfDay.MINUTES_PER_DAY)));
+        roomCalendarRepository.save(roomCalendar);
+        if (nextDayRoomCalendar != null) {
+            nextDayRoomCalendar.setOccupancy(OccupancyBitmap.occupy(nextDayRoomCalendar.getOccupancy(), 0, end - MinuteOfDay.MINUTES_PER_DAY));
+            roomCalendarRepository.save(nextDayRoomCalendar);
+        }
+        return true;
+    }
+
+    /**
+     * Free the time range of a cancelled reservation, same locking order as reservation.
+     */
+    public void releaseOccupancy(Room room, LocalDate reservationDate, LocalTime startTime, LocalTime endTime) {
+        int start = MinuteOfDay.of(startTime);
+        int end = MinuteOfDay.endOf(startTime, endTime);
+        RoomCalendar roomCalendar = lockRoomCalendarForReservationDate(room, reservationDate);
+        roomCalendar.setOccupancy(OccupancyBitmap.release(roomCalendar.getOccupancy(), start, Math.min(end, MinuteOfDay.MINUTES_PER_DAY)));
+        roomCalendarRepository.save(roomCalendar);
+        if (end > MinuteOfDay.MINUTES_PER_DAY) {
+            RoomCalendar nextDayRoomCalendar = lockRoomCalendarForReservationDate(room, reservationDate.plusDays(1));
+            nextDayRoomCalendar.setOccupancy(OccupancyBitmap.release(nextDayRoomCalendar.getOccupancy(), 0, end - MinuteOfDay.MINUTES_PER_DAY));
+            roomCalendarRepository.save(nextDayRoomCalendar);
+        }
+    }
+
+    /**
+     * Evict the rows of the time range from the persistence context, for a caller which rolled back to a savepoint
+     * after booking on them. Rows locked, updated or created since the savepoint would keep state the database no
+     * longer has, they are read again on next lock. Looked up in the persistence context rather than queried, since
+     * a row created since the savepoint is gone from the database.
+     */
+    public void detachRoomCalendars(Room room, LocalDate reservationDate, LocalTime startTime, LocalTime endTime) {
+        int end = MinuteOfDay.endOf(startTime, endTime);
+        LocalDate lastDate = end > MinuteOfDay.MINUTES_PER_DAY ? reservationDate.plusDays(1) : reservationDate;
+        Map.Entry<Object, EntityEntry>[] entityEntries = entityManager.unwrap(SessionImplementor.class)
+                .getPersistenceContextInternal().reentrantSafeEntityEntries();
+        for (Map.Entry<Object, EntityEntry> entityEntry : entityEntries) {
+            if (entityEntry.getKey() instanceof RoomCalendar roomCalendar
+                    && room.getId().equals(roomCalendar.getRoom().getId())
+                    && !roomCalendar.getReservationDate().isBefore(reservationDate)
+                    && !roomCalendar.getReservationDate().isAfter(lastDate)) {
+                entityManager.detach(roomCalendar);
+            }
+        }
+    }
+
+    /**
+     * For strategies which do not keep the bitmap, drop it on the days of the time range so that it cannot go stale.
+     * The bitmap strategies rebuild it from the confirmed reservations, the version bump fails their pending compare and set.
+     */
+    public void discardOccupancy(Room room, LocalDate reservationDate, LocalTime startTime, LocalTime endTime) {
+        int end = MinuteOfDay.endOf(startTime, endTime);
+        LocalDate lastDate = end > MinuteOfDay.MINUTES_PER_DAY ? reservationDate.plusDays(1) : reservationDate;
+        roomCalendarRepository.clearOccupancy(room.getId(), reservationDate, lastDate, LocalDateTime.now());
+    }
+
+    /**
+     * Optimistic variant of reserveOccupancy, rows are read without lock and written with a version check.
+     * Caller decides whether to retry on VERSION_CONFLICT.
+     */
+    public OccupancyUpdate compareAndReserveOccupancy(Room room, LocalDate reservationDate, LocalTime startTime, LocalTime endTime) {
+        return compareAndUpdateOccupancy(room, reservationDate, startTime, endTime, true);
+    }
+
+    /**
+     * Optimistic variant of releaseOccupancy.
+     */
+    public OccupancyUpdate compareAndReleaseOccupancy(Room room, LocalDate reservationDate, LocalTime startTime, LocalTime endTime) {
+        return compareAndUpdateOccupancy(room, reservationDate, startTime, endTime, false);
+    }
+
+    private OccupancyUpdate compareAndUpdateOccupancy(Room room, LocalDate reservationDate, LocalTime startTime, LocalTime endTime, boolean reserve) {
+        int start = MinuteOfDay.of(startTime);
+        int end = MinuteOfDay.endOf(startTime, endTime);
+        int dayEnd = Math.min(end, MinuteOfDay.MINUTES_PER_DAY);
+        int nextDayEnd = end - MinuteOfDay.MINUTES_PER_DAY;
+
+        RoomCalendarSnapshot snapshot = readSnapshot(room, reservationDate);
+        RoomCalendarSnapshot nextDaySnapshot = nextDayEnd > 0 ? readSnapshot(room, reservationDate.plusDays(1)) : null;
+        byte[] occupancy = currentOccupancy(room, snapshot);
+        byte[] nextDayOccupancy = nextDaySnapshot != null ? currentOccupancy(room, nextDaySnapshot) : null;
+
+        if (reserve && (!OccupancyBitmap.isFree(occupancy, start, dayEnd)
+                || (nextDayOccupancy != null && !OccupancyBitmap.isFree(nextDayOccupancy, 0, nextDayEnd)))) {
+            return OccupancyUpdate.OCCUPIED;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        byte[] updated = reserve ? OccupancyBitmap.occupy(occupancy, start, dayEnd) : OccupancyBitmap.release(occupancy, start, dayEnd);
+        if (roomCalendarRepository.compareAndSetOccupancy(snapshot.id(), snapshot.version(), updated, now) == 0) {
+            return OccupancyUpdate.VERSION_CONFLICT;
+        }
+        if (nextDayOccupancy != null) {
+            byte[] nextDayUpdated = reserve ? OccupancyBitmap.occupy(nextDayOccupancy, 0, nextDayEnd) : OccupancyBitmap.release(nextDayOccupancy, 0, nextDayEnd);
+            if (roomCalendarRepository.compareAndSetOccupancy(nextDaySnapshot.id(), nextDaySnapshot.version(), nextDayUpdated, now) == 0) {
+                //First day row is locked by our own update until commit, so undo always applies
+                roomCalendarRepository.compareAndSetOccupancy(snapshot.id(), snapshot.version() + 1, snapshot.occupancy(), now);
+                return OccupancyUpdate.VERSION_CONFLICT;
+            }
+        }
+        return OccupancyUpdate.APPLIED;
+    }
+
+    private RoomCalendarSnapshot readSnapshot(Room room, LocalDate reservationDate) {
+        return roomCalendarRepository.findSnapshotByRoomIdAndReservationDate(room.getId(), reservationDate)
+                .orElseGet(() -> {
+                    roomCalendarRepository.insertIfAbsent(room.getId(), reservationDate, LocalDateTime.now());
+                    return roomCalendarRepository.findSnapshotByRoomIdAndReservationDate(room.getId(), reservationDate)
+                            .orElseThrow(() -> new EntityNotFoundException("Room calendar not found for room id: " + room.getId()));
+                });
+    }
+
+    private byte[] currentOccupancy(Room room, RoomCalendarSnapshot snapshot) {
+        return snapshot.occupancy() != null ? snapshot.occupancy() : buildOccupancy(room, snapshot.reservationDate());
+    }
+
+    /**
+     * Rows created before the bitmap existed, or created on demand, are filled once from the confirmed reservations.
+     * With the row lock held reservations cannot change meanwhile, without it the version check catches any change.
+     * */
+    private byte[] buildOccupancy(Room room, LocalDate reservationDate) {
+        byte[] occupancy = OccupancyBitmap.empty();
+        for (ReservationTimeSlot timeSlot : reservationRepository.findTimeSlotsByRoomAndDateRange(
+                room.getId(), reservationDate.minusDays(1), reservationDate, ReservationStatus.CONFIRMED)) {
+            int start = MinuteOfDay.of(timeSlot.reservationStartTime());
+            int end = MinuteOfDay.endOf(timeSlot.reservationStartTime(), timeSlot.reservationEndTime());
+            if (reservationDate.equals(timeSlot.reservationDate())) {
+                occupancy = OccupancyBitmap.occupy(occupancy, start, Math.min(end, MinuteOfDay.MINUTES_PER_DAY));
+            } else if (end > MinuteOfDay.MINUTES_PER_DAY) {
+                occupancy = OccupancyBitmap.occupy(occupancy, 0, end - MinuteOfDay.MINUTES_PER_DAY);
+            }
+        }
+        return occupancy;
     }
 }
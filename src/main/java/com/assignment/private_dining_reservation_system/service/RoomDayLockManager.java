@@ -0,0 +1,173 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import com.assignment.private_dining_reservation_system.exception.ReservationFailedException;
+import com.assignment.private_dining_reservation_system.exception.RoomBusyException;
+import com.assignment.private_dining_reservation_system.model.request.ReservationRequest;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Striped in JVM lock per room and reservation date, taken before the booking transaction is opened.
+ * Requests for the same room-day queue here on a plain thread instead of holding a pooled connection
+ * while waiting on the room calendar row lock, so a popular room cannot drain the pool for everybody else.
+ * <p>
+ * It only narrows contention within one instance, the database lock is still what prevents double booking.
+ * Different room-days may share a stripe, that only costs some extra waiting.
+ * Only taken for a booking strategy which requires it, see BookingConcurrencyStrategy.requiresRoomDayLock.
+ * */
+@Slf4j
+@Component
+public class RoomDayLockManager {
+    private final ReentrantLock[] stripes;
+    private final Timer[] waitTimers;
+    private final int batchStripes;
+    private final long timeoutNanos;
+
+    public RoomDayLockManager(MeterRegistry meterRegistry,
+                              @Value("${reservation.room-day-lock.stripes:64}") int stripeCount,
+                              @Value("${reservation.room-day-lock.batch-stripes:8}") int batchStripes,
+                              @Value("${reservation.room-day-lock.timeout:PT5S}") Duration timeout) {
+        this.stripes = new ReentrantLock[stripeCount];
+        this.waitTimers = new Timer[stripeCount];
+        //A reservation crossing midnight alone takes two stripes
+        this.batchStripes = Math.max(2, batchStripes);
+        this.timeoutNanos = timeout.toNanos();
+        for (int stripe = 0; stripe < stripeCount; stripe++) {
+            ReentrantLock lock = new ReentrantLock();
+            stripes[stripe] = lock;
+            waitTimers[stripe] = Timer.builder("reservation.room-day-lock.wait")
+                    .tag("stripe", String.valueOf(stripe))
+                    .register(meterRegistry);
+            Gauge.builder("reservation.room-day-lock.queue-depth", lock, ReentrantLock::getQueueLength)
+                    .tag("stripe", String.valueOf(stripe))
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Run the action holding the lock of the reservation date, and of the next date as well
+     * when the reservation runs past midnight.
+     * */
+    public <T> T withRoomDayLock(Long roomId, LocalDate reservationDate, LocalTime startTime, LocalTime endTime, Supplier<T> action) {
+        return withRoomDayLock(roomId, reservationDate, startTime, endTime, timeoutNanos, action);
+    }
+
+    /**
+     * Same as withRoomDayLock waiting at most the given timeout instead of the configured one, used where a busy room
+     * is better given up on quickly.
+     * */
+    public <T> T withRoomDayLock(Long roomId, LocalDate reservationDate, LocalTime startTime, LocalTime endTime, Duration timeout, Supplier<T> action) {
+        return withRoomDayLock(roomId, reservationDate, startTime, endTime, timeout.toNanos(), action);
+    }
+
+    private <T> T withRoomDayLock(Long roomId, LocalDate reservationDate, LocalTime startTime, LocalTime endTime, long waitNanos, Supplier<T> action) {
+        SortedSet<Integer> stripeIndexes = new TreeSet<>();
+        addStripes(stripeIndexes, roomId, reservationDate, startTime, endTime);
+        return withStripes(stripeIndexes.toArray(new Integer[0]), 0, waitNanos, action);
+    }
+
+    /**
+     * Same as withRoomDayLock for every reservation request of a batch, see partitionByStripes for keeping it small.
+     * */
+    public <T> T withRoomDayLocks(List<ReservationRequest> reservationRequests, Supplier<T> action) {
+        SortedSet<Integer> stripeIndexes = new TreeSet<>();
+        for (ReservationRequest reservationRequest : reservationRequests) {
+            addStripes(stripeIndexes, reservationRequest.roomId(), reservationRequest.reservationDate(),
+                    reservationRequest.reservationStartTime(), reservationRequest.reservationEndTime());
+        }
+        return withStripes(stripeIndexes.toArray(new Integer[0]), 0, timeoutNanos, action);
+    }
+
+    /**
+     * Split a batch, keeping its order, into consecutive parts each taking at most batch-stripes stripes.
+     * Parts are locked one after the other, so a large batch never holds every stripe of the instance
+     * and single bookings only wait for the part which shares their stripe.
+     * */
+    public <E> List<List<E>> partitionByStripes(List<E> items, Function<E, ReservationRequest> reservationRequestOf) {
+        List<List<E>> parts = new ArrayList<>();
+        List<E> part = new ArrayList<>();
+        Set<Integer> partStripes = new HashSet<>();
+        for (E item : items) {
+            ReservationRequest reservationRequest = reservationRequestOf.apply(item);
+            SortedSet<Integer> itemStripes = new TreeSet<>();
+            addStripes(itemStripes, reservationRequest.roomId(), reservationRequest.reservationDate(),
+                    reservationRequest.reservationStartTime(), reservationRequest.reservationEndTime());
+            long newStripes = itemStripes.stream().filter(stripe -> !partStripes.contains(stripe)).count();
+            if (!part.isEmpty() && partStripes.size() + newStripes > batchStripes) {
+                parts.add(part);
+                part = new ArrayList<>();
+                partStripes.clear();
+            }
+            partStripes.addAll(itemStripes);
+            part.add(item);
+        }
+        if (!part.isEmpty()) {
+            parts.add(part);
+        }
+        return parts;
+    }
+
+    private void addStripes(SortedSet<Integer> stripeIndexes, Long roomId, LocalDate reservationDate, LocalTime startTime, LocalTime endTime) {
+        stripeIndexes.add(stripeOf(roomId, reservationDate));
+        if (MinuteOfDay.endOf(startTime, endTime) > MinuteOfDay.MINUTES_PER_DAY) {
+            stripeIndexes.add(stripeOf(roomId, reservationDate.plusDays(1)));
+        }
+    }
+
+    /**
+     * Stripes are always taken in index order so two requests can never wait on each other.
+     * */
+    private <T> T withStripes(Integer[] stripeIndexes, int position, long waitNanos, Supplier<T> action) {
+        if (position == stripeIndexes.length) {
+            return action.get();
+        }
+        int stripe = stripeIndexes[position];
+        acquire(stripe, waitNanos);
+        try {
+            return withStripes(stripeIndexes, position + 1, waitNanos, action);
+        } finally {
+            stripes[stripe].unlock();
+        }
+    }
+
+    private void acquire(int stripe, long waitNanos) {
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = stripes[stripe].tryLock(waitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+            throw new ReservationFailedException("Reservation interrupted while waiting for the room");
+        } finally {
+            waitTimers[stripe].record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        if (!acquired) {
+            log.warn("Timed out waiting for room day lock stripe: {}", stripe);
+            throw new RoomBusyException("Room is busy with other reservations, please try again");
+        }
+    }
+
+    private int stripeOf(Long roomId, LocalDate reservationDate) {
+        int hash = Objects.hash(roomId, reservationDate);
+        return Math.floorMod(hash ^ (hash >>> 16), stripes.length);
+    }
+}
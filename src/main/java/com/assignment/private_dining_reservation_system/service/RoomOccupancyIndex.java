@@ -0,0 +1,238 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import com.assignment.private_dining_reservation_system.entity.Reservation;
+import com.assignment.private_dining_reservation_system.entity.ReservationStatus;
+import com.assignment.private_dining_reservation_system.model.projection.ReservationTimeSlot;
+import com.assignment.private_dining_reservation_system.repository.ReservationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In memory index of confirmed reservations per room and day.
+ * Every day keeps a sorted array of [start, end) minute offsets from its own midnight,
+ * a reservation crossing midnight is split and its remaining part is kept against the next day.
+ * <p>
+ * Entries are loaded lazily with a projection query (no Reservation entities) and kept in step
+ * with bookings and cancellations once the owning transaction commits.
+ * Entries also expire after a ttl so that changes made outside this instance are picked up.
+ * <p>
+ * Being per instance it can be behind the database, so it only serves as a pre-check: a free answer is confirmed
+ * by the booking strategy inside the transaction and an overlap is confirmed with overlapsReloaded before rejecting.
+ * */
+@Slf4j
+@Component
+public class RoomOccupancyIndex {
+    private static final int[] NO_INTERVALS = new int[0];
+
+    private final ReservationRepository reservationRepository;
+    private final long ttlNanos;
+    private final ConcurrentHashMap<RoomDay, Entry> entries = new ConcurrentHashMap<>();
+
+    public RoomOccupancyIndex(ReservationRepository reservationRepository,
+                              @Value("${reservation.occupancy-index.ttl:PT5M}") Duration ttl) {
+        this.reservationRepository = reservationRepository;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * Check if the time range overlaps any confirmed reservation of the room.
+     * Only the primitive arrays are scanned, nothing is allocated once the entries are loaded.
+     * */
+    public boolean overlaps(Long roomId, LocalDate reservationDate, LocalTime startTime, LocalTime endTime) {
+        int start = MinuteOfDay.of(startTime);
+        int end = MinuteOfDay.endOf(startTime, endTime);
+        if (overlaps(intervals(roomId, reservationDate), start, Math.min(end, MinuteOfDay.MINUTES_PER_DAY))) {
+            return true;
+        }
+        //Midnight crossed, remaining part has to be free on the next day as well
+        return end > MinuteOfDay.MINUTES_PER_DAY
+                && overlaps(intervals(roomId, reservationDate.plusDays(1)), 0, end - MinuteOfDay.MINUTES_PER_DAY);
+    }
+
+    /**
+     * Same check against days freshly read from the database, which then replace the cached days.
+     * */
+    public boolean overlapsReloaded(Long roomId, LocalDate reservationDate, LocalTime startTime, LocalTime endTime) {
+        entries.remove(new RoomDay(roomId, reservationDate));
+        entries.remove(new RoomDay(roomId, reservationDate.plusDays(1)));
+        return overlaps(roomId, reservationDate, startTime, endTime);
+    }
+
+    /**
+     * Add the reservation to already loaded days once the current transaction commits.
+     * Days which are not loaded yet will read it from the database, a load in flight is not cached.
+     * */
+    public void reservationConfirmed(Reservation reservation) {
+        Long roomId = reservation.getRoom().getId();
+        LocalDate reservationDate = reservation.getReservationDate();
+        int start = MinuteOfDay.of(reservation.getReservationStartTime());
+        int end = MinuteOfDay.endOf(reservation.getReservationStartTime(), reservation.getReservationEndTime());
+        afterCommit(() -> {
+            entries.computeIfPresent(new RoomDay(roomId, reservationDate),
+                    (roomDay, entry) -> entry.loading() ? null : entry.with(start, Math.min(end, MinuteOfDay.MINUTES_PER_DAY)));
+            if (end > MinuteOfDay.MINUTES_PER_DAY) {
+                entries.computeIfPresent(new RoomDay(roomId, reservationDate.plusDays(1)),
+                        (roomDay, entry) -> entry.loading() ? null : entry.with(0, end - MinuteOfDay.MINUTES_PER_DAY));
+            }
+        });
+    }
+
+    /**
+     * Drop the days touched by the reservation once the current transaction commits,
+     * they are reloaded on next access.
+     * */
+    public void reservationCancelled(Reservation reservation) {
+        Long roomId = reservation.getRoom().getId();
+        LocalDate reservationDate = reservation.getReservationDate();
+        afterCommit(() -> {
+            entries.remove(new RoomDay(roomId, reservationDate));
+            entries.remove(new RoomDay(roomId, reservationDate.plusDays(1)));
+        });
+    }
+
+    /**
+     * Remove days which can no longer be booked.
+     * */
+    public void evictBefore(LocalDate date) {
+        entries.keySet().removeIf(roomDay -> roomDay.date().isBefore(date));
+    }
+
+    /**
+     * Expired entries are only replaced when read again, remove them along with past days so the index stays
+     * bounded by the days actually looked up within one ttl.
+     * */
+    @Scheduled(fixedDelayString = "${reservation.occupancy-index.ttl:PT5M}")
+    public void evictExpired() {
+        evictBefore(LocalDate.now());
+        long now = System.nanoTime();
+        entries.values().removeIf(entry -> now - entry.loadedAt() > ttlNanos);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * A loading marker is put before the query, the loaded day replaces it only if no booking or cancellation of the
+     * day committed meanwhile, as either one removes the marker. Otherwise the result serves this read only.
+     * */
+    private int[] intervals(Long roomId, LocalDate date) {
+        RoomDay roomDay = new RoomDay(roomId, date);
+        Entry entry = entries.get(roomDay);
+        if (entry != null && !entry.loading() && System.nanoTime() - entry.loadedAt() <= ttlNanos) {
+            return entry.intervals();
+        }
+        Entry marker = Entry.loadingMarker();
+        entries.put(roomDay, marker);
+        Entry loaded = load(roomId, date);
+        entries.replace(roomDay, marker, loaded);
+        return loaded.intervals();
+    }
+
+    /**
+     * Reservations of the previous day are loaded as well as they might run past midnight.
+     * */
+    private Entry load(Long roomId, LocalDate date) {
+        List<ReservationTimeSlot> timeSlots = reservationRepository.findTimeSlotsByRoomAndDateRange(
+                roomId, date.minusDays(1), date, ReservationStatus.CONFIRMED);
+        Entry entry = new Entry(NO_INTERVALS, System.nanoTime());
+        for (ReservationTimeSlot timeSlot : timeSlots) {
+            int start = MinuteOfDay.of(timeSlot.reservationStartTime());
+            int end = MinuteOfDay.endOf(timeSlot.reservationStartTime(), timeSlot.reservationEndTime());
+            if (date.equals(timeSlot.reservationDate())) {
+                entry = entry.with(start, Math.min(end, MinuteOfDay.MINUTES_PER_DAY));
+            } else if (end > MinuteOfDay.MINUTES_PER_DAY) {
+                entry = entry.with(0, end - MinuteOfDay.MINUTES_PER_DAY);
+            }
+        }
+        log.debug("Loaded {} reserved intervals for room id: {} date: {}", entry.intervals().length / 2, roomId, date);
+        return entry;
+    }
+
+    /**
+     * Intervals are sorted by start, so the scan stops at the first interval starting after the range.
+     * */
+    private static boolean overlaps(int[] intervals, int start, int end) {
+        for (int i = 0; i < intervals.length; i += 2) {
+            if (intervals[i] >= end) {
+                return false;
+            }
+            if (intervals[i + 1] > start) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private record RoomDay(Long roomId, LocalDate date) {
+    }
+
+    /**
+     * Immutable, updates copy the array so readers never see a partially written entry.
+     * Compared by identity, so a loading marker is only ever replaced by the load which put it.
+     * */
+    private static final class Entry {
+        private final int[] intervals;
+        private final long loadedAt;
+
+        private Entry(int[] intervals, long loadedAt) {
+            this.intervals = intervals;
+            this.loadedAt = loadedAt;
+        }
+
+        static Entry loadingMarker() {
+            return new Entry(null, System.nanoTime());
+        }
+
+        int[] intervals() {
+            return intervals;
+        }
+
+        long loadedAt() {
+            return loadedAt;
+        }
+
+        boolean loading() {
+            return intervals == null;
+        }
+
+        Entry with(int start, int end) {
+            int position = 0;
+            while (position < intervals.length && intervals[position] < start) {
+                position += 2;
+            }
+            if (position < intervals.length && intervals[position] == start && intervals[position + 1] == end) {
+                return this;
+            }
+            int[] updated = Arrays.copyOf(intervals, intervals.length + 2);
+            System.arraycopy(intervals, position, updated, position + 2, intervals.length - position);
+            updated[position] = start;
+            updated[position + 1] = end;
+            return new Entry(updated, loadedAt);
+        }
+    }
+}
@@ -7,9 +7,12 @@ import com.assignment.private_dining_reservation_system.entity.RoomType;
 import com.assignment.private_dining_reservation_system.exception.EntityNotFoundException;
 import com.assignment.private_dining_reservation_system.model.request.RoomRequest;
 import com.assignment.private_dining_reservation_system.repository.RoomRepository;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.DayOfWeek;
+import java.util.Collection;
 import java.util.EnumSet;
 import java.util.List;
 
@@ -17,11 +20,18 @@ import java.util.List;
 public class RoomService {
 
     private final RoomRepository roomRepository;
+    private final RoomCalendarMaterializer roomCalendarMaterializer;
+    private final RoomViewCache roomViewCache;
+    private final RestaurantAvailabilityCache restaurantAvailabilityCache;
 
-    public RoomService(RoomRepository roomRepository) {
+    public RoomService(RoomRepository roomRepository, RoomCalendarMaterializer roomCalendarMaterializer, RoomViewCache roomViewCache, RestaurantAvailabilityCache restaurantAvailabilityCache) {
         this.roomRepository = roomRepository;
+        this.roomCalendarMaterializer = roomCalendarMaterializer;
+        this.roomViewCache = roomViewCache;
+        this.restaurantAvailabilityCache = restaurantAvailabilityCache;
     }
 
+    @Transactional
     public Room createRoom(Restaurant restaurant, RoomRequest roomRequest) {
         Room room = new Room();
         room.setRoomName(roomRequest.roomName());
@@ -30,9 +40,6 @@ public class RoomService {
         room.setMaxCapacity(roomRequest.maxCapacity());
         room.setRoomType(roomRequest.roomType());
         room.setMinSpendInCents(roomRequest.minSpendInCents());
-        // In Real world this can be decoupled
-        // A scheduler job can be used to refer this and create pre entries in Room Calendar table
-        // And the same can be used for locking
         RoomMetaData roomMetaData = new RoomMetaData();
         roomMetaData.setRoomOpeningTime(roomRequest.roomOpeningTime());
         roomMetaData.setRoomClosingTime(roomRequest.roomClosingTime());
@@ -42,7 +49,12 @@ public class RoomService {
         roomMetaData.setRoom(room);
         room.setRoomMetaData(roomMetaData);
 
-        return roomRepository.save(room);
+        Room savedRoom = roomRepository.save(room);
+        // Room calendar rows are created upfront, bookings then only lock an existing row
+        roomCalendarMaterializer.materialize(savedRoom);
+        // Cached availability lists the rooms of the restaurant
+        restaurantAvailabilityCache.invalidateRestaurant(restaurant.getId());
+        return savedRoom;
     }
 
     public Room getByIdAndRestaurantId(Long roomId, Long restaurantId) {
@@ -50,10 +62,19 @@ public class RoomService {
                 .orElseThrow(() -> new EntityNotFoundException("Room not found with room Id: " + roomId));
     }
 
-    public List<Room> getByRoomTypeAndRestaurantId(RoomType roomType, Long restaurantId) {
-        return roomRepository.findByRoomTypeAndRestaurantId(roomType, restaurantId);
+    /**
+     * Room with its restaurant, metadata and open days loaded in one query, for the booking path.
+     * */
+    public Room getBookingContext(Long roomId, Long restaurantId) {
+        return roomRepository.findBookingContextByIdAndRestaurantId(roomId, restaurantId)
+                .orElseThrow(() -> new EntityNotFoundException("Room not found with room Id: " + roomId));
+    }
+
+    public List<Room> getByRoomTypesAndRestaurantIdAndGroupSize(Collection<RoomType> roomTypes, Long restaurantId, int groupSize) {
+        return roomRepository.findByRoomTypesAndRestaurantIdAndGroupSize(roomTypes, restaurantId, groupSize);
     }
 
+    @Transactional
     public Room updateRoom(Restaurant restaurant, Long roomId, RoomRequest roomRequest) {
         Room room = getByIdAndRestaurantId(roomId, restaurant.getId());
         room.setRoomName(roomRequest.roomName());
@@ -73,7 +94,32 @@ public class RoomService {
         roomMetaData.setOpenDays(
                 roomRequest.openDays() != null ? EnumSet.copyOf(roomRequest.openDays()) : EnumSet.allOf(DayOfWeek.class)
         );
-        return roomRepository.save(room);
+        Room savedRoom = roomRepository.save(room);
+        // Open days might have changed
+        roomCalendarMaterializer.materialize(savedRoom);
+        // Capacity and opening hours are validated from the cached view
+        roomViewCache.evict(savedRoom.getId());
+        restaurantAvailabilityCache.invalidateRestaurant(restaurant.getId());
+        return savedRoom;
+    }
+
+    public List<Room> getByIds(Collection<Long> roomIds) {
+        return roomRepository.findAllWithMetaDataByIdIn(roomIds);
+    }
+
+    /**
+     * Keyset page of the restaurant's room ids in id order, 0 as afterId for the first page.
+     * */
+    public List<Long> getRoomIdsAfter(Long restaurantId, Long afterId, int limit) {
+        return roomRepository.findIdsByRestaurantIdAfter(restaurantId, afterId, PageRequest.ofSize(limit));
+    }
+
+    public List<Room> getRoomsWithMetaData(Long restaurantId) {
+        return roomRepository.findAllWithMetaDataByRestaurantId(restaurantId);
+    }
+
+    public List<Room> getRoomsForGroupSize(Long restaurantId, int groupSize) {
+        return roomRepository.findAllWithMetaDataByRestaurantIdAndGroupSize(restaurantId, groupSize);
     }
 
     public List<Room> getRoomsForRestaurant(Long restaurantId) {
@@ -0,0 +1,68 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import com.assignment.private_dining_reservation_system.entity.Room;
+import com.assignment.private_dining_reservation_system.exception.EntityNotFoundException;
+import com.assignment.private_dining_reservation_system.model.projection.RoomView;
+import com.assignment.private_dining_reservation_system.repository.RoomRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Room views used by booking validations, so a request can be validated before any connection is taken.
+ * A room is read from the database only on first use, after a ttl, or after it has been updated on this instance.
+ * The ttl picks up updates made on other instances, the booking transaction still works on the current room row.
+ * */
+@Slf4j
+@Component
+public class RoomViewCache {
+    private final RoomRepository roomRepository;
+    private final long ttlNanos;
+    private final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    public RoomViewCache(RoomRepository roomRepository,
+                         @Value("${reservation.room-view.ttl:PT5M}") Duration ttl) {
+        this.roomRepository = roomRepository;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    public RoomView get(Long roomId, Long restaurantId) {
+        Entry entry = entries.get(roomId);
+        if (entry == null || System.nanoTime() - entry.loadedAt() > ttlNanos) {
+            RoomView roomView = roomRepository.findBookingContextByIdAndRestaurantId(roomId, restaurantId)
+                    .map(RoomView::of)
+                    .orElseThrow(() -> new EntityNotFoundException("Room not found with room Id: " + roomId));
+            entry = new Entry(roomView, System.nanoTime());
+            entries.put(roomId, entry);
+            log.debug("Loaded room view for room id: {}", roomId);
+        }
+        if (!entry.roomView().restaurantId().equals(restaurantId)) {
+            throw new EntityNotFoundException("Room not found with room Id: " + roomId);
+        }
+        return entry.roomView();
+    }
+
+    /**
+     * View of a room row read elsewhere, e.g. inside the booking transaction. The cached view is kept while it still
+     * matches the row, so its compiled schedule is reused, and replaced by a view of the row otherwise.
+     * */
+    public RoomView viewOf(Room room) {
+        Entry entry = entries.get(room.getId());
+        if (entry != null && entry.roomView().matches(room)) {
+            return entry.roomView();
+        }
+        RoomView roomView = RoomView.of(room);
+        entries.put(room.getId(), new Entry(roomView, System.nanoTime()));
+        return roomView;
+    }
+
+    public void evict(Long roomId) {
+        entries.remove(roomId);
+    }
+
+    private record Entry(RoomView roomView, long loadedAt) {
+    }
+}
@@ -46,6 +46,17 @@ public class BaseTest {
         return room;
     }
 
+    protected Room getRoom(Long roomId) {
+        return getRoom(roomId, 1L);
+    }
+
+    protected Room getRoom(Long roomId, Long restaurantId) {
+        Room room = getRoom();
+        room.setId(roomId);
+        room.getRestaurant().setId(restaurantId);
+        return room;
+    }
+
     protected RoomMetaData getRoomMetaData(Room room){
         RoomMetaData roomMetaData = new RoomMetaData();
         roomMetaData.setRoomClosingTime(LocalTime.of(23,30));
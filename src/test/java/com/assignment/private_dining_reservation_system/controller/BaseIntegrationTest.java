@@ -16,6 +16,7 @@ import org.springframework.context.annotation.Import;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 
 import java.math.BigDecimal;
@@ -23,8 +24,11 @@ import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.EnumSet;
+import java.util.List;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @Slf4j
@@ -148,8 +152,26 @@ public abstract class BaseIntegrationTest {
     }
 
     ResultActions performGet(String url) throws Exception {
+        return performGet(url, HttpStatus.OK);
+    }
+
+    ResultActions performGet(String url, HttpStatus httpStatus) throws Exception {
         return mockMvc.perform(get(url))
-                .andExpect(status().is(HttpStatus.OK.value()));
+                .andExpect(status().is(httpStatus.value()));
+    }
+
+    /**
+     * Streamed responses complete asynchronously, lines are returned once the whole stream is written.
+     * */
+    List<String> performGetStream(String url) throws Exception {
+        MvcResult mvcResult = mockMvc.perform(get(url))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String content = mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+        return content.lines().toList();
     }
 
     ResultActions performDelete(String url) throws Exception {
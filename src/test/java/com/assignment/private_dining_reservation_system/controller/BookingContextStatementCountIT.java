@@ -0,0 +1,62 @@
+package com.assignment.private_dining_reservation_system.controller;
+
+import com.assignment.private_dining_reservation_system.entity.Restaurant;
+import com.assignment.private_dining_reservation_system.entity.Room;
+import com.assignment.private_dining_reservation_system.repository.RestaurantRepository;
+import com.assignment.private_dining_reservation_system.repository.RoomRepository;
+import com.assignment.private_dining_reservation_system.service.RoomService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.DayOfWeek;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Transactional
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class BookingContextStatementCountIT extends BaseIntegrationTest {
+    @Autowired
+    RestaurantRepository restaurantRepository;
+    @Autowired
+    RoomRepository roomRepository;
+    @Autowired
+    RoomService roomService;
+    @Autowired
+    EntityManager entityManager;
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void getBookingContext_loadsRoomRestaurantAndMetaDataInOneStatement() {
+        Restaurant restaurant = restaurantRepository.save(getRestaurant());
+        Room roomPayload = getRoom();
+        roomPayload.setRestaurant(restaurant);
+        Room room = roomRepository.save(roomPayload);
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+
+        Room bookingContext = roomService.getBookingContext(room.getId(), restaurant.getId());
+        // Everything the booking path reads, none of it may trigger a lazy load
+        assertEquals(restaurant.getRestaurantName(), bookingContext.getRestaurant().getRestaurantName());
+        assertEquals(room.getRoomMetaData().getRoomOpeningTime(), bookingContext.getRoomMetaData().getRoomOpeningTime());
+        assertTrue(bookingContext.getRoomMetaData().getOpenDays().contains(DayOfWeek.MONDAY));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+}
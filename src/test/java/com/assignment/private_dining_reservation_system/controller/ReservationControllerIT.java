@@ -4,8 +4,11 @@ import com.assignment.private_dining_reservation_system.entity.Reservation;
 import com.assignment.private_dining_reservation_system.entity.ReservationStatus;
 import com.assignment.private_dining_reservation_system.entity.Restaurant;
 import com.assignment.private_dining_reservation_system.entity.Room;
+import com.assignment.private_dining_reservation_system.entity.RoomType;
 import com.assignment.private_dining_reservation_system.mapper.ReservationMapper;
 import com.assignment.private_dining_reservation_system.model.request.AutoAssignReservationRequest;
+import com.assignment.private_dining_reservation_system.model.request.BatchAutoAssignReservationRequest;
+import com.assignment.private_dining_reservation_system.model.request.BatchReservationRequest;
 import com.assignment.private_dining_reservation_system.model.request.ReservationRequest;
 import com.assignment.private_dining_reservation_system.model.response.ReservationResponse;
 import com.assignment.private_dining_reservation_system.repository.ReservationRepository;
@@ -18,6 +21,8 @@ import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
 
 import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -97,6 +102,99 @@ public class ReservationControllerIT extends BaseIntegrationTest {
         assertEquals("{\"error\":\"Room is not available for reservation at give time range\"}", reservationResponse);
     }
 
+    @Test
+    void createReservations_whenBatchHasOverlappingAndUnknownRoomItems() throws Exception {
+        Restaurant restaurantRequest = getRestaurant();
+        Restaurant restaurant = restaurantRepository.save(restaurantRequest);
+
+        Room roomPayload = getRoom();
+        roomPayload.setRestaurant(restaurant);
+        Room room = roomRepository.save(roomPayload);
+
+        LocalDate reservationDate = LocalDate.now().plusDays(2);
+        BatchReservationRequest batchReservationRequest = new BatchReservationRequest(List.of(
+                new ReservationRequest(room.getId(), restaurant.getId(), LocalTime.parse("15:30"), LocalTime.parse("18:30"), reservationDate, 15, "diner@gmail.com"),
+                new ReservationRequest(room.getId(), restaurant.getId(), LocalTime.parse("17:00"), LocalTime.parse("20:00"), reservationDate, 15, "diner@gmail.com"),
+                new ReservationRequest(room.getId() + 100, restaurant.getId(), LocalTime.parse("15:30"), LocalTime.parse("18:30"), reservationDate, 15, "diner@gmail.com")));
+        String url = "/api/reservations/batch";
+
+        performPost(url, batchReservationRequest, HttpStatus.OK)
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("$[0].created").value(true))
+                .andExpect(jsonPath("$[0].reservation.roomId").value(room.getId()))
+                .andExpect(jsonPath("$[1].created").value(false))
+                .andExpect(jsonPath("$[1].error").value("Room is not available for reservation at give time range"))
+                .andExpect(jsonPath("$[2].created").value(false))
+                .andExpect(jsonPath("$[2].error").exists());
+
+        assertEquals(1, reservationRepository.findByRestaurantId(restaurant.getId()).size());
+    }
+
+    @Test
+    void createReservations_whenItemAfterFailedItemBooksTheSameRoomDay() throws Exception {
+        Restaurant restaurantRequest = getRestaurant();
+        Restaurant restaurant = restaurantRepository.save(restaurantRequest);
+
+        Room roomPayload = getRoom();
+        roomPayload.setRestaurant(restaurant);
+        Room room = roomRepository.save(roomPayload);
+
+        LocalDate reservationDate = LocalDate.now().plusDays(2);
+        BatchReservationRequest batchReservationRequest = new BatchReservationRequest(List.of(
+                new ReservationRequest(room.getId(), restaurant.getId(), LocalTime.parse("15:30"), LocalTime.parse("18:30"), reservationDate, 15, "first@gmail.com"),
+                new ReservationRequest(room.getId(), restaurant.getId(), LocalTime.parse("17:00"), LocalTime.parse("20:00"), reservationDate, 15, "second@gmail.com"),
+                new ReservationRequest(room.getId(), restaurant.getId(), LocalTime.parse("19:00"), LocalTime.parse("22:00"), reservationDate, 15, "third@gmail.com")));
+        String url = "/api/reservations/batch";
+
+        //Third item books on the room calendar row the failed second item was rolled back from
+        performPost(url, batchReservationRequest, HttpStatus.OK)
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("$[0].created").value(true))
+                .andExpect(jsonPath("$[0].reservation.dinerEmail").value("first@gmail.com"))
+                .andExpect(jsonPath("$[1].created").value(false))
+                .andExpect(jsonPath("$[1].error").value("Room is not available for reservation at give time range"))
+                .andExpect(jsonPath("$[2].created").value(true))
+                .andExpect(jsonPath("$[2].reservation.id").exists())
+                .andExpect(jsonPath("$[2].reservation.restaurantId").value(restaurant.getId()))
+                .andExpect(jsonPath("$[2].reservation.restaurantName").value(restaurant.getRestaurantName()))
+                .andExpect(jsonPath("$[2].reservation.roomId").value(room.getId()))
+                .andExpect(jsonPath("$[2].reservation.roomName").value(room.getRoomName()))
+                .andExpect(jsonPath("$[2].reservation.reservationStartTime").value("19:00"))
+                .andExpect(jsonPath("$[2].reservation.reservationEndTime").value("22:00"))
+                .andExpect(jsonPath("$[2].reservation.reservationStatus").value("CONFIRMED"))
+                .andExpect(jsonPath("$[2].reservation.dinerEmail").value("third@gmail.com"));
+
+        assertEquals(2, reservationRepository.findByRestaurantId(restaurant.getId()).size());
+    }
+
+    @Test
+    void autoAssignReservations_whenBatchHasMoreRequestsThanRoomsCanTake() throws Exception {
+        Restaurant restaurantRequest = getRestaurant();
+        Restaurant restaurant = restaurantRepository.save(restaurantRequest);
+
+        Room roomPayload = getRoom();
+        roomPayload.setRestaurant(restaurant);
+        Room room = roomRepository.save(roomPayload);
+
+        LocalDate reservationDate = LocalDate.now().plusDays(2);
+        BatchAutoAssignReservationRequest batchAutoAssignReservationRequest = new BatchAutoAssignReservationRequest(List.of(
+                new AutoAssignReservationRequest(restaurant.getId(), RoomType.ROOFTOP, LocalTime.parse("18:00"), LocalTime.parse("21:00"), reservationDate, 15, "diner@gmail.com"),
+                new AutoAssignReservationRequest(restaurant.getId(), RoomType.ROOFTOP, LocalTime.parse("15:00"), LocalTime.parse("18:00"), reservationDate, 15, "diner@gmail.com"),
+                new AutoAssignReservationRequest(restaurant.getId(), RoomType.ROOFTOP, LocalTime.parse("16:00"), LocalTime.parse("19:00"), reservationDate, 15, "diner@gmail.com")));
+        String url = "/api/reservations/batch/auto-assign";
+
+        performPost(url, batchAutoAssignReservationRequest, HttpStatus.OK)
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("$[0].created").value(true))
+                .andExpect(jsonPath("$[0].reservation.roomId").value(room.getId()))
+                .andExpect(jsonPath("$[1].created").value(true))
+                .andExpect(jsonPath("$[1].reservation.roomId").value(room.getId()))
+                .andExpect(jsonPath("$[2].created").value(false))
+                .andExpect(jsonPath("$[2].error").value("No room is available to accommodate this group size"));
+
+        assertEquals(2, reservationRepository.findByRestaurantId(restaurant.getId()).size());
+    }
+
     @Test
     void createReservation_whenExistingConflictingReservationIsCancelled() throws Exception {
         Restaurant restaurantRequest = getRestaurant();
@@ -178,6 +276,34 @@ public class ReservationControllerIT extends BaseIntegrationTest {
         assertEquals(existingReservationResponse.groupSize(), reservationResponseResult.groupSize());
     }
 
+    @Test
+    void createAutoAssignReservation_whenPreferredRoomTypeIsFull() throws Exception {
+        Restaurant restaurantRequest = getRestaurant();
+        Restaurant restaurant = restaurantRepository.save(restaurantRequest);
+
+        Room roomPayload = getRoom();
+        roomPayload.setRestaurant(restaurant);
+        Room rooftop = roomRepository.save(roomPayload);
+
+        Room hallPayload = getRoom();
+        hallPayload.setRoomType(RoomType.HALL);
+        hallPayload.setRestaurant(restaurant);
+        Room hall = roomRepository.save(hallPayload);
+
+        LocalDate reservationDate = LocalDate.now().plusDays(2);
+        Reservation reservation = getReservation(restaurant, rooftop);
+        reservation.setReservationDate(reservationDate);
+        reservation.setReservationStartTime(LocalTime.parse("17:00"));
+        reservation.setReservationEndTime(LocalTime.parse("21:00"));
+        reservationRepository.save(reservation);
+
+        AutoAssignReservationRequest autoAssignReservationRequest = new AutoAssignReservationRequest(restaurant.getId(), null,
+                List.of(RoomType.ROOFTOP, RoomType.HALL), LocalTime.parse("18:00"), LocalTime.parse("21:00"), reservationDate, 15, "diner@gmail.com");
+        String url = "/api/reservations/auto-assign";
+        performPost(url, autoAssignReservationRequest, HttpStatus.CREATED)
+                .andExpect(jsonPath("$.roomId").value(hall.getId()));
+    }
+
     @Test
     void createAutoAssignReservation_whenExistingConflictingReservationIsCancelled() throws Exception {
         Restaurant restaurantRequest = getRestaurant();
@@ -3,6 +3,8 @@ package com.assignment.private_dining_reservation_system.controller;
 import com.assignment.private_dining_reservation_system.entity.Reservation;
 import com.assignment.private_dining_reservation_system.entity.Restaurant;
 import com.assignment.private_dining_reservation_system.entity.Room;
+import com.assignment.private_dining_reservation_system.model.request.ReservationRequest;
+import com.assignment.private_dining_reservation_system.model.response.RoomAvailabilityCalendarResponse;
 import com.assignment.private_dining_reservation_system.model.response.RoomResponse;
 import com.assignment.private_dining_reservation_system.repository.ReservationRepository;
 import com.assignment.private_dining_reservation_system.repository.RestaurantRepository;
@@ -10,9 +12,12 @@ import com.assignment.private_dining_reservation_system.repository.RoomRepositor
 import com.fasterxml.jackson.core.type.TypeReference;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.test.web.servlet.ResultActions;
 
 import java.lang.reflect.Type;
+import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.List;
 
 import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
@@ -121,4 +126,173 @@ public class RestaurantAvailabilityControllerIT extends BaseIntegrationTest {
                 .andExpect(jsonPath("$").isArray())
                 .andExpect(jsonPath("$", hasSize(0)));
     }
+
+    @Test
+    void getAvailableRooms_cachedDayDroppedOnReservation() throws Exception {
+        Restaurant restaurant = restaurantRepository.save(getRestaurant());
+        Room roomPayload = getRoom();
+        roomPayload.setRestaurant(restaurant);
+        Room room = roomRepository.save(roomPayload);
+        LocalDate date = LocalDate.now().plusDays(3);
+        String url = "/api/restaurant/" + restaurant.getId() + "/available-rooms?date=" + date + "&startTime=15:30&endTime=18:30";
+        performGet(url)
+                .andExpect(jsonPath("$", hasSize(1)));
+
+        ReservationRequest reservationRequest = new ReservationRequest(room.getId(), restaurant.getId(),
+                LocalTime.of(15, 30), LocalTime.of(18, 30), date, 15, "diner@gmail.com");
+        performPost("/api/reservations", reservationRequest, HttpStatus.CREATED);
+
+        performGet(url)
+                .andExpect(jsonPath("$", hasSize(0)));
+    }
+
+    @Test
+    void getAvailabilityCalendar_splitsOpeningHoursAroundReservations() throws Exception {
+        Restaurant restaurant = restaurantRepository.save(getRestaurant());
+        Room roomPayload = getRoom();
+        roomPayload.setRestaurant(restaurant);
+        Room room = roomRepository.save(roomPayload);
+        LocalDate date = LocalDate.now().plusDays(3);
+        Reservation reservation = getReservation(restaurant, room);
+        reservation.setReservationDate(date);
+        reservation.setReservationStartTime(LocalTime.of(18, 30));
+        reservation.setReservationEndTime(LocalTime.of(20, 0));
+        reservationRepository.save(reservation);
+
+        String url = "/api/restaurant/" + restaurant.getId() + "/availability-calendar?from=" + date + "&to=" + date.plusDays(1);
+        performGet(url)
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].roomId").value(room.getId()))
+                .andExpect(jsonPath("$[0].days", hasSize(2)))
+                .andExpect(jsonPath("$[0].days[0].date").value(date.toString()))
+                //15:30-18:30 left before the reservation, 20:00-23:30 after it
+                .andExpect(jsonPath("$[0].days[0].freeWindows", hasSize(2)))
+                .andExpect(jsonPath("$[0].days[0].freeWindows[0].startTime").value("15:30"))
+                .andExpect(jsonPath("$[0].days[0].freeWindows[0].endTime").value("18:30"))
+                .andExpect(jsonPath("$[0].days[0].freeWindows[1].startTime").value("20:00"))
+                .andExpect(jsonPath("$[0].days[0].freeWindows[1].endTime").value("23:30"))
+                .andExpect(jsonPath("$[0].days[1].freeWindows", hasSize(1)));
+    }
+
+    @Test
+    void streamAvailabilityCalendar_oneLinePerRoom() throws Exception {
+        Restaurant restaurant = restaurantRepository.save(getRestaurant());
+        Room roomPayload = getRoom();
+        roomPayload.setRestaurant(restaurant);
+        Room room = roomRepository.save(roomPayload);
+        Room secondRoomPayload = getSecondRoom();
+        secondRoomPayload.setRestaurant(restaurant);
+        Room secondRoom = roomRepository.save(secondRoomPayload);
+        LocalDate date = LocalDate.now().plusDays(3);
+
+        List<String> lines = performGetStream("/api/restaurant/" + restaurant.getId() + "/availability-calendar/stream?from=" + date + "&to=" + date.plusDays(1));
+
+        assertEquals(2, lines.size());
+        RoomAvailabilityCalendarResponse first = objectMapper.readValue(lines.get(0), RoomAvailabilityCalendarResponse.class);
+        RoomAvailabilityCalendarResponse second = objectMapper.readValue(lines.get(1), RoomAvailabilityCalendarResponse.class);
+        assertEquals(room.getId(), first.roomId());
+        assertEquals(2, first.days().size());
+        assertEquals(secondRoom.getId(), second.roomId());
+    }
+
+    @Test
+    void streamAvailableRooms_oneLinePerRoom() throws Exception {
+        Restaurant restaurant = restaurantRepository.save(getRestaurant());
+        Room roomPayload = getRoom();
+        roomPayload.setRestaurant(restaurant);
+        Room room = roomRepository.save(roomPayload);
+        Room secondRoomPayload = getSecondRoom();
+        secondRoomPayload.setRestaurant(restaurant);
+        Room secondRoom = roomRepository.save(secondRoomPayload);
+        LocalDate date = LocalDate.now().plusDays(3);
+
+        List<String> lines = performGetStream("/api/restaurant/" + restaurant.getId() + "/available-rooms/stream?date=" + date + "&startTime=18:00&endTime=21:00");
+
+        assertEquals(2, lines.size());
+        assertEquals(room.getId(), objectMapper.readValue(lines.get(0), RoomResponse.class).roomId());
+        assertEquals(secondRoom.getId(), objectMapper.readValue(lines.get(1), RoomResponse.class).roomId());
+    }
+
+    @Test
+    void streamAvailableRooms_pastDateRejectedBeforeStreaming() throws Exception {
+        Restaurant restaurant = restaurantRepository.save(getRestaurant());
+        performGet("/api/restaurant/" + restaurant.getId() + "/available-rooms/stream?date=" + LocalDate.now().minusDays(1), HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void streamAvailabilityCalendar_invalidRangeRejectedBeforeStreaming() throws Exception {
+        Restaurant restaurant = restaurantRepository.save(getRestaurant());
+        performGet("/api/restaurant/" + restaurant.getId() + "/availability-calendar/stream?from=" + LocalDate.now().minusDays(1), HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void getAvailabilityCalendar_fromDateInPast() throws Exception {
+        Restaurant restaurant = restaurantRepository.save(getRestaurant());
+        performGet("/api/restaurant/" + restaurant.getId() + "/availability-calendar?from=" + LocalDate.now().minusDays(1), HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void getNextAvailableSlots_skipsBookedRoomAndSmallRoom() throws Exception {
+        Restaurant restaurant = restaurantRepository.save(getRestaurant());
+        Room roomPayload = getRoom();
+        roomPayload.setRestaurant(restaurant);
+        Room room = roomRepository.save(roomPayload);
+        Room smallRoomPayload = getRoom();
+        smallRoomPayload.setRestaurant(restaurant);
+        smallRoomPayload.setMaxCapacity(12);
+        roomRepository.save(smallRoomPayload);
+        LocalDate date = LocalDate.now().plusDays(3);
+        Reservation reservation = getReservation(restaurant, room);
+        reservation.setReservationDate(date);
+        reservation.setReservationStartTime(LocalTime.of(15, 30));
+        reservation.setReservationEndTime(LocalTime.of(21, 0));
+        reservationRepository.save(reservation);
+
+        String url = "/api/restaurant/" + restaurant.getId() + "/next-available-slots?groupSize=14&limit=2&from=" + date;
+        performGet(url)
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].roomId").value(room.getId()))
+                .andExpect(jsonPath("$[0].date").value(date.plusDays(1).toString()))
+                .andExpect(jsonPath("$[0].startTime").value("15:30"))
+                .andExpect(jsonPath("$[0].endTime").value("18:30"))
+                .andExpect(jsonPath("$[1].date").value(date.plusDays(2).toString()));
+    }
+
+    @Test
+    void findConflictingRoomIds_includesReservationsCrossingMidnight() {
+        Restaurant restaurant = restaurantRepository.save(getRestaurant());
+        Room room = getRoom();
+        room.setRestaurant(restaurant);
+        room = roomRepository.save(room);
+        Room secondRoom = getSecondRoom();
+        secondRoom.setRestaurant(restaurant);
+        secondRoom = roomRepository.save(secondRoom);
+        Room thirdRoom = getSecondRoom();
+        thirdRoom.setRestaurant(restaurant);
+        thirdRoom = roomRepository.save(thirdRoom);
+        LocalDate date = LocalDate.of(2027, 11, 25);
+        //Previous day running past midnight into the window
+        Reservation previousDay = getReservation(restaurant, room);
+        previousDay.setReservationDate(date.minusDays(1));
+        previousDay.setReservationStartTime(LocalTime.of(22, 0));
+        previousDay.setReservationEndTime(LocalTime.of(1, 0));
+        reservationRepository.save(previousDay);
+        //Back to back with the window, no conflict
+        Reservation backToBack = getReservation(restaurant, secondRoom);
+        backToBack.setReservationDate(date);
+        backToBack.setReservationStartTime(LocalTime.of(3, 0));
+        backToBack.setReservationEndTime(LocalTime.of(6, 0));
+        reservationRepository.save(backToBack);
+        //Next day, only reached by a window crossing midnight
+        Reservation nextDay = getReservation(restaurant, thirdRoom);
+        nextDay.setReservationDate(date.plusDays(1));
+        nextDay.setReservationStartTime(LocalTime.of(0, 30));
+        nextDay.setReservationEndTime(LocalTime.of(3, 30));
+        reservationRepository.save(nextDay);
+
+        assertEquals(List.of(room.getId()), reservationRepository.findConflictingRoomIds(restaurant.getId(),
+                date.minusDays(1), date, date.atTime(0, 30), date.atTime(3, 0)));
+        assertEquals(List.of(thirdRoom.getId()), reservationRepository.findConflictingRoomIds(restaurant.getId(),
+                date.minusDays(1), date.plusDays(1), date.atTime(22, 0), date.plusDays(1).atTime(1, 0)));
+    }
 }
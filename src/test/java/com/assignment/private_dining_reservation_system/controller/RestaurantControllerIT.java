@@ -6,6 +6,8 @@ import com.assignment.private_dining_reservation_system.mapper.RestaurantMapper;
 import com.assignment.private_dining_reservation_system.mapper.RoomMapper;
 import com.assignment.private_dining_reservation_system.model.request.RestaurantRequest;
 import com.assignment.private_dining_reservation_system.model.request.RoomRequest;
+import com.assignment.private_dining_reservation_system.model.response.AvailabilitySearchSummaryResponse;
+import com.assignment.private_dining_reservation_system.model.response.RestaurantAvailableRoomsResponse;
 import com.assignment.private_dining_reservation_system.model.response.RestaurantResponse;
 import com.assignment.private_dining_reservation_system.model.response.RoomResponse;
 import com.assignment.private_dining_reservation_system.repository.RestaurantRepository;
@@ -17,8 +19,10 @@ import org.springframework.http.HttpStatus;
 import org.springframework.test.web.servlet.ResultActions;
 
 import java.lang.reflect.Type;
+import java.time.LocalDate;
 import java.util.List;
 
+import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
@@ -219,4 +223,29 @@ class RestaurantControllerIT extends BaseIntegrationTest {
         assertEquals(roomRequest.maxCapacity(), roomResponseDTO.maxCapacity());
         assertEquals(roomRequest.minSpendInCents(), roomResponseDTO.minSpend());
     }
+
+    @Test
+    void searchAvailableRooms_streamsRestaurantsThenSummary() throws Exception {
+        Restaurant restaurant = restaurantRepository.save(getRestaurant());
+        Room roomPayload = getRoom();
+        roomPayload.setRestaurant(restaurant);
+        Room room = roomRepository.save(roomPayload);
+        Restaurant emptyRestaurant = restaurantRepository.save(getRestaurant());
+        String query = "?restaurantIds=" + restaurant.getId() + "," + emptyRestaurant.getId()
+                + "&date=" + LocalDate.now().plusDays(3) + "&startTime=19:00&endTime=22:00&roomType=ROOFTOP&groupSize=15";
+
+        performGet("/api/restaurants/available-rooms" + query)
+                .andExpect(jsonPath("$.restaurants", hasSize(1)))
+                .andExpect(jsonPath("$.restaurants[0].restaurantId").value(restaurant.getId()))
+                .andExpect(jsonPath("$.restaurants[0].rooms[0].roomId").value(room.getId()))
+                .andExpect(jsonPath("$.partial").value(false));
+
+        List<String> lines = performGetStream("/api/restaurants/available-rooms/stream" + query);
+        assertEquals(2, lines.size());
+        RestaurantAvailableRoomsResponse restaurantLine = objectMapper.readValue(lines.get(0), RestaurantAvailableRoomsResponse.class);
+        assertEquals(restaurant.getId(), restaurantLine.restaurantId());
+        assertEquals(room.getId(), restaurantLine.rooms().getFirst().roomId());
+        AvailabilitySearchSummaryResponse summary = objectMapper.readValue(lines.get(1), AvailabilitySearchSummaryResponse.class);
+        assertEquals(List.of(), summary.incompleteRestaurantIds());
+    }
 }
@@ -0,0 +1,129 @@
+package com.assignment.private_dining_reservation_system.controller;
+
+import com.assignment.private_dining_reservation_system.entity.Restaurant;
+import com.assignment.private_dining_reservation_system.entity.Room;
+import com.assignment.private_dining_reservation_system.entity.RoomType;
+import com.assignment.private_dining_reservation_system.repository.RestaurantRepository;
+import com.assignment.private_dining_reservation_system.model.request.ReservationTimeFrame;
+import com.assignment.private_dining_reservation_system.repository.RoomRepository;
+import com.assignment.private_dining_reservation_system.service.RestaurantAvailabilityService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Pins the statement count of room listings and auto assign candidates, it must not grow with the number of rooms.
+ * Unchanged listings revalidated with their ETag run no statement at all.
+ * */
+@Transactional
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class RoomListingStatementCountIT extends BaseIntegrationTest {
+    private static final int ROOM_COUNT = 50;
+
+    @Autowired
+    RestaurantRepository restaurantRepository;
+    @Autowired
+    RoomRepository roomRepository;
+    @Autowired
+    RestaurantAvailabilityService restaurantAvailabilityService;
+    @Autowired
+    EntityManager entityManager;
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    Statistics statistics;
+    Restaurant restaurant;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        restaurant = restaurantRepository.save(getRestaurant());
+        for (int i = 0; i < ROOM_COUNT; i++) {
+            Room room = getRoom();
+            room.setRestaurant(restaurant);
+            roomRepository.save(room);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+    }
+
+    @Test
+    void getRoomsForRestaurant_fiftyRooms() throws Exception {
+        performGet("/api/restaurants/" + restaurant.getId() + "/rooms")
+                .andExpect(jsonPath("$", hasSize(ROOM_COUNT)))
+                .andExpect(jsonPath("$[49].openDays", hasSize(7)));
+
+        // Restaurant lookup and rooms with metadata and open days
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void autoAssignCandidates_fiftyRooms() {
+        ReservationTimeFrame reservationTimeFrame = new ReservationTimeFrame(LocalDate.now().plusDays(3), LocalTime.of(16, 0), LocalTime.of(19, 0));
+        List<Room> rooms = restaurantAvailabilityService.findAvailableRoomsByRestaurantAndRoomTypes(restaurant.getId(), List.of(RoomType.ROOFTOP), 12, reservationTimeFrame);
+
+        // Rooms fitting the group, then conflicting room ids of the restaurant
+        assertEquals(ROOM_COUNT, rooms.size());
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(List.of(), restaurantAvailabilityService.findAvailableRoomsByRestaurantAndRoomTypes(restaurant.getId(), List.of(RoomType.ROOFTOP), 40, reservationTimeFrame));
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void getAvailableRooms_fiftyRooms() throws Exception {
+        performGet("/api/restaurant/" + restaurant.getId() + "/available-rooms?date=" + LocalDate.now().plusDays(3)
+                + "&startTime=16:00&endTime=19:00")
+                .andExpect(jsonPath("$", hasSize(ROOM_COUNT)));
+
+        // Rooms of the day and its reservations when not cached, then the available rooms with their metadata
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void getRoomsForRestaurant_notModifiedWithoutQueries() throws Exception {
+        String eTag = performGet("/api/restaurants/" + restaurant.getId() + "/rooms")
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        statistics.clear();
+
+        mockMvc.perform(get("/api/restaurants/" + restaurant.getId() + "/rooms").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void getAvailableRooms_notModifiedWithoutQueries() throws Exception {
+        String url = "/api/restaurant/" + restaurant.getId() + "/available-rooms?date=" + LocalDate.now().plusDays(3)
+                + "&startTime=16:00&endTime=19:00";
+        String eTag = performGet(url).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        statistics.clear();
+
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        // Another time frame of the same restaurant is a different representation
+        mockMvc.perform(get(url.replace("19:00", "20:00")).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk());
+    }
+}
@@ -22,5 +22,6 @@ class EventMapperTest extends BaseTest {
         assertEquals(reservation.getReservationStartTime(), tableReservedEvent.reservationStartTime());
         assertEquals(reservation.getReservationEndTime(), tableReservedEvent.reservationEndTime());
         assertEquals(reservation.getReservationStatus().name(), tableReservedEvent.reservationStatus());
+        assertEquals(reservation.getVersion(), tableReservedEvent.reservationVersion());
     }
 }
\ No newline at end of file
@@ -0,0 +1,225 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import com.assignment.private_dining_reservation_system.BaseTest;
+import com.assignment.private_dining_reservation_system.entity.Room;
+import com.assignment.private_dining_reservation_system.exception.ReservationValidationFailureException;
+import com.assignment.private_dining_reservation_system.model.projection.RoomTimeSlot;
+import com.assignment.private_dining_reservation_system.model.response.AvailableSlotResponse;
+import com.assignment.private_dining_reservation_system.model.response.DayAvailabilityResponse;
+import com.assignment.private_dining_reservation_system.model.response.FreeWindowResponse;
+import com.assignment.private_dining_reservation_system.model.response.RoomAvailabilityCalendarResponse;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class AvailabilityCalendarServiceTest extends BaseTest {
+    private static final LocalDate FROM = LocalDate.now().plusDays(2);
+
+    @Mock
+    RoomService roomService;
+    @Mock
+    AvailabilityReadModel availabilityReadModel;
+    @InjectMocks
+    AvailabilityCalendarService availabilityCalendarService;
+
+    @Test
+    void getAvailabilityCalendar_OneRangeQueryForAllDays() {
+        Room room = getRoom(1L);
+        givenRooms(room);
+        when(availabilityReadModel.findTimeSlots(1L, List.of(1L), FROM.minusDays(1), FROM.plusDays(3)))
+                .thenReturn(List.of(
+                        new RoomTimeSlot(1L, FROM.plusDays(1), LocalTime.of(17, 0), LocalTime.of(18, 30)),
+                        new RoomTimeSlot(1L, FROM, LocalTime.of(18, 0), LocalTime.of(20, 0)),
+                        new RoomTimeSlot(1L, FROM.plusDays(2), LocalTime.of(16, 0), LocalTime.of(22, 0))));
+
+        List<RoomAvailabilityCalendarResponse> calendar = availabilityCalendarService.getAvailabilityCalendar(1L, FROM, FROM.plusDays(2));
+
+        List<DayAvailabilityResponse> days = calendar.getFirst().days();
+        assertEquals(3, days.size());
+        //15:30-18:00 is shorter than the minimum booking
+        assertEquals(List.of(window(20, 0, 23, 30)), days.get(0).freeWindows());
+        assertEquals(List.of(window(18, 30, 23, 30)), days.get(1).freeWindows());
+        assertEquals(List.of(), days.get(2).freeWindows());
+        verify(availabilityReadModel, times(1)).findTimeSlots(1L, List.of(1L), FROM.minusDays(1), FROM.plusDays(3));
+    }
+
+    @Test
+    void getAvailabilityCalendar_ClosedDayAndHoursPastMidnight() {
+        Room room = getRoom(1L);
+        room.getRoomMetaData().setRoomOpeningTime(LocalTime.of(20, 0));
+        room.getRoomMetaData().setRoomClosingTime(LocalTime.of(2, 0));
+        room.getRoomMetaData().setOpenDays(EnumSet.of(FROM.getDayOfWeek()));
+        givenRooms(room);
+        //Previous day reservation running into the window, next day reservation cutting its tail
+        when(availabilityReadModel.findTimeSlots(1L, List.of(1L), FROM.minusDays(1), FROM.plusDays(2)))
+                .thenReturn(List.of(
+                        new RoomTimeSlot(1L, FROM.minusDays(1), LocalTime.of(21, 0), LocalTime.of(0, 0)),
+                        new RoomTimeSlot(1L, FROM.plusDays(1), LocalTime.of(1, 0), LocalTime.of(4, 0))));
+
+        List<DayAvailabilityResponse> days = availabilityCalendarService.getAvailabilityCalendar(1L, FROM, FROM.plusDays(1)).getFirst().days();
+
+        assertEquals(List.of(window(20, 0, 1, 0)), days.get(0).freeWindows());
+        assertEquals(List.of(), days.get(1).freeWindows());
+    }
+
+    @Test
+    void getAvailabilityCalendar_RoomWithoutMetaDataHasNoWindows() {
+        Room room = getRoom(1L);
+        room.setRoomMetaData(null);
+        givenRooms(room);
+
+        List<DayAvailabilityResponse> days = availabilityCalendarService.getAvailabilityCalendar(1L, FROM, FROM).getFirst().days();
+
+        assertEquals(List.of(new DayAvailabilityResponse(FROM, List.of())), days);
+    }
+
+    @Test
+    void getAvailabilityCalendar_NoRoomsSkipsReservationQuery() {
+        when(roomService.getRoomIdsAfter(1L, 0L, AvailabilityCalendarService.ROOMS_PER_CHUNK)).thenReturn(List.of());
+
+        assertEquals(List.of(), availabilityCalendarService.getAvailabilityCalendar(1L, null, null));
+        verifyNoInteractions(availabilityReadModel);
+    }
+
+    @Test
+    void streamAvailabilityCalendar_ReadsRoomsPageByPage() {
+        int chunk = AvailabilityCalendarService.ROOMS_PER_CHUNK;
+        List<Long> firstIds = LongStream.rangeClosed(1, chunk).boxed().toList();
+        List<Room> firstRooms = firstIds.stream().map(this::getRoom).toList();
+        Room lastRoom = getRoom(chunk + 1L);
+        when(roomService.getRoomIdsAfter(1L, 0L, chunk)).thenReturn(firstIds);
+        //Out of id order, as the rooms query does not sort
+        when(roomService.getByIds(firstIds)).thenReturn(firstRooms.reversed());
+        when(availabilityReadModel.findTimeSlots(1L, firstIds, FROM.minusDays(1), FROM.plusDays(1)))
+                .thenReturn(List.of(new RoomTimeSlot(1L, FROM, LocalTime.of(15, 30), LocalTime.of(20, 30))));
+
+        Stream<RoomAvailabilityCalendarResponse> calendar = availabilityCalendarService.streamAvailabilityCalendar(1L, FROM, FROM);
+        Iterator<RoomAvailabilityCalendarResponse> rooms = calendar.iterator();
+        assertEquals(1L, rooms.next().roomId());
+        //Next page is only read once the stream reaches it
+        verify(roomService, never()).getRoomIdsAfter(1L, (long) chunk, chunk);
+
+        when(roomService.getRoomIdsAfter(1L, (long) chunk, chunk)).thenReturn(List.of(lastRoom.getId()));
+        when(roomService.getByIds(List.of(lastRoom.getId()))).thenReturn(List.of(lastRoom));
+        when(availabilityReadModel.findTimeSlots(1L, List.of(lastRoom.getId()), FROM.minusDays(1), FROM.plusDays(1))).thenReturn(List.of());
+        List<RoomAvailabilityCalendarResponse> remaining = new ArrayList<>();
+        rooms.forEachRemaining(remaining::add);
+
+        assertEquals(chunk, remaining.size());
+        assertEquals(2L, remaining.getFirst().roomId());
+        assertEquals(List.of(window(15, 30, 23, 30)), remaining.getLast().days().getFirst().freeWindows());
+        //Short page is the last, no query for a page after it
+        verify(roomService, times(2)).getRoomIdsAfter(anyLong(), anyLong(), anyInt());
+    }
+
+    @Test
+    void streamAvailabilityCalendar_InvalidRangeFailsBeforeStreaming() {
+        assertThrows(ReservationValidationFailureException.class,
+                () -> availabilityCalendarService.streamAvailabilityCalendar(1L, FROM, FROM.minusDays(1)));
+        verifyNoInteractions(roomService, availabilityReadModel);
+    }
+
+    @Test
+    void getAvailabilityCalendar_InvalidRange() {
+        assertThrows(ReservationValidationFailureException.class,
+                () -> availabilityCalendarService.getAvailabilityCalendar(1L, LocalDate.now().minusDays(1), FROM));
+        assertThrows(ReservationValidationFailureException.class,
+                () -> availabilityCalendarService.getAvailabilityCalendar(1L, FROM, LocalDate.now().plusDays(31)));
+        assertThrows(ReservationValidationFailureException.class,
+                () -> availabilityCalendarService.getAvailabilityCalendar(1L, FROM, FROM.minusDays(1)));
+        verifyNoInteractions(roomService, availabilityReadModel);
+    }
+
+    @Test
+    void findNextAvailableSlots_StopsScanOnceLimitReached() {
+        Room room = getRoom(1L);
+        Room secondRoom = getRoom(2L);
+        when(roomService.getRoomsForGroupSize(1L, 14)).thenReturn(List.of(room, secondRoom));
+        when(availabilityReadModel.findTimeSlots(1L, FROM.minusDays(1), FROM.plusDays(7)))
+                .thenReturn(List.of(
+                        new RoomTimeSlot(1L, FROM, LocalTime.of(15, 30), LocalTime.of(19, 0)),
+                        new RoomTimeSlot(2L, FROM, LocalTime.of(16, 0), LocalTime.of(23, 0))));
+
+        List<AvailableSlotResponse> slots = availabilityCalendarService.findNextAvailableSlots(1L, 14, 3, 3, FROM);
+
+        //Second room has no 3 hours left on the first day, slots of the same start are in room order
+        assertEquals(List.of(
+                slot(room, FROM, LocalTime.of(19, 0)),
+                slot(room, FROM.plusDays(1), LocalTime.of(15, 30)),
+                slot(secondRoom, FROM.plusDays(1), LocalTime.of(15, 30))), slots);
+        verify(availabilityReadModel, times(1)).findTimeSlots(anyLong(), any(), any());
+    }
+
+    @Test
+    void findNextAvailableSlots_ScansForwardWeekByWeek() {
+        Room room = getRoom(1L);
+        room.getRoomMetaData().setOpenDays(EnumSet.of(FROM.plusDays(8).getDayOfWeek()));
+        when(roomService.getRoomsForGroupSize(1L, 14)).thenReturn(List.of(room));
+        when(availabilityReadModel.findTimeSlots(eq(1L), any(LocalDate.class), any(LocalDate.class)))
+                .thenReturn(List.of());
+
+        List<AvailableSlotResponse> slots = availabilityCalendarService.findNextAvailableSlots(1L, 14, 4, 2, FROM.plusDays(2));
+
+        //Open one day a week, second slot is only found in the next week scanned
+        assertEquals(List.of(
+                new AvailableSlotResponse(1L, room.getRoomName(), room.getRoomType(), room.getMinCapacity(), room.getMaxCapacity(),
+                        FROM.plusDays(8), LocalTime.of(15, 30), LocalTime.of(19, 30)),
+                new AvailableSlotResponse(1L, room.getRoomName(), room.getRoomType(), room.getMinCapacity(), room.getMaxCapacity(),
+                        FROM.plusDays(15), LocalTime.of(15, 30), LocalTime.of(19, 30))), slots);
+        verify(availabilityReadModel, times(1)).findTimeSlots(1L, FROM.plusDays(1), FROM.plusDays(9));
+        verify(availabilityReadModel, times(1)).findTimeSlots(1L, FROM.plusDays(8), FROM.plusDays(16));
+        verify(availabilityReadModel, times(2)).findTimeSlots(anyLong(), any(), any());
+    }
+
+    @Test
+    void findNextAvailableSlots_NoRoomForGroupSize() {
+        when(roomService.getRoomsForGroupSize(1L, 50)).thenReturn(List.of());
+
+        assertEquals(List.of(), availabilityCalendarService.findNextAvailableSlots(1L, 50, 3, 5, null));
+        verifyNoInteractions(availabilityReadModel);
+    }
+
+    @Test
+    void findNextAvailableSlots_InvalidSearch() {
+        assertThrows(ReservationValidationFailureException.class,
+                () -> availabilityCalendarService.findNextAvailableSlots(1L, null, 3, 5, null));
+        assertThrows(ReservationValidationFailureException.class,
+                () -> availabilityCalendarService.findNextAvailableSlots(1L, 14, 2, 5, null));
+        assertThrows(ReservationValidationFailureException.class,
+                () -> availabilityCalendarService.findNextAvailableSlots(1L, 14, 3, 0, null));
+        assertThrows(ReservationValidationFailureException.class,
+                () -> availabilityCalendarService.findNextAvailableSlots(1L, 14, 3, 5, LocalDate.now().minusDays(1)));
+        verifyNoInteractions(roomService, availabilityReadModel);
+    }
+
+    private AvailableSlotResponse slot(Room room, LocalDate date, LocalTime startTime) {
+        return new AvailableSlotResponse(room.getId(), room.getRoomName(), room.getRoomType(), room.getMinCapacity(), room.getMaxCapacity(),
+                date, startTime, startTime.plusHours(3));
+    }
+
+    private FreeWindowResponse window(int startHour, int startMinute, int endHour, int endMinute) {
+        return new FreeWindowResponse(LocalTime.of(startHour, startMinute), LocalTime.of(endHour, endMinute));
+    }
+
+    private void givenRooms(Room room) {
+        when(roomService.getRoomIdsAfter(1L, 0L, AvailabilityCalendarService.ROOMS_PER_CHUNK)).thenReturn(List.of(room.getId()));
+        when(roomService.getByIds(List.of(room.getId()))).thenReturn(List.of(room));
+    }
+}
@@ -0,0 +1,164 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import com.assignment.private_dining_reservation_system.BaseTest;
+import com.assignment.private_dining_reservation_system.event.TableReservedEvent;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.springframework.kafka.core.ConsumerFactory;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+class AvailabilityProjectionRebuilderTest extends BaseTest {
+    private static final String TOPIC = "reservation-events";
+
+    @Mock
+    ConsumerFactory<Long, TableReservedEvent> consumerFactory;
+    @Mock
+    AvailabilityProjector availabilityProjector;
+
+    MockConsumer<Long, TableReservedEvent> consumer;
+    AvailabilityProjectionRebuilder availabilityProjectionRebuilder;
+
+    @BeforeEach
+    void setUp() {
+        consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        availabilityProjectionRebuilder = new AvailabilityProjectionRebuilder(consumerFactory, availabilityProjector, TOPIC, Duration.ofMillis(10), Duration.ofSeconds(5));
+    }
+
+    @Test
+    void rebuild_ReplaysEveryPartitionFromBeginningOverExistingRows() {
+        TopicPartition firstPartition = new TopicPartition(TOPIC, 0);
+        TopicPartition secondPartition = new TopicPartition(TOPIC, 1);
+        when(consumerFactory.createConsumer(eq(AvailabilityProjectionRebuilder.REBUILD_GROUP_ID), isNull(), eq("-rebuild"), any(Properties.class)))
+                .thenReturn(consumer);
+        consumer.updatePartitions(TOPIC, List.of(
+                new PartitionInfo(TOPIC, 0, null, null, null),
+                new PartitionInfo(TOPIC, 1, null, null, null)));
+        consumer.updateBeginningOffsets(Map.of(firstPartition, 0L, secondPartition, 0L));
+        consumer.updateEndOffsets(Map.of(firstPartition, 2L, secondPartition, 2L));
+        TableReservedEvent booked = getEvent(1L, "CONFIRMED");
+        TableReservedEvent cancelled = getEvent(1L, "CANCELLED");
+        TableReservedEvent otherBooked = getEvent(2L, "CONFIRMED");
+        consumer.schedulePollTask(() -> {
+            consumer.addRecord(new ConsumerRecord<>(TOPIC, 0, 0L, 1L, booked));
+            consumer.addRecord(new ConsumerRecord<>(TOPIC, 1, 0L, 2L, otherBooked));
+        });
+        consumer.schedulePollTask(() -> {
+            consumer.addRecord(new ConsumerRecord<>(TOPIC, 0, 1L, 1L, cancelled));
+            //Tombstone left by compaction
+            consumer.addRecord(new ConsumerRecord<>(TOPIC, 1, 1L, 3L, null));
+        });
+
+        LocalDateTime replayStartedAt = LocalDateTime.now();
+        when(availabilityProjector.replayStartedAt()).thenReturn(replayStartedAt);
+        when(availabilityProjector.removeNotReplayedSince(replayStartedAt)).thenReturn(4);
+
+        assertEquals(3, availabilityProjectionRebuilder.rebuild());
+
+        InOrder inOrder = inOrder(availabilityProjector);
+        inOrder.verify(availabilityProjector).replayStartedAt();
+        inOrder.verify(availabilityProjector).apply(booked, 0L);
+        inOrder.verify(availabilityProjector).markReplayed(List.of(1L, 2L), replayStartedAt);
+        inOrder.verify(availabilityProjector).apply(cancelled, 1L);
+        inOrder.verify(availabilityProjector).markReplayed(List.of(1L), replayStartedAt);
+        //Rows not found on the topic are removed only once the replay caught up
+        inOrder.verify(availabilityProjector).removeNotReplayedSince(replayStartedAt);
+        verify(availabilityProjector, times(1)).apply(otherBooked, 0L);
+        verify(availabilityProjector, times(3)).apply(any(), anyLong());
+        assertTrue(consumer.closed());
+        assertEquals(new AvailabilityProjectionRebuilder.RebuildStatus(availabilityProjectionRebuilder.lastRebuild().finishedAt(), 3, 4, null),
+                availabilityProjectionRebuilder.lastRebuild());
+    }
+
+    @Test
+    void rebuild_EmptyTopic() {
+        TopicPartition partition = new TopicPartition(TOPIC, 0);
+        when(consumerFactory.createConsumer(eq(AvailabilityProjectionRebuilder.REBUILD_GROUP_ID), isNull(), eq("-rebuild"), any(Properties.class)))
+                .thenReturn(consumer);
+        consumer.updatePartitions(TOPIC, List.of(new PartitionInfo(TOPIC, 0, null, null, null)));
+        consumer.updateBeginningOffsets(Map.of(partition, 0L));
+        consumer.updateEndOffsets(Map.of(partition, 0L));
+
+        assertEquals(0, availabilityProjectionRebuilder.rebuild());
+
+        verify(availabilityProjector, never()).apply(any(), anyLong());
+        verify(availabilityProjector, never()).markReplayed(anyList(), any());
+        verify(availabilityProjector, times(1)).removeNotReplayedSince(any());
+    }
+
+    @Test
+    void rebuild_NotCaughtUpInTimeRemovesNothing() {
+        TopicPartition partition = new TopicPartition(TOPIC, 0);
+        when(consumerFactory.createConsumer(eq(AvailabilityProjectionRebuilder.REBUILD_GROUP_ID), isNull(), eq("-rebuild"), any(Properties.class)))
+                .thenReturn(consumer);
+        consumer.updatePartitions(TOPIC, List.of(new PartitionInfo(TOPIC, 0, null, null, null)));
+        consumer.updateBeginningOffsets(Map.of(partition, 0L));
+        consumer.updateEndOffsets(Map.of(partition, 5L));
+        availabilityProjectionRebuilder = new AvailabilityProjectionRebuilder(consumerFactory, availabilityProjector, TOPIC, Duration.ofMillis(10), Duration.ZERO);
+
+        assertThrows(IllegalStateException.class, () -> availabilityProjectionRebuilder.rebuild());
+
+        verify(availabilityProjector, never()).removeNotReplayedSince(any());
+        assertNotNull(availabilityProjectionRebuilder.lastRebuild().failure());
+        assertFalse(availabilityProjectionRebuilder.isRunning());
+        assertTrue(consumer.closed());
+    }
+
+    @Test
+    void startRebuild_RunsInBackground() throws Exception {
+        TopicPartition partition = new TopicPartition(TOPIC, 0);
+        CountDownLatch replayStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(consumerFactory.createConsumer(eq(AvailabilityProjectionRebuilder.REBUILD_GROUP_ID), isNull(), eq("-rebuild"), any(Properties.class)))
+                .thenReturn(consumer);
+        consumer.updatePartitions(TOPIC, List.of(new PartitionInfo(TOPIC, 0, null, null, null)));
+        consumer.updateBeginningOffsets(Map.of(partition, 0L));
+        consumer.updateEndOffsets(Map.of(partition, 0L));
+        when(availabilityProjector.replayStartedAt()).thenAnswer(invocation -> {
+            replayStarted.countDown();
+            release.await();
+            return LocalDateTime.now();
+        });
+
+        assertTrue(availabilityProjectionRebuilder.startRebuild());
+        replayStarted.await();
+        assertTrue(availabilityProjectionRebuilder.isRunning());
+        assertFalse(availabilityProjectionRebuilder.startRebuild());
+        assertThrows(IllegalStateException.class, () -> availabilityProjectionRebuilder.rebuild());
+        release.countDown();
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (availabilityProjectionRebuilder.isRunning() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(availabilityProjectionRebuilder.isRunning());
+        assertNull(availabilityProjectionRebuilder.lastRebuild().failure());
+    }
+
+    private TableReservedEvent getEvent(Long reservationId, String reservationStatus) {
+        return new TableReservedEvent(reservationId, 1L, "restaurant", 2L, "room", LocalDate.now().plusDays(2),
+                LocalTime.of(18, 0), LocalTime.of(21, 0), 12, reservationStatus, "diner@gmail.com", 0L);
+    }
+}
@@ -0,0 +1,89 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import com.assignment.private_dining_reservation_system.BaseTest;
+import com.assignment.private_dining_reservation_system.event.TableReservedEvent;
+import com.assignment.private_dining_reservation_system.repository.RoomAvailabilitySlotRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class AvailabilityProjectorTest extends BaseTest {
+    private static final LocalDate DATE = LocalDate.now().plusDays(2);
+
+    @Mock
+    RoomAvailabilitySlotRepository roomAvailabilitySlotRepository;
+    @Mock
+    RestaurantAvailabilityCache restaurantAvailabilityCache;
+    @InjectMocks
+    AvailabilityProjector availabilityProjector;
+
+    @Test
+    void apply_ConfirmedEventOccupiesSlot() {
+        when(roomAvailabilitySlotRepository.upsert(5L, 1L, 2L, DATE, LocalTime.of(18, 0), LocalTime.of(21, 0), true, 0L, 7L)).thenReturn(1);
+
+        assertTrue(availabilityProjector.apply(getEvent("CONFIRMED", 0L), 7L));
+
+        verify(restaurantAvailabilityCache, times(1)).reservationChanged(1L, DATE, LocalTime.of(18, 0), LocalTime.of(21, 0));
+    }
+
+    @Test
+    void apply_CancelledEventFreesSlot() {
+        when(roomAvailabilitySlotRepository.upsert(5L, 1L, 2L, DATE, LocalTime.of(18, 0), LocalTime.of(21, 0), false, 1L, 8L)).thenReturn(1);
+
+        assertTrue(availabilityProjector.apply(getEvent("CANCELLED", 1L), 8L));
+
+        verify(restaurantAvailabilityCache, times(1)).reservationChanged(1L, DATE, LocalTime.of(18, 0), LocalTime.of(21, 0));
+    }
+
+    @Test
+    void apply_StaleEventLeavesCache() {
+        when(roomAvailabilitySlotRepository.upsert(anyLong(), anyLong(), anyLong(), any(), any(), any(), anyBoolean(), anyLong(), anyLong())).thenReturn(0);
+
+        assertFalse(availabilityProjector.apply(getEvent("CONFIRMED", 0L), 3L));
+
+        verifyNoInteractions(restaurantAvailabilityCache);
+    }
+
+    @Test
+    void apply_ResentEventKeepsItsReservationVersion() {
+        //Booking event re-sent by the relay after the cancellation was acknowledged, at a higher offset
+        when(roomAvailabilitySlotRepository.upsert(5L, 1L, 2L, DATE, LocalTime.of(18, 0), LocalTime.of(21, 0), true, 0L, 9L)).thenReturn(0);
+
+        assertFalse(availabilityProjector.apply(getEvent("CONFIRMED", 0L), 9L));
+
+        verifyNoInteractions(restaurantAvailabilityCache);
+    }
+
+    @Test
+    void removeNotReplayedSince() {
+        LocalDateTime replayStartedAt = LocalDateTime.now();
+        when(roomAvailabilitySlotRepository.deleteNotReplayedSince(replayStartedAt)).thenReturn(2);
+        assertEquals(2, availabilityProjector.removeNotReplayedSince(replayStartedAt));
+        verify(restaurantAvailabilityCache, times(1)).invalidateAll();
+    }
+
+    @Test
+    void removeNotReplayedSince_NothingRemovedKeepsCache() {
+        LocalDateTime replayStartedAt = LocalDateTime.now();
+        when(roomAvailabilitySlotRepository.deleteNotReplayedSince(replayStartedAt)).thenReturn(0);
+        assertEquals(0, availabilityProjector.removeNotReplayedSince(replayStartedAt));
+        verifyNoInteractions(restaurantAvailabilityCache);
+    }
+
+    private TableReservedEvent getEvent(String reservationStatus, long reservationVersion) {
+        return new TableReservedEvent(5L, 1L, "restaurant", 2L, "room", DATE, LocalTime.of(18, 0), LocalTime.of(21, 0),
+                12, reservationStatus, "diner@gmail.com", reservationVersion);
+    }
+}
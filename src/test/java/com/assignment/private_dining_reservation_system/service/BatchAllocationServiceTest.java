@@ -0,0 +1,126 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import com.assignment.private_dining_reservation_system.BaseTest;
+import com.assignment.private_dining_reservation_system.entity.Reservation;
+import com.assignment.private_dining_reservation_system.entity.Room;
+import com.assignment.private_dining_reservation_system.entity.RoomType;
+import com.assignment.private_dining_reservation_system.exception.ReservationValidationFailureException;
+import com.assignment.private_dining_reservation_system.model.request.AutoAssignReservationRequest;
+import com.assignment.private_dining_reservation_system.model.request.ReservationRequest;
+import com.assignment.private_dining_reservation_system.model.request.ReservationTimeFrame;
+import com.assignment.private_dining_reservation_system.service.ReservationService.BatchReservationResult;
+import com.assignment.private_dining_reservation_system.service.RestaurantAvailabilityCache.DayAvailability;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class BatchAllocationServiceTest extends BaseTest {
+    private static final LocalDate DATE = LocalDate.now().plusDays(2);
+
+    @Mock
+    ReservationService reservationService;
+    @Mock
+    ReservationValidationService reservationValidationService;
+    @Mock
+    RoomService roomService;
+    @Mock
+    RestaurantAvailabilityCache restaurantAvailabilityCache;
+    @InjectMocks
+    BatchAllocationService batchAllocationService;
+
+    @Test
+    void assignAll_BooksWinnersInOnePass() {
+        Room room = getRoom(1L);
+        Room otherRoom = getRoom(2L);
+        when(roomService.getRoomsWithMetaData(1L)).thenReturn(List.of(room, otherRoom));
+        //Room 1 is booked until 18:00
+        when(restaurantAvailabilityCache.get(1L, DATE)).thenReturn(new DayAvailability(List.of(),
+                Map.of(1L, OccupancyBitmap.occupy(OccupancyBitmap.empty(), 15 * 60 + 30, 18 * 60)), System.nanoTime()));
+        when(restaurantAvailabilityCache.get(1L, DATE.plusDays(1))).thenReturn(new DayAvailability(List.of(), Map.of(), System.nanoTime()));
+        //Only the one hour request fails validation, the others pass unstubbed
+        lenient().doThrow(new ReservationValidationFailureException("Min Booking for Private Dining is for 3 hours"))
+                .when(reservationValidationService).validateDateAndTime(new ReservationTimeFrame(DATE, LocalTime.of(20, 0), LocalTime.of(21, 0)));
+        Reservation reservation = getReservation();
+        Reservation otherReservation = getReservation();
+        when(reservationService.createReservations(any())).thenReturn(List.of(
+                BatchReservationResult.created(0, reservation),
+                BatchReservationResult.created(1, otherReservation)));
+
+        List<BatchReservationResult> results = batchAllocationService.assignAll(List.of(
+                request(LocalTime.of(18, 0), LocalTime.of(21, 0)),
+                request(LocalTime.of(20, 0), LocalTime.of(21, 0)),
+                request(LocalTime.of(17, 0), LocalTime.of(20, 0)),
+                request(LocalTime.of(19, 0), LocalTime.of(22, 0))));
+
+        ArgumentCaptor<List<ReservationRequest>> reservationRequests = ArgumentCaptor.captor();
+        verify(reservationService, times(1)).createReservations(reservationRequests.capture());
+        //17:00 ends first and only fits room 2, 18:00 follows the existing booking of room 1
+        assertEquals(List.of(1L, 2L), reservationRequests.getValue().stream().map(ReservationRequest::roomId).toList());
+        assertEquals(List.of(LocalTime.of(18, 0), LocalTime.of(17, 0)),
+                reservationRequests.getValue().stream().map(ReservationRequest::reservationStartTime).toList());
+        assertSame(reservation, results.get(0).reservation());
+        assertEquals("Min Booking for Private Dining is for 3 hours", results.get(1).error());
+        assertSame(otherReservation, results.get(2).reservation());
+        assertEquals(2, results.get(2).index());
+        assertEquals("No room is available to accommodate this group size", results.get(3).error());
+    }
+
+    @Test
+    void assignAll_OffersItemWithTakenRoomToSolverAgain() {
+        stubFreeRooms(getRoom(1L), getRoom(2L));
+        Reservation reservation = getReservation();
+        when(reservationService.createReservations(any())).thenReturn(
+                List.of(BatchReservationResult.taken(0, "Room is not available for reservation at give time range")),
+                List.of(BatchReservationResult.created(0, reservation)));
+
+        List<BatchReservationResult> results = batchAllocationService.assignAll(List.of(request(LocalTime.of(18, 0), LocalTime.of(21, 0))));
+
+        ArgumentCaptor<List<ReservationRequest>> reservationRequests = ArgumentCaptor.captor();
+        verify(reservationService, times(2)).createReservations(reservationRequests.capture());
+        //Solver keeps the taken room occupied for the time, the second round goes to the other room
+        assertEquals(List.of(1L, 2L), reservationRequests.getAllValues().stream().map(requests -> requests.getFirst().roomId()).toList());
+        assertSame(reservation, results.getFirst().reservation());
+    }
+
+    @Test
+    void assignAll_KeepsTakenErrorOnceNoRoomIsLeft() {
+        stubFreeRooms(getRoom(1L), getRoom(2L));
+        when(reservationService.createReservations(any())).thenReturn(
+                List.of(BatchReservationResult.taken(0, "Room is not available for reservation at give time range")));
+
+        List<BatchReservationResult> results = batchAllocationService.assignAll(List.of(request(LocalTime.of(18, 0), LocalTime.of(21, 0))));
+
+        verify(reservationService, times(2)).createReservations(any());
+        assertEquals("Room is not available for reservation at give time range", results.getFirst().error());
+        assertTrue(results.getFirst().roomTaken());
+    }
+
+    @Test
+    void assignAll_RejectsMixedRestaurantsOrDates() {
+        AutoAssignReservationRequest otherDate = new AutoAssignReservationRequest(1L, RoomType.ROOFTOP, LocalTime.of(18, 0), LocalTime.of(21, 0),
+                DATE.plusDays(1), 12, "diner@email.com");
+        assertThrows(ReservationValidationFailureException.class,
+                () -> batchAllocationService.assignAll(List.of(request(LocalTime.of(18, 0), LocalTime.of(21, 0)), otherDate)));
+        verifyNoInteractions(reservationService, roomService, restaurantAvailabilityCache);
+    }
+
+    private void stubFreeRooms(Room... rooms) {
+        when(roomService.getRoomsWithMetaData(1L)).thenReturn(List.of(rooms));
+        when(restaurantAvailabilityCache.get(1L, DATE)).thenReturn(new DayAvailability(List.of(), Map.of(), System.nanoTime()));
+        when(restaurantAvailabilityCache.get(1L, DATE.plusDays(1))).thenReturn(new DayAvailability(List.of(), Map.of(), System.nanoTime()));
+    }
+
+    private static AutoAssignReservationRequest request(LocalTime startTime, LocalTime endTime) {
+        return new AutoAssignReservationRequest(1L, RoomType.ROOFTOP, startTime, endTime, DATE, 12, "diner@email.com");
+    }
+}
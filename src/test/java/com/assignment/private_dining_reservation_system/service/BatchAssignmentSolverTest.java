@@ -0,0 +1,112 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import com.assignment.private_dining_reservation_system.entity.RoomType;
+import com.assignment.private_dining_reservation_system.service.BatchAssignmentSolver.CandidateRoom;
+import com.assignment.private_dining_reservation_system.service.BatchAssignmentSolver.PendingRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.assignment.private_dining_reservation_system.service.BatchAssignmentSolver.UNASSIGNED;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchAssignmentSolverTest {
+    private static final int OPENS_AT = 15 * 60 + 30;
+    private static final int CLOSES_AT = 23 * 60 + 30;
+
+    @Test
+    void assign_EarliestEndFirstFitsMoreRequests() {
+        BatchAssignmentSolver batchAssignmentSolver = new BatchAssignmentSolver(List.of(room(1L, 15, null)));
+
+        //Taken in request order the long evening would block both shorter ones
+        int[] assignments = batchAssignmentSolver.assign(List.of(
+                request(12, 16, 22),
+                request(12, 16, 19),
+                request(12, 19, 22)));
+
+        assertArrayEquals(new int[]{UNASSIGNED, 0, 0}, assignments);
+    }
+
+    @Test
+    void assign_TightestFreeRoomAroundExistingBookings() {
+        BatchAssignmentSolver batchAssignmentSolver = new BatchAssignmentSolver(List.of(
+                room(1L, 60, null),
+                room(2L, 15, OccupancyBitmap.occupy(OccupancyBitmap.empty(), 16 * 60, 19 * 60)),
+                room(3L, 15, null)));
+
+        int[] assignments = batchAssignmentSolver.assign(List.of(
+                request(12, 19, 22),
+                request(12, 19, 22),
+                request(12, 19, 22),
+                request(40, 19, 22)));
+
+        //Larger group is placed first and takes the hall, room 2 is preferred over room 3 as the booking starts right
+        //where its existing one ends, no idle gap left
+        assertArrayEquals(new int[]{1, 2, UNASSIGNED, 0}, assignments);
+    }
+
+    @Test
+    void assign_RoomTypeCapacityAndOperatingWindow() {
+        BatchAssignmentSolver batchAssignmentSolver = new BatchAssignmentSolver(List.of(
+                new CandidateRoom(1L, RoomType.HALL, 20, 60, OPENS_AT, CLOSES_AT, null, null),
+                new CandidateRoom(2L, RoomType.ROOFTOP, 10, 15, 1, 0, null, null)));
+
+        int[] assignments = batchAssignmentSolver.assign(List.of(
+                new PendingRequest(RoomType.HALL, 12, 18 * 60, 21 * 60),
+                new PendingRequest(RoomType.HALL, 30, 14 * 60, 17 * 60),
+                new PendingRequest(RoomType.ROOFTOP, 12, 18 * 60, 21 * 60),
+                new PendingRequest(RoomType.PRIVATE_ROOM, 12, 18 * 60, 21 * 60),
+                new PendingRequest(RoomType.HALL, 30, 18 * 60, 21 * 60)));
+
+        assertArrayEquals(new int[]{UNASSIGNED, UNASSIGNED, UNASSIGNED, UNASSIGNED, 0}, assignments);
+    }
+
+    @Test
+    void assign_CrossingMidnightAgainstNextDayOccupancy() {
+        byte[] nextDayOccupancy = OccupancyBitmap.occupy(OccupancyBitmap.empty(), 60, 120);
+        BatchAssignmentSolver batchAssignmentSolver = new BatchAssignmentSolver(List.of(
+                new CandidateRoom(1L, RoomType.ROOFTOP, 10, 15, 20 * 60, 26 * 60, null, nextDayOccupancy)));
+
+        int[] assignments = batchAssignmentSolver.assign(List.of(
+                new PendingRequest(RoomType.ROOFTOP, 12, 22 * 60, 25 * 60 + 30),
+                new PendingRequest(RoomType.ROOFTOP, 12, 21 * 60 + 30, 25 * 60)));
+
+        assertArrayEquals(new int[]{UNASSIGNED, 0}, assignments);
+    }
+
+    @Test
+    void assign_FallsBackToNextRoomType() {
+        BatchAssignmentSolver batchAssignmentSolver = new BatchAssignmentSolver(List.of(
+                room(1L, 15, null),
+                new CandidateRoom(2L, RoomType.HALL, 10, 15, OPENS_AT, CLOSES_AT, null, null)));
+
+        //Rooftop is preferred, the hall takes the second group, the hall only group finds it taken
+        int[] assignments = batchAssignmentSolver.assign(List.of(
+                new PendingRequest(List.of(RoomType.ROOFTOP, RoomType.HALL), 12, 19 * 60, 22 * 60),
+                new PendingRequest(List.of(RoomType.ROOFTOP, RoomType.HALL), 12, 19 * 60, 22 * 60),
+                new PendingRequest(RoomType.HALL, 12, 19 * 60, 22 * 60)));
+
+        assertArrayEquals(new int[]{0, 1, UNASSIGNED}, assignments);
+    }
+
+    @Test
+    void bitset_MatchesOccupancyBitmapAcrossWordBoundaries() {
+        byte[] occupancy = OccupancyBitmap.occupy(OccupancyBitmap.empty(), 63, 130);
+        long[] words = new long[45];
+        BatchAssignmentSolver.occupy(words, 63, 130);
+        for (int from = 0; from < 200; from += 7) {
+            for (int to = from + 1; to < 260; to += 11) {
+                assertEquals(OccupancyBitmap.isFree(occupancy, from, to), BatchAssignmentSolver.isFree(words, from, to), from + "-" + to);
+                assertEquals(OccupancyBitmap.freeMinutesBefore(occupancy, from, to), BatchAssignmentSolver.freeMinutesBefore(words, from, to), from + "-" + to);
+            }
+        }
+    }
+
+    private static CandidateRoom room(Long roomId, int maxCapacity, byte[] occupancy) {
+        return new CandidateRoom(roomId, RoomType.ROOFTOP, 10, maxCapacity, OPENS_AT, CLOSES_AT, occupancy, null);
+    }
+
+    private static PendingRequest request(int groupSize, int startHour, int endHour) {
+        return new PendingRequest(RoomType.ROOFTOP, groupSize, startHour * 60, endHour * 60);
+    }
+}
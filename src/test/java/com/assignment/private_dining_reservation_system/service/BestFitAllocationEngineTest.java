@@ -0,0 +1,127 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import com.assignment.private_dining_reservation_system.BaseTest;
+import com.assignment.private_dining_reservation_system.entity.Room;
+import com.assignment.private_dining_reservation_system.model.projection.RoomView;
+import com.assignment.private_dining_reservation_system.model.request.ReservationTimeFrame;
+import com.assignment.private_dining_reservation_system.service.RestaurantAvailabilityCache.DayAvailability;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BestFitAllocationEngineTest extends BaseTest {
+    private static final LocalDate DATE = LocalDate.now().plusDays(2);
+
+    @Mock
+    RestaurantAvailabilityCache restaurantAvailabilityCache;
+
+    BestFitAllocationEngine bestFitAllocationEngine;
+
+    @BeforeEach
+    void setUp() {
+        bestFitAllocationEngine = new BestFitAllocationEngine(restaurantAvailabilityCache, 15, 10000);
+    }
+
+    @Test
+    void rank_SmallestFittingRoomFirst() {
+        Room hall = getRoom(1L);
+        hall.setMaxCapacity(60);
+        Room room = getRoom(2L);
+        when(restaurantAvailabilityCache.get(1L, DATE)).thenReturn(day(Map.of(), hall, room));
+
+        List<Room> ranked = bestFitAllocationEngine.rank(1L, List.of(hall, room), timeFrame(18, 21), 12);
+
+        assertEquals(2L, ranked.getFirst().getId());
+    }
+
+    @Test
+    void rank_RoomAdjacentToBookingOverRoomLeavingDeadGap() {
+        Room room = getRoom(1L);
+        Room adjacentRoom = getRoom(2L);
+        //Room 1 would be left with 30 unbookable minutes between 18:30 and 19:00
+        when(restaurantAvailabilityCache.get(1L, DATE)).thenReturn(day(Map.of(
+                1L, occupied(15 * 60 + 30, 18 * 60 + 30),
+                2L, occupied(16 * 60, 19 * 60)), room, adjacentRoom));
+
+        List<Room> ranked = bestFitAllocationEngine.rank(1L, List.of(room, adjacentRoom), timeFrame(19, 22), 12);
+
+        assertEquals(2L, ranked.getFirst().getId());
+    }
+
+    @Test
+    void rank_LowerMinSpendOnEqualFit() {
+        Room premiumRoom = getRoom(1L);
+        premiumRoom.setMinSpendInCents(new BigDecimal(50000));
+        Room room = getRoom(2L);
+        when(restaurantAvailabilityCache.get(1L, DATE)).thenReturn(day(Map.of(), premiumRoom, room));
+
+        List<Room> ranked = bestFitAllocationEngine.rank(1L, List.of(premiumRoom, room), timeFrame(18, 21), 12);
+
+        assertEquals(2L, ranked.getFirst().getId());
+    }
+
+    @Test
+    void rank_EveryCandidateInOrder() {
+        Room hall = getRoom(1L);
+        hall.setMaxCapacity(60);
+        Room premiumRoom = getRoom(2L);
+        premiumRoom.setMinSpendInCents(new BigDecimal(50000));
+        Room room = getRoom(3L);
+        when(restaurantAvailabilityCache.get(1L, DATE)).thenReturn(day(Map.of(), hall, premiumRoom, room));
+
+        List<Room> ranked = bestFitAllocationEngine.rank(1L, List.of(hall, premiumRoom, room), timeFrame(18, 21), 12);
+
+        assertEquals(List.of(3L, 2L, 1L), ranked.stream().map(Room::getId).toList());
+    }
+
+    @Test
+    void rank_ReadsNextDayWhenWindowRunsPastMidnight() {
+        Room room = getRoom(1L);
+        Room otherRoom = getRoom(2L);
+        for (Room lateRoom : List.of(room, otherRoom)) {
+            lateRoom.getRoomMetaData().setRoomOpeningTime(LocalTime.of(20, 0));
+            lateRoom.getRoomMetaData().setRoomClosingTime(LocalTime.of(2, 0));
+        }
+        when(restaurantAvailabilityCache.get(1L, DATE)).thenReturn(day(Map.of(), room, otherRoom));
+        //Room 1 would be left with an hour between 23:00 and its booking at midnight
+        when(restaurantAvailabilityCache.get(1L, DATE.plusDays(1))).thenReturn(day(Map.of(1L, occupied(0, 60)), room, otherRoom));
+
+        List<Room> ranked = bestFitAllocationEngine.rank(1L, List.of(room, otherRoom), timeFrame(20, 23), 12);
+
+        assertEquals(2L, ranked.getFirst().getId());
+        verify(restaurantAvailabilityCache, times(1)).get(1L, DATE.plusDays(1));
+    }
+
+    @Test
+    void rank_SingleFittingRoomWithoutReadingOccupancy() {
+        Room room = getRoom(1L);
+        Room smallRoom = getRoom(2L);
+        smallRoom.setMaxCapacity(8);
+        smallRoom.setMinCapacity(2);
+
+        assertEquals(List.of(room), bestFitAllocationEngine.rank(1L, List.of(smallRoom, room), timeFrame(18, 21), 12));
+        assertEquals(List.of(), bestFitAllocationEngine.rank(1L, List.of(smallRoom, room), timeFrame(18, 21), 40));
+        verifyNoInteractions(restaurantAvailabilityCache);
+    }
+
+    private static ReservationTimeFrame timeFrame(int startHour, int endHour) {
+        return new ReservationTimeFrame(DATE, LocalTime.of(startHour, 0), LocalTime.of(endHour, 0));
+    }
+
+    private static DayAvailability day(Map<Long, byte[]> occupancy, Room... rooms) {
+        return new DayAvailability(List.of(rooms).stream().map(RoomView::of).toList(), occupancy, System.nanoTime());
+    }
+
+    private static byte[] occupied(int fromMinute, int toMinute) {
+        return OccupancyBitmap.occupy(OccupancyBitmap.empty(), fromMinute, toMinute);
+    }
+}
@@ -0,0 +1,72 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import com.assignment.private_dining_reservation_system.BaseTest;
+import com.assignment.private_dining_reservation_system.entity.Reservation;
+import com.assignment.private_dining_reservation_system.exception.RoomNotAvailableException;
+import com.assignment.private_dining_reservation_system.repository.ReservationRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ExclusionConstraintBookingStrategyTest extends BaseTest {
+    @Mock
+    ReservationRepository reservationRepository;
+    @Mock
+    RoomCalendarService roomCalendarService;
+    @Mock
+    JdbcTemplate jdbcTemplate;
+    @InjectMocks
+    ExclusionConstraintBookingStrategy exclusionConstraintBookingStrategy;
+
+    @Test
+    void reserve() {
+        Reservation reservation = getReservation();
+        when(reservationRepository.saveAndFlush(any(Reservation.class))).thenReturn(reservation);
+        Reservation reservationResult = exclusionConstraintBookingStrategy.reserve(reservation);
+        assertEquals(reservation.getId(), reservationResult.getId());
+        verify(reservationRepository, times(1)).saveAndFlush(any(Reservation.class));
+        verify(roomCalendarService, times(1)).discardOccupancy(reservation.getRoom(), reservation.getReservationDate(),
+                reservation.getReservationStartTime(), reservation.getReservationEndTime());
+    }
+
+    @Test
+    void reserve_ExclusionViolationException() {
+        Reservation reservation = getReservation();
+        SQLException exclusionViolation = new SQLException("conflicting key value violates exclusion constraint", "23P01");
+        when(reservationRepository.saveAndFlush(any(Reservation.class))).thenThrow(new DataIntegrityViolationException("Overlap", exclusionViolation));
+        assertThrows(RoomNotAvailableException.class, () -> exclusionConstraintBookingStrategy.reserve(reservation));
+        verifyNoInteractions(roomCalendarService);
+    }
+
+    @Test
+    void reserve_OtherIntegrityViolationException() {
+        Reservation reservation = getReservation();
+        SQLException notNullViolation = new SQLException("null value in column", "23502");
+        when(reservationRepository.saveAndFlush(any(Reservation.class))).thenThrow(new DataIntegrityViolationException("Not null", notNullViolation));
+        assertThrows(DataIntegrityViolationException.class, () -> exclusionConstraintBookingStrategy.reserve(reservation));
+    }
+
+    @Test
+    void release() {
+        Reservation reservation = getReservation();
+        exclusionConstraintBookingStrategy.release(reservation);
+        verify(roomCalendarService, times(1)).discardOccupancy(reservation.getRoom(), reservation.getReservationDate(),
+                reservation.getReservationStartTime(), reservation.getReservationEndTime());
+        verifyNoInteractions(reservationRepository);
+    }
+
+    @Test
+    void installExclusionConstraint() {
+        exclusionConstraintBookingStrategy.installExclusionConstraint();
+        verify(jdbcTemplate, times(3)).execute(any(String.class));
+    }
+}
@@ -0,0 +1,129 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import com.assignment.private_dining_reservation_system.BaseTest;
+import com.assignment.private_dining_reservation_system.entity.Reservation;
+import com.assignment.private_dining_reservation_system.entity.Room;
+import com.assignment.private_dining_reservation_system.exception.ReservationFailedException;
+import com.assignment.private_dining_reservation_system.exception.RoomNotAvailableException;
+import com.assignment.private_dining_reservation_system.repository.ReservationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class OptimisticBookingStrategyTest extends BaseTest {
+    @Mock
+    RoomCalendarService roomCalendarService;
+    @Mock
+    ReservationRepository reservationRepository;
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    SimpleMeterRegistry meterRegistry;
+    OptimisticBookingStrategy optimisticBookingStrategy;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        optimisticBookingStrategy = new OptimisticBookingStrategy(roomCalendarService, reservationRepository, meterRegistry, 3, Duration.ofMillis(1));
+    }
+
+    @Test
+    void reserve_RetriedOnVersionConflict() {
+        Reservation reservation = getReservation();
+        when(roomCalendarService.compareAndReserveOccupancy(any(Room.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class)))
+                .thenReturn(RoomCalendarService.OccupancyUpdate.VERSION_CONFLICT)
+                .thenReturn(RoomCalendarService.OccupancyUpdate.APPLIED);
+        when(reservationRepository.save(any(Reservation.class))).thenReturn(reservation);
+        Reservation reservationResult = optimisticBookingStrategy.retryOnConflict(() -> optimisticBookingStrategy.reserve(reservation));
+        assertEquals(reservation.getId(), reservationResult.getId());
+        verify(roomCalendarService, times(2)).compareAndReserveOccupancy(any(Room.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class));
+        assertEquals(1.0, meterRegistry.get("reservation.booking.optimistic.retries").tag("operation", "reserve").counter().count());
+    }
+
+    @Test
+    void reserve_VersionConflictRolledBackBeforeRetry() {
+        Reservation reservation = getReservation();
+        when(roomCalendarService.compareAndReserveOccupancy(any(Room.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class)))
+                .thenReturn(RoomCalendarService.OccupancyUpdate.VERSION_CONFLICT)
+                .thenReturn(RoomCalendarService.OccupancyUpdate.APPLIED);
+        when(reservationRepository.save(any(Reservation.class))).thenReturn(reservation);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        optimisticBookingStrategy.retryOnConflict(() -> transactionTemplate.execute(status -> optimisticBookingStrategy.reserve(reservation)));
+
+        InOrder inOrder = inOrder(transactionManager, roomCalendarService);
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(roomCalendarService).compareAndReserveOccupancy(any(Room.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class));
+        inOrder.verify(transactionManager).rollback(any());
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(roomCalendarService).compareAndReserveOccupancy(any(Room.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class));
+        inOrder.verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void reserve_VersionConflictThrownWithoutRetry() {
+        Reservation reservation = getReservation();
+        when(roomCalendarService.compareAndReserveOccupancy(any(Room.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class)))
+                .thenReturn(RoomCalendarService.OccupancyUpdate.VERSION_CONFLICT);
+        assertThrows(ReservationFailedException.class, () -> optimisticBookingStrategy.reserve(reservation));
+        verify(roomCalendarService, times(1)).compareAndReserveOccupancy(any(Room.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class));
+        verifyNoInteractions(reservationRepository);
+    }
+
+    @Test
+    void reserve_OccupiedException() {
+        Reservation reservation = getReservation();
+        when(roomCalendarService.compareAndReserveOccupancy(any(Room.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class)))
+                .thenReturn(RoomCalendarService.OccupancyUpdate.OCCUPIED);
+        assertThrows(RoomNotAvailableException.class, () -> optimisticBookingStrategy.reserve(reservation));
+        verifyNoInteractions(reservationRepository);
+    }
+
+    @Test
+    void reserve_RetriesExhaustedException() {
+        Reservation reservation = getReservation();
+        when(roomCalendarService.compareAndReserveOccupancy(any(Room.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class)))
+                .thenReturn(RoomCalendarService.OccupancyUpdate.VERSION_CONFLICT);
+        assertThrows(ReservationFailedException.class, () -> optimisticBookingStrategy.retryOnConflict(() -> optimisticBookingStrategy.reserve(reservation)));
+        verify(roomCalendarService, times(3)).compareAndReserveOccupancy(any(Room.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class));
+        verifyNoInteractions(reservationRepository);
+        assertEquals(2.0, meterRegistry.get("reservation.booking.optimistic.retries").tag("operation", "reserve").counter().count());
+        assertEquals(1.0, meterRegistry.get("reservation.booking.optimistic.exhausted").counter().count());
+    }
+
+    @Test
+    void release() {
+        Reservation reservation = getReservation();
+        when(roomCalendarService.compareAndReleaseOccupancy(any(Room.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class)))
+                .thenReturn(RoomCalendarService.OccupancyUpdate.APPLIED);
+        optimisticBookingStrategy.release(reservation);
+        verify(roomCalendarService, times(1)).compareAndReleaseOccupancy(any(Room.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class));
+    }
+
+    @Test
+    void release_RetriedOnVersionConflict() {
+        Reservation reservation = getReservation();
+        when(roomCalendarService.compareAndReleaseOccupancy(any(Room.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class)))
+                .thenReturn(RoomCalendarService.OccupancyUpdate.VERSION_CONFLICT)
+                .thenReturn(RoomCalendarService.OccupancyUpdate.APPLIED);
+        optimisticBookingStrategy.retryOnConflict(() -> {
+            optimisticBookingStrategy.release(reservation);
+            return null;
+        });
+        verify(roomCalendarService, times(2)).compareAndReleaseOccupancy(any(Room.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class));
+        assertEquals(1.0, meterRegistry.get("reservation.booking.optimistic.retries").tag("operation", "release").counter().count());
+    }
+}
@@ -0,0 +1,118 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import com.assignment.private_dining_reservation_system.BaseTest;
+import com.assignment.private_dining_reservation_system.entity.ReservationOutbox;
+import com.assignment.private_dining_reservation_system.event.TableReservedEvent;
+import com.assignment.private_dining_reservation_system.mapper.EventMapper;
+import com.assignment.private_dining_reservation_system.repository.ReservationOutboxRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ReservationOutboxRelayTest extends BaseTest {
+    @Mock
+    ReservationOutboxRepository reservationOutboxRepository;
+    @Mock
+    ReservationEventProducer reservationEventProducer;
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    ReservationOutboxRelay reservationOutboxRelay;
+
+    @BeforeEach
+    void setUp() {
+        reservationOutboxRelay = new ReservationOutboxRelay(reservationOutboxRepository, reservationEventProducer, objectMapper,
+                transactionManager, 2, 3, Duration.ofMillis(200), Duration.ofMinutes(1), Duration.ofDays(7));
+    }
+
+    @Test
+    void relay() throws Exception {
+        ReservationOutbox reservationOutbox = getReservationOutbox(1L);
+        when(reservationOutboxRepository.findClaimableForUpdate(eq(2), any(LocalDateTime.class))).thenReturn(List.of(reservationOutbox));
+        when(reservationEventProducer.sendReservationEvent(any(TableReservedEvent.class))).thenReturn(CompletableFuture.completedFuture(null));
+        reservationOutboxRelay.relay();
+        verify(reservationEventProducer, times(1)).sendReservationEvent(any(TableReservedEvent.class));
+        verify(reservationOutboxRepository, times(1)).markSent(eq(List.of(1L)), any(LocalDateTime.class));
+        verify(reservationOutboxRepository, never()).markFailed(anyList(), any(LocalDateTime.class));
+        assertEquals(1, reservationOutbox.getAttempts());
+        assertNotNull(reservationOutbox.getClaimedUntil());
+        //Claim and outcome are committed separately, no row lock is held while waiting for the broker
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    void relay_DrainsWhileBatchesAreFull() throws Exception {
+        when(reservationOutboxRepository.findClaimableForUpdate(eq(2), any(LocalDateTime.class)))
+                .thenReturn(List.of(getReservationOutbox(1L), getReservationOutbox(2L)))
+                .thenReturn(Collections.emptyList());
+        when(reservationEventProducer.sendReservationEvent(any(TableReservedEvent.class))).thenReturn(CompletableFuture.completedFuture(null));
+        reservationOutboxRelay.relay();
+        verify(reservationOutboxRepository, times(2)).findClaimableForUpdate(eq(2), any(LocalDateTime.class));
+        verify(reservationOutboxRepository, times(1)).markSent(eq(List.of(1L, 2L)), any(LocalDateTime.class));
+    }
+
+    @Test
+    void relay_AcknowledgedRowsAreMarkedSentIndividually() throws Exception {
+        when(reservationOutboxRepository.findClaimableForUpdate(eq(2), any(LocalDateTime.class)))
+                .thenReturn(List.of(getReservationOutbox(1L), getReservationOutbox(2L)));
+        when(reservationEventProducer.sendReservationEvent(any(TableReservedEvent.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        reservationOutboxRelay.relay();
+        verify(reservationOutboxRepository, times(1)).markSent(eq(List.of(2L)), any(LocalDateTime.class));
+        verify(reservationOutboxRepository, never()).markFailed(anyList(), any(LocalDateTime.class));
+        //Partial batch is not drained further, the unacknowledged row waits for its claim to run out
+        verify(reservationOutboxRepository, times(1)).findClaimableForUpdate(eq(2), any(LocalDateTime.class));
+    }
+
+    @Test
+    void relay_BrokerFailureLeavesRowsUnsent() throws Exception {
+        when(reservationOutboxRepository.findClaimableForUpdate(eq(2), any(LocalDateTime.class))).thenReturn(List.of(getReservationOutbox(1L)));
+        when(reservationEventProducer.sendReservationEvent(any(TableReservedEvent.class)))
+                .thenReturn(new CompletableFuture<>());
+        reservationOutboxRelay.relay();
+        verify(reservationOutboxRepository, never()).markSent(anyList(), any(LocalDateTime.class));
+        verify(reservationOutboxRepository, never()).markFailed(anyList(), any(LocalDateTime.class));
+    }
+
+    @Test
+    void relay_RowFailsAfterMaxAttempts() throws Exception {
+        ReservationOutbox reservationOutbox = getReservationOutbox(1L);
+        reservationOutbox.setAttempts(2);
+        ReservationOutbox unreadableReservationOutbox = getReservationOutbox(2L);
+        unreadableReservationOutbox.setPayload("{");
+        when(reservationOutboxRepository.findClaimableForUpdate(eq(2), any(LocalDateTime.class)))
+                .thenReturn(List.of(reservationOutbox, unreadableReservationOutbox));
+        when(reservationEventProducer.sendReservationEvent(any(TableReservedEvent.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+        reservationOutboxRelay.relay();
+        assertEquals(3, reservationOutbox.getAttempts());
+        verify(reservationEventProducer, times(1)).sendReservationEvent(any(TableReservedEvent.class));
+        verify(reservationOutboxRepository, times(1)).markFailed(eq(List.of(1L)), any(LocalDateTime.class));
+        verify(reservationOutboxRepository, never()).markSent(anyList(), any(LocalDateTime.class));
+    }
+
+    private ReservationOutbox getReservationOutbox(Long id) throws Exception {
+        ReservationOutbox reservationOutbox = new ReservationOutbox();
+        reservationOutbox.setId(id);
+        reservationOutbox.setReservationId(id);
+        reservationOutbox.setPayload(objectMapper.writeValueAsString(new EventMapper().mapToTableReservedEvent(getReservation())));
+        return reservationOutbox;
+    }
+}
@@ -0,0 +1,53 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import com.assignment.private_dining_reservation_system.BaseTest;
+import com.assignment.private_dining_reservation_system.entity.Reservation;
+import com.assignment.private_dining_reservation_system.entity.ReservationOutbox;
+import com.assignment.private_dining_reservation_system.event.TableReservedEvent;
+import com.assignment.private_dining_reservation_system.mapper.EventMapper;
+import com.assignment.private_dining_reservation_system.repository.ReservationOutboxRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class ReservationOutboxServiceTest extends BaseTest {
+    @Mock
+    ReservationOutboxRepository reservationOutboxRepository;
+
+    ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    ReservationOutboxService reservationOutboxService;
+
+    @BeforeEach
+    void setUp() {
+        reservationOutboxService = new ReservationOutboxService(reservationOutboxRepository, new EventMapper(), objectMapper);
+    }
+
+    @Test
+    void recordReservationEvent() throws Exception {
+        Reservation reservation = getReservation();
+        reservationOutboxService.recordReservationEvent(reservation);
+        ArgumentCaptor<ReservationOutbox> reservationOutboxCaptor = ArgumentCaptor.forClass(ReservationOutbox.class);
+        verify(reservationOutboxRepository, times(1)).save(reservationOutboxCaptor.capture());
+        ReservationOutbox reservationOutbox = reservationOutboxCaptor.getValue();
+        assertEquals(reservation.getId(), reservationOutbox.getReservationId());
+        TableReservedEvent tableReservedEvent = objectMapper.readValue(reservationOutbox.getPayload(), TableReservedEvent.class);
+        assertEquals(reservation.getReservationDate(), tableReservedEvent.reservationDate());
+        assertEquals(reservation.getReservationStartTime(), tableReservedEvent.reservationStartTime());
+        assertEquals(reservation.getDinerEmail(), tableReservedEvent.dinerEmail());
+    }
+
+    @Test
+    void recordReservationEvents() {
+        reservationOutboxService.recordReservationEvents(List.of(getReservation(), getReservation()));
+        verify(reservationOutboxRepository, times(1)).saveAll(anyList());
+        verifyNoMoreInteractions(reservationOutboxRepository);
+    }
+}
@@ -3,24 +3,49 @@ package com.assignment.private_dining_reservation_system.service;
 import com.assignment.private_dining_reservation_system.BaseTest;
 import com.assignment.private_dining_reservation_system.entity.*;
 import com.assignment.private_dining_reservation_system.exception.ReservationFailedException;
+import com.assignment.private_dining_reservation_system.exception.ReservationValidationFailureException;
 import com.assignment.private_dining_reservation_system.exception.RoomNotAvailableException;
+import com.assignment.private_dining_reservation_system.mapper.ReservationMapper;
+import com.assignment.private_dining_reservation_system.model.projection.RoomView;
 import com.assignment.private_dining_reservation_system.model.request.AutoAssignReservationRequest;
 import com.assignment.private_dining_reservation_system.model.request.ReservationRequest;
 import com.assignment.private_dining_reservation_system.model.request.ReservationTimeFrame;
+import com.assignment.private_dining_reservation_system.model.response.ReservationResponse;
 import com.assignment.private_dining_reservation_system.repository.ReservationRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
+import org.mockito.Answers;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
+import org.mockito.Spy;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 
+import java.time.DayOfWeek;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 class ReservationServiceTest extends BaseTest {
@@ -31,31 +56,55 @@ class ReservationServiceTest extends BaseTest {
     RoomService roomService;
     @Mock
     RestaurantService restaurantService;
-    @Mock
-    RoomCalendarService roomCalendarService;
+    @Mock(answer = Answers.CALLS_REAL_METHODS)
+    BookingConcurrencyStrategy bookingConcurrencyStrategy;
     @Mock
     ReservationValidationService reservationValidationService;
     @Mock
-    ReservationEventProducer reservationEventProducer;
+    ReservationOutboxService reservationOutboxService;
     @Mock
     ReservationRepository reservationRepository;
-    @InjectMocks
+    @Mock
+    RoomOccupancyIndex roomOccupancyIndex;
+    @Mock
+    RoomViewCache roomViewCache;
+    @Mock
+    RestaurantAvailabilityCache restaurantAvailabilityCache;
+    @Mock
+    EntityManager entityManager;
+    @Mock
+    PlatformTransactionManager transactionManager;
+    @Spy
+    RoomDayLockManager roomDayLockManager = new RoomDayLockManager(new SimpleMeterRegistry(), 4, 2, Duration.ofSeconds(1));
+    @Mock
+    RoomCalendarService roomCalendarService;
+    @Spy
+    RoomAllocationEngine roomAllocationEngine = new FirstFitAllocationEngine();
+
+    SimpleMeterRegistry meterRegistry;
     ReservationService reservationService;
 
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        reservationService = new ReservationService(reservationRepository, roomService, restaurantService, bookingConcurrencyStrategy,
+                reservationValidationService, restaurantAvailabilityService, reservationOutboxService, roomOccupancyIndex,
+                roomDayLockManager, roomViewCache, restaurantAvailabilityCache, roomAllocationEngine, roomCalendarService,
+                entityManager, transactionManager, meterRegistry, Duration.ofSeconds(1), Duration.ofMillis(100));
+    }
+
     @Test
     void createReservation() {
+        when(bookingConcurrencyStrategy.requiresRoomDayLock()).thenReturn(true);
         ReservationRequest reservationRequest = getReservationRequest();
-        Restaurant restaurant = getRestaurant();
         Room room = getRoom();
         Reservation reservation = getReservation();
-        RoomCalendar roomCalendar = getRoomCalendar();
-        when(roomService.getByIdAndRestaurantId(anyLong(), anyLong())).thenReturn(room);
-        when(restaurantService.getById(anyLong())).thenReturn(restaurant);
-        doNothing().when(reservationEventProducer).sendReservationEvent(any(Reservation.class));
-        when(reservationValidationService.checkOverlap(any(Room.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(false);
+        when(roomViewCache.get(anyLong(), anyLong())).thenReturn(getRoomView());
+        when(roomService.getBookingContext(anyLong(), anyLong())).thenReturn(room);
         when(reservationValidationService.validateRoomOperatingHours(any(Room.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(true);
-        when(reservationRepository.save(any(Reservation.class))).thenReturn(reservation);
-        when(roomCalendarService.lockRoomCalendarForReservationDate(any(Room.class), any(LocalDate.class))).thenReturn(roomCalendar);
+        when(reservationValidationService.checkOverlap(anyLong(), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(false);
+        when(reservationValidationService.validateRoomOperatingHours(any(RoomView.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(true);
+        when(bookingConcurrencyStrategy.reserve(any(Reservation.class))).thenReturn(reservation);
         Reservation reservationResult = reservationService.createReservation(reservationRequest);
         assertEquals(reservation.getId(), reservationResult.getId());
         assertEquals(reservation.getReservationStatus(), reservationResult.getReservationStatus());
@@ -66,50 +115,147 @@ class ReservationServiceTest extends BaseTest {
         assertEquals(reservation.getReservationEndTime(), reservationResult.getReservationEndTime());
         assertEquals(reservation.getGroupSize(), reservationResult.getGroupSize());
         assertEquals(reservation.getDinerEmail(), reservationResult.getDinerEmail());
-        verify(roomService, times(1)).getByIdAndRestaurantId(anyLong(), anyLong());
-        verify(restaurantService, times(1)).getById(anyLong());
-        verify(reservationEventProducer, times(1)).sendReservationEvent(any(Reservation.class));
-        verify(reservationValidationService, times(1)).checkOverlap(any(Room.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class));
-        verify(reservationRepository, times(1)).save(any(Reservation.class));
-        verify(roomCalendarService, times(1)).lockRoomCalendarForReservationDate(any(Room.class), any(LocalDate.class));
+        verify(roomViewCache, times(1)).get(anyLong(), anyLong());
+        verify(roomService, times(1)).getBookingContext(anyLong(), anyLong());
+        verifyNoInteractions(restaurantService);
+        verify(reservationOutboxService, times(1)).recordReservationEvent(any(Reservation.class));
+        verify(reservationValidationService, times(2)).checkOverlap(anyLong(), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class));
+        verify(reservationValidationService, times(1)).validateRoomCapacity(any(RoomView.class), anyInt());
+        verify(reservationValidationService, times(1)).validateRoomCapacity(any(Room.class), anyInt());
+        verify(bookingConcurrencyStrategy, times(1)).reserve(any(Reservation.class));
+        verifyNoInteractions(reservationRepository);
+        verify(roomOccupancyIndex, times(1)).reservationConfirmed(any(Reservation.class));
+        verify(restaurantAvailabilityCache, times(1)).reservationChanged(reservation);
+        verify(roomDayLockManager, times(1)).withRoomDayLock(any(), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class), any());
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    void createReservation_StrategyWithoutRoomDayLock() {
+        ReservationRequest reservationRequest = getReservationRequest();
+        Reservation reservation = getReservation();
+        when(roomViewCache.get(anyLong(), anyLong())).thenReturn(getRoomView());
+        when(roomService.getBookingContext(anyLong(), anyLong())).thenReturn(getRoom());
+        when(reservationValidationService.validateRoomOperatingHours(any(Room.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(true);
+        when(reservationValidationService.checkOverlap(anyLong(), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(false);
+        when(reservationValidationService.validateRoomOperatingHours(any(RoomView.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(true);
+        when(bookingConcurrencyStrategy.reserve(any(Reservation.class))).thenReturn(reservation);
+        assertSame(reservation, reservationService.createReservation(reservationRequest));
+        //Non overlapping bookings of the room-day are let through side by side
+        verifyNoInteractions(roomDayLockManager);
+        verify(reservationValidationService, times(1)).checkOverlap(anyLong(), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class));
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    void createReservation_InvalidDateAndTimeFailsBeforeAnyRead() {
+        ReservationRequest reservationRequest = getReservationRequest();
+        doThrow(new ReservationValidationFailureException("Start Time cannot be earlier than end Time"))
+                .when(reservationValidationService).validateDateAndTime(any(ReservationRequest.class));
+        assertThrows(ReservationValidationFailureException.class, () -> reservationService.createReservation(reservationRequest));
+        verifyNoInteractions(roomViewCache);
+        verifyNoInteractions(roomService);
+        verifyNoInteractions(roomDayLockManager);
+        verifyNoInteractions(transactionManager);
+    }
+
+    @Test
+    void createReservation_InvalidGroupSizeFailsWithoutTransaction() {
+        ReservationRequest reservationRequest = getReservationRequest();
+        when(roomViewCache.get(anyLong(), anyLong())).thenReturn(getRoomView());
+        when(reservationValidationService.validateRoomOperatingHours(any(RoomView.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(true);
+        doThrow(new ReservationValidationFailureException("Room is not suitable for your group"))
+                .when(reservationValidationService).validateRoomCapacity(any(RoomView.class), anyInt());
+        assertThrows(ReservationValidationFailureException.class, () -> reservationService.createReservation(reservationRequest));
+        verifyNoInteractions(roomService);
+        verifyNoInteractions(roomDayLockManager);
+        verifyNoInteractions(transactionManager);
+        verifyNoInteractions(bookingConcurrencyStrategy);
+    }
+
+    @Test
+    void createReservation_BookedByQueuedRequestException() {
+        when(bookingConcurrencyStrategy.requiresRoomDayLock()).thenReturn(true);
+        ReservationRequest reservationRequest = getReservationRequest();
+        when(roomViewCache.get(anyLong(), anyLong())).thenReturn(getRoomView());
+        when(reservationValidationService.checkOverlap(anyLong(), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class)))
+                .thenReturn(false)
+                .thenReturn(true);
+        when(reservationValidationService.validateRoomOperatingHours(any(RoomView.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(true);
+        assertThrows(RoomNotAvailableException.class, () -> reservationService.createReservation(reservationRequest));
+        verify(reservationValidationService, times(2)).checkOverlap(anyLong(), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class));
+        verifyNoInteractions(roomService);
+        verifyNoInteractions(transactionManager);
+        verify(bookingConcurrencyStrategy, never()).reserve(any(Reservation.class));
+        verifyNoInteractions(reservationOutboxService);
     }
 
     @Test
     void createReservation_OverlapException() {
         ReservationRequest reservationRequest = getReservationRequest();
-        Restaurant restaurant = getRestaurant();
+        when(roomViewCache.get(anyLong(), anyLong())).thenReturn(getRoomView());
+        when(reservationValidationService.checkOverlap(anyLong(), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(true);
+        when(reservationValidationService.validateRoomOperatingHours(any(RoomView.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(true);
+        assertThrows(RoomNotAvailableException.class, () -> reservationService.createReservation(reservationRequest));
+        verifyNoInteractions(roomService);
+        verifyNoInteractions(restaurantService);
+        verifyNoInteractions(reservationOutboxService);
+        verify(reservationValidationService, times(1)).checkOverlap(anyLong(), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class));
+        verifyNoInteractions(reservationRepository);
+        verifyNoInteractions(bookingConcurrencyStrategy);
+        verifyNoInteractions(transactionManager);
+    }
+
+    @Test
+    void createReservation_TimeRangeTakenMeanwhileException() {
+        ReservationRequest reservationRequest = getReservationRequest();
         Room room = getRoom();
-        Reservation reservation = getReservation();
-        RoomCalendar roomCalendar = getRoomCalendar();
-        when(roomService.getByIdAndRestaurantId(anyLong(), anyLong())).thenReturn(room);
-        when(restaurantService.getById(anyLong())).thenReturn(restaurant);
-        when(reservationValidationService.checkOverlap(any(Room.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(true);
+        when(roomViewCache.get(anyLong(), anyLong())).thenReturn(getRoomView());
+        when(roomService.getBookingContext(anyLong(), anyLong())).thenReturn(room);
         when(reservationValidationService.validateRoomOperatingHours(any(Room.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(true);
-        when(roomCalendarService.lockRoomCalendarForReservationDate(any(Room.class), any(LocalDate.class))).thenReturn(roomCalendar);
+        when(reservationValidationService.checkOverlap(anyLong(), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(false);
+        when(reservationValidationService.validateRoomOperatingHours(any(RoomView.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(true);
+        when(bookingConcurrencyStrategy.reserve(any(Reservation.class))).thenThrow(new RoomNotAvailableException("Room is not available for reservation at give time range"));
         assertThrows(RoomNotAvailableException.class, () -> reservationService.createReservation(reservationRequest));
-        verify(roomService, times(1)).getByIdAndRestaurantId(anyLong(), anyLong());
-        verify(restaurantService, times(1)).getById(anyLong());
-        verifyNoInteractions(reservationEventProducer);
-        verify(reservationValidationService, times(1)).checkOverlap(any(Room.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class));
+        verifyNoInteractions(reservationOutboxService);
         verifyNoInteractions(reservationRepository);
-        verify(roomCalendarService, times(1)).lockRoomCalendarForReservationDate(any(Room.class), any(LocalDate.class));
+        verifyNoInteractions(roomOccupancyIndex);
+        verifyNoInteractions(restaurantAvailabilityCache);
+        verify(bookingConcurrencyStrategy, times(1)).reserve(any(Reservation.class));
+        verify(transactionManager, times(1)).rollback(any());
+    }
+
+    @Test
+    void createReservation_RoomChangedSinceCachedException() {
+        when(bookingConcurrencyStrategy.requiresRoomDayLock()).thenReturn(true);
+        ReservationRequest reservationRequest = getReservationRequest();
+        when(roomViewCache.get(anyLong(), anyLong())).thenReturn(getRoomView());
+        when(roomService.getBookingContext(anyLong(), anyLong())).thenReturn(getRoom());
+        when(reservationValidationService.checkOverlap(anyLong(), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(false);
+        when(reservationValidationService.validateRoomOperatingHours(any(RoomView.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(true);
+        //Operating hours of the room were changed after its view got cached
+        when(reservationValidationService.validateRoomOperatingHours(any(Room.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(false);
+        assertThrows(RoomNotAvailableException.class, () -> reservationService.createReservation(reservationRequest));
+        verify(bookingConcurrencyStrategy, never()).reserve(any(Reservation.class));
+        verifyNoInteractions(reservationOutboxService);
+        verify(transactionManager, times(1)).rollback(any());
     }
 
     @Test
     void autoAssignCreateReservation() {
+        when(bookingConcurrencyStrategy.requiresRoomDayLock()).thenReturn(true);
         AutoAssignReservationRequest autoAssignReservationRequest = getAutoAssignReservationRequest();
-        Restaurant restaurant = getRestaurant();
         Room room = getRoom();
+        room.setId(1L);
         List<Room> roomList = List.of(room);
         Reservation reservation = getReservation();
-        RoomCalendar roomCalendar = getRoomCalendar();
-        when(restaurantAvailabilityService.findAvailableRoomsByRestaurantAndRoomType(anyLong(), any(RoomType.class), any(ReservationTimeFrame.class))).thenReturn(roomList);
-        when(restaurantService.getById(anyLong())).thenReturn(restaurant);
-        doNothing().when(reservationEventProducer).sendReservationEvent(any(Reservation.class));
-        when(reservationValidationService.checkOverlap(any(Room.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(false);
+        when(restaurantAvailabilityService.findAvailableRoomsByRestaurantAndRoomTypes(anyLong(), anyList(), anyInt(), any(ReservationTimeFrame.class))).thenReturn(roomList);
+        when(roomViewCache.get(anyLong(), anyLong())).thenReturn(getRoomView());
+        when(roomService.getBookingContext(anyLong(), anyLong())).thenReturn(room);
         when(reservationValidationService.validateRoomOperatingHours(any(Room.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(true);
-        when(reservationRepository.save(any(Reservation.class))).thenReturn(reservation);
-        when(roomCalendarService.lockRoomCalendarForReservationDate(any(Room.class), any(LocalDate.class))).thenReturn(roomCalendar);
+        when(reservationValidationService.checkOverlap(anyLong(), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(false);
+        when(reservationValidationService.validateRoomOperatingHours(any(RoomView.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(true);
+        when(bookingConcurrencyStrategy.reserve(any(Reservation.class))).thenReturn(reservation);
         Reservation reservationResult = reservationService.autoAssignCreateReservation(autoAssignReservationRequest);
         assertEquals(reservation.getId(), reservationResult.getId());
         assertEquals(reservation.getReservationStatus(), reservationResult.getReservationStatus());
@@ -120,24 +266,38 @@ class ReservationServiceTest extends BaseTest {
         assertEquals(reservation.getReservationEndTime(), reservationResult.getReservationEndTime());
         assertEquals(reservation.getGroupSize(), reservationResult.getGroupSize());
         assertEquals(reservation.getDinerEmail(), reservationResult.getDinerEmail());
-        verify(restaurantService, times(1)).getById(anyLong());
-        verify(reservationEventProducer, times(1)).sendReservationEvent(any(Reservation.class));
-        verify(reservationValidationService, times(1)).checkOverlap(any(Room.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class));
-        verify(reservationRepository, times(1)).save(any(Reservation.class));
-        verify(roomCalendarService, times(1)).lockRoomCalendarForReservationDate(any(Room.class), any(LocalDate.class));
-        verify(restaurantAvailabilityService).findAvailableRoomsByRestaurantAndRoomType(anyLong(), any(RoomType.class), any(ReservationTimeFrame.class));
+        verify(reservationValidationService, times(1)).validateDateAndTime(any(ReservationTimeFrame.class));
+        verify(roomService, times(1)).getBookingContext(anyLong(), anyLong());
+        verifyNoInteractions(restaurantService);
+        verify(reservationOutboxService, times(1)).recordReservationEvent(any(Reservation.class));
+        verify(reservationValidationService, times(2)).checkOverlap(anyLong(), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class));
+        verify(bookingConcurrencyStrategy, times(1)).reserve(any(Reservation.class));
+        verifyNoInteractions(reservationRepository);
+        verify(restaurantAvailabilityService).findAvailableRoomsByRestaurantAndRoomTypes(anyLong(), anyList(), anyInt(), any(ReservationTimeFrame.class));
+    }
+
+    @Test
+    void autoAssignCreateReservation_InvalidDateAndTimeFailsBeforeSearch() {
+        AutoAssignReservationRequest autoAssignReservationRequest = getAutoAssignReservationRequest();
+        doThrow(new ReservationValidationFailureException("Min Booking for Private Dining is for 3 hours"))
+                .when(reservationValidationService).validateDateAndTime(any(ReservationTimeFrame.class));
+        assertThrows(ReservationValidationFailureException.class, () -> reservationService.autoAssignCreateReservation(autoAssignReservationRequest));
+        verifyNoInteractions(restaurantAvailabilityService);
+        verifyNoInteractions(roomViewCache);
+        verifyNoInteractions(transactionManager);
     }
 
     @Test
     void autoAssignCreateReservation_RoomNotAvailableByRoomTypeException() {
         AutoAssignReservationRequest autoAssignReservationRequest = getAutoAssignReservationRequest();
-        when(restaurantAvailabilityService.findAvailableRoomsByRestaurantAndRoomType(anyLong(), any(RoomType.class), any(ReservationTimeFrame.class))).thenReturn(Collections.emptyList());
+        when(restaurantAvailabilityService.findAvailableRoomsByRestaurantAndRoomTypes(anyLong(), anyList(), anyInt(), any(ReservationTimeFrame.class))).thenReturn(Collections.emptyList());
         assertThrows(RoomNotAvailableException.class, () -> reservationService.autoAssignCreateReservation(autoAssignReservationRequest));
         verifyNoInteractions(restaurantService);
-        verifyNoInteractions(reservationEventProducer);
-        verifyNoInteractions(reservationValidationService);
+        verifyNoInteractions(reservationOutboxService);
+        verify(reservationValidationService, times(1)).validateDateAndTime(any(ReservationTimeFrame.class));
+        verifyNoMoreInteractions(reservationValidationService);
         verifyNoInteractions(reservationRepository);
-        verify(restaurantAvailabilityService, times(1)).findAvailableRoomsByRestaurantAndRoomType(anyLong(), any(RoomType.class), any(ReservationTimeFrame.class));
+        verify(restaurantAvailabilityService, times(1)).findAvailableRoomsByRestaurantAndRoomTypes(anyLong(), anyList(), anyInt(), any(ReservationTimeFrame.class));
     }
 
     @Test
@@ -147,15 +307,337 @@ class ReservationServiceTest extends BaseTest {
         room.setMinCapacity(20);
         room.setMaxCapacity(22);
         List<Room> roomList = List.of(room);
-        when(restaurantAvailabilityService.findAvailableRoomsByRestaurantAndRoomType(anyLong(), any(RoomType.class), any(ReservationTimeFrame.class))).thenReturn(roomList);
+        when(restaurantAvailabilityService.findAvailableRoomsByRestaurantAndRoomTypes(anyLong(), anyList(), anyInt(), any(ReservationTimeFrame.class))).thenReturn(roomList);
         assertThrows(RoomNotAvailableException.class, () -> reservationService.autoAssignCreateReservation(autoAssignReservationRequest));
         verifyNoInteractions(restaurantService);
-        verifyNoInteractions(reservationEventProducer);
-        verifyNoInteractions(reservationValidationService);
+        verifyNoInteractions(reservationOutboxService);
+        verify(reservationValidationService, times(1)).validateDateAndTime(any(ReservationTimeFrame.class));
+        verifyNoMoreInteractions(reservationValidationService);
         verifyNoInteractions(reservationRepository);
-        verifyNoInteractions(roomCalendarService);
-        verify(restaurantAvailabilityService, times(1)).findAvailableRoomsByRestaurantAndRoomType(anyLong(), any(RoomType.class), any(ReservationTimeFrame.class));
+        verifyNoInteractions(bookingConcurrencyStrategy);
+        verify(restaurantAvailabilityService, times(1)).findAvailableRoomsByRestaurantAndRoomTypes(anyLong(), anyList(), anyInt(), any(ReservationTimeFrame.class));
+
+    }
+
+    @Test
+    void autoAssignCreateReservation_FallsThroughToNextCandidate() {
+        when(bookingConcurrencyStrategy.requiresRoomDayLock()).thenReturn(true);
+        AutoAssignReservationRequest autoAssignReservationRequest = getAutoAssignReservationRequest();
+        Room takenRoom = getRoom(1L);
+        Room busyRoom = getRoom(2L);
+        Room freeRoom = getRoom(3L);
+        Reservation reservation = getReservation();
+        when(restaurantAvailabilityService.findAvailableRoomsByRestaurantAndRoomTypes(anyLong(), anyList(), anyInt(), any(ReservationTimeFrame.class))).thenReturn(List.of(takenRoom, busyRoom, freeRoom));
+        when(roomViewCache.get(anyLong(), anyLong())).thenAnswer(invocation -> getRoomView(invocation.getArgument(0)));
+        when(reservationValidationService.validateRoomOperatingHours(any(RoomView.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(true);
+        when(roomService.getBookingContext(anyLong(), anyLong())).thenAnswer(invocation -> getRoom(invocation.getArgument(0)));
+        when(reservationValidationService.validateRoomOperatingHours(any(Room.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(true);
+        //First room got booked meanwhile, second is locked by another transaction past the lock timeout
+        when(bookingConcurrencyStrategy.reserve(any(Reservation.class))).thenAnswer(invocation -> {
+            Long roomId = invocation.<Reservation>getArgument(0).getRoom().getId();
+            if (roomId == 1L) {
+                throw new RoomNotAvailableException("Room is not available for reservation at give time range");
+            }
+            if (roomId == 2L) {
+                throw new CannotAcquireLockException("lock timeout");
+            }
+            return reservation;
+        });
+
+        assertSame(reservation, reservationService.autoAssignCreateReservation(autoAssignReservationRequest));
+
+        verify(roomCalendarService, times(3)).limitLockWait(Duration.ofMillis(100));
+        verify(roomDayLockManager, times(3)).withRoomDayLock(anyLong(), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class), eq(Duration.ofMillis(100)), any());
+        verify(reservationOutboxService, times(1)).recordReservationEvent(reservation);
+        DistributionSummary candidatesTried = meterRegistry.get("reservation.auto-assign.candidates-tried").tag("outcome", "assigned").summary();
+        assertEquals(1, candidatesTried.count());
+        assertEquals(3, candidatesTried.totalAmount());
+    }
+
+    @Test
+    void autoAssignCreateReservation_TriesCandidatesBeyondTheFirstFew() {
+        AutoAssignReservationRequest autoAssignReservationRequest = getAutoAssignReservationRequest();
+        Reservation reservation = getReservation();
+        List<Room> rooms = LongStream.rangeClosed(1, 5).mapToObj(this::getRoom).toList();
+        when(restaurantAvailabilityService.findAvailableRoomsByRestaurantAndRoomTypes(anyLong(), anyList(), anyInt(), any(ReservationTimeFrame.class))).thenReturn(rooms);
+        when(roomViewCache.get(anyLong(), anyLong())).thenAnswer(invocation -> getRoomView(invocation.getArgument(0)));
+        when(reservationValidationService.validateRoomOperatingHours(any(RoomView.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(true);
+        when(roomService.getBookingContext(anyLong(), anyLong())).thenAnswer(invocation -> getRoom(invocation.getArgument(0)));
+        when(reservationValidationService.validateRoomOperatingHours(any(Room.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(true);
+        //First four rooms got booked meanwhile
+        when(bookingConcurrencyStrategy.reserve(any(Reservation.class))).thenAnswer(invocation -> {
+            if (invocation.<Reservation>getArgument(0).getRoom().getId() < 5L) {
+                throw new RoomNotAvailableException("Room is not available for reservation at give time range");
+            }
+            return reservation;
+        });
+
+        assertSame(reservation, reservationService.autoAssignCreateReservation(autoAssignReservationRequest));
+
+        verify(bookingConcurrencyStrategy, times(5)).reserve(any(Reservation.class));
+        DistributionSummary candidatesTried = meterRegistry.get("reservation.auto-assign.candidates-tried").tag("outcome", "assigned").summary();
+        assertEquals(5, candidatesTried.totalAmount());
+    }
+
+    @Test
+    void autoAssignCreateReservation_StopsOnceTimeBudgetSpent() {
+        reservationService = new ReservationService(reservationRepository, roomService, restaurantService, bookingConcurrencyStrategy,
+                reservationValidationService, restaurantAvailabilityService, reservationOutboxService, roomOccupancyIndex,
+                roomDayLockManager, roomViewCache, restaurantAvailabilityCache, roomAllocationEngine, roomCalendarService,
+                entityManager, transactionManager, meterRegistry, Duration.ZERO, Duration.ofMillis(100));
+        AutoAssignReservationRequest autoAssignReservationRequest = getAutoAssignReservationRequest();
+        when(restaurantAvailabilityService.findAvailableRoomsByRestaurantAndRoomTypes(anyLong(), anyList(), anyInt(), any(ReservationTimeFrame.class))).thenReturn(List.of(getRoom(1L), getRoom(2L)));
+        when(roomViewCache.get(anyLong(), anyLong())).thenAnswer(invocation -> getRoomView(invocation.getArgument(0)));
+        when(reservationValidationService.validateRoomOperatingHours(any(RoomView.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(true);
+        when(reservationValidationService.checkOverlap(anyLong(), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(true);
+
+        assertThrows(RoomNotAvailableException.class, () -> reservationService.autoAssignCreateReservation(autoAssignReservationRequest));
+
+        //First candidate is tried whatever the budget
+        verify(reservationValidationService, times(1)).checkOverlap(eq(1L), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class));
+        verify(reservationValidationService, never()).checkOverlap(eq(2L), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class));
+    }
+
+    @Test
+    void autoAssignCreateReservation_EveryCandidateTaken() {
+        AutoAssignReservationRequest autoAssignReservationRequest = getAutoAssignReservationRequest();
+        when(restaurantAvailabilityService.findAvailableRoomsByRestaurantAndRoomTypes(anyLong(), anyList(), anyInt(), any(ReservationTimeFrame.class))).thenReturn(List.of(getRoom(1L), getRoom(2L)));
+        when(roomViewCache.get(anyLong(), anyLong())).thenAnswer(invocation -> getRoomView(invocation.getArgument(0)));
+        when(reservationValidationService.validateRoomOperatingHours(any(RoomView.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(true);
+        when(reservationValidationService.checkOverlap(anyLong(), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(true);
+
+        assertThrows(RoomNotAvailableException.class, () -> reservationService.autoAssignCreateReservation(autoAssignReservationRequest));
+
+        verify(reservationValidationService, times(2)).checkOverlap(anyLong(), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class));
+        verifyNoInteractions(transactionManager, bookingConcurrencyStrategy);
+        DistributionSummary candidatesTried = meterRegistry.get("reservation.auto-assign.candidates-tried").tag("outcome", "failed").summary();
+        assertEquals(1, candidatesTried.count());
+        assertEquals(2, candidatesTried.totalAmount());
+    }
+
+    @Test
+    void autoAssignCreateReservation_PrefersRoomTypesInOrder() {
+        AutoAssignReservationRequest autoAssignReservationRequest = new AutoAssignReservationRequest(1L, null, List.of(RoomType.HALL, RoomType.ROOFTOP),
+                LocalTime.of(18, 0), LocalTime.of(21, 0), LocalDate.now().plusDays(2), 12, "diner@email.com");
+        Room rooftop = getRoom(1L);
+        Room hall = getRoom(2L);
+        hall.setRoomType(RoomType.HALL);
+        Room otherHall = getRoom(3L);
+        otherHall.setRoomType(RoomType.HALL);
+        //Both room types come from one search, ranked tightest fit first regardless of type
+        when(restaurantAvailabilityService.findAvailableRoomsByRestaurantAndRoomTypes(1L, List.of(RoomType.HALL, RoomType.ROOFTOP), 12,
+                new ReservationTimeFrame(autoAssignReservationRequest.reservationDate(), LocalTime.of(18, 0), LocalTime.of(21, 0))))
+                .thenReturn(List.of(rooftop, hall, otherHall));
+        when(roomViewCache.get(anyLong(), anyLong())).thenAnswer(invocation -> getRoomView(invocation.getArgument(0)));
+        when(reservationValidationService.validateRoomOperatingHours(any(RoomView.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(true);
+        when(reservationValidationService.checkOverlap(anyLong(), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(true);
+
+        assertThrows(RoomNotAvailableException.class, () -> reservationService.autoAssignCreateReservation(autoAssignReservationRequest));
+
+        //Halls are tried first, the rooftop is the fallback
+        InOrder inOrder = inOrder(reservationValidationService);
+        inOrder.verify(reservationValidationService).checkOverlap(eq(2L), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class));
+        inOrder.verify(reservationValidationService).checkOverlap(eq(3L), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class));
+        inOrder.verify(reservationValidationService).checkOverlap(eq(1L), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class));
+        verify(restaurantAvailabilityService, times(1)).findAvailableRoomsByRestaurantAndRoomTypes(anyLong(), anyList(), anyInt(), any(ReservationTimeFrame.class));
+    }
+
+    @Test
+    void autoAssignCreateReservation_RoomTypeRequired() {
+        AutoAssignReservationRequest autoAssignReservationRequest = new AutoAssignReservationRequest(1L, null, List.of(),
+                LocalTime.of(18, 0), LocalTime.of(21, 0), LocalDate.now().plusDays(2), 12, "diner@email.com");
+        assertThrows(ReservationValidationFailureException.class, () -> reservationService.autoAssignCreateReservation(autoAssignReservationRequest));
+        verifyNoInteractions(restaurantAvailabilityService, roomViewCache, transactionManager);
+    }
+
+    @Test
+    void createReservations() {
+        Restaurant restaurant = getRestaurant();
+        restaurant.setId(1L);
+        Room room = getRoom();
+        room.setId(1L);
+        room.setRestaurant(restaurant);
+        Room otherRoom = getRoom();
+        otherRoom.setId(2L);
+        otherRoom.setRestaurant(restaurant);
+        LocalDate date = LocalDate.now().plusDays(2);
+        List<ReservationRequest> reservationRequests = List.of(
+                new ReservationRequest(2L, 1L, LocalTime.of(18, 0), LocalTime.of(21, 0), date, 10, "diner@email.com"),
+                new ReservationRequest(1L, 1L, LocalTime.of(18, 0), LocalTime.of(21, 0), date.plusDays(1), 10, "diner@email.com"),
+                new ReservationRequest(9L, 1L, LocalTime.of(18, 0), LocalTime.of(21, 0), date, 10, "diner@email.com"));
+        when(roomService.getByIds(anyCollection())).thenReturn(List.of(room, otherRoom));
+        when(restaurantService.getByIds(anyCollection())).thenReturn(List.of(restaurant));
+        when(reservationValidationService.validateRoomOperatingHours(any(Room.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(true);
+        when(reservationValidationService.checkOverlap(anyLong(), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(false);
+        when(bookingConcurrencyStrategy.reserve(any(Reservation.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<ReservationService.BatchReservationResult> results = reservationService.createReservations(reservationRequests);
+
+        assertEquals(3, results.size());
+        assertEquals(otherRoom, results.get(0).reservation().getRoom());
+        assertEquals(room, results.get(1).reservation().getRoom());
+        assertNull(results.get(2).reservation());
+        assertEquals("Room not found with room Id: 9", results.get(2).error());
+        assertFalse(results.get(2).roomTaken());
+        //Booked in room order regardless of request order
+        ArgumentCaptor<Reservation> reservationCaptor = ArgumentCaptor.forClass(Reservation.class);
+        verify(bookingConcurrencyStrategy, times(2)).reserve(reservationCaptor.capture());
+        assertEquals(List.of(1L, 2L), reservationCaptor.getAllValues().stream().map(reservation -> reservation.getRoom().getId()).toList());
+        verify(transactionManager, times(1)).getTransaction(argThat(definition -> definition.getPropagationBehavior() == TransactionDefinition.PROPAGATION_REQUIRED));
+        verify(reservationOutboxService, times(1)).recordReservationEvents(argThat(reservations -> reservations.size() == 2));
+        verify(roomOccupancyIndex, times(2)).reservationConfirmed(any(Reservation.class));
+        verify(restaurantAvailabilityCache, times(2)).reservationChanged(any(Reservation.class));
+    }
+
+    @Test
+    void createReservations_ItemTakenMeanwhileRolledBackAlone() {
+        Restaurant restaurant = getRestaurant();
+        restaurant.setId(1L);
+        Room room = getRoom();
+        room.setId(1L);
+        room.setRestaurant(restaurant);
+        LocalDate date = LocalDate.now().plusDays(2);
+        List<ReservationRequest> reservationRequests = List.of(
+                new ReservationRequest(1L, 1L, LocalTime.of(16, 0), LocalTime.of(19, 0), date, 10, "diner@email.com"),
+                new ReservationRequest(1L, 1L, LocalTime.of(18, 0), LocalTime.of(21, 0), date, 10, "diner@email.com"));
+        when(roomService.getByIds(anyCollection())).thenReturn(List.of(room));
+        when(restaurantService.getByIds(anyCollection())).thenReturn(List.of(restaurant));
+        when(reservationValidationService.validateRoomOperatingHours(any(Room.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(true);
+        when(reservationValidationService.checkOverlap(anyLong(), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(false);
+        when(bookingConcurrencyStrategy.reserve(any(Reservation.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0))
+                .thenThrow(new RoomNotAvailableException("Room is not available for reservation at give time range"));
+        when(entityManager.contains(any(Reservation.class))).thenReturn(true);
+
+        List<ReservationService.BatchReservationResult> results = reservationService.createReservations(reservationRequests);
+
+        assertNotNull(results.get(0).reservation());
+        assertNull(results.get(1).reservation());
+        assertEquals("Room is not available for reservation at give time range", results.get(1).error());
+        assertTrue(results.get(1).roomTaken());
+        verify(transactionManager, times(1)).rollback(any());
+        verify(entityManager, times(1)).flush();
+        //Only the failed item is evicted, the booked one stays managed
+        ArgumentCaptor<Reservation> reservationCaptor = ArgumentCaptor.forClass(Reservation.class);
+        verify(bookingConcurrencyStrategy, times(2)).reserve(reservationCaptor.capture());
+        verify(entityManager, times(1)).detach(reservationCaptor.getAllValues().get(1));
+        verify(entityManager, never()).detach(results.get(0).reservation());
+        verify(entityManager, never()).clear();
+        verify(roomCalendarService, times(1)).detachRoomCalendars(room, date, LocalTime.of(18, 0), LocalTime.of(21, 0));
+        verify(reservationOutboxService, times(1)).recordReservationEvents(argThat(reservations -> reservations.size() == 1));
+    }
+
+    @Test
+    void createReservations_ItemAfterFailedItemBookedAndMapped() {
+        Restaurant restaurant = getRestaurant();
+        restaurant.setId(1L);
+        Room room = getRoom(1L);
+        room.setRestaurant(restaurant);
+        LocalDate date = LocalDate.now().plusDays(2);
+        List<ReservationRequest> reservationRequests = List.of(
+                new ReservationRequest(1L, 1L, LocalTime.of(12, 0), LocalTime.of(15, 0), date, 10, "first@email.com"),
+                new ReservationRequest(1L, 1L, LocalTime.of(14, 0), LocalTime.of(17, 0), date, 11, "second@email.com"),
+                new ReservationRequest(1L, 1L, LocalTime.of(18, 0), LocalTime.of(21, 0), date, 12, "third@email.com"));
+        when(roomService.getByIds(anyCollection())).thenReturn(List.of(room));
+        when(restaurantService.getByIds(anyCollection())).thenReturn(List.of(restaurant));
+        when(reservationValidationService.validateRoomOperatingHours(any(Room.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(true);
+        when(reservationValidationService.checkOverlap(anyLong(), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(false);
+        AtomicLong ids = new AtomicLong();
+        when(bookingConcurrencyStrategy.reserve(any(Reservation.class)))
+                .thenAnswer(invocation -> {
+                    Reservation reservation = invocation.getArgument(0);
+                    reservation.setId(ids.incrementAndGet());
+                    return reservation;
+                })
+                .thenThrow(new RoomNotAvailableException("Room is not available for reservation at give time range"))
+                .thenAnswer(invocation -> {
+                    Reservation reservation = invocation.getArgument(0);
+                    reservation.setId(ids.incrementAndGet());
+                    return reservation;
+                });
+
+        List<ReservationService.BatchReservationResult> results = reservationService.createReservations(reservationRequests);
+
+        //Mapped the way the batch endpoint maps it, after the part committed
+        ReservationMapper reservationMapper = new ReservationMapper();
+        List<ReservationResponse> responses = results.stream()
+                .map(result -> result.reservation() == null ? null : reservationMapper.toResponse(result.reservation()))
+                .toList();
+        assertEquals(new ReservationResponse(1L, 1L, restaurant.getRestaurantName(), 1L, room.getRoomName(), date,
+                LocalTime.of(12, 0), LocalTime.of(15, 0), 10, ReservationStatus.CONFIRMED, "first@email.com"), responses.get(0));
+        assertNull(responses.get(1));
+        assertEquals("Room is not available for reservation at give time range", results.get(1).error());
+        assertEquals(new ReservationResponse(2L, 1L, restaurant.getRestaurantName(), 1L, room.getRoomName(), date,
+                LocalTime.of(18, 0), LocalTime.of(21, 0), 12, ReservationStatus.CONFIRMED, "third@email.com"), responses.get(2));
+        verify(entityManager, never()).clear();
+        verify(roomCalendarService, times(1)).detachRoomCalendars(room, date, LocalTime.of(14, 0), LocalTime.of(17, 0));
+        verify(reservationOutboxService, times(1)).recordReservationEvents(argThat(reservations ->
+                reservations.stream().map(Reservation::getId).toList().equals(List.of(1L, 2L))));
+    }
+
+    @Test
+    void createReservations_BookedInPartsOfFewStripes() {
+        when(bookingConcurrencyStrategy.requiresRoomDayLock()).thenReturn(true);
+        Restaurant restaurant = getRestaurant();
+        restaurant.setId(1L);
+        List<Room> rooms = new ArrayList<>();
+        List<ReservationRequest> reservationRequests = new ArrayList<>();
+        LocalDate date = LocalDate.now().plusDays(2);
+        for (long roomId = 1; roomId <= 6; roomId++) {
+            Room room = getRoom();
+            room.setId(roomId);
+            room.setRestaurant(restaurant);
+            rooms.add(room);
+            reservationRequests.add(new ReservationRequest(roomId, 1L, LocalTime.of(18, 0), LocalTime.of(21, 0), date, 10, "diner@email.com"));
+        }
+        int parts = new RoomDayLockManager(new SimpleMeterRegistry(), 4, 2, Duration.ofSeconds(1))
+                .partitionByStripes(reservationRequests, Function.identity()).size();
+        when(roomService.getByIds(anyCollection())).thenReturn(rooms);
+        when(restaurantService.getByIds(anyCollection())).thenReturn(List.of(restaurant));
+        when(reservationValidationService.validateRoomOperatingHours(any(Room.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(true);
+        when(reservationValidationService.checkOverlap(anyLong(), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(false);
+        when(bookingConcurrencyStrategy.reserve(any(Reservation.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<ReservationService.BatchReservationResult> results = reservationService.createReservations(reservationRequests);
+
+        assertTrue(parts > 1);
+        assertTrue(results.stream().allMatch(result -> result.reservation() != null));
+        verify(roomDayLockManager, times(parts)).withRoomDayLocks(anyList(), any());
+        verify(transactionManager, times(parts)).getTransaction(argThat(definition -> definition.getPropagationBehavior() == TransactionDefinition.PROPAGATION_REQUIRED));
+        verify(reservationOutboxService, times(parts)).recordReservationEvents(anyList());
+    }
 
+    @Test
+    void createReservations_StrategyWithoutRoomDayLock() {
+        Restaurant restaurant = getRestaurant();
+        restaurant.setId(1L);
+        Room room = getRoom(1L);
+        LocalDate date = LocalDate.now().plusDays(2);
+        List<ReservationRequest> reservationRequests = List.of(
+                new ReservationRequest(1L, 1L, LocalTime.of(18, 0), LocalTime.of(21, 0), date, 10, "diner@email.com"));
+        when(roomService.getByIds(anyCollection())).thenReturn(List.of(room));
+        when(restaurantService.getByIds(anyCollection())).thenReturn(List.of(restaurant));
+        when(reservationValidationService.validateRoomOperatingHours(any(Room.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(true);
+        when(reservationValidationService.checkOverlap(anyLong(), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(false);
+        when(bookingConcurrencyStrategy.reserve(any(Reservation.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<ReservationService.BatchReservationResult> results = reservationService.createReservations(reservationRequests);
+
+        assertNotNull(results.getFirst().reservation());
+        verify(roomDayLockManager, never()).withRoomDayLocks(anyList(), any());
+        verify(transactionManager, times(1)).getTransaction(argThat(definition -> definition.getPropagationBehavior() == TransactionDefinition.PROPAGATION_REQUIRED));
+    }
+
+    @Test
+    void createReservations_AllItemsInvalid() {
+        List<ReservationRequest> reservationRequests = List.of(getReservationRequest());
+        when(roomService.getByIds(anyCollection())).thenReturn(Collections.emptyList());
+        when(restaurantService.getByIds(anyCollection())).thenReturn(Collections.emptyList());
+        List<ReservationService.BatchReservationResult> results = reservationService.createReservations(reservationRequests);
+        assertNull(results.getFirst().reservation());
+        verifyNoInteractions(transactionManager);
+        verifyNoInteractions(bookingConcurrencyStrategy);
+        verifyNoInteractions(reservationOutboxService);
     }
 
     @Test
@@ -198,10 +680,14 @@ class ReservationServiceTest extends BaseTest {
     void cancelReservation() {
         Reservation reservation = getReservation();
         when(reservationRepository.findById(anyLong())).thenReturn(Optional.of(reservation));
-        when(reservationRepository.save(any(Reservation.class))).thenReturn(reservation);
+        when(reservationRepository.saveAndFlush(any(Reservation.class))).thenReturn(reservation);
         reservationService.cancelReservation(1L);
         verify(reservationRepository, times(1)).findById(anyLong());
-        verify(reservationRepository, times(1)).save(any(Reservation.class));
+        verify(reservationRepository, times(1)).saveAndFlush(any(Reservation.class));
+        verify(bookingConcurrencyStrategy, times(1)).release(any(Reservation.class));
+        verify(roomOccupancyIndex, times(1)).reservationCancelled(any(Reservation.class));
+        verify(restaurantAvailabilityCache, times(1)).reservationChanged(reservation);
+        verify(reservationOutboxService, times(1)).recordReservationEvent(reservation);
     }
 
     @Test
@@ -213,4 +699,22 @@ class ReservationServiceTest extends BaseTest {
         verify(reservationRepository, times(1)).findById(anyLong());
         verifyNoMoreInteractions(reservationRepository);
     }
-}
\ No newline at end of file
+
+    @Test
+    void cancelReservation_cancelledConcurrently() {
+        Reservation reservation = getReservation();
+        when(reservationRepository.findById(anyLong())).thenReturn(Optional.of(reservation));
+        when(reservationRepository.saveAndFlush(any(Reservation.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Reservation.class, 1L));
+        assertThrows(ReservationFailedException.class, () -> reservationService.cancelReservation(1L));
+        verifyNoInteractions(reservationOutboxService);
+    }
+
+    private RoomView getRoomView() {
+        return getRoomView(1L);
+    }
+
+    private RoomView getRoomView(Long roomId) {
+        return new RoomView(roomId, 1L, 10, 15, LocalTime.of(15, 30), LocalTime.of(23, 30), EnumSet.allOf(DayOfWeek.class));
+    }
+}
@@ -5,16 +5,25 @@ import com.assignment.private_dining_reservation_system.entity.Reservation;
 import com.assignment.private_dining_reservation_system.entity.ReservationStatus;
 import com.assignment.private_dining_reservation_system.entity.Room;
 import com.assignment.private_dining_reservation_system.exception.ReservationValidationFailureException;
+import com.assignment.private_dining_reservation_system.model.projection.OperatingSchedule;
+import com.assignment.private_dining_reservation_system.model.projection.RoomView;
 import com.assignment.private_dining_reservation_system.model.request.ReservationRequest;
+import com.assignment.private_dining_reservation_system.model.request.ReservationTimeFrame;
 import com.assignment.private_dining_reservation_system.repository.ReservationRepository;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 
+import java.time.DayOfWeek;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -23,27 +32,43 @@ import static org.mockito.Mockito.*;
 class ReservationValidationServiceTest extends BaseTest {
     @Mock
     ReservationRepository reservationRepository;
+    @Mock
+    RoomOccupancyIndex roomOccupancyIndex;
+    //Only views of rooms passed in are used, no room is read
+    @Spy
+    RoomViewCache roomViewCache = new RoomViewCache(null, Duration.ofMinutes(5));
     @InjectMocks
     ReservationValidationService reservationValidationService;
 
     @Test
     void checkOverlap() {
         Room room = getRoom();
-        Reservation reservation = getReservation();
-        List<Reservation> reservationList = List.of(reservation);
-        when(reservationRepository.findByRoomReservationDateAndStatus(any(Room.class), any(LocalDate.class), eq(ReservationStatus.CONFIRMED))).thenReturn(reservationList);
+        when(roomOccupancyIndex.overlaps(any(), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(true);
+        when(roomOccupancyIndex.overlapsReloaded(any(), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(true);
         boolean result = reservationValidationService.checkOverlap(room, LocalDate.now().plusDays(2), LocalTime.of(14,30), LocalTime.of(14,30).plusHours(3));
         assertTrue(result);
-        verify(reservationRepository, times(1)).findByRoomReservationDateAndStatus(any(Room.class), any(LocalDate.class), eq(ReservationStatus.CONFIRMED));
+        verify(roomOccupancyIndex, times(1)).overlaps(any(), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class));
+        verifyNoInteractions(reservationRepository);
+    }
+
+    @Test
+    void checkOverlap_StaleIndexOverlapIsNotReported() {
+        Room room = getRoom();
+        //Cancelled on another instance, this instance still has it in its index
+        when(roomOccupancyIndex.overlaps(any(), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(true);
+        when(roomOccupancyIndex.overlapsReloaded(any(), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(false);
+        assertFalse(reservationValidationService.checkOverlap(room, LocalDate.now().plusDays(2), LocalTime.of(14,30), LocalTime.of(17,30)));
     }
 
     @Test
     void checkOverlap_NoOverlapResult() {
         Room room = getRoom();
-        when(reservationRepository.findByRoomReservationDateAndStatus(any(Room.class), any(LocalDate.class), eq(ReservationStatus.CONFIRMED))).thenReturn(Collections.emptyList());
+        when(roomOccupancyIndex.overlaps(any(), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(false);
         boolean result = reservationValidationService.checkOverlap(room, LocalDate.now(), LocalTime.now(), LocalTime.now().plusHours(3));
         assertFalse(result);
-        verify(reservationRepository, times(1)).findByRoomReservationDateAndStatus(any(Room.class), any(LocalDate.class), eq(ReservationStatus.CONFIRMED));
+        verify(roomOccupancyIndex, times(1)).overlaps(any(), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class));
+        verifyNoMoreInteractions(roomOccupancyIndex);
+        verifyNoInteractions(reservationRepository);
     }
 
     @Test
@@ -90,6 +115,99 @@ class ReservationValidationServiceTest extends BaseTest {
         assertThrows(ReservationValidationFailureException.class, () -> reservationValidationService.validateRoomCapacity(room, 9));
     }
 
+    @Test
+    void findConflictingRoomIds() {
+        LocalDate date = LocalDate.now().plusDays(2);
+        when(reservationRepository.findConflictingRoomIds(anyLong(), any(LocalDate.class), any(LocalDate.class), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(List.of(1L, 3L));
+        Set<Long> conflictingRoomIds = reservationValidationService.findConflictingRoomIds(1L, new ReservationTimeFrame(date, LocalTime.of(18, 0), LocalTime.of(21, 0)));
+        assertEquals(Set.of(1L, 3L), conflictingRoomIds);
+        verify(reservationRepository, times(1)).findConflictingRoomIds(1L, date.minusDays(1), date, date.atTime(18, 0), date.atTime(21, 0));
+    }
+
+    @Test
+    void findConflictingRoomIds_TimeFrameCrossingMidnight() {
+        LocalDate date = LocalDate.now().plusDays(2);
+        when(reservationRepository.findConflictingRoomIds(anyLong(), any(LocalDate.class), any(LocalDate.class), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(Collections.emptyList());
+        reservationValidationService.findConflictingRoomIds(1L, new ReservationTimeFrame(date, LocalTime.of(22, 0), LocalTime.of(1, 0)));
+        verify(reservationRepository, times(1)).findConflictingRoomIds(1L, date.minusDays(1), date.plusDays(1), date.atTime(22, 0), date.plusDays(1).atTime(1, 0));
+    }
+
+    @Test
+    void canServe_CapacityBoundsInclusive() {
+        Room room = getRoom();
+        assertTrue(ReservationValidationService.canServe(room, 10));
+        assertTrue(ReservationValidationService.canServe(room, 15));
+        assertFalse(ReservationValidationService.canServe(room, 9));
+        assertFalse(ReservationValidationService.canServe(room, 16));
+    }
+
+    @Test
+    void validateRoomCapacity_RoomView() {
+        RoomView roomView = RoomView.of(getRoom());
+        assertDoesNotThrow(() -> reservationValidationService.validateRoomCapacity(roomView, 12));
+        assertThrows(ReservationValidationFailureException.class, () -> reservationValidationService.validateRoomCapacity(roomView, 16));
+    }
+
+    @Test
+    void validateRoomOperatingHours_RoomView() {
+        Room room = getRoom();
+        RoomView roomView = RoomView.of(room);
+        LocalDate date = LocalDate.now().plusDays(1);
+        assertTrue(reservationValidationService.validateRoomOperatingHours(roomView, date, LocalTime.of(16, 0), LocalTime.of(20, 0)));
+        assertFalse(reservationValidationService.validateRoomOperatingHours(roomView, date, LocalTime.of(14, 0), LocalTime.of(18, 0)));
+        assertFalse(reservationValidationService.validateRoomOperatingHours(roomView, date, LocalTime.of(21, 0), LocalTime.of(0, 30)));
+        room.getRoomMetaData().setOpenDays(EnumSet.of(date.plusDays(1).getDayOfWeek()));
+        assertFalse(reservationValidationService.validateRoomOperatingHours(RoomView.of(room), date, LocalTime.of(16, 0), LocalTime.of(20, 0)));
+    }
+
+    @Test
+    void validateRoomOperatingHours_RoomViewOpenPastMidnight() {
+        LocalDate date = LocalDate.now().plusDays(1);
+        Room room = getRoom(1L);
+        room.getRoomMetaData().setRoomOpeningTime(LocalTime.of(20, 0));
+        room.getRoomMetaData().setRoomClosingTime(LocalTime.of(2, 0));
+        room.getRoomMetaData().setOpenDays(EnumSet.of(date.getDayOfWeek()));
+        RoomView roomView = RoomView.of(room);
+        assertTrue(reservationValidationService.validateRoomOperatingHours(roomView, date, LocalTime.of(22, 0), LocalTime.of(2, 0)));
+        assertFalse(reservationValidationService.validateRoomOperatingHours(roomView, date, LocalTime.of(23, 0), LocalTime.of(2, 30)));
+        //Early hours belong to the previous day's window, which is closed
+        assertFalse(reservationValidationService.validateRoomOperatingHours(roomView, date.plusDays(1), LocalTime.of(0, 0), LocalTime.of(1, 30)));
+        assertTrue(reservationValidationService.validateRoomOperatingHours(room, date, LocalTime.of(20, 0), LocalTime.of(23, 0)));
+        assertFalse(reservationValidationService.validateRoomOperatingHours(room, date.plusDays(1), LocalTime.of(20, 0), LocalTime.of(23, 0)));
+    }
+
+    @Test
+    void validateRoomOperatingHours_RoomReusesCachedScheduleUntilRoomChanged() {
+        LocalDate date = LocalDate.now().plusDays(1);
+        Room room = getRoom(1L);
+        assertTrue(reservationValidationService.validateRoomOperatingHours(room, date, LocalTime.of(16, 0), LocalTime.of(20, 0)));
+        RoomView roomView = roomViewCache.viewOf(room);
+        assertTrue(reservationValidationService.validateRoomOperatingHours(getRoom(1L), date, LocalTime.of(16, 0), LocalTime.of(20, 0)));
+        assertSame(roomView, roomViewCache.viewOf(getRoom(1L)));
+
+        room.getRoomMetaData().setRoomOpeningTime(LocalTime.of(17, 0));
+        assertFalse(reservationValidationService.validateRoomOperatingHours(room, date, LocalTime.of(16, 0), LocalTime.of(20, 0)));
+        assertNotSame(roomView, roomViewCache.viewOf(room));
+    }
+
+    @Test
+    void roomView_CompilesOperatingSchedule() {
+        Room room = getRoom();
+        assertEquals(OperatingSchedule.of(EnumSet.allOf(DayOfWeek.class), LocalTime.of(15, 30), LocalTime.of(23, 30)),
+                RoomView.of(room).operatingSchedule());
+        room.setRoomMetaData(null);
+        assertEquals(OperatingSchedule.CLOSED, RoomView.of(room).operatingSchedule());
+    }
+
+    @Test
+    void validateRoomOperatingHours_RoomViewWithoutMetaData() {
+        Room room = getRoom();
+        room.setRoomMetaData(null);
+        assertFalse(reservationValidationService.validateRoomOperatingHours(RoomView.of(room), LocalDate.now().plusDays(1), LocalTime.of(16, 0), LocalTime.of(20, 0)));
+    }
+
     @Test
     void getReservationsByRoomReservationDateAndStatus() {
         Reservation reservation = getReservation();
@@ -0,0 +1,208 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import com.assignment.private_dining_reservation_system.BaseTest;
+import com.assignment.private_dining_reservation_system.entity.Reservation;
+import com.assignment.private_dining_reservation_system.model.projection.RoomTimeSlot;
+import com.assignment.private_dining_reservation_system.repository.RoomRepository;
+import com.assignment.private_dining_reservation_system.service.RestaurantAvailabilityCache.DayAvailability;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class RestaurantAvailabilityCacheTest extends BaseTest {
+    private static final LocalDate DATE = LocalDate.now().plusDays(2);
+
+    @Mock
+    RoomRepository roomRepository;
+    @Mock
+    AvailabilityReadModel availabilityReadModel;
+
+    @Mock
+    RestaurantVersionTracker restaurantVersionTracker;
+
+    SimpleMeterRegistry meterRegistry;
+    RestaurantAvailabilityCache restaurantAvailabilityCache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        restaurantAvailabilityCache = new RestaurantAvailabilityCache(roomRepository, availabilityReadModel, restaurantVersionTracker, meterRegistry, 2, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void get_LoadsDayOnceWithPreviousDaySpillOver() {
+        when(roomRepository.findAllWithMetaDataByRestaurantId(1L)).thenReturn(List.of(getRoom(1L)));
+        when(availabilityReadModel.findTimeSlots(1L, DATE.minusDays(1), DATE))
+                .thenReturn(List.of(
+                        new RoomTimeSlot(1L, DATE, LocalTime.of(18, 0), LocalTime.of(21, 0)),
+                        new RoomTimeSlot(1L, DATE.minusDays(1), LocalTime.of(22, 0), LocalTime.of(2, 0))));
+
+        DayAvailability dayAvailability = restaurantAvailabilityCache.get(1L, DATE);
+        assertSame(dayAvailability, restaurantAvailabilityCache.get(1L, DATE));
+
+        assertEquals(1, dayAvailability.rooms().size());
+        assertFalse(dayAvailability.isFree(1L, 60, 180));
+        assertTrue(dayAvailability.isFree(1L, 120, 18 * 60));
+        assertFalse(dayAvailability.isFree(1L, 20 * 60, 22 * 60));
+        assertTrue(dayAvailability.isFree(1L, 21 * 60, 24 * 60));
+        assertTrue(dayAvailability.isFree(2L, 0, 24 * 60));
+        verify(roomRepository, times(1)).findAllWithMetaDataByRestaurantId(1L);
+        assertEquals(1, meterRegistry.get("cache.gets").tag("result", "hit").counter().count());
+        assertEquals(1, meterRegistry.get("cache.gets").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void reservationChanged_DropsOnlyTouchedDays() {
+        stubEmptyDays();
+        restaurantAvailabilityCache.get(1L, DATE);
+        restaurantAvailabilityCache.get(1L, DATE.plusDays(1));
+
+        restaurantAvailabilityCache.reservationChanged(getReservation(DATE, LocalTime.of(18, 0), LocalTime.of(21, 0)));
+        restaurantAvailabilityCache.get(1L, DATE);
+        restaurantAvailabilityCache.get(1L, DATE.plusDays(1));
+
+        verify(roomRepository, times(3)).findAllWithMetaDataByRestaurantId(1L);
+        assertEquals(1, meterRegistry.get("cache.gets").tag("result", "hit").counter().count());
+    }
+
+    @Test
+    void reservationChanged_CrossingMidnightDropsNextDay() {
+        stubEmptyDays();
+        restaurantAvailabilityCache.get(1L, DATE);
+        restaurantAvailabilityCache.get(1L, DATE.plusDays(1));
+
+        restaurantAvailabilityCache.reservationChanged(getReservation(DATE, LocalTime.of(22, 0), LocalTime.of(1, 0)));
+        restaurantAvailabilityCache.get(1L, DATE);
+        restaurantAvailabilityCache.get(1L, DATE.plusDays(1));
+
+        verify(roomRepository, times(4)).findAllWithMetaDataByRestaurantId(1L);
+    }
+
+    @Test
+    void invalidateRestaurant_DropsEveryDayOfRestaurant() {
+        stubEmptyDays();
+        restaurantAvailabilityCache.get(1L, DATE);
+        restaurantAvailabilityCache.get(2L, DATE);
+
+        restaurantAvailabilityCache.invalidateRestaurant(1L);
+        restaurantAvailabilityCache.get(1L, DATE);
+        restaurantAvailabilityCache.get(2L, DATE);
+
+        verify(roomRepository, times(2)).findAllWithMetaDataByRestaurantId(1L);
+        verify(roomRepository, times(1)).findAllWithMetaDataByRestaurantId(2L);
+    }
+
+    @Test
+    void get_ReloadsDayOnceRestaurantVersionMoved() {
+        when(roomRepository.findAllWithMetaDataByRestaurantId(1L)).thenReturn(List.of(getRoom(1L)));
+        when(availabilityReadModel.findTimeSlots(1L, DATE.minusDays(1), DATE)).thenReturn(Collections.emptyList());
+        //Changed on another instance after the second get
+        when(restaurantVersionTracker.version(1L)).thenReturn(3L, 3L, 4L);
+
+        DayAvailability dayAvailability = restaurantAvailabilityCache.get(1L, DATE);
+        assertSame(dayAvailability, restaurantAvailabilityCache.get(1L, DATE));
+        assertNotSame(dayAvailability, restaurantAvailabilityCache.get(1L, DATE));
+
+        verify(roomRepository, times(2)).findAllWithMetaDataByRestaurantId(1L);
+    }
+
+    @Test
+    void invalidations_AdvanceRestaurantVersion() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            restaurantAvailabilityCache.reservationChanged(getReservation(DATE, LocalTime.of(18, 0), LocalTime.of(21, 0)));
+            restaurantAvailabilityCache.invalidateRestaurant(2L);
+            restaurantAvailabilityCache.invalidateAll();
+
+            //Recorded with the changing transaction, which advances the versions and drops the days once it committed
+            verify(restaurantVersionTracker, times(1)).restaurantChanged(1L);
+            verify(restaurantVersionTracker, times(1)).restaurantChanged(2L);
+            verify(restaurantVersionTracker, times(1)).allChanged();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        verifyNoInteractions(roomRepository, availabilityReadModel);
+    }
+
+    @Test
+    void get_EvictsLeastRecentlyUsedDayBeyondMaximumSize() {
+        stubEmptyDays();
+        restaurantAvailabilityCache.get(1L, DATE);
+        restaurantAvailabilityCache.get(1L, DATE.plusDays(1));
+        restaurantAvailabilityCache.get(1L, DATE);
+        restaurantAvailabilityCache.get(1L, DATE.plusDays(2));
+
+        assertEquals(1, meterRegistry.get("cache.evictions").counter().count());
+        assertEquals(2, meterRegistry.get("cache.size").gauge().value());
+        //Most recently used day is kept
+        restaurantAvailabilityCache.get(1L, DATE);
+        assertEquals(2, meterRegistry.get("cache.gets").tag("result", "hit").counter().count());
+    }
+
+    @Test
+    void get_LoadRacingWithInvalidationIsNotCached() {
+        when(roomRepository.findAllWithMetaDataByRestaurantId(1L)).thenAnswer(invocation -> {
+            restaurantAvailabilityCache.invalidateRestaurant(1L);
+            return List.of(getRoom(1L));
+        });
+        when(availabilityReadModel.findTimeSlots(anyLong(), any(LocalDate.class), any(LocalDate.class)))
+                .thenReturn(Collections.emptyList());
+        restaurantAvailabilityCache.get(1L, DATE);
+        restaurantAvailabilityCache.get(1L, DATE);
+        verify(roomRepository, times(2)).findAllWithMetaDataByRestaurantId(1L);
+    }
+
+    @Test
+    void get_LoadRacingWithInvalidationOfOtherDayIsCached() {
+        when(roomRepository.findAllWithMetaDataByRestaurantId(1L)).thenAnswer(invocation -> {
+            restaurantAvailabilityCache.reservationChanged(getReservation(DATE.plusDays(1), LocalTime.of(18, 0), LocalTime.of(21, 0)));
+            return List.of(getRoom(1L));
+        });
+        when(availabilityReadModel.findTimeSlots(anyLong(), any(LocalDate.class), any(LocalDate.class)))
+                .thenReturn(Collections.emptyList());
+        restaurantAvailabilityCache.get(1L, DATE);
+        restaurantAvailabilityCache.get(1L, DATE);
+        verify(roomRepository, times(1)).findAllWithMetaDataByRestaurantId(1L);
+    }
+
+    @Test
+    void get_LoadRacingWithInvalidationOfSameDayIsNotCached() {
+        when(roomRepository.findAllWithMetaDataByRestaurantId(1L)).thenAnswer(invocation -> {
+            restaurantAvailabilityCache.reservationChanged(getReservation(DATE, LocalTime.of(18, 0), LocalTime.of(21, 0)));
+            return List.of(getRoom(1L));
+        });
+        when(availabilityReadModel.findTimeSlots(anyLong(), any(LocalDate.class), any(LocalDate.class)))
+                .thenReturn(Collections.emptyList());
+        restaurantAvailabilityCache.get(1L, DATE);
+        restaurantAvailabilityCache.get(1L, DATE);
+        verify(roomRepository, times(2)).findAllWithMetaDataByRestaurantId(1L);
+    }
+
+    private void stubEmptyDays() {
+        when(roomRepository.findAllWithMetaDataByRestaurantId(anyLong())).thenReturn(Collections.emptyList());
+        when(availabilityReadModel.findTimeSlots(anyLong(), any(LocalDate.class), any(LocalDate.class)))
+                .thenReturn(Collections.emptyList());
+    }
+
+    private Reservation getReservation(LocalDate reservationDate, LocalTime startTime, LocalTime endTime) {
+        Reservation reservation = getReservation();
+        reservation.getRestaurant().setId(1L);
+        reservation.setReservationDate(reservationDate);
+        reservation.setReservationStartTime(startTime);
+        reservation.setReservationEndTime(endTime);
+        return reservation;
+    }
+}
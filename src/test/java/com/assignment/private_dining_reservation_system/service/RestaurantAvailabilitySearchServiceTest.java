@@ -0,0 +1,223 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import com.assignment.private_dining_reservation_system.BaseTest;
+import com.assignment.private_dining_reservation_system.constants.Constants;
+import com.assignment.private_dining_reservation_system.entity.Room;
+import com.assignment.private_dining_reservation_system.entity.RoomType;
+import com.assignment.private_dining_reservation_system.exception.ReservationValidationFailureException;
+import com.assignment.private_dining_reservation_system.mapper.RoomMapper;
+import com.assignment.private_dining_reservation_system.model.request.ReservationTimeFrame;
+import com.assignment.private_dining_reservation_system.model.response.AvailabilitySearchResponse;
+import com.assignment.private_dining_reservation_system.model.response.RestaurantAvailableRoomsResponse;
+import com.assignment.private_dining_reservation_system.model.response.RoomResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class RestaurantAvailabilitySearchServiceTest extends BaseTest {
+    private static final ReservationTimeFrame TIME_FRAME = new ReservationTimeFrame(LocalDate.now().plusDays(2), LocalTime.of(19, 0), LocalTime.of(22, 0));
+
+    @Mock
+    RestaurantService restaurantService;
+    @Mock
+    RestaurantAvailabilityService restaurantAvailabilityService;
+
+    RestaurantAvailabilitySearchService restaurantAvailabilitySearchService;
+    CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        restaurantAvailabilitySearchService = searchService(4, Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        restaurantAvailabilitySearchService.shutdown();
+    }
+
+    @Test
+    void search_FiltersRoomTypeAndGroupSize() {
+        Room rooftop = getRoom(1L, 1L);
+        Room hall = getRoom(2L, 1L);
+        hall.setRoomType(RoomType.HALL);
+        Room smallRooftop = getRoom(3L, 2L);
+        smallRooftop.setMaxCapacity(12);
+        when(restaurantAvailabilityService.findAvailableRoomsByRestaurantId(1L, TIME_FRAME)).thenReturn(List.of(rooftop, hall));
+        when(restaurantAvailabilityService.findAvailableRoomsByRestaurantId(2L, TIME_FRAME)).thenReturn(List.of(smallRooftop));
+
+        AvailabilitySearchResponse response = restaurantAvailabilitySearchService.search(List.of(1L, 2L), TIME_FRAME, RoomType.ROOFTOP, 14);
+
+        //Restaurants without a matching room are left out
+        assertEquals(List.of(new RestaurantAvailableRoomsResponse(1L, List.of(new RoomMapper().toResponse(rooftop)))), response.restaurants());
+        assertEquals(List.of(), response.incompleteRestaurantIds());
+        assertFalse(response.partial());
+    }
+
+    @Test
+    void search_EveryRestaurantWhenNoneGiven() {
+        when(restaurantService.getAllIds()).thenReturn(List.of(1L, 2L));
+        when(restaurantAvailabilityService.findAvailableRoomsByRestaurantId(anyLong(), eq(TIME_FRAME))).thenReturn(List.of());
+
+        AvailabilitySearchResponse response = restaurantAvailabilitySearchService.search(null, TIME_FRAME, null, null);
+
+        assertEquals(List.of(), response.restaurants());
+        verify(restaurantAvailabilityService, times(1)).findAvailableRoomsByRestaurantId(1L, TIME_FRAME);
+        verify(restaurantAvailabilityService, times(1)).findAvailableRoomsByRestaurantId(2L, TIME_FRAME);
+    }
+
+    @Test
+    void search_PartialResultWhenRestaurantMissesDeadline() {
+        restaurantAvailabilitySearchService = searchService(4, Duration.ofMillis(200));
+        Room room = getRoom(1L, 1L);
+        when(restaurantAvailabilityService.findAvailableRoomsByRestaurantId(1L, TIME_FRAME)).thenReturn(List.of(room));
+        when(restaurantAvailabilityService.findAvailableRoomsByRestaurantId(2L, TIME_FRAME)).thenAnswer(invocation -> {
+            release.await();
+            return List.of(getRoom(2L, 2L));
+        });
+        when(restaurantAvailabilityService.findAvailableRoomsByRestaurantId(3L, TIME_FRAME)).thenThrow(new IllegalStateException("down"));
+
+        AvailabilitySearchResponse response = restaurantAvailabilitySearchService.search(List.of(1L, 2L, 3L), TIME_FRAME, null, null);
+
+        assertEquals(List.of(1L), response.restaurants().stream().map(RestaurantAvailableRoomsResponse::restaurantId).toList());
+        assertEquals(List.of(2L, 3L), response.incompleteRestaurantIds());
+        assertTrue(response.partial());
+    }
+
+    @Test
+    void search_BoundedParallelism() {
+        restaurantAvailabilitySearchService = searchService(2, Duration.ofSeconds(5));
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        when(restaurantAvailabilityService.findAvailableRoomsByRestaurantId(anyLong(), any(ReservationTimeFrame.class))).thenAnswer(invocation -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            running.decrementAndGet();
+            return List.of();
+        });
+
+        AvailabilitySearchResponse response = restaurantAvailabilitySearchService.search(List.of(1L, 2L, 3L, 4L, 5L, 6L), TIME_FRAME, null, null);
+
+        assertFalse(response.partial());
+        assertEquals(2, maxRunning.get());
+        verify(restaurantAvailabilityService, times(6)).findAvailableRoomsByRestaurantId(anyLong(), any(ReservationTimeFrame.class));
+    }
+
+    @Test
+    void startSearch_HandsOverRestaurantsInCompletionOrder() {
+        when(restaurantAvailabilityService.findAvailableRoomsByRestaurantId(1L, TIME_FRAME)).thenAnswer(invocation -> {
+            release.await();
+            return List.of(getRoom(1L, 1L));
+        });
+        when(restaurantAvailabilityService.findAvailableRoomsByRestaurantId(2L, TIME_FRAME)).thenReturn(List.of(getRoom(2L, 2L)));
+
+        RestaurantAvailabilitySearchService.AvailabilitySearch availabilitySearch = restaurantAvailabilitySearchService.startSearch(List.of(1L, 2L), TIME_FRAME, null, null);
+        List<Long> completed = new ArrayList<>();
+        List<Long> incompleteRestaurantIds = availabilitySearch.forEachCompleted(restaurant -> {
+            completed.add(restaurant.restaurantId());
+            //First restaurant is only released once the second one has been handed over
+            release.countDown();
+        });
+
+        assertEquals(List.of(2L, 1L), completed);
+        assertEquals(List.of(), incompleteRestaurantIds);
+    }
+
+    @Test
+    void startSearch_ConsumerFailureLeavesRunningRestaurantUninterrupted() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        when(restaurantAvailabilityService.findAvailableRoomsByRestaurantId(1L, TIME_FRAME)).thenReturn(List.of(getRoom(1L, 1L)));
+        when(restaurantAvailabilityService.findAvailableRoomsByRestaurantId(2L, TIME_FRAME)).thenAnswer(invocation -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException interruptedException) {
+                interrupted.set(true);
+                throw interruptedException;
+            } finally {
+                finished.countDown();
+            }
+            return List.of();
+        });
+
+        RestaurantAvailabilitySearchService.AvailabilitySearch availabilitySearch = restaurantAvailabilitySearchService.startSearch(List.of(1L, 2L), TIME_FRAME, null, null);
+
+        assertThrows(UncheckedIOException.class, () -> availabilitySearch.forEachCompleted(restaurant -> {
+            //Second restaurant has to be running, its JDBC call must not be interrupted
+            awaitQuietly(started);
+            throw new UncheckedIOException(new IOException("client went away"));
+        }));
+        release.countDown();
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertFalse(interrupted.get());
+    }
+
+    @Test
+    void search_AbandonedSearchSkipsRestaurantsWaitingForPermit() {
+        restaurantAvailabilitySearchService = searchService(1, Duration.ofMillis(200));
+        when(restaurantAvailabilityService.findAvailableRoomsByRestaurantId(anyLong(), eq(TIME_FRAME))).thenAnswer(invocation -> {
+            release.await();
+            return List.of();
+        });
+
+        AvailabilitySearchResponse response = restaurantAvailabilitySearchService.search(List.of(1L, 2L), TIME_FRAME, null, null);
+        assertEquals(2, response.incompleteRestaurantIds().size());
+        release.countDown();
+
+        //Restaurant holding the permit completes its query, the one waiting for it never starts one
+        verify(restaurantAvailabilityService, after(300).times(1)).findAvailableRoomsByRestaurantId(anyLong(), eq(TIME_FRAME));
+    }
+
+    @Test
+    void search_InvalidSearch() {
+        assertThrows(ReservationValidationFailureException.class, () -> restaurantAvailabilitySearchService.search(List.of(1L),
+                new ReservationTimeFrame(LocalDate.now().minusDays(1), LocalTime.of(19, 0), LocalTime.of(22, 0)), null, null));
+        assertThrows(ReservationValidationFailureException.class, () -> restaurantAvailabilitySearchService.search(List.of(1L),
+                new ReservationTimeFrame(null, LocalTime.of(19, 0), LocalTime.of(22, 0)), null, null));
+        assertThrows(ReservationValidationFailureException.class, () -> restaurantAvailabilitySearchService.search(List.of(1L),
+                TIME_FRAME, null, 0));
+        //Booking rules, a frame shorter than the minimum booking or beyond the advance booking window is not searched
+        assertThrows(ReservationValidationFailureException.class, () -> restaurantAvailabilitySearchService.search(List.of(1L),
+                new ReservationTimeFrame(TIME_FRAME.date(), LocalTime.of(19, 0), LocalTime.of(20, 0)), null, null));
+        assertThrows(ReservationValidationFailureException.class, () -> restaurantAvailabilitySearchService.search(List.of(1L),
+                new ReservationTimeFrame(LocalDate.now().plusDays(Constants.advanceBookingDays + 1), LocalTime.of(19, 0), LocalTime.of(22, 0)), null, null));
+        verifyNoInteractions(restaurantService, restaurantAvailabilityService);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private RestaurantAvailabilitySearchService searchService(int parallelism, Duration timeout) {
+        if (restaurantAvailabilitySearchService != null) {
+            restaurantAvailabilitySearchService.shutdown();
+        }
+        return new RestaurantAvailabilitySearchService(restaurantService, restaurantAvailabilityService,
+                new ReservationValidationService(null, null, null), new RoomMapper(), parallelism, timeout);
+    }
+}
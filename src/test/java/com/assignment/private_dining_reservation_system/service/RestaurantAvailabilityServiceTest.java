@@ -0,0 +1,141 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import com.assignment.private_dining_reservation_system.BaseTest;
+import com.assignment.private_dining_reservation_system.entity.Room;
+import com.assignment.private_dining_reservation_system.entity.RoomType;
+import com.assignment.private_dining_reservation_system.exception.ReservationValidationFailureException;
+import com.assignment.private_dining_reservation_system.model.projection.RoomView;
+import com.assignment.private_dining_reservation_system.model.request.ReservationTimeFrame;
+import com.assignment.private_dining_reservation_system.service.RestaurantAvailabilityCache.DayAvailability;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class RestaurantAvailabilityServiceTest extends BaseTest {
+    private static final LocalDate DATE = LocalDate.now().plusDays(2);
+
+    @Mock
+    RoomService roomService;
+    @Mock
+    ReservationValidationService reservationValidationService;
+    @Mock
+    RestaurantAvailabilityCache restaurantAvailabilityCache;
+    @InjectMocks
+    RestaurantAvailabilityService restaurantAvailabilityService;
+
+    @Test
+    void findAvailableRoomsByRestaurantId_LoadsOnlyFreeRooms() {
+        Room room = getRoom();
+        room.setId(2L);
+        byte[] occupied = OccupancyBitmap.occupy(OccupancyBitmap.empty(), 18 * 60, 21 * 60);
+        when(restaurantAvailabilityCache.get(1L, DATE)).thenReturn(new DayAvailability(
+                List.of(getRoomView(1L), getRoomView(2L)), Map.of(1L, occupied), System.nanoTime()));
+        when(reservationValidationService.validateRoomOperatingHours(any(RoomView.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(true);
+        when(roomService.getByIds(List.of(2L))).thenReturn(List.of(room));
+
+        List<Room> rooms = restaurantAvailabilityService.findAvailableRoomsByRestaurantId(1L, new ReservationTimeFrame(DATE, LocalTime.of(19, 0), LocalTime.of(22, 0)));
+
+        assertEquals(List.of(room), rooms);
+        verify(restaurantAvailabilityCache, times(1)).get(1L, DATE);
+        verify(roomService, never()).getRoomsForRestaurant(any());
+    }
+
+    @Test
+    void findAvailableRoomsByRestaurantId_NothingFreeLoadsNoRoom() {
+        byte[] occupied = OccupancyBitmap.occupy(OccupancyBitmap.empty(), 22 * 60, MinuteOfDay.MINUTES_PER_DAY);
+        byte[] nextDayOccupied = OccupancyBitmap.occupy(OccupancyBitmap.empty(), 0, 60);
+        when(restaurantAvailabilityCache.get(1L, DATE)).thenReturn(new DayAvailability(
+                List.of(getRoomView(1L), getRoomView(2L)), Map.of(1L, occupied), System.nanoTime()));
+        when(restaurantAvailabilityCache.get(1L, DATE.plusDays(1))).thenReturn(new DayAvailability(
+                List.of(getRoomView(1L), getRoomView(2L)), Map.of(2L, nextDayOccupied), System.nanoTime()));
+        when(reservationValidationService.validateRoomOperatingHours(any(RoomView.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(true);
+
+        List<Room> rooms = restaurantAvailabilityService.findAvailableRoomsByRestaurantId(1L, new ReservationTimeFrame(DATE, LocalTime.of(21, 0), LocalTime.of(0, 30)));
+
+        assertEquals(List.of(), rooms);
+        verify(roomService, never()).getByIds(anyCollection());
+    }
+
+    @Test
+    void streamAvailableRoomsByRestaurantId_LoadsRoomsPageByPage() {
+        int chunk = RestaurantAvailabilityService.ROOMS_PER_CHUNK;
+        List<RoomView> roomViews = LongStream.rangeClosed(1, chunk + 1).mapToObj(this::getRoomView).toList();
+        List<Long> firstIds = LongStream.rangeClosed(1, chunk).boxed().toList();
+        when(restaurantAvailabilityCache.get(1L, DATE)).thenReturn(new DayAvailability(roomViews, Map.of(), System.nanoTime()));
+        when(reservationValidationService.validateRoomOperatingHours(any(RoomView.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(true);
+        when(roomService.getByIds(firstIds)).thenReturn(firstIds.stream().map(this::getRoom).toList().reversed());
+        when(roomService.getByIds(List.of(chunk + 1L))).thenReturn(List.of(getRoom(chunk + 1L)));
+
+        Iterator<Room> rooms = restaurantAvailabilityService.streamAvailableRoomsByRestaurantId(1L,
+                new ReservationTimeFrame(DATE, LocalTime.of(19, 0), LocalTime.of(22, 0))).iterator();
+        assertEquals(1L, rooms.next().getId());
+        //Rooms of the next page are only loaded once the stream reaches them
+        verify(roomService, times(1)).getByIds(anyCollection());
+
+        List<Long> remainingIds = new ArrayList<>();
+        rooms.forEachRemaining(room -> remainingIds.add(room.getId()));
+        assertEquals(LongStream.rangeClosed(2, chunk + 1).boxed().toList(), remainingIds);
+        verify(roomService, times(2)).getByIds(anyCollection());
+    }
+
+    @Test
+    void streamAvailableRoomsByRestaurantId_PastDateFailsBeforeStreaming() {
+        assertThrows(ReservationValidationFailureException.class, () -> restaurantAvailabilityService.streamAvailableRoomsByRestaurantId(1L,
+                new ReservationTimeFrame(LocalDate.now().minusDays(1), LocalTime.of(18, 0), LocalTime.of(21, 0))));
+        verifyNoInteractions(restaurantAvailabilityCache, roomService);
+    }
+
+    @Test
+    void findAvailableRoomsByRestaurantId_PastDate() {
+        assertThrows(ReservationValidationFailureException.class, () -> restaurantAvailabilityService.findAvailableRoomsByRestaurantId(1L,
+                new ReservationTimeFrame(LocalDate.now().minusDays(1), LocalTime.of(18, 0), LocalTime.of(21, 0))));
+        verifyNoInteractions(restaurantAvailabilityCache);
+    }
+
+    @Test
+    void findAvailableRoomsByRestaurantAndRoomType_OneQueryForConflicts() {
+        Room room = getRoom();
+        room.setId(1L);
+        Room otherRoom = getRoom();
+        otherRoom.setId(2L);
+        ReservationTimeFrame reservationTimeFrame = new ReservationTimeFrame(DATE, LocalTime.of(18, 0), LocalTime.of(21, 0));
+        when(roomService.getByRoomTypesAndRestaurantIdAndGroupSize(List.of(RoomType.ROOFTOP), 1L, 12)).thenReturn(List.of(room, otherRoom));
+        when(reservationValidationService.findConflictingRoomIds(1L, reservationTimeFrame)).thenReturn(Set.of(1L));
+
+        List<Room> rooms = restaurantAvailabilityService.findAvailableRoomsByRestaurantAndRoomTypes(1L, List.of(RoomType.ROOFTOP), 12, reservationTimeFrame);
+
+        assertEquals(List.of(otherRoom), rooms);
+        verify(reservationValidationService, times(1)).findConflictingRoomIds(1L, reservationTimeFrame);
+        verify(reservationValidationService, never()).checkOverlap(any(Room.class), any(), any(), any());
+    }
+
+    @Test
+    void findAvailableRoomsByRestaurantAndRoomType_NoConflictQueryWhenNoRoomFitsGroup() {
+        ReservationTimeFrame reservationTimeFrame = new ReservationTimeFrame(DATE, LocalTime.of(18, 0), LocalTime.of(21, 0));
+        when(roomService.getByRoomTypesAndRestaurantIdAndGroupSize(List.of(RoomType.ROOFTOP), 1L, 40)).thenReturn(List.of());
+
+        assertEquals(List.of(), restaurantAvailabilityService.findAvailableRoomsByRestaurantAndRoomTypes(1L, List.of(RoomType.ROOFTOP), 40, reservationTimeFrame));
+        verifyNoInteractions(reservationValidationService);
+    }
+
+    private RoomView getRoomView(Long roomId) {
+        return new RoomView(roomId, 1L, 10, 15, LocalTime.of(15, 30), LocalTime.of(23, 30), EnumSet.allOf(DayOfWeek.class));
+    }
+}
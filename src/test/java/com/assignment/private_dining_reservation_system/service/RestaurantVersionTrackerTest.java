@@ -0,0 +1,120 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import com.assignment.private_dining_reservation_system.BaseTest;
+import com.assignment.private_dining_reservation_system.repository.RestaurantRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+class RestaurantVersionTrackerTest extends BaseTest {
+    @Mock
+    RestaurantRepository restaurantRepository;
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    RestaurantVersionTracker restaurantVersionTracker;
+
+    @BeforeEach
+    void setUp() {
+        restaurantVersionTracker = new RestaurantVersionTracker(restaurantRepository, transactionManager);
+    }
+
+    @Test
+    void eTag_FollowsStoredVersion() {
+        when(restaurantRepository.findAvailabilityVersionById(1L)).thenReturn(Optional.of(3L), Optional.of(3L), Optional.of(4L));
+
+        String eTag = restaurantVersionTracker.eTag(1L, "rooms");
+        assertTrue(eTag.startsWith("\"") && eTag.endsWith("\""));
+        assertEquals(eTag, restaurantVersionTracker.eTag(1L, "rooms"));
+        assertNotEquals(eTag, restaurantVersionTracker.eTag(1L, "rooms"));
+    }
+
+    @Test
+    void eTag_DiffersByVariant() {
+        assertNotEquals(restaurantVersionTracker.eTag(1L, "rooms"), restaurantVersionTracker.eTag(1L, "available-rooms"));
+    }
+
+    @Test
+    void eTag_SameOnEveryInstance() {
+        when(restaurantRepository.findAvailabilityVersionById(1L)).thenReturn(Optional.of(3L));
+
+        assertEquals(restaurantVersionTracker.eTag(1L, "rooms"),
+                new RestaurantVersionTracker(restaurantRepository, transactionManager).eTag(1L, "rooms"));
+    }
+
+    @Test
+    void eTag_SameWhileNothingChanged() {
+        when(restaurantRepository.findAvailabilityVersionById(1L)).thenReturn(Optional.of(3L));
+
+        assertEquals("\"3-%08x\"".formatted("rooms".hashCode()), restaurantVersionTracker.eTag(1L, "rooms"));
+    }
+
+    @Test
+    void restaurantChanged_WithoutTransactionIncrementsRightAway() {
+        restaurantVersionTracker.restaurantChanged(1L);
+
+        verify(restaurantRepository, times(1)).incrementAvailabilityVersion(1L);
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    void restaurantChanged_IncrementsOnceAfterCommitInIdOrder() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            restaurantVersionTracker.restaurantChanged(2L);
+            restaurantVersionTracker.restaurantChanged(1L);
+            restaurantVersionTracker.restaurantChanged(2L);
+            assertEquals(1, TransactionSynchronizationManager.getSynchronizations().size());
+
+            //Nothing is written by the changing transaction itself
+            TransactionSynchronizationManager.getSynchronizations().forEach(synchronization -> synchronization.beforeCommit(false));
+            verifyNoInteractions(restaurantRepository, transactionManager);
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        InOrder inOrder = inOrder(restaurantRepository);
+        inOrder.verify(restaurantRepository).incrementAvailabilityVersion(1L);
+        inOrder.verify(restaurantRepository).incrementAvailabilityVersion(2L);
+        verifyNoMoreInteractions(restaurantRepository);
+        verify(transactionManager, times(1)).getTransaction(argThat(definition -> definition.getPropagationBehavior() == TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+    }
+
+    @Test
+    void allChanged_IncrementsAllAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            restaurantVersionTracker.restaurantChanged(1L);
+            restaurantVersionTracker.allChanged();
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(restaurantRepository, times(1)).incrementAllAvailabilityVersions();
+        verifyNoMoreInteractions(restaurantRepository);
+    }
+
+    @Test
+    void restaurantChanged_FailedIncrementLeavesCommittedChange() {
+        when(restaurantRepository.incrementAvailabilityVersion(1L)).thenThrow(new CannotAcquireLockException("lock timeout"));
+
+        assertDoesNotThrow(() -> restaurantVersionTracker.restaurantChanged(1L));
+
+        verify(transactionManager, times(1)).rollback(any());
+    }
+}
@@ -0,0 +1,59 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import com.assignment.private_dining_reservation_system.BaseTest;
+import com.assignment.private_dining_reservation_system.entity.Reservation;
+import com.assignment.private_dining_reservation_system.entity.Room;
+import com.assignment.private_dining_reservation_system.exception.RoomNotAvailableException;
+import com.assignment.private_dining_reservation_system.repository.ReservationRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class RoomCalendarLockBookingStrategyTest extends BaseTest {
+    @Mock
+    RoomCalendarService roomCalendarService;
+    @Mock
+    ReservationRepository reservationRepository;
+    @InjectMocks
+    RoomCalendarLockBookingStrategy roomCalendarLockBookingStrategy;
+
+    @Test
+    void reserve() {
+        Reservation reservation = getReservation();
+        when(roomCalendarService.reserveOccupancy(any(Room.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(true);
+        when(reservationRepository.save(any(Reservation.class))).thenReturn(reservation);
+        Reservation reservationResult = roomCalendarLockBookingStrategy.reserve(reservation);
+        assertEquals(reservation.getId(), reservationResult.getId());
+        verify(roomCalendarService, times(1)).reserveOccupancy(any(Room.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class));
+        verify(reservationRepository, times(1)).save(any(Reservation.class));
+    }
+
+    @Test
+    void reserve_OccupiedException() {
+        Reservation reservation = getReservation();
+        when(roomCalendarService.reserveOccupancy(any(Room.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class))).thenReturn(false);
+        assertThrows(RoomNotAvailableException.class, () -> roomCalendarLockBookingStrategy.reserve(reservation));
+        verifyNoInteractions(reservationRepository);
+    }
+
+    @Test
+    void release() {
+        Reservation reservation = getReservation();
+        roomCalendarLockBookingStrategy.release(reservation);
+        verify(roomCalendarService, times(1)).releaseOccupancy(any(Room.class), any(LocalDate.class), any(LocalTime.class), any(LocalTime.class));
+    }
+
+    @Test
+    void requiresRoomDayLock() {
+        assertTrue(roomCalendarLockBookingStrategy.requiresRoomDayLock());
+    }
+}
@@ -0,0 +1,104 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import com.assignment.private_dining_reservation_system.BaseTest;
+import com.assignment.private_dining_reservation_system.constants.Constants;
+import com.assignment.private_dining_reservation_system.entity.Room;
+import com.assignment.private_dining_reservation_system.model.projection.RoomOpenDay;
+import com.assignment.private_dining_reservation_system.repository.RoomRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class RoomCalendarMaterializerTest extends BaseTest {
+    @Mock
+    RoomRepository roomRepository;
+    @Mock
+    JdbcTemplate jdbcTemplate;
+
+    RoomCalendarMaterializer roomCalendarMaterializer;
+
+    @BeforeEach
+    void setUp() {
+        roomCalendarMaterializer = new RoomCalendarMaterializer(roomRepository, jdbcTemplate, 10);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void materialize() {
+        Room room = getRoom();
+        room.setId(1L);
+        roomCalendarMaterializer.materialize(room);
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(4)).batchUpdate(anyString(), rows.capture());
+        //Open on all days, today up to the day after the last bookable day
+        assertEquals(Constants.advanceBookingDays + 2, rows.getAllValues().stream().mapToInt(List::size).sum());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void materializeAll_OpenDayAndFollowingDayOnly() {
+        DayOfWeek openDay = LocalDate.now().getDayOfWeek();
+        when(roomRepository.findIdsAfter(eq(0L), any(Pageable.class))).thenReturn(List.of(1L, 2L));
+        when(roomRepository.findIdsAfter(eq(2L), any(Pageable.class))).thenReturn(Collections.emptyList());
+        when(roomRepository.findOpenDaysByRoomIds(anyList())).thenReturn(List.of(new RoomOpenDay(1L, openDay)));
+        roomCalendarMaterializer.materializeAll();
+
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, atLeastOnce()).batchUpdate(anyString(), rows.capture());
+        List<Object[]> insertedRows = new ArrayList<>();
+        rows.getAllValues().forEach(insertedRows::addAll);
+        for (Object[] row : insertedRows) {
+            assertEquals(1L, row[0]);
+            DayOfWeek dayOfWeek = ((Date) row[1]).toLocalDate().getDayOfWeek();
+            assertTrue(EnumSet.of(openDay, openDay.plus(1)).contains(dayOfWeek));
+        }
+        verify(roomRepository, times(1)).findOpenDaysByRoomIds(List.of(1L, 2L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void materializeAll_RoomWithEmptyOpenDaysEveryDay() {
+        DayOfWeek openDay = LocalDate.now().getDayOfWeek();
+        when(roomRepository.findIdsAfter(eq(0L), any(Pageable.class))).thenReturn(List.of(1L, 2L));
+        when(roomRepository.findIdsAfter(eq(2L), any(Pageable.class))).thenReturn(Collections.emptyList());
+        when(roomRepository.findOpenDaysByRoomIds(anyList())).thenReturn(List.of(new RoomOpenDay(1L, openDay), new RoomOpenDay(2L, null)));
+        roomCalendarMaterializer.materializeAll();
+
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, atLeastOnce()).batchUpdate(anyString(), rows.capture());
+        List<Object[]> insertedRows = new ArrayList<>();
+        rows.getAllValues().forEach(insertedRows::addAll);
+        //Today up to the day after the last bookable day
+        assertEquals(Constants.advanceBookingDays + 2, insertedRows.stream().filter(row -> row[0].equals(2L)).count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void materialize_EmptyOpenDaysEveryDay() {
+        Room room = getRoom(1L);
+        room.getRoomMetaData().setOpenDays(EnumSet.noneOf(DayOfWeek.class));
+        roomCalendarMaterializer.materialize(room);
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, atLeastOnce()).batchUpdate(anyString(), rows.capture());
+        assertEquals(Constants.advanceBookingDays + 2, rows.getAllValues().stream().mapToInt(List::size).sum());
+    }
+}
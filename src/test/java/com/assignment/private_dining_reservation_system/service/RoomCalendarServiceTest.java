@@ -1,29 +1,79 @@
 package com.assignment.private_dining_reservation_system.service;
 
 import com.assignment.private_dining_reservation_system.BaseTest;
+import com.assignment.private_dining_reservation_system.entity.Reservation;
 import com.assignment.private_dining_reservation_system.entity.Room;
 import com.assignment.private_dining_reservation_system.entity.RoomCalendar;
+import com.assignment.private_dining_reservation_system.entity.ReservationStatus;
 import com.assignment.private_dining_reservation_system.exception.EntityNotFoundException;
+import com.assignment.private_dining_reservation_system.model.projection.ReservationTimeSlot;
+import com.assignment.private_dining_reservation_system.model.projection.RoomCalendarSnapshot;
+import com.assignment.private_dining_reservation_system.repository.ReservationRepository;
 import com.assignment.private_dining_reservation_system.repository.RoomCalendarRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.PersistenceContext;
+import org.hibernate.engine.spi.SessionImplementor;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.springframework.dao.DataIntegrityViolationException;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 class RoomCalendarServiceTest extends BaseTest {
     @Mock
     RoomCalendarRepository roomCalendarRepository;
+    @Mock
+    ReservationRepository reservationRepository;
+    @Mock
+    EntityManager entityManager;
 
     @InjectMocks
     RoomCalendarService roomCalendarService;
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void detachRoomCalendars_OnlyRowsOfTheTimeRange() {
+        Room room = getRoom(1L);
+        LocalDate date = LocalDate.now().plusDays(2);
+        RoomCalendar roomCalendar = getRoomCalendar(room, date);
+        RoomCalendar nextDayRoomCalendar = getRoomCalendar(room, date.plusDays(1));
+        RoomCalendar laterRoomCalendar = getRoomCalendar(room, date.plusDays(2));
+        RoomCalendar otherRoomCalendar = getRoomCalendar(getRoom(2L), date);
+        Reservation reservation = getReservation();
+        SessionImplementor session = mock(SessionImplementor.class);
+        PersistenceContext persistenceContext = mock(PersistenceContext.class);
+        when(entityManager.unwrap(SessionImplementor.class)).thenReturn(session);
+        when(session.getPersistenceContextInternal()).thenReturn(persistenceContext);
+        when(persistenceContext.reentrantSafeEntityEntries()).thenReturn(new Map.Entry[]{
+                Map.entry(roomCalendar, mock(EntityEntry.class)),
+                Map.entry(nextDayRoomCalendar, mock(EntityEntry.class)),
+                Map.entry(laterRoomCalendar, mock(EntityEntry.class)),
+                Map.entry(otherRoomCalendar, mock(EntityEntry.class)),
+                Map.entry(reservation, mock(EntityEntry.class))});
+
+        //Crosses midnight, so the next day row was booked on as well
+        roomCalendarService.detachRoomCalendars(room, date, LocalTime.of(22, 0), LocalTime.of(1, 0));
+
+        verify(entityManager, times(1)).detach(roomCalendar);
+        verify(entityManager, times(1)).detach(nextDayRoomCalendar);
+        verify(entityManager, never()).detach(laterRoomCalendar);
+        verify(entityManager, never()).detach(otherRoomCalendar);
+        verify(entityManager, never()).detach(reservation);
+    }
+
     @Test
     void lockRoomCalendarForReservationDate() {
         Room room = getRoom();
@@ -59,4 +109,162 @@ class RoomCalendarServiceTest extends BaseTest {
         verify(roomCalendarRepository, times(2)).findByRoomAndReservationDateForUpdate(any(Room.class), any(LocalDate.class));
         verify(roomCalendarRepository, times(1)).saveAndFlush(any(RoomCalendar.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    void lockRoomCalendarForReservationDate_BuildsOccupancyFromReservations() {
+        Room room = getRoom();
+        RoomCalendar roomCalendar = getRoomCalendar();
+        LocalDate date = roomCalendar.getReservationDate();
+        when(roomCalendarRepository.findByRoomAndReservationDateForUpdate(any(Room.class), any(LocalDate.class))).thenReturn(Optional.of(roomCalendar));
+        when(reservationRepository.findTimeSlotsByRoomAndDateRange(any(), eq(date.minusDays(1)), eq(date), eq(ReservationStatus.CONFIRMED)))
+                .thenReturn(List.of(new ReservationTimeSlot(date, LocalTime.of(18, 0), LocalTime.of(21, 0)),
+                        new ReservationTimeSlot(date.minusDays(1), LocalTime.of(22, 0), LocalTime.of(1, 0))));
+        RoomCalendar roomCalendarResult = roomCalendarService.lockRoomCalendarForReservationDate(room, date);
+        assertFalse(OccupancyBitmap.isFree(roomCalendarResult.getOccupancy(), 18 * 60, 21 * 60));
+        assertFalse(OccupancyBitmap.isFree(roomCalendarResult.getOccupancy(), 0, 60));
+        assertTrue(OccupancyBitmap.isFree(roomCalendarResult.getOccupancy(), 60, 18 * 60));
+    }
+
+    @Test
+    void reserveOccupancy() {
+        Room room = getRoom();
+        RoomCalendar roomCalendar = getRoomCalendar();
+        roomCalendar.setOccupancy(OccupancyBitmap.empty());
+        when(roomCalendarRepository.findByRoomAndReservationDateForUpdate(any(Room.class), any(LocalDate.class))).thenReturn(Optional.of(roomCalendar));
+        assertTrue(roomCalendarService.reserveOccupancy(room, LocalDate.now(), LocalTime.of(18, 0), LocalTime.of(21, 0)));
+        assertFalse(roomCalendarService.reserveOccupancy(room, LocalDate.now(), LocalTime.of(20, 0), LocalTime.of(23, 0)));
+        assertTrue(roomCalendarService.reserveOccupancy(room, LocalDate.now(), LocalTime.of(21, 0), LocalTime.of(23, 59)));
+        verify(roomCalendarRepository, times(2)).save(any(RoomCalendar.class));
+        verifyNoInteractions(reservationRepository);
+    }
+
+    @Test
+    void reserveOccupancy_CrossingMidnightLocksNextDay() {
+        Room room = getRoom();
+        LocalDate date = LocalDate.now();
+        RoomCalendar roomCalendar = getRoomCalendar();
+        roomCalendar.setOccupancy(OccupancyBitmap.empty());
+        RoomCalendar nextDayRoomCalendar = getRoomCalendar();
+        nextDayRoomCalendar.setReservationDate(date.plusDays(1));
+        nextDayRoomCalendar.setOccupancy(OccupancyBitmap.occupy(OccupancyBitmap.empty(), 60, 4 * 60));
+        when(roomCalendarRepository.findByRoomAndReservationDateForUpdate(any(Room.class), eq(date))).thenReturn(Optional.of(roomCalendar));
+        when(roomCalendarRepository.findByRoomAndReservationDateForUpdate(any(Room.class), eq(date.plusDays(1)))).thenReturn(Optional.of(nextDayRoomCalendar));
+
+        assertFalse(roomCalendarService.reserveOccupancy(room, date, LocalTime.of(22, 0), LocalTime.of(1, 30)));
+        assertTrue(roomCalendarService.reserveOccupancy(room, date, LocalTime.of(22, 0), LocalTime.of(1, 0)));
+        assertFalse(OccupancyBitmap.isFree(roomCalendar.getOccupancy(), 22 * 60, 24 * 60));
+        assertFalse(OccupancyBitmap.isFree(nextDayRoomCalendar.getOccupancy(), 0, 60));
+        verify(roomCalendarRepository, times(2)).save(any(RoomCalendar.class));
+    }
+
+    @Test
+    void releaseOccupancy() {
+        Room room = getRoom();
+        RoomCalendar roomCalendar = getRoomCalendar();
+        roomCalendar.setOccupancy(OccupancyBitmap.occupy(OccupancyBitmap.empty(), 18 * 60, 21 * 60));
+        when(roomCalendarRepository.findByRoomAndReservationDateForUpdate(any(Room.class), any(LocalDate.class))).thenReturn(Optional.of(roomCalendar));
+        roomCalendarService.releaseOccupancy(room, LocalDate.now(), LocalTime.of(18, 0), LocalTime.of(21, 0));
+        assertTrue(OccupancyBitmap.isFree(roomCalendar.getOccupancy(), 0, 24 * 60));
+        verify(roomCalendarRepository, times(1)).save(any(RoomCalendar.class));
+    }
+
+    @Test
+    void compareAndReserveOccupancy() {
+        Room room = getRoom();
+        LocalDate date = LocalDate.now();
+        when(roomCalendarRepository.findSnapshotByRoomIdAndReservationDate(any(), eq(date)))
+                .thenReturn(Optional.of(new RoomCalendarSnapshot(1L, date, 3L, OccupancyBitmap.empty())));
+        when(roomCalendarRepository.compareAndSetOccupancy(eq(1L), eq(3L), any(byte[].class), any(LocalDateTime.class))).thenReturn(1);
+        assertEquals(RoomCalendarService.OccupancyUpdate.APPLIED,
+                roomCalendarService.compareAndReserveOccupancy(room, date, LocalTime.of(18, 0), LocalTime.of(21, 0)));
+        verify(roomCalendarRepository, never()).findByRoomAndReservationDateForUpdate(any(Room.class), any(LocalDate.class));
+        verifyNoInteractions(reservationRepository);
+    }
+
+    @Test
+    void compareAndReserveOccupancy_Occupied() {
+        Room room = getRoom();
+        LocalDate date = LocalDate.now();
+        when(roomCalendarRepository.findSnapshotByRoomIdAndReservationDate(any(), eq(date)))
+                .thenReturn(Optional.of(new RoomCalendarSnapshot(1L, date, 3L, OccupancyBitmap.occupy(OccupancyBitmap.empty(), 20 * 60, 22 * 60))));
+        assertEquals(RoomCalendarService.OccupancyUpdate.OCCUPIED,
+                roomCalendarService.compareAndReserveOccupancy(room, date, LocalTime.of(18, 0), LocalTime.of(21, 0)));
+        verify(roomCalendarRepository, never()).compareAndSetOccupancy(anyLong(), anyLong(), any(byte[].class), any(LocalDateTime.class));
+    }
+
+    @Test
+    void compareAndReserveOccupancy_VersionConflict() {
+        Room room = getRoom();
+        LocalDate date = LocalDate.now();
+        when(roomCalendarRepository.findSnapshotByRoomIdAndReservationDate(any(), eq(date)))
+                .thenReturn(Optional.of(new RoomCalendarSnapshot(1L, date, 3L, OccupancyBitmap.empty())));
+        when(roomCalendarRepository.compareAndSetOccupancy(eq(1L), eq(3L), any(byte[].class), any(LocalDateTime.class))).thenReturn(0);
+        assertEquals(RoomCalendarService.OccupancyUpdate.VERSION_CONFLICT,
+                roomCalendarService.compareAndReserveOccupancy(room, date, LocalTime.of(18, 0), LocalTime.of(21, 0)));
+    }
+
+    @Test
+    void compareAndReserveOccupancy_CreatesMissingRow() {
+        Room room = getRoom();
+        LocalDate date = LocalDate.now();
+        when(roomCalendarRepository.findSnapshotByRoomIdAndReservationDate(any(), eq(date)))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(new RoomCalendarSnapshot(1L, date, 0L, null)));
+        when(reservationRepository.findTimeSlotsByRoomAndDateRange(any(), eq(date.minusDays(1)), eq(date), eq(ReservationStatus.CONFIRMED)))
+                .thenReturn(List.of(new ReservationTimeSlot(date, LocalTime.of(20, 0), LocalTime.of(22, 0))));
+        assertEquals(RoomCalendarService.OccupancyUpdate.OCCUPIED,
+                roomCalendarService.compareAndReserveOccupancy(room, date, LocalTime.of(18, 0), LocalTime.of(21, 0)));
+        verify(roomCalendarRepository, times(1)).insertIfAbsent(any(), eq(date), any(LocalDateTime.class));
+    }
+
+    @Test
+    void compareAndReserveOccupancy_NextDayConflictRevertsFirstDay() {
+        Room room = getRoom();
+        LocalDate date = LocalDate.now();
+        byte[] occupancy = OccupancyBitmap.empty();
+        when(roomCalendarRepository.findSnapshotByRoomIdAndReservationDate(any(), eq(date)))
+                .thenReturn(Optional.of(new RoomCalendarSnapshot(1L, date, 3L, occupancy)));
+        when(roomCalendarRepository.findSnapshotByRoomIdAndReservationDate(any(), eq(date.plusDays(1))))
+                .thenReturn(Optional.of(new RoomCalendarSnapshot(2L, date.plusDays(1), 7L, OccupancyBitmap.empty())));
+        when(roomCalendarRepository.compareAndSetOccupancy(eq(1L), eq(3L), any(byte[].class), any(LocalDateTime.class))).thenReturn(1);
+        when(roomCalendarRepository.compareAndSetOccupancy(eq(2L), eq(7L), any(byte[].class), any(LocalDateTime.class))).thenReturn(0);
+        assertEquals(RoomCalendarService.OccupancyUpdate.VERSION_CONFLICT,
+                roomCalendarService.compareAndReserveOccupancy(room, date, LocalTime.of(22, 0), LocalTime.of(1, 0)));
+        verify(roomCalendarRepository, times(1)).compareAndSetOccupancy(eq(1L), eq(4L), eq(occupancy), any(LocalDateTime.class));
+    }
+
+    @Test
+    void compareAndReleaseOccupancy() {
+        Room room = getRoom();
+        LocalDate date = LocalDate.now();
+        when(roomCalendarRepository.findSnapshotByRoomIdAndReservationDate(any(), eq(date)))
+                .thenReturn(Optional.of(new RoomCalendarSnapshot(1L, date, 3L, OccupancyBitmap.occupy(OccupancyBitmap.empty(), 18 * 60, 21 * 60))));
+        when(roomCalendarRepository.compareAndSetOccupancy(eq(1L), eq(3L), any(byte[].class), any(LocalDateTime.class))).thenReturn(1);
+        assertEquals(RoomCalendarService.OccupancyUpdate.APPLIED,
+                roomCalendarService.compareAndReleaseOccupancy(room, date, LocalTime.of(18, 0), LocalTime.of(21, 0)));
+        verify(roomCalendarRepository, times(1)).compareAndSetOccupancy(eq(1L), eq(3L), eq(OccupancyBitmap.empty()), any(LocalDateTime.class));
+    }
+
+    @Test
+    void discardOccupancy() {
+        Room room = getRoom();
+        LocalDate date = LocalDate.now();
+        roomCalendarService.discardOccupancy(room, date, LocalTime.of(18, 0), LocalTime.of(21, 0));
+        verify(roomCalendarRepository, times(1)).clearOccupancy(eq(room.getId()), eq(date), eq(date), any(LocalDateTime.class));
+    }
+
+    @Test
+    void discardOccupancy_CrossingMidnight() {
+        Room room = getRoom();
+        LocalDate date = LocalDate.now();
+        roomCalendarService.discardOccupancy(room, date, LocalTime.of(22, 0), LocalTime.of(1, 0));
+        verify(roomCalendarRepository, times(1)).clearOccupancy(eq(room.getId()), eq(date), eq(date.plusDays(1)), any(LocalDateTime.class));
+    }
+
+    private RoomCalendar getRoomCalendar(Room room, LocalDate reservationDate) {
+        RoomCalendar roomCalendar = getRoomCalendar();
+        roomCalendar.setRoom(room);
+        roomCalendar.setReservationDate(reservationDate);
+        return roomCalendar;
+    }
+}
@@ -0,0 +1,103 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import com.assignment.private_dining_reservation_system.BaseTest;
+import com.assignment.private_dining_reservation_system.exception.ReservationFailedException;
+import com.assignment.private_dining_reservation_system.exception.RoomBusyException;
+import com.assignment.private_dining_reservation_system.model.request.ReservationRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoomDayLockManagerTest extends BaseTest {
+    private static final LocalDate DATE = LocalDate.now().plusDays(2);
+
+    SimpleMeterRegistry meterRegistry;
+    RoomDayLockManager roomDayLockManager;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        roomDayLockManager = new RoomDayLockManager(meterRegistry, 1, 2, Duration.ofMillis(100));
+    }
+
+    @Test
+    void withRoomDayLock() {
+        String result = roomDayLockManager.withRoomDayLock(1L, DATE, LocalTime.of(18, 0), LocalTime.of(21, 0), () -> "booked");
+        assertEquals("booked", result);
+        assertEquals(1, meterRegistry.get("reservation.room-day-lock.wait").tag("stripe", "0").timer().count());
+        assertEquals(0.0, meterRegistry.get("reservation.room-day-lock.queue-depth").tag("stripe", "0").gauge().value());
+    }
+
+    @Test
+    void withRoomDayLock_CrossingMidnightOnSameStripe() {
+        String result = roomDayLockManager.withRoomDayLock(1L, DATE, LocalTime.of(22, 0), LocalTime.of(1, 0), () -> "booked");
+        assertEquals("booked", result);
+    }
+
+    @Test
+    void withRoomDayLock_TimeoutException() throws Exception {
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> holder = executorService.submit(() -> roomDayLockManager.withRoomDayLock(1L, DATE, LocalTime.of(18, 0), LocalTime.of(21, 0), () -> {
+                locked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException interruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                return "booked";
+            }));
+            locked.await();
+            assertThrows(ReservationFailedException.class,
+                    () -> roomDayLockManager.withRoomDayLock(1L, DATE, LocalTime.of(19, 0), LocalTime.of(22, 0), () -> "booked"));
+            assertThrows(RoomBusyException.class,
+                    () -> roomDayLockManager.withRoomDayLock(1L, DATE, LocalTime.of(19, 0), LocalTime.of(22, 0), Duration.ZERO, () -> "booked"));
+            release.countDown();
+            assertEquals("booked", holder.get());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    void partitionByStripes() {
+        RoomDayLockManager lockManager = new RoomDayLockManager(meterRegistry, 64, 2, Duration.ofMillis(100));
+        List<ReservationRequest> reservationRequests = List.of(
+                reservationRequest(1L, LocalTime.of(18, 0), LocalTime.of(21, 0)),
+                reservationRequest(1L, LocalTime.of(21, 0), LocalTime.of(22, 0)),
+                reservationRequest(2L, LocalTime.of(18, 0), LocalTime.of(21, 0)),
+                reservationRequest(3L, LocalTime.of(22, 0), LocalTime.of(1, 0)),
+                reservationRequest(4L, LocalTime.of(18, 0), LocalTime.of(21, 0)));
+        List<List<ReservationRequest>> parts = lockManager.partitionByStripes(reservationRequests, Function.identity());
+        assertEquals(reservationRequests, parts.stream().flatMap(List::stream).toList());
+        assertTrue(parts.size() >= 3);
+        assertTrue(parts.getFirst().containsAll(reservationRequests.subList(0, 2)));
+    }
+
+    @Test
+    void partitionByStripes_SharedStripesStayTogether() {
+        List<ReservationRequest> reservationRequests = List.of(
+                reservationRequest(1L, LocalTime.of(18, 0), LocalTime.of(21, 0)),
+                reservationRequest(2L, LocalTime.of(18, 0), LocalTime.of(21, 0)),
+                reservationRequest(3L, LocalTime.of(22, 0), LocalTime.of(1, 0)));
+        assertEquals(1, roomDayLockManager.partitionByStripes(reservationRequests, Function.identity()).size());
+    }
+
+    private static ReservationRequest reservationRequest(Long roomId, LocalTime startTime, LocalTime endTime) {
+        return new ReservationRequest(roomId, 1L, startTime, endTime, DATE, 10, "diner@email.com");
+    }
+}
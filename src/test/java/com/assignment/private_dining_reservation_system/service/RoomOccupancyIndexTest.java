@@ -0,0 +1,147 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import com.assignment.private_dining_reservation_system.BaseTest;
+import com.assignment.private_dining_reservation_system.entity.Reservation;
+import com.assignment.private_dining_reservation_system.entity.ReservationStatus;
+import com.assignment.private_dining_reservation_system.model.projection.ReservationTimeSlot;
+import com.assignment.private_dining_reservation_system.repository.ReservationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class RoomOccupancyIndexTest extends BaseTest {
+    private static final LocalDate DATE = LocalDate.now().plusDays(2);
+
+    @Mock
+    ReservationRepository reservationRepository;
+
+    RoomOccupancyIndex roomOccupancyIndex;
+
+    @BeforeEach
+    void setUp() {
+        roomOccupancyIndex = new RoomOccupancyIndex(reservationRepository, Duration.ofMinutes(5));
+    }
+
+    @Test
+    void overlaps() {
+        when(reservationRepository.findTimeSlotsByRoomAndDateRange(anyLong(), any(LocalDate.class), any(LocalDate.class), eq(ReservationStatus.CONFIRMED)))
+                .thenReturn(List.of(new ReservationTimeSlot(DATE, LocalTime.of(15, 30), LocalTime.of(19, 30))));
+        assertTrue(roomOccupancyIndex.overlaps(1L, DATE, LocalTime.of(14, 30), LocalTime.of(17, 30)));
+        assertTrue(roomOccupancyIndex.overlaps(1L, DATE, LocalTime.of(19, 0), LocalTime.of(22, 0)));
+        assertFalse(roomOccupancyIndex.overlaps(1L, DATE, LocalTime.of(19, 30), LocalTime.of(22, 30)));
+        assertFalse(roomOccupancyIndex.overlaps(1L, DATE, LocalTime.of(12, 30), LocalTime.of(15, 30)));
+        verify(reservationRepository, times(1)).findTimeSlotsByRoomAndDateRange(1L, DATE.minusDays(1), DATE, ReservationStatus.CONFIRMED);
+    }
+
+    @Test
+    void overlaps_PreviousDayReservationCrossingMidnight() {
+        when(reservationRepository.findTimeSlotsByRoomAndDateRange(anyLong(), any(LocalDate.class), any(LocalDate.class), eq(ReservationStatus.CONFIRMED)))
+                .thenReturn(List.of(new ReservationTimeSlot(DATE.minusDays(1), LocalTime.of(22, 0), LocalTime.of(2, 0))));
+        assertTrue(roomOccupancyIndex.overlaps(1L, DATE, LocalTime.of(1, 0), LocalTime.of(4, 0)));
+        assertFalse(roomOccupancyIndex.overlaps(1L, DATE, LocalTime.of(2, 0), LocalTime.of(5, 0)));
+    }
+
+    @Test
+    void overlaps_NewReservationCrossingMidnight() {
+        when(reservationRepository.findTimeSlotsByRoomAndDateRange(anyLong(), eq(DATE.minusDays(1)), eq(DATE), eq(ReservationStatus.CONFIRMED)))
+                .thenReturn(Collections.emptyList());
+        when(reservationRepository.findTimeSlotsByRoomAndDateRange(anyLong(), eq(DATE), eq(DATE.plusDays(1)), eq(ReservationStatus.CONFIRMED)))
+                .thenReturn(List.of(new ReservationTimeSlot(DATE.plusDays(1), LocalTime.of(0, 30), LocalTime.of(3, 30))));
+        assertTrue(roomOccupancyIndex.overlaps(1L, DATE, LocalTime.of(22, 0), LocalTime.of(1, 0)));
+        assertFalse(roomOccupancyIndex.overlaps(1L, DATE, LocalTime.of(21, 0), LocalTime.of(0, 30)));
+    }
+
+    @Test
+    void reservationConfirmed_UpdatesLoadedDay() {
+        when(reservationRepository.findTimeSlotsByRoomAndDateRange(anyLong(), any(LocalDate.class), any(LocalDate.class), eq(ReservationStatus.CONFIRMED)))
+                .thenReturn(Collections.emptyList());
+        assertFalse(roomOccupancyIndex.overlaps(1L, DATE, LocalTime.of(18, 0), LocalTime.of(21, 0)));
+
+        Reservation reservation = getReservation();
+        reservation.getRoom().setId(1L);
+        reservation.setReservationDate(DATE);
+        reservation.setReservationStartTime(LocalTime.of(17, 0));
+        reservation.setReservationEndTime(LocalTime.of(20, 0));
+        roomOccupancyIndex.reservationConfirmed(reservation);
+
+        assertTrue(roomOccupancyIndex.overlaps(1L, DATE, LocalTime.of(18, 0), LocalTime.of(21, 0)));
+        verify(reservationRepository, times(1)).findTimeSlotsByRoomAndDateRange(anyLong(), any(LocalDate.class), any(LocalDate.class), eq(ReservationStatus.CONFIRMED));
+    }
+
+    @Test
+    void reservationCancelled_ReloadsDay() {
+        when(reservationRepository.findTimeSlotsByRoomAndDateRange(anyLong(), any(LocalDate.class), any(LocalDate.class), eq(ReservationStatus.CONFIRMED)))
+                .thenReturn(List.of(new ReservationTimeSlot(DATE, LocalTime.of(17, 0), LocalTime.of(20, 0))))
+                .thenReturn(Collections.emptyList());
+        assertTrue(roomOccupancyIndex.overlaps(1L, DATE, LocalTime.of(18, 0), LocalTime.of(21, 0)));
+
+        Reservation reservation = getReservation();
+        reservation.getRoom().setId(1L);
+        reservation.setReservationDate(DATE);
+        roomOccupancyIndex.reservationCancelled(reservation);
+
+        assertFalse(roomOccupancyIndex.overlaps(1L, DATE, LocalTime.of(18, 0), LocalTime.of(21, 0)));
+        verify(reservationRepository, times(2)).findTimeSlotsByRoomAndDateRange(anyLong(), any(LocalDate.class), any(LocalDate.class), eq(ReservationStatus.CONFIRMED));
+    }
+
+    @Test
+    void overlaps_LoadRacingBookingIsNotCached() {
+        Reservation reservation = getReservation();
+        reservation.getRoom().setId(1L);
+        reservation.setReservationDate(DATE);
+        reservation.setReservationStartTime(LocalTime.of(17, 0));
+        reservation.setReservationEndTime(LocalTime.of(20, 0));
+        //Booking commits after the load read the day
+        when(reservationRepository.findTimeSlotsByRoomAndDateRange(anyLong(), any(LocalDate.class), any(LocalDate.class), eq(ReservationStatus.CONFIRMED)))
+                .thenAnswer(invocation -> {
+                    roomOccupancyIndex.reservationConfirmed(reservation);
+                    return Collections.emptyList();
+                })
+                .thenReturn(List.of(new ReservationTimeSlot(DATE, LocalTime.of(17, 0), LocalTime.of(20, 0))));
+
+        assertFalse(roomOccupancyIndex.overlaps(1L, DATE, LocalTime.of(18, 0), LocalTime.of(21, 0)));
+        assertTrue(roomOccupancyIndex.overlaps(1L, DATE, LocalTime.of(18, 0), LocalTime.of(21, 0)));
+        verify(reservationRepository, times(2)).findTimeSlotsByRoomAndDateRange(anyLong(), any(LocalDate.class), any(LocalDate.class), eq(ReservationStatus.CONFIRMED));
+    }
+
+    @Test
+    void overlapsReloaded_ReadsDayAgain() {
+        when(reservationRepository.findTimeSlotsByRoomAndDateRange(anyLong(), any(LocalDate.class), any(LocalDate.class), eq(ReservationStatus.CONFIRMED)))
+                .thenReturn(List.of(new ReservationTimeSlot(DATE, LocalTime.of(17, 0), LocalTime.of(20, 0))))
+                .thenReturn(Collections.emptyList());
+        assertTrue(roomOccupancyIndex.overlaps(1L, DATE, LocalTime.of(18, 0), LocalTime.of(21, 0)));
+        assertFalse(roomOccupancyIndex.overlapsReloaded(1L, DATE, LocalTime.of(18, 0), LocalTime.of(21, 0)));
+        assertFalse(roomOccupancyIndex.overlaps(1L, DATE, LocalTime.of(18, 0), LocalTime.of(21, 0)));
+        verify(reservationRepository, times(2)).findTimeSlotsByRoomAndDateRange(anyLong(), any(LocalDate.class), any(LocalDate.class), eq(ReservationStatus.CONFIRMED));
+    }
+
+    @Test
+    void evictExpired_RemovesExpiredAndPastDays() {
+        when(reservationRepository.findTimeSlotsByRoomAndDateRange(anyLong(), any(LocalDate.class), any(LocalDate.class), eq(ReservationStatus.CONFIRMED)))
+                .thenReturn(Collections.emptyList());
+        roomOccupancyIndex.overlaps(1L, DATE, LocalTime.of(18, 0), LocalTime.of(21, 0));
+        roomOccupancyIndex.overlaps(1L, LocalDate.now().minusDays(1), LocalTime.of(18, 0), LocalTime.of(21, 0));
+
+        roomOccupancyIndex.evictExpired();
+        assertEquals(1, roomOccupancyIndex.size());
+
+        RoomOccupancyIndex expiringIndex = new RoomOccupancyIndex(reservationRepository, Duration.ZERO);
+        expiringIndex.overlaps(1L, DATE, LocalTime.of(18, 0), LocalTime.of(21, 0));
+        expiringIndex.evictExpired();
+        assertEquals(0, expiringIndex.size());
+    }
+}
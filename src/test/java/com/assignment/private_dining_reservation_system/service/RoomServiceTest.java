@@ -23,6 +23,12 @@ class RoomServiceTest extends BaseTest {
 
     @Mock
     RoomRepository roomRepository;
+    @Mock
+    RoomCalendarMaterializer roomCalendarMaterializer;
+    @Mock
+    RoomViewCache roomViewCache;
+    @Mock
+    RestaurantAvailabilityCache restaurantAvailabilityCache;
 
     @InjectMocks
     RoomService roomService;
@@ -39,6 +45,8 @@ class RoomServiceTest extends BaseTest {
         assertEquals(room.getMinCapacity(), roomResult.getMinCapacity());
         assertEquals(room.getMaxCapacity(), roomResult.getMaxCapacity());
         assertEquals(room.getRoomType(), roomResult.getRoomType());
+        verify(roomCalendarMaterializer, times(1)).materialize(room);
+        verify(restaurantAvailabilityCache, times(1)).invalidateRestaurant(restaurant.getId());
     }
 
     @Test
@@ -63,14 +71,29 @@ class RoomServiceTest extends BaseTest {
 
 
     @Test
-    void getByRoomTypeAndRestaurantId() {
+    void getBookingContext() {
+        Room room = getRoom();
+        when(roomRepository.findBookingContextByIdAndRestaurantId(anyLong(), anyLong())).thenReturn(Optional.of(room));
+        Room roomResult = roomService.getBookingContext(1L, 1L);
+        assertEquals(room.getRestaurant(), roomResult.getRestaurant());
+        assertEquals(room.getRoomMetaData(), roomResult.getRoomMetaData());
+        verify(roomRepository, times(1)).findBookingContextByIdAndRestaurantId(anyLong(), anyLong());
+        verify(roomRepository, never()).findByIdAndRestaurantId(anyLong(), anyLong());
+    }
+
+    @Test
+    void getBookingContext_ExceptionTest() {
+        when(roomRepository.findBookingContextByIdAndRestaurantId(anyLong(), anyLong())).thenReturn(Optional.empty());
+        assertThrows(EntityNotFoundException.class, () -> roomService.getBookingContext(1L, 1L));
+        verify(roomRepository, times(1)).findBookingContextByIdAndRestaurantId(anyLong(), anyLong());
+    }
+
+    @Test
+    void getByRoomTypesAndRestaurantIdAndGroupSize() {
         List<Room> roomList = List.of(getRoom());
-        when(roomRepository.findByRoomTypeAndRestaurantId(any(RoomType.class), anyLong())).thenReturn(roomList);
-        List<Room> roomListResult = roomService.getByRoomTypeAndRestaurantId(RoomType.ROOFTOP, 1L);
-        assertEquals(roomList.size(), roomListResult.size());
-        assertEquals(roomList.getFirst().getRoomName(), roomListResult.getFirst().getRoomName());
-        assertEquals(roomList.getFirst().getRoomType(), roomListResult.getFirst().getRoomType());
-        verify(roomRepository, times(1)).findByRoomTypeAndRestaurantId(any(RoomType.class), anyLong());
+        when(roomRepository.findByRoomTypesAndRestaurantIdAndGroupSize(List.of(RoomType.ROOFTOP), 1L, 12)).thenReturn(roomList);
+        assertEquals(roomList, roomService.getByRoomTypesAndRestaurantIdAndGroupSize(List.of(RoomType.ROOFTOP), 1L, 12));
+        verify(roomRepository, times(1)).findByRoomTypesAndRestaurantIdAndGroupSize(List.of(RoomType.ROOFTOP), 1L, 12);
     }
 
     @Test
@@ -87,6 +110,9 @@ class RoomServiceTest extends BaseTest {
         assertEquals(room.getMinCapacity(), roomResult.getMinCapacity());
         assertEquals(room.getMaxCapacity(), roomResult.getMaxCapacity());
         assertEquals(room.getRoomType(), roomResult.getRoomType());
+        verify(roomCalendarMaterializer, times(1)).materialize(room);
+        verify(roomViewCache, times(1)).evict(room.getId());
+        verify(restaurantAvailabilityCache, times(1)).invalidateRestaurant(restaurant.getId());
     }
 
     @Test
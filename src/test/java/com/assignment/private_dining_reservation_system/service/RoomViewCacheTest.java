@@ -0,0 +1,112 @@
+package com.assignment.private_dining_reservation_system.service;
+
+import com.assignment.private_dining_reservation_system.BaseTest;
+import com.assignment.private_dining_reservation_system.entity.Restaurant;
+import com.assignment.private_dining_reservation_system.entity.Room;
+import com.assignment.private_dining_reservation_system.exception.EntityNotFoundException;
+import com.assignment.private_dining_reservation_system.model.projection.RoomView;
+import com.assignment.private_dining_reservation_system.repository.RoomRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RoomViewCacheTest extends BaseTest {
+
+    @Mock
+    RoomRepository roomRepository;
+
+    RoomViewCache roomViewCache;
+
+    @BeforeEach
+    void setUp() {
+        roomViewCache = new RoomViewCache(roomRepository, Duration.ofMinutes(5));
+    }
+
+    @Test
+    void get_LoadsOnceAndServesFromCache() {
+        when(roomRepository.findBookingContextByIdAndRestaurantId(1L, 1L)).thenReturn(Optional.of(getRoomWithIds()));
+        RoomView roomView = roomViewCache.get(1L, 1L);
+        assertEquals(1L, roomView.roomId());
+        assertEquals(LocalTime.of(15, 30), roomView.roomOpeningTime());
+        assertEquals(roomView, roomViewCache.get(1L, 1L));
+        verify(roomRepository, times(1)).findBookingContextByIdAndRestaurantId(1L, 1L);
+    }
+
+    @Test
+    void get_OtherRestaurantNotFound() {
+        when(roomRepository.findBookingContextByIdAndRestaurantId(1L, 1L)).thenReturn(Optional.of(getRoomWithIds()));
+        roomViewCache.get(1L, 1L);
+        assertThrows(EntityNotFoundException.class, () -> roomViewCache.get(1L, 2L));
+        verify(roomRepository, times(1)).findBookingContextByIdAndRestaurantId(1L, 1L);
+    }
+
+    @Test
+    void get_RoomNotFound() {
+        when(roomRepository.findBookingContextByIdAndRestaurantId(1L, 1L)).thenReturn(Optional.empty());
+        assertThrows(EntityNotFoundException.class, () -> roomViewCache.get(1L, 1L));
+    }
+
+    @Test
+    void evict_ReloadsOnNextAccess() {
+        Room room = getRoomWithIds();
+        when(roomRepository.findBookingContextByIdAndRestaurantId(1L, 1L)).thenReturn(Optional.of(room));
+        roomViewCache.get(1L, 1L);
+        room.setMaxCapacity(30);
+        roomViewCache.evict(1L);
+        assertEquals(30, roomViewCache.get(1L, 1L).maxCapacity());
+        verify(roomRepository, times(2)).findBookingContextByIdAndRestaurantId(1L, 1L);
+    }
+
+    @Test
+    void viewOf_KeepsCachedViewWhileRoomMatches() {
+        when(roomRepository.findBookingContextByIdAndRestaurantId(1L, 1L)).thenReturn(Optional.of(getRoomWithIds()));
+        RoomView roomView = roomViewCache.get(1L, 1L);
+        assertSame(roomView, roomViewCache.viewOf(getRoomWithIds()));
+
+        Room room = getRoomWithIds();
+        room.getRoomMetaData().setOpenDays(EnumSet.of(DayOfWeek.FRIDAY));
+        RoomView changedView = roomViewCache.viewOf(room);
+        assertNotSame(roomView, changedView);
+        assertEquals(Set.of(DayOfWeek.FRIDAY), changedView.openDays());
+        //Replaces the cached view, later bookings see the room as read in the transaction
+        assertSame(changedView, roomViewCache.get(1L, 1L));
+        verify(roomRepository, times(1)).findBookingContextByIdAndRestaurantId(1L, 1L);
+    }
+
+    @Test
+    void viewOf_RoomWithoutMetaData() {
+        Room room = getRoomWithIds();
+        room.setRoomMetaData(null);
+        RoomView roomView = roomViewCache.viewOf(room);
+        assertFalse(roomView.hasMetaData());
+        assertSame(roomView, roomViewCache.viewOf(room));
+    }
+
+    @Test
+    void get_ReloadsAfterTtl() {
+        roomViewCache = new RoomViewCache(roomRepository, Duration.ZERO);
+        when(roomRepository.findBookingContextByIdAndRestaurantId(1L, 1L)).thenReturn(Optional.of(getRoomWithIds()));
+        roomViewCache.get(1L, 1L);
+        roomViewCache.get(1L, 1L);
+        verify(roomRepository, times(2)).findBookingContextByIdAndRestaurantId(1L, 1L);
+    }
+
+    private Room getRoomWithIds() {
+        Restaurant restaurant = getRestaurant();
+        restaurant.setId(1L);
+        Room room = getRoom();
+        room.setId(1L);
+        room.setRestaurant(restaurant);
+        return room;
+    }
+}